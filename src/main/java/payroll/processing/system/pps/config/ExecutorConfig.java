@@ -0,0 +1,60 @@
+package payroll.processing.system.pps.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.task.TaskExecutorBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.AsyncAnnotationBeanPostProcessor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Workers that parse and aggregate parts of a request (files, chunks) in parallel.
+     * 0 threads means one per processor.
+     */
+    @Bean(name = "processingExecutor", destroyMethod = "shutdown")
+    public ForkJoinPool processingExecutor(@Value("${pps.processing.threads}") int threads) {
+        ForkJoinPool.ForkJoinWorkerThreadFactory threadFactory = pool -> {
+            var thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+            thread.setName("pps-worker-" + thread.getPoolIndex());
+            return thread;
+        };
+
+        return new ForkJoinPool(threads > 0 ? threads : Runtime.getRuntime().availableProcessors(),
+                threadFactory, null, false);
+    }
+
+    /**
+     * Runs payroll jobs submitted asynchronously, off the servlet threads.
+     * A job waits in the bounded queue while every thread is busy and is rejected when the queue is full.
+     */
+    @Bean(name = "jobExecutor", destroyMethod = "shutdown")
+    public ThreadPoolExecutor jobExecutor(@Value("${pps.jobs.threads}") int threads,
+                                          @Value("${pps.jobs.queue-capacity}") int queueCapacity) {
+        var counter = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "pps-job-" + counter.incrementAndGet()));
+    }
+
+    /**
+     * Boot backs off its application task executor as soon as any Executor bean exists, and the pools above are.
+     * It is declared here under Boot's names, so streamed responses, deferred results and @Async methods
+     * still run on a pool configured by {@code spring.task.execution} instead of a thread per task.
+     */
+    @Lazy
+    @Bean(name = {TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME,
+            AsyncAnnotationBeanPostProcessor.DEFAULT_TASK_EXECUTOR_BEAN_NAME})
+    public ThreadPoolTaskExecutor applicationTaskExecutor(TaskExecutorBuilder builder) {
+        return builder.build();
+    }
+}
@@ -0,0 +1,40 @@
+package payroll.processing.system.pps.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import payroll.processing.system.pps.util.PayrollJsonModule;
+import payroll.processing.system.pps.util.PayrollResponseWriter;
+
+import java.util.LinkedHashMap;
+
+@Configuration
+public class JacksonConfig {
+
+    /**
+     * Registered after the Java time module, so its serializers take precedence in the object mapper.
+     */
+    @Bean
+    public Module payrollJsonModule() {
+        return new PayrollJsonModule();
+    }
+
+    /**
+     * JSON stays the default, Smile and CBOR are written when the accept header asks for them.
+     */
+    @Bean
+    public PayrollResponseWriter payrollResponseWriter(ObjectMapper objectMapper) {
+        var factories = new LinkedHashMap<MediaType, JsonFactory>();
+        factories.put(MediaType.APPLICATION_JSON, objectMapper.getFactory());
+        factories.put(MediaType.parseMediaType(PayrollResponseWriter.SMILE_VALUE),
+                SmileMapper.builder().addModule(new PayrollJsonModule()).build().getFactory());
+        factories.put(MediaType.parseMediaType(PayrollResponseWriter.CBOR_VALUE),
+                CBORMapper.builder().addModule(new PayrollJsonModule()).build().getFactory());
+        return new PayrollResponseWriter(factories);
+    }
+}
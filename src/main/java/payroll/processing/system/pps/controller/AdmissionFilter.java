@@ -0,0 +1,145 @@
+package payroll.processing.system.pps.controller;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import payroll.processing.system.pps.domain.Reservation;
+import payroll.processing.system.pps.service.AdmissionService;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Reserves the heap of an upload to /reports before its multipart body is read, from its content length.
+ * An upload that has to wait for its reservation waits asynchronously, without a servlet thread, and is dispatched
+ * once it is admitted. An upload that cannot reserve it in time is answered with 503 and Retry-After.
+ * <p>
+ * The reservation is released when the request is done, also when its response is streamed asynchronously,
+ * times out or fails, and is passed to the controller as the {@link #RESERVATION} request attribute.
+ */
+@Component
+@RequiredArgsConstructor
+public class AdmissionFilter extends OncePerRequestFilter {
+    public static final String RESERVATION = "pps.admission.reservation";
+    private static final String PATH = "/api/v1/reports";
+
+    private final AdmissionService admissionService;
+
+    @Value("${pps.admission.max-wait}")
+    private Duration maxWait;
+
+    @Value("${pps.admission.retry-after}")
+    private Duration retryAfter;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod())
+                || !PATH.equals(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        var admission = admissionService.reserve(request.getContentLengthLong());
+        if (admission.isDone()) {
+            var reservation = admission.join();
+            if (reservation.isEmpty()) {
+                reject(response);
+                return;
+            }
+            process(reservation.get(), request, response, chain);
+            return;
+        }
+
+        var async = request.startAsync(request, response);
+        async.setTimeout(maxWait.toMillis() * 2);
+        async.addListener(new Releaser(admission));
+        admission.thenAccept(reservation -> {
+            if (!request.isAsyncStarted()) {
+                return;
+            }
+            if (reservation.isPresent()) {
+                request.setAttribute(RESERVATION, reservation.get());
+                async.dispatch();
+            } else {
+                reject((HttpServletResponse) async.getResponse());
+                async.complete();
+            }
+        });
+    }
+
+    private void process(Reservation reservation, HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        request.setAttribute(RESERVATION, reservation);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new Releaser(reservation));
+            } else {
+                admissionService.release(reservation);
+            }
+        }
+    }
+
+    private void reject(HttpServletResponse response) {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter.toSeconds()));
+    }
+
+    /**
+     * Releases the reservation at the end of the request, whichever way it ends. A request that ends while it still
+     * waits gives up its place, and a reservation made meanwhile is released by the admission service.
+     * The listener moves on to the async cycle the dispatched request may start, since a new cycle drops
+     * the listeners of the old one.
+     */
+    private class Releaser implements AsyncListener {
+        private final CompletableFuture<Optional<Reservation>> admission;
+
+        Releaser(Reservation reservation) {
+            this(CompletableFuture.completedFuture(Optional.of(reservation)));
+        }
+
+        Releaser(CompletableFuture<Optional<Reservation>> admission) {
+            this.admission = admission;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release() {
+            if (!admission.complete(Optional.empty())) {
+                admission.join().ifPresent(admissionService::release);
+            }
+        }
+    }
+}
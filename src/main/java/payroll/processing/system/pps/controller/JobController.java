@@ -0,0 +1,84 @@
+package payroll.processing.system.pps.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import payroll.processing.system.pps.domain.Job;
+import payroll.processing.system.pps.service.JobService;
+
+import java.time.Duration;
+import java.util.concurrent.RejectedExecutionException;
+
+
+@RestController
+@RequestMapping("/api/v1")
+@RequiredArgsConstructor
+public class JobController {
+    private final JobService jobService;
+
+    @Value("${pps.jobs.max-wait}")
+    private Duration maxWait;
+
+    @PostMapping(value = "/jobs", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE}, produces = "application/json")
+    public ResponseEntity<Job> submitJob(@RequestParam(value = "files") MultipartFile[] files) {
+        Job job;
+        try {
+            job = jobService.submit(files);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many payroll jobs are waiting");
+        }
+
+        return ResponseEntity.accepted()
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(job.getId()).toUri())
+                .body(job);
+    }
+
+    @GetMapping(value = "/jobs/{id}", produces = "application/json")
+    public Job getJob(@PathVariable String id) {
+        return findJob(id);
+    }
+
+    /**
+     * Returns the report of a finished job. A running job is returned with 202 once the wait in seconds is over,
+     * the request waits without holding a servlet thread.
+     */
+    @GetMapping(value = "/jobs/{id}/result", produces = "application/json")
+    public DeferredResult<ResponseEntity<?>> getJobResult(@PathVariable String id,
+                                                          @RequestParam(value = "wait", defaultValue = "0") long wait) {
+        var job = findJob(id);
+        var timeout = Duration.ofSeconds(Math.max(wait, 0));
+        if (timeout.compareTo(maxWait) > 0) {
+            timeout = maxWait;
+        }
+
+        var deferred = new DeferredResult<ResponseEntity<?>>(Math.max(timeout.toMillis(), 1),
+                () -> ResponseEntity.accepted().body(job));
+        if (!job.getResult().isDone() && timeout.isZero()) {
+            deferred.setResult(ResponseEntity.accepted().body(job));
+            return deferred;
+        }
+
+        var result = job.getResult();
+        deferred.onCompletion(jobService.onFinished(job, () -> deferred.setResult(result.isCompletedExceptionally()
+                ? ResponseEntity.internalServerError().body(job)
+                : ResponseEntity.ok(result.join()))));
+        return deferred;
+    }
+
+    private Job findJob(String id) {
+        return jobService.getJob(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "There is no job: " + id));
+    }
+}
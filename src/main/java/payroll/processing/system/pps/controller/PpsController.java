@@ -1,14 +1,38 @@
 package payroll.processing.system.pps.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import payroll.processing.system.pps.domain.AdmissionResponse;
+import payroll.processing.system.pps.domain.LocalFile;
 import payroll.processing.system.pps.domain.PayrollResponse;
+import payroll.processing.system.pps.domain.Reservation;
+import payroll.processing.system.pps.domain.enumaration.ReportSection;
+import payroll.processing.system.pps.service.AdmissionService;
+import payroll.processing.system.pps.service.LiveReportService;
 import payroll.processing.system.pps.service.PpsService;
+import payroll.processing.system.pps.util.PayrollResponseWriter;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Supplier;
 
 
 @RestController
@@ -16,9 +40,114 @@ import payroll.processing.system.pps.service.PpsService;
 @RequiredArgsConstructor
 public class PpsController {
     private final PpsService ppsService;
+    private final LiveReportService liveReportService;
+    private final PayrollResponseWriter payrollResponseWriter;
+    private final AdmissionService admissionService;
+
+    @Value("${pps.ingest.local-dir}")
+    private String localDir;
+
+    @PostMapping(value = "/reports", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, PayrollResponseWriter.SMILE_VALUE, PayrollResponseWriter.CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> processPayroll(@RequestParam(value = "files") MultipartFile[] files,
+                                                                @RequestParam(value = "sections", required = false) List<String> sections,
+                                                                @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                                @RequestAttribute(value = AdmissionFilter.RESERVATION, required = false) Reservation reservation) {
+        if (reservation != null) {
+            reservation.setFiles(Arrays.stream(files).map(MultipartFile::getOriginalFilename).toList());
+        }
+        if (sections == null || sections.isEmpty()) {
+            return stream(accept, () -> ppsService.processPayroll(files));
+        }
+
+        var requested = EnumSet.noneOf(ReportSection.class);
+        try {
+            sections.forEach(section -> requested.add(ReportSection.of(section)));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return stream(accept, () -> ppsService.processPayroll(files, requested));
+    }
+
+    /**
+     * The heap reserved for the uploads of /reports being processed, and the uploads waiting for it.
+     */
+    @GetMapping(value = "/reports/admissions", produces = "application/json")
+    public AdmissionResponse getAdmissions() {
+        return admissionService.getAdmissions();
+    }
+
+    /**
+     * Processes files of the configured local directory, paths are relative to it.
+     */
+    @PostMapping(value = "/reports/local",
+            produces = {MediaType.APPLICATION_JSON_VALUE, PayrollResponseWriter.SMILE_VALUE, PayrollResponseWriter.CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> processLocalPayroll(@RequestParam(value = "paths") List<String> paths,
+                                                                     @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        if (localDir.isBlank()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Local ingestion is not enabled");
+        }
+
+        var base = Path.of(localDir).toAbsolutePath().normalize();
+        var resolved = paths.stream()
+                .map(path -> new LocalFile(path, base.resolve(path).normalize()))
+                .toList();
+        if (resolved.stream().anyMatch(file -> !file.getPath().startsWith(base))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Paths must be inside the local directory");
+        }
+
+        return stream(accept, () -> ppsService.processLocalFiles(resolved));
+    }
+
+    /**
+     * Adds the files to the live report that keeps running across uploads, returns only the errors of these files.
+     */
+    @PostMapping(value = "/reports/live", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, PayrollResponseWriter.SMILE_VALUE, PayrollResponseWriter.CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> addToLiveReport(@RequestParam(value = "files") MultipartFile[] files,
+                                                                 @RequestParam(value = "source", required = false) String source,
+                                                                 @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return stream(accept, () -> liveReportService.addFiles(files, source));
+    }
+
+    /**
+     * Takes the last upload of the source out of the live report.
+     */
+    @DeleteMapping(value = "/reports/live/{source}")
+    public ResponseEntity<Void> retractFromLiveReport(@PathVariable String source) {
+        if (!liveReportService.retract(source)) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "There is no source: " + source);
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    @GetMapping(value = "/reports/live",
+            produces = {MediaType.APPLICATION_JSON_VALUE, PayrollResponseWriter.SMILE_VALUE, PayrollResponseWriter.CBOR_VALUE})
+    public ResponseEntity<StreamingResponseBody> getLiveReport(@RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return stream(accept, liveReportService::getReport);
+    }
+
+    /**
+     * The response is encoded straight into the servlet output stream instead of into a buffer first. The report is
+     * processed completely before the first byte is written, since its totals depend on every record.
+     * JSON is the default, Smile or CBOR are written when the accept header prefers them.
+     * The encoding is negotiated before the payroll is processed.
+     */
+    private ResponseEntity<StreamingResponseBody> stream(String accept, Supplier<PayrollResponse> processing) {
+        var mediaType = negotiate(accept);
+
+        var response = processing.get();
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .body(out -> payrollResponseWriter.write(response, mediaType, out));
+    }
 
-    @PostMapping(value = "/reports", consumes = {MediaType.MULTIPART_FORM_DATA_VALUE}, produces = "application/json")
-    public PayrollResponse processPayroll(@RequestParam(value = "files") MultipartFile[] files) {
-        return ppsService.processPayroll(files);
+    private MediaType negotiate(String accept) {
+        var mediaType = payrollResponseWriter.negotiate(accept);
+        if (mediaType == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Acceptable encodings: " +
+                    MediaType.APPLICATION_JSON_VALUE + ", " + PayrollResponseWriter.SMILE_VALUE + ", " + PayrollResponseWriter.CBOR_VALUE);
+        }
+        return mediaType;
     }
 }
@@ -0,0 +1,20 @@
+package payroll.processing.system.pps.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.util.List;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AdmissionResponse {
+    long budgetBytes;
+    long reservedBytes;
+    int queuedUploads;
+    List<Reservation> reservations;
+}
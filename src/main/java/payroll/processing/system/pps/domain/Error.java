@@ -3,8 +3,12 @@ package payroll.processing.system.pps.domain;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
+import payroll.processing.system.pps.util.ErrorCollector;
 
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -16,4 +20,17 @@ public class Error {
     List<String> fileErrors;
     List<String> recordErrors;
     List<String> reportErrors;
+
+    /**
+     * The error lists keep only the first errors of every category, the counts include the others.
+     *
+     * @return null if there are no errors
+     */
+    public Map<ErrorCategory, Long> getErrorCounts() {
+        var counts = new EnumMap<ErrorCategory, Long>(ErrorCategory.class);
+        ErrorCollector.count(fileErrors, ErrorCategory.FILE, counts);
+        ErrorCollector.count(recordErrors, ErrorCategory.INVALID_RECORD, counts);
+        ErrorCollector.count(reportErrors, ErrorCategory.INCONSISTENT_REPORT, counts);
+        return counts.isEmpty() ? null : counts;
+    }
 }
@@ -0,0 +1,20 @@
+package payroll.processing.system.pps.domain;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Part of a local file that starts at the beginning of a line and ends after a line break (or at the end of the file).
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class FileChunk {
+    String fileName;
+    long offset;
+    ByteBuffer buffer;
+}
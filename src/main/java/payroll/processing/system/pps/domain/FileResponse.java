@@ -15,4 +15,14 @@ import java.util.List;
 public class FileResponse {
     List<String[]> lines;
     List<String> errors;
+    /**
+     * The files that have lines and the number of lines of each, in upload order.
+     */
+    List<String> fileNames;
+    List<Long> lineCounts;
+
+    public FileResponse(List<String[]> lines, List<String> errors) {
+        this.lines = lines;
+        this.errors = errors;
+    }
 }
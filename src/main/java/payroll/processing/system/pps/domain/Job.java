@@ -0,0 +1,37 @@
+package payroll.processing.system.pps.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import payroll.processing.system.pps.domain.enumaration.JobStatus;
+
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Job {
+    String id;
+    volatile JobStatus status;
+    Instant submittedAt;
+    volatile Instant finishedAt;
+    volatile String failure;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    CompletableFuture<PayrollResponse> result;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    @Builder.Default
+    Set<Runnable> listeners = ConcurrentHashMap.newKeySet();
+}
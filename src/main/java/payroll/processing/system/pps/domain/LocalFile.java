@@ -0,0 +1,29 @@
+package payroll.processing.system.pps.domain;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.nio.file.Path;
+
+/**
+ * A file on the local disk with the name it is reported by, e.g. the original name of an upload copied to a temporary file.
+ * The content hash is the hex SHA-256 of the content if it was computed while the file was copied, null otherwise.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class LocalFile {
+    String fileName;
+    Path path;
+    String contentHash;
+
+    public LocalFile(String fileName, Path path) {
+        this(fileName, path, null);
+    }
+
+    public static LocalFile of(Path path) {
+        return new LocalFile(String.valueOf(path.getFileName()), path);
+    }
+}
@@ -0,0 +1,29 @@
+package payroll.processing.system.pps.domain;
+
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+import payroll.processing.system.pps.domain.enumaration.ReportSection;
+import payroll.processing.system.pps.domain.report.Report;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Report of a part of the input (one file, one chunk) together with its errors.
+ * Records whose employee was not known inside the part are kept in {@code deferred}
+ * and resolved against the preceding parts when the partial reports are merged.
+ * Only the {@code sections} of the report are aggregated.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+public class PartialReport {
+    Report report;
+    Set<ReportSection> sections;
+    List<Record<?>> deferred;
+    List<String> reportErrors;
+    List<String> recordErrors;
+    List<String> fileErrors;
+}
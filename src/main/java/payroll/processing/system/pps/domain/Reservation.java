@@ -0,0 +1,25 @@
+package payroll.processing.system.pps.domain;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+import lombok.experimental.FieldDefaults;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Heap reserved for an upload while it is processed, estimated from the sizes of its files.
+ */
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class Reservation {
+    long id;
+    List<String> files;
+    long uploadBytes;
+    long reservedBytes;
+    Instant reservedAt;
+}
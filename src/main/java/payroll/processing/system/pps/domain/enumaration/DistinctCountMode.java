@@ -0,0 +1,6 @@
+package payroll.processing.system.pps.domain.enumaration;
+
+public enum DistinctCountMode {
+    BITMAP,
+    HYPERLOGLOG;
+}
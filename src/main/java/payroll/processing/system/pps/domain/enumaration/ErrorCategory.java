@@ -0,0 +1,30 @@
+package payroll.processing.system.pps.domain.enumaration;
+
+import java.time.DateTimeException;
+
+public enum ErrorCategory {
+    FILE,
+    MALFORMED_LINE,
+    INVALID_NUMBER,
+    INVALID_DATE,
+    UNKNOWN_EVENT_TYPE,
+    INVALID_RECORD,
+    UNKNOWN_EMPLOYEE,
+    INCONSISTENT_REPORT;
+
+    /**
+     * @return the category of a line whose record cannot be built because of the exception
+     */
+    public static ErrorCategory of(Exception e) {
+        if (e instanceof IndexOutOfBoundsException || e instanceof NullPointerException) {
+            return MALFORMED_LINE;
+        } else if (e instanceof NumberFormatException || e instanceof ArithmeticException) {
+            return INVALID_NUMBER;
+        } else if (e instanceof DateTimeException) {
+            return INVALID_DATE;
+        } else if (e instanceof IllegalArgumentException) {
+            return UNKNOWN_EVENT_TYPE;
+        }
+        return INVALID_RECORD;
+    }
+}
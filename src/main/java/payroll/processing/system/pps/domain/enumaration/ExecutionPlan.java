@@ -0,0 +1,7 @@
+package payroll.processing.system.pps.domain.enumaration;
+
+public enum ExecutionPlan {
+    INLINE,
+    PER_FILE,
+    CHUNK;
+}
@@ -0,0 +1,8 @@
+package payroll.processing.system.pps.domain.enumaration;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    SUCCEEDED,
+    FAILED;
+}
@@ -0,0 +1,12 @@
+package payroll.processing.system.pps.domain.enumaration;
+
+public enum ProcessingMode {
+    MATERIALIZED,
+    COLUMNAR,
+    STREAMING,
+    PARALLEL,
+    PARTITIONED,
+    PIPELINED,
+    CHRONOLOGICAL,
+    AUTO;
+}
@@ -0,0 +1,32 @@
+package payroll.processing.system.pps.domain.enumaration;
+
+import java.util.Arrays;
+
+public enum ReportSection {
+    TOTAL_EMPLOYEES("totalEmployees"),
+    EMPLOYEE_REPORTS("employeeReports"),
+    MONTHLY_EMPLOYEE_REPORTS("monthlyEmployeeReports"),
+    MONTHLY_SALARY_REPORTS("monthlySalaryReports"),
+    MONTHLY_PAID_REPORTS("monthlyPaidReports"),
+    YEARLY_REPORTS("yearlyReports");
+
+    private final String field;
+
+    ReportSection(String field) {
+        this.field = field;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    /**
+     * @param name the field of the report or the name of the section
+     */
+    public static ReportSection of(String name) {
+        return Arrays.stream(values())
+                .filter(section -> section.field.equals(name.trim()) || section.name().equals(name.trim()))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("There is no report section: " + name));
+    }
+}
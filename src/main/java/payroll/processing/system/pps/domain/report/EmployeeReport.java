@@ -1,8 +1,10 @@
 package payroll.processing.system.pps.domain.report;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import payroll.processing.system.pps.util.MoneyAccumulator;
 
 import java.math.BigDecimal;
 
@@ -18,4 +20,18 @@ public class EmployeeReport {
     String surname;
     String designation;
     BigDecimal totalPaid;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    MoneyAccumulator paid;
+
+    public BigDecimal getTotalPaid() {
+        return paid == null ? totalPaid : paid.toBigDecimal();
+    }
+
+    public void setTotalPaid(BigDecimal totalPaid) {
+        this.totalPaid = totalPaid;
+        this.paid = null;
+    }
 }
@@ -1,12 +1,14 @@
 package payroll.processing.system.pps.domain.report;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import payroll.processing.system.pps.util.DistinctCounter;
+import payroll.processing.system.pps.util.MoneyAccumulator;
 
 import java.math.BigDecimal;
 import java.time.YearMonth;
-import java.util.List;
 
 @AllArgsConstructor
 @NoArgsConstructor
@@ -18,5 +20,23 @@ public class MonthlyPaidReport {
     YearMonth month;
     BigDecimal totalPaid;
     Long totalEmployees;
-    List<String> employeeIds;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    DistinctCounter employees;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    MoneyAccumulator paid;
+
+    public BigDecimal getTotalPaid() {
+        return paid == null ? totalPaid : paid.toBigDecimal();
+    }
+
+    public void setTotalPaid(BigDecimal totalPaid) {
+        this.totalPaid = totalPaid;
+        this.paid = null;
+    }
 }
@@ -1,8 +1,10 @@
 package payroll.processing.system.pps.domain.report;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
+import payroll.processing.system.pps.util.MoneyAccumulator;
 
 import java.math.BigDecimal;
 import java.time.YearMonth;
@@ -17,4 +19,18 @@ public class MonthlySalaryReport {
     YearMonth month;
     BigDecimal totalSalary;
     Long totalEmployees;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    MoneyAccumulator salary;
+
+    public BigDecimal getTotalSalary() {
+        return salary == null ? totalSalary : salary.toBigDecimal();
+    }
+
+    public void setTotalSalary(BigDecimal totalSalary) {
+        this.totalSalary = totalSalary;
+        this.salary = null;
+    }
 }
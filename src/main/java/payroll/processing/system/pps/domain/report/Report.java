@@ -1,5 +1,6 @@
 package payroll.processing.system.pps.domain.report;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.*;
 import lombok.experimental.FieldDefaults;
@@ -19,4 +20,9 @@ public class Report {
     List<MonthlySalaryReport> monthlySalaryReports;
     List<MonthlyPaidReport> monthlyPaidReports;
     List<YearlyReport> yearlyReports;
+
+    @JsonIgnore
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    transient ReportIndex index;
 }
@@ -0,0 +1,31 @@
+package payroll.processing.system.pps.domain.report;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.FieldDefaults;
+import lombok.experimental.NonFinal;
+import payroll.processing.system.pps.util.EmployeeDictionary;
+import payroll.processing.system.pps.util.EventTiers;
+import payroll.processing.system.pps.util.ListIndex;
+
+import java.time.Year;
+import java.time.YearMonth;
+
+/**
+ * Lookup structures over the lists of a {@link Report}, keyed by employee id, month and year,
+ * and the heap budget of its yearly events. It is working state of the aggregation and is not part of the response.
+ */
+@Getter
+@FieldDefaults(level = AccessLevel.PRIVATE, makeFinal = true)
+public class ReportIndex {
+    ListIndex<String, EmployeeReport> employeeReports = new ListIndex<>(EmployeeReport::getId);
+    ListIndex<YearMonth, MonthlyEmployeeReport> monthlyEmployeeReports = new ListIndex<>(MonthlyEmployeeReport::getMonth);
+    ListIndex<YearMonth, MonthlySalaryReport> monthlySalaryReports = new ListIndex<>(MonthlySalaryReport::getMonth);
+    ListIndex<YearMonth, MonthlyPaidReport> monthlyPaidReports = new ListIndex<>(MonthlyPaidReport::getMonth);
+    ListIndex<Year, YearlyReport> yearlyReports = new ListIndex<>(YearlyReport::getYear);
+    EmployeeDictionary employeeDictionary = new EmployeeDictionary();
+    @NonFinal
+    @Setter
+    EventTiers eventTiers;
+}
@@ -0,0 +1,176 @@
+package payroll.processing.system.pps.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import payroll.processing.system.pps.domain.AdmissionResponse;
+import payroll.processing.system.pps.domain.Reservation;
+import payroll.processing.system.pps.domain.enumaration.ProcessingMode;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Admits uploads while the heap they are estimated to need fits into the budget. The estimate is the size of
+ * the upload times the heap needed per byte of an upload in the processing mode: modes that hold every record
+ * of the upload need more than the ones that aggregate records as they are read. The budget is counted in kilobytes
+ * and handed out first come, first served, so an upload that does not fit waits for the ones before it to finish,
+ * until the longest wait is over. Nobody blocks while waiting: a reservation is a future that completes when it is
+ * made or when the wait is over.
+ * An upload larger than the budget reserves the whole budget and runs alone.
+ */
+@Service
+@Slf4j
+public class AdmissionService {
+    private static final long PERMIT_BYTES = 1024;
+
+    private final Map<Long, Reservation> reservations = new ConcurrentHashMap<>();
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @Value("${pps.admission.budget}")
+    private String budget;
+
+    @Value("${pps.admission.heap-per-upload-byte}")
+    private int heapPerUploadByte;
+
+    @Value("${pps.admission.streaming-heap-per-upload-byte}")
+    private int streamingHeapPerUploadByte;
+
+    @Value("${pps.admission.max-wait}")
+    private Duration maxWait;
+
+    @Value("${pps.processing.mode}")
+    private ProcessingMode mode;
+
+    private long budgetPermits;
+    private long availablePermits;
+
+    @PostConstruct
+    public void init() {
+        var budgetBytes = budget.isBlank() ? Runtime.getRuntime().maxMemory() / 2 : DataSize.parse(budget).toBytes();
+        budgetPermits = Math.max(budgetBytes / PERMIT_BYTES, 1);
+        availablePermits = budgetPermits;
+
+        log.info("Uploads are admitted within a heap budget of {} bytes", budgetPermits * PERMIT_BYTES);
+    }
+
+    /**
+     * Reserves the estimated heap of an upload, waiting for it at most the longest wait.
+     *
+     * @param uploadBytes the size of the upload, negative if it is not known, which reserves the whole budget
+     * @return completes with the reservation, or empty if the reservation could not be made in time
+     */
+    public CompletableFuture<Optional<Reservation>> reserve(long uploadBytes) {
+        var permits = budgetPermits;
+        if (uploadBytes >= 0) {
+            var estimate = uploadBytes * heapPerUploadByte(mode);
+            permits = Math.min(Math.max((estimate + PERMIT_BYTES - 1) / PERMIT_BYTES, 1), budgetPermits);
+        }
+
+        var waiter = new Waiter(uploadBytes, permits, new CompletableFuture<>());
+        synchronized (this) {
+            if (waiters.isEmpty() && availablePermits >= permits) {
+                availablePermits -= permits;
+                return CompletableFuture.completedFuture(Optional.of(reservation(waiter)));
+            }
+            waiters.add(waiter);
+        }
+
+        waiter.admission.completeOnTimeout(Optional.empty(), maxWait.toMillis(), TimeUnit.MILLISECONDS)
+                .thenAccept(reservation -> {
+                    if (reservation.isEmpty()) {
+                        synchronized (this) {
+                            waiters.remove(waiter);
+                        }
+                        log.warn("Upload of {} bytes is rejected, {} of {} bytes are reserved", uploadBytes,
+                                getReservedBytes(), budgetPermits * PERMIT_BYTES);
+                        admitWaiters();
+                    }
+                });
+        return waiter.admission;
+    }
+
+    public void release(Reservation reservation) {
+        if (reservations.remove(reservation.getId()) != null) {
+            synchronized (this) {
+                availablePermits += reservation.getReservedBytes() / PERMIT_BYTES;
+            }
+            admitWaiters();
+        }
+    }
+
+    public AdmissionResponse getAdmissions() {
+        int queued;
+        synchronized (this) {
+            queued = waiters.size();
+        }
+        return AdmissionResponse.builder()
+                .budgetBytes(budgetPermits * PERMIT_BYTES)
+                .reservedBytes(getReservedBytes())
+                .queuedUploads(queued)
+                .reservations(reservations.values().stream()
+                        .sorted(Comparator.comparingLong(Reservation::getId))
+                        .toList())
+                .build();
+    }
+
+    private int heapPerUploadByte(ProcessingMode mode) {
+        return switch (mode) {
+            case MATERIALIZED, COLUMNAR, CHRONOLOGICAL -> heapPerUploadByte;
+            default -> streamingHeapPerUploadByte;
+        };
+    }
+
+    /**
+     * Waiters are admitted in their order while the head fits. They are completed outside the lock, and a waiter
+     * whose wait was over meanwhile gives its permits back.
+     */
+    private void admitWaiters() {
+        var admitted = new ArrayList<Waiter>();
+        synchronized (this) {
+            while (!waiters.isEmpty() && waiters.peek().permits <= availablePermits) {
+                var waiter = waiters.poll();
+                availablePermits -= waiter.permits;
+                admitted.add(waiter);
+            }
+        }
+
+        for (Waiter waiter : admitted) {
+            var reservation = reservation(waiter);
+            if (!waiter.admission.complete(Optional.of(reservation))) {
+                release(reservation);
+            }
+        }
+    }
+
+    private Reservation reservation(Waiter waiter) {
+        var reservation = Reservation.builder()
+                .id(ids.incrementAndGet())
+                .uploadBytes(waiter.uploadBytes)
+                .reservedBytes(waiter.permits * PERMIT_BYTES)
+                .reservedAt(Instant.now())
+                .build();
+        reservations.put(reservation.getId(), reservation);
+        return reservation;
+    }
+
+    private synchronized long getReservedBytes() {
+        return (budgetPermits - availablePermits) * PERMIT_BYTES;
+    }
+
+    private record Waiter(long uploadBytes, long permits, CompletableFuture<Optional<Reservation>> admission) {
+    }
+}
@@ -5,15 +5,14 @@ import payroll.processing.system.pps.domain.Employee;
 import payroll.processing.system.pps.domain.Record;
 import payroll.processing.system.pps.domain.enumaration.EventType;
 import payroll.processing.system.pps.domain.report.Report;
+import payroll.processing.system.pps.util.FieldDecoder;
+import payroll.processing.system.pps.util.RecordBatch;
 
-import java.math.BigDecimal;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 
 @Service
 public class BuilderService {
-    private final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M-dd-yyyy");
+    private final FieldDecoder decoder = new FieldDecoder();
 
     Record<?> buildOnboardRecord(String[] line) {
         return Record.builder()
@@ -24,8 +23,8 @@ public class BuilderService {
                         .surname(line[3])
                         .designation(line[4]).build())
                 .type(EventType.ONBOARD)
-                .value(LocalDate.parse(line[6].trim(), FORMATTER))
-                .date(LocalDate.parse(line[7].trim(), FORMATTER))
+                .value(decoder.date(line[6]))
+                .date(decoder.date(line[7]))
                 .note(line[8]).build();
     }
 
@@ -34,8 +33,8 @@ public class BuilderService {
                 .SequenceNo(Long.parseLong(line[0]))
                 .employee(Employee.builder().id(line[1].trim()).build())
                 .type(EventType.EXIT)
-                .value(LocalDate.parse(line[3].trim(), FORMATTER))
-                .date(LocalDate.parse(line[4].trim(), FORMATTER))
+                .value(decoder.date(line[3]))
+                .date(decoder.date(line[4]))
                 .note(line[5]).build();
     }
 
@@ -43,12 +42,41 @@ public class BuilderService {
         return Record.builder()
                 .SequenceNo(Long.parseLong(line[0]))
                 .employee(Employee.builder().id(line[1].trim()).build())
-                .type(EventType.valueOf(line[2]))
-                .value(new BigDecimal(line[3].trim()))
-                .date(LocalDate.parse(line[4].trim(), FORMATTER))
+                .type(decoder.eventType(line[2]))
+                .value(decoder.amount(line[3]))
+                .date(decoder.date(line[4]))
                 .note(line[5]).build();
     }
 
+    /**
+     * Like {@link #buildOnboardRecord(String[])}, the fields are added to the batch as a row instead of a record.
+     * Every field is decoded before the row is added, so a line with an invalid field adds nothing.
+     */
+    void addOnboardRow(String[] line, RecordBatch batch) {
+        var sequenceNo = Long.parseLong(line[0]);
+        var employeeId = line[1].trim();
+        var onboardDate = decoder.date(line[6]);
+        var date = decoder.date(line[7]);
+        batch.addOnboard(sequenceNo, employeeId, line[2], line[3], line[4], onboardDate, date, line[8]);
+    }
+
+    void addExitRow(String[] line, RecordBatch batch) {
+        var sequenceNo = Long.parseLong(line[0]);
+        var employeeId = line[1].trim();
+        var exitDate = decoder.date(line[3]);
+        var date = decoder.date(line[4]);
+        batch.addExit(sequenceNo, employeeId, exitDate, date, line[5]);
+    }
+
+    void addPaidRow(String[] line, RecordBatch batch) {
+        var sequenceNo = Long.parseLong(line[0]);
+        var employeeId = line[1].trim();
+        var type = decoder.eventType(line[2]);
+        var amount = decoder.amount(line[3]);
+        var date = decoder.date(line[4]);
+        batch.addPayment(sequenceNo, employeeId, type, amount, date, line[5]);
+    }
+
     Report buildInitialReport() {
         return Report.builder()
                 .totalEmployees(0L)
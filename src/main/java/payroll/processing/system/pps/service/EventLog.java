@@ -0,0 +1,636 @@
+package payroll.processing.system.pps.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.util.ByteBufferInputStream;
+import payroll.processing.system.pps.util.PartialReportCodec;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the records committed to the live report, so the live report survives restarts.
+ * <p>
+ * The log is a directory of numbered segment files. Every append is one block: its length, the CRC32 of its payload
+ * and the payload, which holds the time, the source and the records of one upload in the binary form of
+ * {@link PartialReportCodec}. Only a torn tail, the last block of the last segment cut short or failing its check
+ * after a crash, is cut off at startup. A damaged block followed by other blocks is skipped by its length and
+ * logged, and startup fails if such a block precedes a torn tail, since its length cannot be trusted then.
+ * Segments are replayed through memory mapped, sequential reads.
+ * <p>
+ * A later block of the same source supersedes a block, either a new upload of the source or a retraction, a block
+ * without records. Blocks of uploads without a source are never superseded. Closed segments are compacted in the background: superseded blocks and
+ * blocks that fail their check are dropped, and runs of small segments are rewritten as one segment. A superseded block
+ * that onboarded an employee a kept block resolved its records against stays, so a replay resolves them the same way.
+ * Segments older than the retention are deleted, and so are their records from the next replay, except the segments
+ * of a checkpoint and the ones before it: kept snapshots still replay them, and they are released by the live report instead.
+ * Compaction finishes or rolls back at startup if it was interrupted.
+ * <p>
+ * A checkpoint marks the end of the log for a snapshot of the live report. Its segment and the ones before it
+ * are not compacted any more, so the position stays valid. The live report releases the segments before it once
+ * no kept snapshot needs them. Replaying from a position whose segment is gone fails instead of skipping the gap.
+ */
+@Service
+@Slf4j
+public class EventLog {
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTED_SUFFIX = ".compacted";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x50505331;
+    private static final int VERSION = 1;
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int BLOCK_HEADER_BYTES = 8;
+    private static final int RETRACTION = -1;
+
+    @Value("${pps.log.dir}")
+    private String dir;
+
+    @Value("${pps.log.segment-size}")
+    private DataSize segmentSize;
+
+    @Value("${pps.log.retention}")
+    private Duration retention;
+
+    @Value("${pps.log.fsync}")
+    private boolean fsync;
+
+    private final Object appendLock = new Object();
+    private Path directory;
+    private FileChannel active;
+    private long activeNumber;
+    private long activeSize;
+    private long floor = -1;
+
+    @PostConstruct
+    public synchronized void init() {
+        if (dir == null || dir.isBlank()) {
+            return;
+        }
+
+        try {
+            directory = Path.of(dir);
+            Files.createDirectories(directory);
+            recoverCompaction();
+
+            var segments = segments();
+            if (segments.isEmpty()) {
+                open(0);
+            } else {
+                var last = segments.get(segments.size() - 1);
+                var scan = scan(last, Files.size(last), block -> {
+                });
+                var end = scan.end();
+                if (end < Files.size(last)) {
+                    if (scan.damaged() > 0) {
+                        throw new IllegalStateException("Event log segment " + last + " has damaged blocks before its tail, " +
+                                "the tail is not cut because the blocks may be framed wrong");
+                    }
+                    log.warn("Event log segment {} has a torn tail, it is cut from {} to {} bytes", last, Files.size(last), end);
+                }
+                activeNumber = number(last);
+                active = FileChannel.open(last, StandardOpenOption.WRITE);
+                if (end < SEGMENT_HEADER_BYTES) {
+                    active.truncate(0);
+                    writeSegmentHeader(active);
+                    end = SEGMENT_HEADER_BYTES;
+                }
+                active.truncate(end);
+                active.position(end);
+                activeSize = end;
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Event log " + dir + " cannot be opened", e);
+        }
+
+        log.info("Event log appends to segment {} in {}", activeNumber, directory);
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        synchronized (appendLock) {
+            if (active != null) {
+                active.close();
+                active = null;
+            }
+        }
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Appends the records of one upload as one block, and forces it to the disk if {@code pps.log.fsync} is set.
+     *
+     * @param source null if the upload has no source
+     */
+    public void append(String source, Block block) {
+        write(source, block.count, block.bytes);
+    }
+
+    /**
+     * Appends a block without records that retracts the uploads of the source logged before it.
+     */
+    public void retract(String source) {
+        write(source, RETRACTION, new Bytes());
+    }
+
+    /**
+     * Only the start of the payload, its time, source and count, is encoded here. The records are checked and written
+     * from the buffer of the block, gathered with the header and the start, so they are not copied.
+     */
+    private void write(String source, int count, Bytes records) {
+        var start = new Bytes();
+        try (var out = new DataOutputStream(start)) {
+            out.writeLong(Instant.now().toEpochMilli());
+            PartialReportCodec.writeString(source, out);
+            out.writeInt(count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        var crc = new CRC32();
+        crc.update(start.buffer());
+        crc.update(records.buffer());
+        var length = start.size() + records.size();
+        var buffers = new ByteBuffer[] {
+                ByteBuffer.allocate(BLOCK_HEADER_BYTES).putInt(length).putInt((int) crc.getValue()).flip(),
+                start.buffer(),
+                records.buffer()};
+
+        synchronized (appendLock) {
+            try {
+                if (activeSize > SEGMENT_HEADER_BYTES && activeSize + BLOCK_HEADER_BYTES + length > segmentSize.toBytes()) {
+                    active.close();
+                    open(activeNumber + 1);
+                }
+                var end = activeSize + BLOCK_HEADER_BYTES + length;
+                while (activeSize < end) {
+                    activeSize += active.write(buffers);
+                }
+                if (fsync) {
+                    active.force(false);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Event log cannot be appended", e);
+            }
+        }
+    }
+
+    /**
+     * Passes every block of the log to the consumer, oldest first. Blocks appended meanwhile are not passed.
+     */
+    public void replay(Consumer<Entry> consumer) {
+        replay(new Position(0, 0), consumer);
+    }
+
+    /**
+     * Passes every block from the position on to the consumer, oldest first.
+     *
+     * @throws IllegalStateException if the segment of the position is not there any more, the uploads logged
+     * after the position would be missing
+     */
+    public synchronized void replay(Position from, Consumer<Entry> consumer) {
+        if (directory == null) {
+            return;
+        }
+
+        long activeNumber;
+        long activeSize;
+        synchronized (appendLock) {
+            activeNumber = this.activeNumber;
+            activeSize = this.activeSize;
+        }
+
+        try {
+            var segments = segments();
+            if ((from.segment() > 0 || from.offset() > 0)
+                    && segments.stream().noneMatch(segment -> number(segment) == from.segment())) {
+                throw new IllegalStateException("Event log has no segment " + from.segment() + " to replay from, it was deleted");
+            }
+            for (Path segment : segments) {
+                var number = number(segment);
+                if (number < from.segment()) {
+                    continue;
+                }
+                if (number > activeNumber) {
+                    break;
+                }
+                var size = number == activeNumber ? activeSize : Files.size(segment);
+                var start = number == from.segment() ? from.offset() : 0;
+                scan(segment, start, size, block -> consumer.accept(decode(block)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Event log cannot be replayed", e);
+        }
+    }
+
+    /**
+     * Returns the end of the log. Blocks appended later are after the position, whatever compaction does meanwhile.
+     */
+    public synchronized Position checkpoint() {
+        if (directory == null) {
+            return null;
+        }
+        synchronized (appendLock) {
+            floor = Math.max(floor, activeNumber);
+            return new Position(activeNumber, activeSize);
+        }
+    }
+
+    /**
+     * Deletes the closed segments before the segment of the position, because a saved snapshot covers them.
+     */
+    public synchronized void release(Position position) {
+        if (directory == null) {
+            return;
+        }
+
+        floor = Math.max(floor, position.segment());
+        try {
+            for (Path segment : segments()) {
+                if (number(segment) >= position.segment()) {
+                    break;
+                }
+                Files.delete(segment);
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Deletes the segments past the retention up to the segment of the last checkpoint, then compacts the remaining
+     * closed segments after it.
+     */
+    @Scheduled(fixedDelayString = "${pps.log.maintenance-interval}")
+    public synchronized void maintain() {
+        if (directory == null) {
+            return;
+        }
+
+        long activeNumber;
+        long activeSize;
+        synchronized (appendLock) {
+            activeNumber = this.activeNumber;
+            activeSize = this.activeSize;
+        }
+
+        try {
+            var closed = new ArrayList<>(segments().stream().filter(segment -> number(segment) < activeNumber).toList());
+            if (!retention.isZero()) {
+                var expiry = Instant.now().minus(retention).toEpochMilli();
+                while (!closed.isEmpty() && number(closed.get(0)) > floor
+                        && Files.getLastModifiedTime(closed.get(0)).toMillis() < expiry) {
+                    log.info("Event log segment {} is past the retention and deleted", closed.get(0));
+                    Files.delete(closed.remove(0));
+                }
+            }
+            closed.removeIf(segment -> number(segment) <= floor);
+            compact(closed, activeNumber, activeSize);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Blocks are numbered in log order. A block is superseded if a later block has the same source,
+     * because the later upload or retraction replaced it when it was committed. A superseded block is still kept
+     * if a kept block resolved records against an employee it onboarded: the live report moved those records to
+     * the replacement when it was committed, and a replay without the block would report them as unknown instead.
+     */
+    private void compact(List<Path> closed, long activeNumber, long activeSize) throws IOException {
+        var sources = new ArrayList<String>();
+        var resolved = new HashMap<Integer, Set<Integer>>();
+        var current = new HashMap<String, Integer>();
+        var onboarded = new HashMap<Integer, Set<String>>();
+        var onboarders = new HashMap<String, Set<Integer>>();
+        var starts = new HashMap<Long, Integer>();
+        for (Path segment : segments()) {
+            if (number(segment) > activeNumber) {
+                break;
+            }
+            starts.put(number(segment), sources.size());
+            var size = number(segment) == activeNumber ? activeSize : Files.size(segment);
+            scan(segment, size, block -> {
+                var ordinal = sources.size();
+                var entry = decode(block);
+                sources.add(entry.source());
+                if (entry.source() != null) {
+                    var previous = current.put(entry.source(), ordinal);
+                    if (previous != null) {
+                        onboarded.getOrDefault(previous, Set.of()).forEach(id -> onboarders.get(id).remove(previous));
+                        onboarded.remove(previous);
+                    }
+                }
+                if (entry.isRetraction()) {
+                    return;
+                }
+                for (Record<?> record : entry.records()) {
+                    var id = record.getEmployee().getId();
+                    var earlier = onboarders.get(id);
+                    if (earlier != null && !earlier.isEmpty()) {
+                        resolved.computeIfAbsent(ordinal, key -> new HashSet<>()).addAll(earlier);
+                    }
+                }
+                if (entry.source() != null) {
+                    entry.records().stream().filter(record -> record.getType() == EventType.ONBOARD).forEach(record -> {
+                        var id = record.getEmployee().getId();
+                        onboarded.computeIfAbsent(ordinal, key -> new HashSet<>()).add(id);
+                        onboarders.computeIfAbsent(id, key -> new HashSet<>()).add(ordinal);
+                    });
+                }
+            });
+        }
+
+        // dependents come after the blocks they resolved against, so going newest first settles every block
+        var needed = new BitSet(sources.size());
+        var dropped = new BitSet(sources.size());
+        for (int ordinal = sources.size() - 1; ordinal >= 0; ordinal--) {
+            var source = sources.get(ordinal);
+            if (source != null && current.get(source) != ordinal && !needed.get(ordinal)) {
+                dropped.set(ordinal);
+            } else {
+                resolved.getOrDefault(ordinal, Set.of()).forEach(needed::set);
+            }
+        }
+
+        var run = new ArrayList<Path>();
+        var runSize = (long) SEGMENT_HEADER_BYTES;
+        var runStart = 0;
+        var runSuperseded = false;
+        for (Path segment : closed) {
+            int start = starts.get(number(segment));
+            var ordinal = new int[] {start};
+            var live = new long[1];
+            var superseded = new boolean[1];
+            scan(segment, Files.size(segment), block -> {
+                if (!dropped.get(ordinal[0]++)) {
+                    live[0] += BLOCK_HEADER_BYTES + block.remaining();
+                } else {
+                    superseded[0] = true;
+                }
+            });
+
+            if (runSize + live[0] > segmentSize.toBytes()) {
+                compactRun(run, runStart, runSuperseded, dropped);
+                run.clear();
+                runSize = SEGMENT_HEADER_BYTES;
+                runSuperseded = false;
+            }
+            if (run.isEmpty()) {
+                runStart = start;
+            }
+            run.add(segment);
+            runSize += live[0];
+            runSuperseded |= superseded[0];
+        }
+        compactRun(run, runStart, runSuperseded, dropped);
+    }
+
+    /**
+     * The compacted segment is complete before it is renamed to {@code first-last.compacted},
+     * and the segments it replaces are deleted before it takes the number of the first one.
+     */
+    private void compactRun(List<Path> run, int start, boolean superseded, BitSet dropped) throws IOException {
+        if (run.size() < 2 && !superseded) {
+            return;
+        }
+
+        var first = number(run.get(0));
+        var last = number(run.get(run.size() - 1));
+        var temp = directory.resolve(first + "-" + last + TEMP_SUFFIX);
+        try (var out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            writeSegmentHeader(out);
+            var ordinal = new int[] {start};
+            for (Path segment : run) {
+                scan(segment, Files.size(segment), block -> {
+                    if (dropped.get(ordinal[0]++)) {
+                        return;
+                    }
+                    try {
+                        var header = ByteBuffer.allocate(BLOCK_HEADER_BYTES).putInt(block.remaining()).putInt(crc(block)).flip();
+                        while (header.hasRemaining()) {
+                            out.write(header);
+                        }
+                        while (block.hasRemaining()) {
+                            out.write(block);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+            out.force(true);
+        } catch (UncheckedIOException e) {
+            Files.deleteIfExists(temp);
+            throw e.getCause();
+        }
+
+        // the retention of the compacted segment runs from its newest block
+        Files.setLastModifiedTime(temp, Files.getLastModifiedTime(run.get(run.size() - 1)));
+        var compacted = directory.resolve(first + "-" + last + COMPACTED_SUFFIX);
+        Files.move(temp, compacted, StandardCopyOption.ATOMIC_MOVE);
+        finishCompaction(compacted, first, last);
+        log.info("Event log segments {} to {} are compacted", first, last);
+    }
+
+    private void recoverCompaction() throws IOException {
+        try (var files = Files.list(directory)) {
+            for (Path path : files.toList()) {
+                var name = path.getFileName().toString();
+                if (name.endsWith(TEMP_SUFFIX)) {
+                    Files.delete(path);
+                } else if (name.endsWith(COMPACTED_SUFFIX)) {
+                    var range = name.substring(0, name.length() - COMPACTED_SUFFIX.length()).split("-");
+                    finishCompaction(path, Long.parseLong(range[0]), Long.parseLong(range[1]));
+                }
+            }
+        }
+    }
+
+    private void finishCompaction(Path compacted, long first, long last) throws IOException {
+        for (Path segment : segments()) {
+            var number = number(segment);
+            if (number >= first && number <= last) {
+                Files.delete(segment);
+            }
+        }
+        Files.move(compacted, segment(first), StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Passes the payload of every block that passes its check to the consumer. A damaged block with blocks after it
+     * is skipped, a block cut short or damaged at the end of the segment ends the scan.
+     *
+     * @return the end of the last complete block and the number of damaged blocks skipped
+     */
+    private Scan scan(Path segment, long size, Consumer<ByteBuffer> consumer) throws IOException {
+        return scan(segment, 0, size, consumer);
+    }
+
+    private Scan scan(Path segment, long start, long size, Consumer<ByteBuffer> consumer) throws IOException {
+        if (size < SEGMENT_HEADER_BYTES) {
+            return new Scan(0, 0);
+        }
+
+        try (var channel = FileChannel.open(segment, StandardOpenOption.READ)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Event log segment " + segment + " has an unsupported format");
+            }
+            buffer.position((int) Math.max(start, SEGMENT_HEADER_BYTES));
+
+            var damaged = 0;
+            while (buffer.remaining() >= BLOCK_HEADER_BYTES) {
+                var blockStart = buffer.position();
+                var length = buffer.getInt();
+                var crc = buffer.getInt();
+                if (length < 0 || length > buffer.remaining()) {
+                    return new Scan(blockStart, damaged);
+                }
+                var block = buffer.slice(buffer.position(), length);
+                buffer.position(buffer.position() + length);
+                if (crc(block) != crc) {
+                    if (!buffer.hasRemaining()) {
+                        return new Scan(blockStart, damaged);
+                    }
+                    log.error("Event log segment {} has a damaged block at {}, the block is skipped", segment, blockStart);
+                    damaged++;
+                    continue;
+                }
+                consumer.accept(block);
+            }
+            return new Scan(buffer.position(), damaged);
+        }
+    }
+
+    private record Scan(long end, int damaged) {
+    }
+
+    private void open(long number) throws IOException {
+        activeNumber = number;
+        active = FileChannel.open(segment(number), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        writeSegmentHeader(active);
+        activeSize = SEGMENT_HEADER_BYTES;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .sorted((a, b) -> Long.compare(number(a), number(b)))
+                    .toList();
+        }
+    }
+
+    private Path segment(long number) {
+        return directory.resolve(String.format("%020d", number) + SEGMENT_SUFFIX);
+    }
+
+    private static long number(Path segment) {
+        var name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    private static void writeSegmentHeader(FileChannel channel) throws IOException {
+        var header = ByteBuffer.allocate(SEGMENT_HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+
+    private static int crc(ByteBuffer block) {
+        var crc = new CRC32();
+        crc.update(block.duplicate());
+        return (int) crc.getValue();
+    }
+
+    private static Entry decode(ByteBuffer block) {
+        try {
+            var in = new DataInputStream(new ByteBufferInputStream(block.duplicate()));
+            var time = Instant.ofEpochMilli(in.readLong());
+            var source = PartialReportCodec.readString(in);
+            var count = in.readInt();
+            if (count == RETRACTION) {
+                return new Entry(time, source, null);
+            }
+            var records = new ArrayList<Record<?>>(count);
+            for (int i = 0; i < count; i++) {
+                records.add(PartialReportCodec.readRecord(in));
+            }
+            return new Entry(time, source, records);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * The records of one upload, written into a block while they are aggregated.
+     */
+    public static class Block {
+        private final Bytes bytes = new Bytes();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int count;
+
+        public void add(Record<?> record) {
+            try {
+                PartialReportCodec.writeRecord(record, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            count++;
+        }
+    }
+
+    /**
+     * Bytes whose buffer is written to the log as it is, without copying it.
+     */
+    private static class Bytes extends ByteArrayOutputStream {
+
+        ByteBuffer buffer() {
+            return ByteBuffer.wrap(buf, 0, count);
+        }
+    }
+
+    /**
+     * A place in the log: the number of a segment and an offset in it.
+     */
+    public record Position(long segment, long offset) {
+    }
+
+    /**
+     * An upload of the source, or a retraction of its uploads if there are no records.
+     */
+    public record Entry(Instant time, String source, List<Record<?>> records) {
+
+        public boolean isRetraction() {
+            return records == null;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package payroll.processing.system.pps.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.ExecutionPlan;
+import payroll.processing.system.pps.util.CsvTokenizer;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Chooses how a request is executed from its total size, its file count and the processors of the pool.
+ * Small uploads run inline, since handing them to workers costs more than it saves. Uploads with enough files
+ * run per file in parallel, and a few large files are copied to disk and parsed in parallel chunks.
+ * <p>
+ * Blank thresholds are calibrated when the first upload is planned: a synthetic file measures the inline throughput,
+ * empty tasks measure the cost of a hand-off to the pool and a temporary file measures the copy to disk.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ExecutionPlanner {
+    private static final int CALIBRATION_EMPLOYEES = 1_000;
+    private static final int CALIBRATION_LINES = 20_000;
+    private static final int CALIBRATION_ROUNDS = 5;
+    private static final int CALIBRATION_HAND_OFFS = 1_000;
+    private static final long HAND_OFF_AMORTIZATION = 100;
+
+    private final RecordService recordService;
+    private final ReportService reportService;
+    private final BuilderService builderService;
+    private final ForkJoinPool processingExecutor;
+
+    @Value("${pps.planner.inline-max-size}")
+    private String inlineMaxSize;
+
+    @Value("${pps.planner.chunk-min-size}")
+    private String chunkMinSize;
+
+    private long inlineMaxBytes;
+    private long chunkMinBytes;
+    private volatile boolean calibrated;
+
+    @PostConstruct
+    public void init() {
+        calibrated = !inlineMaxSize.isBlank() && !chunkMinSize.isBlank();
+        if (calibrated) {
+            setThresholds();
+        }
+    }
+
+    public ExecutionPlan plan(MultipartFile[] files) {
+        if (!calibrated) {
+            calibrateOnce();
+        }
+
+        var totalSize = Arrays.stream(files).mapToLong(MultipartFile::getSize).sum();
+        var largestFile = Arrays.stream(files).mapToLong(MultipartFile::getSize).max().orElse(0);
+        var processors = processingExecutor.getParallelism();
+
+        ExecutionPlan plan;
+        if (processors == 1 || totalSize <= inlineMaxBytes) {
+            plan = ExecutionPlan.INLINE;
+        } else if (files.length < processors && largestFile >= chunkMinBytes) {
+            plan = ExecutionPlan.CHUNK;
+        } else if (files.length > 1) {
+            plan = ExecutionPlan.PER_FILE;
+        } else {
+            plan = ExecutionPlan.INLINE;
+        }
+
+        log.info("Planned {} for {} files of {} bytes on {} processors", plan, files.length, totalSize, processors);
+        return plan;
+    }
+
+    private synchronized void calibrateOnce() {
+        if (!calibrated) {
+            calibrate();
+            setThresholds();
+            calibrated = true;
+        }
+    }
+
+    private void setThresholds() {
+        if (!inlineMaxSize.isBlank()) {
+            inlineMaxBytes = DataSize.parse(inlineMaxSize).toBytes();
+        }
+        if (!chunkMinSize.isBlank()) {
+            chunkMinBytes = DataSize.parse(chunkMinSize).toBytes();
+        }
+
+        log.info("Execution planner runs uploads up to {} bytes inline and chunks files from {} bytes",
+                inlineMaxBytes, chunkMinBytes);
+    }
+
+    /**
+     * Work handed to the pool has to be worth many hand-offs. Chunks pay off only if copying the upload
+     * to disk is faster than parsing it, and only when the upload is large enough to keep every processor busy.
+     */
+    private void calibrate() {
+        var content = syntheticFile();
+
+        var parseNanos = Long.MAX_VALUE;
+        var handOffNanos = Long.MAX_VALUE;
+        var copyNanos = Long.MAX_VALUE;
+        for (int round = 0; round < CALIBRATION_ROUNDS; round++) {
+            var start = System.nanoTime();
+            aggregateInline(content);
+            parseNanos = Math.min(parseNanos, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALIBRATION_HAND_OFFS; i++) {
+                CompletableFuture.runAsync(() -> {}, processingExecutor).join();
+            }
+            handOffNanos = Math.min(handOffNanos, (System.nanoTime() - start) / CALIBRATION_HAND_OFFS);
+
+            start = System.nanoTime();
+            copyToDisk(content);
+            copyNanos = Math.min(copyNanos, System.nanoTime() - start);
+        }
+
+        var parseBytesPerNano = content.length / (double) Math.max(parseNanos, 1);
+        inlineMaxBytes = (long) (parseBytesPerNano * handOffNanos * HAND_OFF_AMORTIZATION);
+        chunkMinBytes = copyNanos < parseNanos ? inlineMaxBytes * processingExecutor.getParallelism() : Long.MAX_VALUE;
+
+        log.info("Calibrated execution planner: parsing {} bytes took {} ns, copying {} ns, a hand-off {} ns",
+                content.length, parseNanos, copyNanos, handOffNanos);
+    }
+
+    private byte[] syntheticFile() {
+        var content = new StringBuilder();
+        for (int i = 0; i < CALIBRATION_LINES; i++) {
+            content.append(i).append(", emp").append(i % CALIBRATION_EMPLOYEES)
+                    .append(", SALARY, ").append(1000 + i % 100).append(".50, ")
+                    .append(1 + i % 12).append("-10-2022, “Salary.”\n");
+        }
+        return content.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void aggregateInline(byte[] content) {
+        var report = builderService.buildInitialReport();
+        var errors = new ArrayList<String>();
+
+        try (var reader = new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8)) {
+            var tokenizer = new CsvTokenizer(reader);
+            while (tokenizer.next()) {
+                recordService.buildRecord(tokenizer.toArray(), record -> {
+                    reportService.addSalaryReport(report, (Record<BigDecimal>) record);
+                    reportService.addPaidReport(report, (Record<BigDecimal>) record);
+                }, errors);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void copyToDisk(byte[] content) {
+        try {
+            var file = Files.createTempFile("pps-calibration-", ".csv");
+            try {
+                Files.write(file, content);
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
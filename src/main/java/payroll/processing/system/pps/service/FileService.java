@@ -3,13 +3,31 @@ package payroll.processing.system.pps.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.FileChunk;
 import payroll.processing.system.pps.domain.FileResponse;
+import payroll.processing.system.pps.domain.LocalFile;
+import payroll.processing.system.pps.util.ColumnFilter;
+import payroll.processing.system.pps.util.ByteBufferInputStream;
+import payroll.processing.system.pps.util.CsvTokenizer;
+import payroll.processing.system.pps.util.LineConsumer;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Objects;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
@@ -17,8 +35,48 @@ public class FileService {
 
     public FileResponse readFile(MultipartFile[] files) {
         var lines = new ArrayList<String []>();
+        var fileNames = new ArrayList<String>();
+        var lineCounts = new ArrayList<Long>();
+        var errors = streamFiles(files, ColumnFilter.NONE, (line, fileName, lineNumber) -> {
+            if (lineNumber == 1) {
+                fileNames.add(fileName);
+                lineCounts.add(0L);
+            }
+            lines.add(line);
+            lineCounts.set(lineCounts.size() - 1, lineNumber);
+        });
+
+        return FileResponse.builder()
+                .lines(lines)
+                .errors(errors)
+                .fileNames(fileNames)
+                .lineCounts(lineCounts).build();
+    }
+
+    /**
+     * Reads the files line by line and hands every parsed line to the consumer
+     * without keeping it, so the caller decides what is retained.
+     *
+     * @return file level errors
+     */
+    public List<String> streamFiles(MultipartFile[] files, Consumer<String[]> consumer) {
+        return streamFiles(files, ColumnFilter.NONE, consumer);
+    }
+
+    /**
+     * Like {@link #streamFiles(MultipartFile[], Consumer)}, fields skipped by the filter are passed as null.
+     * Only they are not copied out of the read buffer, every other field is passed as a new string.
+     */
+    public List<String> streamFiles(MultipartFile[] files, ColumnFilter filter, Consumer<String[]> consumer) {
+        return streamFiles(files, filter, (line, fileName, lineNumber) -> consumer.accept(line));
+    }
+
+    /**
+     * Like {@link #streamFiles(MultipartFile[], ColumnFilter, Consumer)}, every line comes with the original name
+     * of its file and its number in the file.
+     */
+    public List<String> streamFiles(MultipartFile[] files, ColumnFilter filter, LineConsumer consumer) {
         var errors = new ArrayList<String>();
-        BufferedReader bufferedReader;
 
         for (MultipartFile file : files) {
             try {
@@ -27,12 +85,13 @@ public class FileService {
                              ", file: " + file.getOriginalFilename());
                 }
 
-                bufferedReader = new BufferedReader(new InputStreamReader(file.getInputStream()));
-                String line;
-                while ((line = bufferedReader.readLine()) != null) {
-                    lines.add(line.split(","));
+                try (var reader = new InputStreamReader(file.getInputStream(), StandardCharsets.UTF_8)) {
+                    var tokenizer = new CsvTokenizer(reader);
+                    var fileName = file.getOriginalFilename();
+                    while (tokenizer.next()) {
+                        consumer.accept(tokenizer.toArray(filter), fileName, tokenizer.lineNumber());
+                    }
                 }
-                bufferedReader.close();
             } catch (IOException e) {
                 errors.add("There is a corruption in this file: " + file.getOriginalFilename());
                 log.error(e.getMessage(), e);
@@ -42,6 +101,155 @@ public class FileService {
             }
         }
 
-        return new FileResponse(lines, errors);
+        return errors;
+    }
+
+    /**
+     * Copies the uploaded files to temporary files, so they can be memory mapped. The caller deletes them.
+     * The content is hashed while it is copied, so the partial report cache does not read the copy again.
+     *
+     * @return the temporary files named by their uploads, in upload order
+     */
+    public List<LocalFile> copyToTempFiles(MultipartFile[] files, List<String> errors) {
+        var copies = new ArrayList<LocalFile>();
+
+        for (MultipartFile file : files) {
+            try {
+                if (!Objects.equals(file.getContentType(), "text/csv")) {
+                    throw new RuntimeException("Wrong media type: " + file.getContentType() +
+                            ", file: " + file.getOriginalFilename());
+                }
+
+                var path = Files.createTempFile("pps-", ".csv");
+                var copy = new LocalFile(file.getOriginalFilename(), path);
+                copies.add(copy);
+                var digest = sha256();
+                try (var in = new DigestInputStream(file.getInputStream(), digest)) {
+                    Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+                copy.setContentHash(HexFormat.of().formatHex(digest.digest()));
+            } catch (IOException e) {
+                errors.add("There is a corruption in this file: " + file.getOriginalFilename());
+                log.error(e.getMessage(), e);
+            } catch (RuntimeException e) {
+                errors.add(e.getMessage());
+                log.error(e.getMessage(), e);
+            }
+        }
+
+        return copies;
+    }
+
+    /**
+     * Memory maps local files and splits them into chunks of about chunkSize bytes ending at a line break,
+     * so the chunks can be parsed independently. Nothing is read from disk until a chunk is parsed.
+     */
+    public List<FileChunk> mapFiles(List<LocalFile> files, long chunkSize, List<String> errors) {
+        var chunks = new ArrayList<FileChunk>();
+
+        for (LocalFile file : files) {
+            var path = file.getPath();
+            try {
+                if (!Files.isRegularFile(path) || !path.getFileName().toString().endsWith(".csv")) {
+                    throw new RuntimeException("Wrong file: " + file.getFileName());
+                }
+
+                try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                    var size = channel.size();
+                    var start = 0L;
+                    while (start < size) {
+                        var end = lineEnd(channel, Math.min(start + Math.min(chunkSize, Integer.MAX_VALUE), size));
+                        if (end - start > Integer.MAX_VALUE) {
+                            throw new IOException("Line is too long in file: " + file.getFileName());
+                        }
+                        chunks.add(new FileChunk(file.getFileName(), start,
+                                channel.map(FileChannel.MapMode.READ_ONLY, start, end - start)));
+                        start = end;
+                    }
+                }
+            } catch (IOException e) {
+                errors.add("There is a corruption in this file: " + file.getFileName());
+                log.error(e.getMessage(), e);
+            } catch (RuntimeException e) {
+                errors.add(e.getMessage());
+                log.error(e.getMessage(), e);
+            }
+        }
+
+        return chunks;
+    }
+
+    /**
+     * @return file level errors
+     */
+    public List<String> streamChunk(FileChunk chunk, Consumer<String[]> consumer) {
+        return streamChunk(chunk, ColumnFilter.NONE, consumer);
+    }
+
+    /**
+     * @return file level errors
+     */
+    public List<String> streamChunk(FileChunk chunk, ColumnFilter filter, Consumer<String[]> consumer) {
+        return streamChunk(chunk, filter, (line, fileName, lineNumber) -> consumer.accept(line));
+    }
+
+    /**
+     * Lines are numbered inside the chunk, and the chunk is named by its file and the byte it starts at,
+     * because numbering them in the file would take reading every chunk before it.
+     *
+     * @return file level errors
+     */
+    public List<String> streamChunk(FileChunk chunk, ColumnFilter filter, LineConsumer consumer) {
+        var errors = new ArrayList<String>();
+
+        try (var reader = new InputStreamReader(new ByteBufferInputStream(chunk.getBuffer().duplicate()), StandardCharsets.UTF_8)) {
+            var tokenizer = new CsvTokenizer(reader);
+            var fileName = chunk.getOffset() == 0 ? chunk.getFileName() : chunk.getFileName() + " from byte " + chunk.getOffset();
+            while (tokenizer.next()) {
+                consumer.accept(tokenizer.toArray(filter), fileName, tokenizer.lineNumber());
+            }
+        } catch (IOException e) {
+            errors.add("There is a corruption in this file: " + chunk.getFileName());
+            log.error(e.getMessage(), e);
+        }
+
+        return errors;
+    }
+
+    /**
+     * @return the position after the first line break at or after position, or the size of the file
+     */
+    private long lineEnd(FileChannel channel, long position) throws IOException {
+        var size = channel.size();
+        if (position >= size) {
+            return size;
+        }
+        if (position > 0) {
+            position--;
+        }
+
+        var buffer = ByteBuffer.allocate(8 * 1024);
+        while (position < size) {
+            buffer.clear();
+            var read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
     }
 }
@@ -0,0 +1,148 @@
+package payroll.processing.system.pps.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.Job;
+import payroll.processing.system.pps.domain.LocalFile;
+import payroll.processing.system.pps.domain.PayrollResponse;
+import payroll.processing.system.pps.domain.enumaration.JobStatus;
+import payroll.processing.system.pps.util.LocalMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Payroll jobs processed asynchronously on the bounded job executor. The uploads are copied to temporary files
+ * when the job is submitted, since the request that carried them ends before the job runs, and are processed
+ * like a synchronous upload from there. A job takes one of the threads and queue slots of the executor
+ * before its uploads are copied, so a rejected job copies nothing.
+ * Finished jobs are kept for their result until the ttl expires.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class JobService {
+    private final PpsService ppsService;
+    private final FileService fileService;
+    private final ThreadPoolExecutor jobExecutor;
+
+    private final ConcurrentMap<String, Job> jobs = new ConcurrentHashMap<>();
+    private Semaphore slots;
+
+    @Value("${pps.jobs.ttl}")
+    private Duration ttl;
+
+    @PostConstruct
+    public void init() {
+        slots = new Semaphore(jobExecutor.getMaximumPoolSize() + jobExecutor.getQueue().remainingCapacity());
+    }
+
+    /**
+     * @throws RejectedExecutionException if the queue of the job executor is full
+     */
+    public Job submit(MultipartFile[] files) {
+        if (!slots.tryAcquire()) {
+            throw new RejectedExecutionException("Too many payroll jobs are waiting");
+        }
+
+        var fileErrors = new ArrayList<String>();
+        var copies = fileService.copyToTempFiles(files, fileErrors);
+
+        var job = Job.builder()
+                .id(UUID.randomUUID().toString())
+                .status(JobStatus.QUEUED)
+                .submittedAt(Instant.now())
+                .result(new CompletableFuture<>()).build();
+        jobs.put(job.getId(), job);
+
+        try {
+            jobExecutor.execute(() -> run(job, copies, fileErrors));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            delete(copies);
+            slots.release();
+            throw e;
+        }
+
+        log.info("Submitted job {} with {} files", job.getId(), files.length);
+        return job;
+    }
+
+    public Optional<Job> getJob(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    /**
+     * Runs the listener once the job is finished, right away if it is already.
+     *
+     * @return removes the listener, e.g. when the wait for the job ends first, so the job does not keep it
+     */
+    public Runnable onFinished(Job job, Runnable listener) {
+        var listeners = job.getListeners();
+        listeners.add(listener);
+        if (job.getResult().isDone() && listeners.remove(listener)) {
+            listener.run();
+        }
+        return () -> listeners.remove(listener);
+    }
+
+    @Scheduled(fixedDelayString = "${pps.jobs.eviction-interval}")
+    public void evictExpiredJobs() {
+        var expiry = Instant.now().minus(ttl);
+        jobs.values().removeIf(job -> job.getFinishedAt() != null && job.getFinishedAt().isBefore(expiry));
+    }
+
+    private void run(Job job, List<LocalFile> copies, List<String> fileErrors) {
+        job.setStatus(JobStatus.RUNNING);
+        try {
+            var uploads = copies.stream().map(LocalMultipartFile::new).toArray(MultipartFile[]::new);
+            PayrollResponse response = ppsService.processPayroll(uploads);
+            response.getError().getFileErrors().addAll(0, fileErrors);
+
+            job.setFinishedAt(Instant.now());
+            job.setStatus(JobStatus.SUCCEEDED);
+            job.getResult().complete(response);
+        } catch (RuntimeException e) {
+            log.error(e.getMessage(), e);
+            job.setFailure(e.getMessage());
+            job.setFinishedAt(Instant.now());
+            job.setStatus(JobStatus.FAILED);
+            job.getResult().completeExceptionally(e);
+        } finally {
+            delete(copies);
+            slots.release();
+            job.getListeners().forEach(listener -> {
+                if (job.getListeners().remove(listener)) {
+                    listener.run();
+                }
+            });
+        }
+    }
+
+    private void delete(List<LocalFile> copies) {
+        copies.forEach(copy -> {
+            try {
+                Files.deleteIfExists(copy.getPath());
+            } catch (IOException e) {
+                log.error(e.getMessage(), e);
+            }
+        });
+    }
+}
@@ -0,0 +1,1289 @@
+package payroll.processing.system.pps.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.Error;
+import payroll.processing.system.pps.domain.PartialReport;
+import payroll.processing.system.pps.domain.PayrollResponse;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
+import payroll.processing.system.pps.domain.report.*;
+import payroll.processing.system.pps.util.BitmapDistinctCounter;
+import payroll.processing.system.pps.util.ChainedList;
+import payroll.processing.system.pps.util.DistinctCounter;
+import payroll.processing.system.pps.util.EmployeeDictionary;
+import payroll.processing.system.pps.util.ErrorCollector;
+import payroll.processing.system.pps.util.HyperLogLogCounter;
+import payroll.processing.system.pps.util.PartialReportCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static payroll.processing.system.pps.domain.enumaration.EventType.EXIT;
+
+/**
+ * One long-lived report that concurrent uploads feed into.
+ * <p>
+ * Every upload is aggregated privately into a partial report first, then committed into concurrent maps,
+ * {@link LongAdder} counters and atomically accumulated amounts, so commits of many request threads run at once.
+ * Records of an upload whose employee was onboarded by an earlier upload are resolved at commit.
+ * <p>
+ * Snapshots are validated like a seqlock: the state word counts running commits in its low bits and
+ * finished commits in its high bits, and a snapshot taken while no commit ran and before the next one started
+ * is consistent. After a few failed attempts the snapshot closes the gate, waits for the running commits
+ * and copies the report while new commits wait.
+ * <p>
+ * Uploads can have a source, and what the commit of an upload added is remembered per source. Retracting a source subtracts
+ * exactly that from the report. Its cost depends on the upload, the number of uploads and the exits of the months it
+ * touched, which are scanned for its exits, and in a month whose payees are counted by a sketch on all its payees,
+ * because a sketch cannot forget one and is rebuilt. Adding a source again retracts the previous upload of it first,
+ * which is how a corrected file replaces the original. Retractions close the gate like a blocked snapshot.
+ * Uploads without a source are not remembered and cannot be retracted.
+ * <p>
+ * If the event log is enabled, the records of every upload are appended to it inside the gate of their commit,
+ * and so are retractions. The log is replayed at startup, one upload after the other in the order they were logged.
+ * <p>
+ * If snapshots are enabled, the whole state is written to the snapshot store periodically and at shutdown, with the
+ * end of the event log it covers. Commits wait only while the state is copied, so it is the state after some commit,
+ * and go on while the copy is written to the disk. Events, onboarded employees and counters are shared with the copy,
+ * since a commit does not change them after it added them. At startup the newest snapshot is loaded and only the log
+ * after it is replayed. The log is released only before the oldest snapshot that is kept, so the store can fall back
+ * to it and the log after it is still there.
+ * Objects that are shared inside the state, like employees that were onboarded by one upload and paid by another,
+ * are written once and referenced by their number after, so a loaded state retracts like the saved one.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LiveReportService {
+    private static final long COMMITTED = 1L << 32;
+    private static final long RUNNING_MASK = COMMITTED - 1;
+    private static final int OPTIMISTIC_SNAPSHOTS = 8;
+
+    private final PpsService ppsService;
+    private final BuilderService builderService;
+    private final EventLog eventLog;
+    private final SnapshotStore snapshotStore;
+
+    private final AtomicLong state = new AtomicLong();
+    private final ReentrantReadWriteLock gate = new ReentrantReadWriteLock();
+
+    private final LongAdder totalEmployees = new LongAdder();
+    private final ConcurrentMap<String, LiveEmployee> employeesById = new ConcurrentHashMap<>();
+    private final Queue<List<LiveEmployee>> employees = new ConcurrentLinkedQueue<>();
+    private final ConcurrentSkipListMap<YearMonth, LiveEmployeeMonth> employeeMonths = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<YearMonth, LiveSalaryMonth> salaryMonths = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<YearMonth, LivePaidMonth> paidMonths = new ConcurrentSkipListMap<>();
+    private final ConcurrentSkipListMap<Year, LiveYear> years = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, Contribution> contributions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LiveEmployee, Set<Contribution>> dependents = new ConcurrentHashMap<>();
+    private volatile long savedState = -1;
+    private EventLog.Position newestPosition;
+
+    @PostConstruct
+    public void restore() {
+        var start = System.nanoTime();
+        var from = new EventLog.Position(0, 0);
+        var snapshot = new AtomicReference<EventLog.Position>();
+        if (snapshotStore.load(in -> snapshot.set(readState(in)))) {
+            log.info("Live report loaded a snapshot in {} ms", (System.nanoTime() - start) / 1_000_000);
+            if (snapshot.get() == null) {
+                log.warn("Live report snapshot was saved without the event log, the event log is not replayed");
+                return;
+            }
+            from = snapshot.get();
+            newestPosition = from;
+        } else {
+            clear();
+        }
+
+        if (!eventLog.isEnabled()) {
+            return;
+        }
+        start = System.nanoTime();
+        var uploads = new LongAdder();
+        eventLog.replay(from, entry -> {
+            if (entry.isRetraction()) {
+                retractSource(entry.source(), () -> {
+                });
+            } else {
+                add(entry.source(), ppsService.aggregateRecords(entry.records()), () -> {
+                });
+            }
+            uploads.increment();
+        });
+        log.info("Live report replayed {} uploads from the event log in {} ms", uploads.sum(), (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Writes the state to the snapshot store unless nothing was committed since the last snapshot. The state is
+     * copied while commits wait and streamed to the disk after they go on. The event log is released before
+     * the previous snapshot, which is the oldest one kept now.
+     */
+    @Scheduled(fixedDelayString = "${pps.snapshot.interval}")
+    public synchronized void saveSnapshot() {
+        if (!snapshotStore.isEnabled() || state.get() == savedState) {
+            return;
+        }
+
+        var start = System.nanoTime();
+        var copy = new AtomicReference<SavedState>();
+        var saved = new long[1];
+        exclusively(() -> {
+            copy.set(new SavedState(this, eventLog.checkpoint()));
+            saved[0] = state.get() + COMMITTED - 1;
+        });
+        var copied = System.nanoTime();
+
+        long size;
+        try {
+            size = snapshotStore.save(out -> writeState(copy.get(), out));
+        } catch (IOException e) {
+            log.error("Live report snapshot cannot be saved: {}", e.getMessage(), e);
+            return;
+        }
+        savedState = saved[0];
+
+        if (newestPosition != null) {
+            eventLog.release(newestPosition);
+        }
+        newestPosition = copy.get().position;
+        log.info("Live report snapshot of {} bytes saved in {} ms, commits waited {} ms for its copy", size,
+                (System.nanoTime() - start) / 1_000_000, (copied - start) / 1_000_000);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saveSnapshot();
+    }
+
+    public PayrollResponse addFiles(MultipartFile[] files) {
+        return addFiles(files, null);
+    }
+
+    /**
+     * Aggregates the files and commits them to the live report under the source. An upload of the source that was
+     * added before is retracted. Without a source the upload stays for good and is not remembered.
+     *
+     * @return the errors of this upload
+     */
+    public PayrollResponse addFiles(MultipartFile[] files, String source) {
+        var id = source == null || source.isBlank() ? null : source;
+
+        PartialReport partial;
+        Runnable logged;
+        if (eventLog.isEnabled()) {
+            var block = new EventLog.Block();
+            partial = ppsService.aggregateFiles(files, block::add);
+            logged = () -> eventLog.append(id, block);
+        } else {
+            partial = ppsService.aggregateFiles(files);
+            logged = () -> {
+            };
+        }
+        add(id, partial, logged);
+
+        return PayrollResponse.builder()
+                .error(Error.builder()
+                        .reportErrors(partial.getReportErrors())
+                        .recordErrors(partial.getRecordErrors())
+                        .fileErrors(partial.getFileErrors())
+                        .build())
+                .build();
+    }
+
+    /**
+     * Subtracts the upload of the source from the live report. Payments and exits of other uploads that went to
+     * its employees are dropped, like they would have been if the upload had never been added, unless another
+     * upload has an employee report of the same id too. When an upload replaces the source, they go to its employees.
+     *
+     * @return false if there is no such source
+     */
+    public boolean retract(String source) {
+        return retractSource(source, () -> {
+            if (eventLog.isEnabled()) {
+                eventLog.retract(source);
+            }
+        });
+    }
+
+    public PayrollResponse getReport() {
+        return PayrollResponse.builder()
+                .report(snapshot())
+                .build();
+    }
+
+    /**
+     * Adds a partial report as if its records had been aggregated after everything committed before.
+     * Deferred records are resolved against the live employees, unresolved ones are added to the report errors of the partial.
+     * The partial report cannot be retracted.
+     */
+    public void commit(PartialReport partial) {
+        commit(null, partial, new Contribution(false), () -> {
+        });
+    }
+
+    /**
+     * A new source commits under the shared gate. A source that is there, or that another upload registered meanwhile,
+     * replaces the previous upload while no commit runs. The upload is logged in the same gate, so every logged upload
+     * is committed when a snapshot closes the gate. An upload without a source is not tracked.
+     */
+    private void add(String source, PartialReport partial, Runnable logged) {
+        if (source == null) {
+            commit(null, partial, new Contribution(false), logged);
+            return;
+        }
+        var contribution = new Contribution(true);
+        if (!contributions.containsKey(source) && commit(source, partial, contribution, logged)) {
+            return;
+        }
+
+        exclusively(() -> {
+            logged.run();
+            var previous = contributions.remove(source);
+            var detached = previous == null ? List.<Detached>of() : retract(previous);
+            apply(partial, contribution);
+            contributions.put(source, contribution);
+            rebind(detached);
+        });
+    }
+
+    private boolean retractSource(String source, Runnable logged) {
+        var retracted = new boolean[1];
+        exclusively(() -> {
+            if (contributions.containsKey(source)) {
+                logged.run();
+                rebind(retract(contributions.remove(source)));
+                retracted[0] = true;
+            }
+        });
+        return retracted[0];
+    }
+
+    /**
+     * @return false if the source was registered by another upload before this one, then nothing is committed
+     */
+    private boolean commit(String source, PartialReport partial, Contribution contribution, Runnable logged) {
+        gate.readLock().lock();
+        state.incrementAndGet();
+        try {
+            if (source != null && contributions.putIfAbsent(source, contribution) != null) {
+                return false;
+            }
+            try {
+                logged.run();
+            } catch (RuntimeException e) {
+                if (source != null) {
+                    contributions.remove(source, contribution);
+                }
+                throw e;
+            }
+            apply(partial, contribution);
+            return true;
+        } finally {
+            state.addAndGet(COMMITTED - 1);
+            gate.readLock().unlock();
+        }
+    }
+
+    private void apply(PartialReport partial, Contribution contribution) {
+        var report = partial.getReport();
+        if (partial.getDeferred() != null) {
+            partial.getDeferred().forEach(record -> resolve(record, partial.getReportErrors(), contribution));
+        }
+
+        totalEmployees.add(report.getTotalEmployees());
+        contribution.totalEmployees = report.getTotalEmployees();
+
+        var committed = new IdentityHashMap<EmployeeReport, LiveEmployee>();
+        var added = new ArrayList<LiveEmployee>(report.getEmployeeReports().size());
+        report.getEmployeeReports().forEach(employee -> {
+            var live = new LiveEmployee(employee);
+            var existing = employeesById.putIfAbsent(employee.getId(), live);
+            if (existing != null) {
+                live.totalPaid.set(BigDecimal.ZERO);
+                existing.totalPaid.accumulateAndGet(employee.getTotalPaid(), BigDecimal::add);
+                contribution.paid.merge(existing, employee.getTotalPaid(), BigDecimal::add);
+                depend(existing, contribution);
+            } else if (contribution.tracked) {
+                contribution.indexed.add(live);
+            }
+            added.add(live);
+            committed.put(employee, existing == null ? live : existing);
+        });
+        employees.add(added);
+        contribution.employees = added;
+
+        report.getMonthlyEmployeeReports().forEach(mer -> {
+            var month = employeeMonths.computeIfAbsent(mer.getMonth(), key -> new LiveEmployeeMonth());
+            var share = contribution.employeeMonth(mer.getMonth(), month);
+            month.totalOnboarded.add(mer.getTotalOnboardedEmployees());
+            share.totalOnboarded += mer.getTotalOnboardedEmployees();
+            if (!mer.getOnboardedEmployees().isEmpty()) {
+                month.onboarded.add(mer.getOnboardedEmployees());
+                share.onboarded = mer.getOnboardedEmployees();
+            }
+            month.totalExited.add(mer.getTotalExitedEmployee());
+            share.totalExited += mer.getTotalExitedEmployee();
+            mer.getExitedEmployees().forEach(employee -> {
+                var exited = committed.computeIfAbsent(employee, LiveEmployee::new);
+                month.exited.add(exited);
+                // employees of other uploads are the ones the upload paid too
+                if (contribution.tracked || contribution.paid.containsKey(exited)) {
+                    share.exited.add(exited);
+                }
+            });
+        });
+
+        report.getMonthlySalaryReports().forEach(msr -> {
+            var month = salaryMonths.computeIfAbsent(msr.getMonth(), key -> new LiveSalaryMonth());
+            month.sources.incrementAndGet();
+            month.totalEmployees.add(msr.getTotalEmployees());
+            month.totalSalary.accumulateAndGet(msr.getTotalSalary(), BigDecimal::add);
+            if (contribution.tracked) {
+                contribution.salaryMonths.put(msr.getMonth(), msr);
+            }
+        });
+
+        report.getMonthlyPaidReports().forEach(mpr -> {
+            var month = paidMonths.computeIfAbsent(mpr.getMonth(), key -> new LivePaidMonth());
+            month.sources.incrementAndGet();
+            month.totalPaid.accumulateAndGet(mpr.getTotalPaid(), BigDecimal::add);
+            month.count(mpr.getEmployees(), mpr.getTotalEmployees());
+            if (contribution.tracked) {
+                contribution.paidMonths.put(mpr.getMonth(), mpr);
+            }
+        });
+
+        report.getYearlyReports().forEach(yp -> {
+            var year = years.computeIfAbsent(yp.getYear(), key -> new LiveYear());
+            year.events.add(yp.getEvents());
+            if (contribution.tracked) {
+                contribution.years.put(yp.getYear(), yp.getEvents());
+            }
+        });
+    }
+
+    /**
+     * Runs while no commit runs, so what was added can be taken away and emptied months and years removed.
+     * Payments and exits of other uploads that went to an employee onboarded by this one are detached from it.
+     *
+     * @return the detached payments and exits, to be rebound once the replacement of the upload, if any, is applied
+     */
+    private List<Detached> retract(Contribution contribution) {
+        totalEmployees.add(-contribution.totalEmployees);
+
+        borrowed(contribution).forEach(live -> dependents.computeIfPresent(live, (key, contributions) -> {
+            contributions.remove(contribution);
+            return contributions.isEmpty() ? null : contributions;
+        }));
+        var detached = new ArrayList<Detached>();
+        employees.removeIf(added -> added == contribution.employees);
+        contribution.indexed.forEach(live -> {
+            if (employeesById.remove(live.id, live)) {
+                dependents.getOrDefault(live, Set.of()).forEach(dependent -> detached.add(detach(dependent, live)));
+                dependents.remove(live);
+            }
+        });
+        contribution.paid.forEach((live, paid) -> live.totalPaid.accumulateAndGet(paid, BigDecimal::subtract));
+
+        contribution.employeeMonths.forEach((key, share) -> {
+            var month = employeeMonths.get(key);
+            month.totalOnboarded.add(-share.totalOnboarded);
+            month.totalExited.add(-share.totalExited);
+            month.onboarded.removeIf(added -> added == share.onboarded);
+            var exited = Collections.<LiveEmployee>newSetFromMap(new IdentityHashMap<>());
+            exited.addAll(share.exited);
+            month.exited.removeIf(exited::contains);
+            if (month.sources.decrementAndGet() == 0) {
+                employeeMonths.remove(key);
+            }
+        });
+
+        contribution.salaryMonths.forEach((key, msr) -> {
+            var month = salaryMonths.get(key);
+            month.totalEmployees.add(-msr.getTotalEmployees());
+            month.totalSalary.accumulateAndGet(msr.getTotalSalary(), BigDecimal::subtract);
+            if (month.sources.decrementAndGet() == 0) {
+                salaryMonths.remove(key);
+            }
+        });
+
+        contribution.paidMonths.forEach((key, mpr) -> {
+            var month = paidMonths.get(key);
+            month.totalPaid.accumulateAndGet(mpr.getTotalPaid(), BigDecimal::subtract);
+            month.uncount(mpr.getEmployees(), mpr.getTotalEmployees());
+            if (month.sources.decrementAndGet() == 0) {
+                paidMonths.remove(key);
+            }
+        });
+
+        contribution.years.forEach((key, events) -> {
+            var year = years.get(key);
+            year.events.removeIf(added -> added == events);
+            if (year.events.isEmpty()) {
+                years.remove(key);
+            }
+        });
+        return detached;
+    }
+
+    /**
+     * Takes the payments and exits of the dependent upload away from the employee, which is no longer in the report.
+     */
+    private Detached detach(Contribution dependent, LiveEmployee live) {
+        var exits = new HashMap<YearMonth, Integer>();
+        dependent.employeeMonths.forEach((key, share) -> {
+            var count = (int) share.exited.stream().filter(exited -> exited == live).count();
+            if (count > 0) {
+                share.exited.removeIf(exited -> exited == live);
+                share.totalExited -= count;
+                var month = employeeMonths.get(key);
+                month.exited.removeIf(exited -> exited == live);
+                month.totalExited.add(-count);
+                exits.put(key, count);
+            }
+        });
+        return new Detached(dependent, live.id, dependent.paid.remove(live), exits);
+    }
+
+    /**
+     * Gives the detached payments and exits to the employee of the same id that is in the report now, like they
+     * would have been resolved if their uploads had come after. If no upload onboards the employee anymore but the
+     * dependent one has an employee report of it too, that one takes its place, otherwise they are dropped.
+     */
+    private void rebind(List<Detached> detached) {
+        for (Detached entry : detached) {
+            if (!employeesById.containsKey(entry.id())) {
+                var dependent = entry.contribution();
+                dependent.employees.stream().filter(live -> live.id.equals(entry.id())).findFirst().ifPresent(own -> {
+                    employeesById.put(own.id, own);
+                    dependent.indexed.add(own);
+                });
+            }
+        }
+
+        for (Detached entry : detached) {
+            var dependent = entry.contribution();
+            var target = employeesById.get(entry.id());
+            if (target == null) {
+                continue;
+            }
+            var own = dependent.employees.contains(target);
+
+            if (entry.paid() != null) {
+                target.totalPaid.accumulateAndGet(entry.paid(), BigDecimal::add);
+                if (!own) {
+                    dependent.paid.merge(target, entry.paid(), BigDecimal::add);
+                }
+            }
+            for (var exit : entry.exits().entrySet()) {
+                var month = employeeMonths.computeIfAbsent(exit.getKey(), key -> new LiveEmployeeMonth());
+                var share = dependent.employeeMonth(exit.getKey(), month);
+                for (int i = 0; i < exit.getValue(); i++) {
+                    month.exited.add(target);
+                    share.exited.add(target);
+                }
+                month.totalExited.add(exit.getValue());
+                share.totalExited += exit.getValue();
+            }
+            if (!own) {
+                depend(target, dependent);
+            }
+        }
+    }
+
+    private void depend(LiveEmployee live, Contribution contribution) {
+        dependents.computeIfAbsent(live, key -> ConcurrentHashMap.newKeySet()).add(contribution);
+    }
+
+    /**
+     * @return the employees of other uploads that the upload paid or exited
+     */
+    private static Set<LiveEmployee> borrowed(Contribution contribution) {
+        var indexed = Collections.<LiveEmployee>newSetFromMap(new IdentityHashMap<>());
+        indexed.addAll(contribution.indexed);
+        var borrowed = Collections.<LiveEmployee>newSetFromMap(new IdentityHashMap<>());
+        borrowed.addAll(contribution.paid.keySet());
+        contribution.employeeMonths.values().forEach(share -> share.exited.stream()
+                .filter(live -> !indexed.contains(live))
+                .forEach(borrowed::add));
+        return borrowed;
+    }
+
+    private void exclusively(Runnable change) {
+        gate.writeLock().lock();
+        state.incrementAndGet();
+        try {
+            change.run();
+        } finally {
+            state.addAndGet(COMMITTED - 1);
+            gate.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a copy of the live report that contains every commit finished before it and none of the later ones.
+     * Monthly and yearly reports are ordered by month and year.
+     */
+    public Report snapshot() {
+        for (int attempt = 0; attempt < OPTIMISTIC_SNAPSHOTS; attempt++) {
+            var before = state.get();
+            if ((before & RUNNING_MASK) == 0) {
+                var report = copy();
+                if (state.get() == before) {
+                    return report;
+                }
+            }
+            Thread.onSpinWait();
+        }
+
+        log.debug("Live report is busy, gating commits for a snapshot");
+        gate.writeLock().lock();
+        try {
+            return copy();
+        } finally {
+            gate.writeLock().unlock();
+        }
+    }
+
+    private void resolve(Record<?> record, List<String> errors, Contribution contribution) {
+        var employee = employeesById.get(record.getEmployee().getId());
+        if (employee == null) {
+            ErrorCollector.add(errors, ErrorCategory.UNKNOWN_EMPLOYEE, () -> "There is no any employee appropriate to this record: " + record +
+                    " ~ This can cause to wrong report result");
+        } else if (record.getType().equals(EXIT)) {
+            var key = YearMonth.from((LocalDate) record.getValue());
+            var month = employeeMonths.computeIfAbsent(key, k -> new LiveEmployeeMonth());
+            var share = contribution.employeeMonth(key, month);
+            month.totalExited.increment();
+            share.totalExited++;
+            month.exited.add(employee);
+            share.exited.add(employee);
+            depend(employee, contribution);
+        } else {
+            employee.totalPaid.accumulateAndGet((BigDecimal) record.getValue(), BigDecimal::add);
+            contribution.paid.merge(employee, (BigDecimal) record.getValue(), BigDecimal::add);
+            depend(employee, contribution);
+        }
+    }
+
+    private Report copy() {
+        var report = builderService.buildInitialReport();
+        report.setTotalEmployees(totalEmployees.sum());
+        employees.forEach(added -> added.forEach(employee -> report.getEmployeeReports().add(employee.toReport())));
+
+        employeeMonths.forEach((month, live) -> {
+            var onboarded = new ArrayList<EmployeeReport>();
+            live.onboarded.forEach(onboarded::addAll);
+            report.getMonthlyEmployeeReports().add(MonthlyEmployeeReport.builder()
+                    .month(month)
+                    .totalOnboardedEmployees(live.totalOnboarded.sum())
+                    .OnboardedEmployees(onboarded)
+                    .totalExitedEmployee(live.totalExited.sum())
+                    .exitedEmployees(new ArrayList<>(live.exited.stream().map(LiveEmployee::toReport).toList())).build());
+        });
+
+        salaryMonths.forEach((month, live) -> report.getMonthlySalaryReports().add(MonthlySalaryReport.builder()
+                .month(month)
+                .totalSalary(live.totalSalary.get())
+                .totalEmployees(live.totalEmployees.sum()).build()));
+
+        paidMonths.forEach((month, live) -> report.getMonthlyPaidReports().add(MonthlyPaidReport.builder()
+                .month(month)
+                .totalPaid(live.totalPaid.get())
+                .totalEmployees(live.count()).build()));
+
+        // the events are chained instead of copied, so spilled years are streamed from disk when the report is written
+        years.forEach((year, live) -> report.getYearlyReports().add(
+                new YearlyReport(year, new ChainedList<>(new ArrayList<>(live.events)))));
+        return report;
+    }
+
+    private EventLog.Position readState(DataInput in) throws IOException {
+        clear();
+        var references = new References();
+        var position = in.readBoolean() ? new EventLog.Position(in.readLong(), in.readLong()) : null;
+        totalEmployees.add(in.readLong());
+
+        for (int i = in.readInt(); i > 0; i--) {
+            employees.add(readEmployees(references, in));
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            var live = readEmployee(references, in);
+            employeesById.put(live.id, live);
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            var month = new LiveEmployeeMonth();
+            employeeMonths.put(PartialReportCodec.readMonth(in), month);
+            month.sources.set(in.readInt());
+            month.totalOnboarded.add(in.readLong());
+            for (int j = in.readInt(); j > 0; j--) {
+                month.onboarded.add(readOnboarded(references, in));
+            }
+            month.totalExited.add(in.readLong());
+            for (int j = in.readInt(); j > 0; j--) {
+                month.exited.add(readEmployee(references, in));
+            }
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            var month = new LiveSalaryMonth();
+            salaryMonths.put(PartialReportCodec.readMonth(in), month);
+            month.sources.set(in.readInt());
+            month.totalEmployees.add(in.readLong());
+            month.totalSalary.set(PartialReportCodec.readDecimal(in));
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            var month = new LivePaidMonth();
+            paidMonths.put(PartialReportCodec.readMonth(in), month);
+            month.sources.set(in.readInt());
+            month.totalPaid.set(PartialReportCodec.readDecimal(in));
+            for (int j = in.readInt(); j > 0; j--) {
+                month.payees.put(PartialReportCodec.readString(in), in.readInt());
+            }
+            for (int j = in.readInt(); j > 0; j--) {
+                month.counters.add(readSketch(references, in));
+            }
+            month.uncounted.add(in.readLong());
+            month.sketch = in.readBoolean() ? HyperLogLogCounter.fromRegisters(readRegisters(in)) : null;
+        }
+
+        for (int i = in.readInt(); i > 0; i--) {
+            var year = new LiveYear();
+            years.put(Year.of(in.readInt()), year);
+            for (int j = in.readInt(); j > 0; j--) {
+                year.events.add(readEvents(references, in));
+            }
+        }
+
+        var dictionary = new EmployeeDictionary();
+        for (int i = in.readInt(); i > 0; i--) {
+            var source = PartialReportCodec.readString(in);
+            contributions.put(source, readContribution(new Contribution(true), dictionary, references, in));
+        }
+        var all = new ArrayList<>(contributions.values());
+        for (int i = in.readInt(); i > 0; i--) {
+            all.add(readContribution(new Contribution(false), dictionary, references, in));
+        }
+        all.forEach(contribution -> borrowed(contribution).stream()
+                .filter(live -> employeesById.get(live.id) == live)
+                .forEach(live -> depend(live, contribution)));
+        return position;
+    }
+
+    private static void writeState(SavedState saved, DataOutput out) throws IOException {
+        var references = new References();
+        out.writeBoolean(saved.position != null);
+        if (saved.position != null) {
+            out.writeLong(saved.position.segment());
+            out.writeLong(saved.position.offset());
+        }
+        out.writeLong(saved.totalEmployees);
+
+        out.writeInt(saved.employees.size());
+        for (List<LiveEmployee> added : saved.employees) {
+            writeEmployees(added, references, out);
+        }
+        out.writeInt(saved.employeesById.size());
+        for (LiveEmployee live : saved.employeesById) {
+            writeEmployee(live, references, out);
+        }
+
+        out.writeInt(saved.employeeMonths.size());
+        for (var entry : saved.employeeMonths.entrySet()) {
+            var month = entry.getValue();
+            PartialReportCodec.writeMonth(entry.getKey(), out);
+            out.writeInt(month.sources.get());
+            out.writeLong(month.totalOnboarded.sum());
+            out.writeInt(month.onboarded.size());
+            for (List<EmployeeReport> onboarded : month.onboarded) {
+                writeOnboarded(onboarded, references, out);
+            }
+            out.writeLong(month.totalExited.sum());
+            out.writeInt(month.exited.size());
+            for (LiveEmployee live : month.exited) {
+                writeEmployee(live, references, out);
+            }
+        }
+
+        out.writeInt(saved.salaryMonths.size());
+        for (var entry : saved.salaryMonths.entrySet()) {
+            var month = entry.getValue();
+            PartialReportCodec.writeMonth(entry.getKey(), out);
+            out.writeInt(month.sources.get());
+            out.writeLong(month.totalEmployees.sum());
+            PartialReportCodec.writeDecimal(month.totalSalary.get(), out);
+        }
+
+        out.writeInt(saved.paidMonths.size());
+        for (var entry : saved.paidMonths.entrySet()) {
+            var month = entry.getValue();
+            PartialReportCodec.writeMonth(entry.getKey(), out);
+            out.writeInt(month.sources.get());
+            PartialReportCodec.writeDecimal(month.totalPaid.get(), out);
+            out.writeInt(month.payees.size());
+            for (var payee : month.payees.entrySet()) {
+                PartialReportCodec.writeString(payee.getKey(), out);
+                out.writeInt(payee.getValue());
+            }
+            out.writeInt(month.counters.size());
+            for (HyperLogLogCounter counter : month.counters) {
+                writeSketch(counter, references, out);
+            }
+            out.writeLong(month.uncounted.sum());
+            out.writeBoolean(month.sketch != null);
+            if (month.sketch != null) {
+                writeRegisters(month.sketch, out);
+            }
+        }
+
+        out.writeInt(saved.years.size());
+        for (var entry : saved.years.entrySet()) {
+            out.writeInt(entry.getKey().getValue());
+            out.writeInt(entry.getValue().size());
+            for (List<EventReport<?>> events : entry.getValue()) {
+                writeEvents(events, references, out);
+            }
+        }
+
+        out.writeInt(saved.contributions.size());
+        for (var entry : saved.contributions.entrySet()) {
+            PartialReportCodec.writeString(entry.getKey(), out);
+            writeContribution(entry.getValue(), references, out);
+        }
+        out.writeInt(saved.untracked.size());
+        for (Contribution contribution : saved.untracked) {
+            writeContribution(contribution, references, out);
+        }
+    }
+
+    private void clear() {
+        totalEmployees.reset();
+        employeesById.clear();
+        employees.clear();
+        employeeMonths.clear();
+        salaryMonths.clear();
+        paidMonths.clear();
+        years.clear();
+        contributions.clear();
+        dependents.clear();
+    }
+
+    private static void writeContribution(Contribution contribution, References references, DataOutput out) throws IOException {
+        out.writeLong(contribution.totalEmployees);
+        writeEmployees(contribution.employees, references, out);
+        out.writeInt(contribution.indexed.size());
+        for (LiveEmployee live : contribution.indexed) {
+            writeEmployee(live, references, out);
+        }
+        out.writeInt(contribution.paid.size());
+        for (var paid : contribution.paid.entrySet()) {
+            writeEmployee(paid.getKey(), references, out);
+            PartialReportCodec.writeDecimal(paid.getValue(), out);
+        }
+        out.writeInt(contribution.employeeMonths.size());
+        for (var month : contribution.employeeMonths.entrySet()) {
+            var share = month.getValue();
+            PartialReportCodec.writeMonth(month.getKey(), out);
+            out.writeLong(share.totalOnboarded);
+            out.writeLong(share.totalExited);
+            writeOnboarded(share.onboarded, references, out);
+            out.writeInt(share.exited.size());
+            for (LiveEmployee live : share.exited) {
+                writeEmployee(live, references, out);
+            }
+        }
+        out.writeInt(contribution.salaryMonths.size());
+        for (MonthlySalaryReport msr : contribution.salaryMonths.values()) {
+            PartialReportCodec.writeMonth(msr.getMonth(), out);
+            PartialReportCodec.writeDecimal(msr.getTotalSalary(), out);
+            out.writeLong(msr.getTotalEmployees());
+        }
+        out.writeInt(contribution.paidMonths.size());
+        for (MonthlyPaidReport mpr : contribution.paidMonths.values()) {
+            PartialReportCodec.writeMonth(mpr.getMonth(), out);
+            PartialReportCodec.writeDecimal(mpr.getTotalPaid(), out);
+            out.writeLong(mpr.getTotalEmployees());
+            out.writeBoolean(mpr.getEmployees() instanceof HyperLogLogCounter);
+            if (mpr.getEmployees() instanceof HyperLogLogCounter counter) {
+                writeSketch(counter, references, out);
+            } else {
+                PartialReportCodec.writeCounter(mpr.getEmployees(), out);
+            }
+        }
+        out.writeInt(contribution.years.size());
+        for (var year : contribution.years.entrySet()) {
+            out.writeInt(year.getKey().getValue());
+            writeEvents(year.getValue(), references, out);
+        }
+    }
+
+    private static Contribution readContribution(Contribution contribution, EmployeeDictionary dictionary, References references,
+                                                 DataInput in) throws IOException {
+        contribution.totalEmployees = in.readLong();
+        contribution.employees = readEmployees(references, in);
+        for (int j = in.readInt(); j > 0; j--) {
+            contribution.indexed.add(readEmployee(references, in));
+        }
+        for (int j = in.readInt(); j > 0; j--) {
+            contribution.paid.put(readEmployee(references, in), PartialReportCodec.readDecimal(in));
+        }
+        for (int j = in.readInt(); j > 0; j--) {
+            var share = new EmployeeMonthShare();
+            contribution.employeeMonths.put(PartialReportCodec.readMonth(in), share);
+            share.totalOnboarded = in.readLong();
+            share.totalExited = in.readLong();
+            share.onboarded = readOnboarded(references, in);
+            for (int k = in.readInt(); k > 0; k--) {
+                share.exited.add(readEmployee(references, in));
+            }
+        }
+        for (int j = in.readInt(); j > 0; j--) {
+            var msr = MonthlySalaryReport.builder()
+                    .month(PartialReportCodec.readMonth(in))
+                    .totalSalary(PartialReportCodec.readDecimal(in))
+                    .totalEmployees(in.readLong()).build();
+            contribution.salaryMonths.put(msr.getMonth(), msr);
+        }
+        for (int j = in.readInt(); j > 0; j--) {
+            var mpr = MonthlyPaidReport.builder()
+                    .month(PartialReportCodec.readMonth(in))
+                    .totalPaid(PartialReportCodec.readDecimal(in))
+                    .totalEmployees(in.readLong())
+                    .employees(in.readBoolean() ? readSketch(references, in) : PartialReportCodec.readCounter(dictionary, in)).build();
+            contribution.paidMonths.put(mpr.getMonth(), mpr);
+        }
+        for (int j = in.readInt(); j > 0; j--) {
+            contribution.years.put(Year.of(in.readInt()), readEvents(references, in));
+        }
+        return contribution;
+    }
+
+    private static void writeEmployee(LiveEmployee live, References references, DataOutput out) throws IOException {
+        if (references.write(live, out)) {
+            PartialReportCodec.writeEmployee(live.toReport(), out);
+        }
+    }
+
+    private static LiveEmployee readEmployee(References references, DataInput in) throws IOException {
+        return references.read(in, () -> new LiveEmployee(PartialReportCodec.readEmployee(in)));
+    }
+
+    private static void writeEmployees(List<LiveEmployee> employees, References references, DataOutput out) throws IOException {
+        if (references.write(employees, out)) {
+            out.writeInt(employees.size());
+            for (LiveEmployee live : employees) {
+                writeEmployee(live, references, out);
+            }
+        }
+    }
+
+    private static List<LiveEmployee> readEmployees(References references, DataInput in) throws IOException {
+        return references.read(in, () -> {
+            var size = in.readInt();
+            var employees = new ArrayList<LiveEmployee>(size);
+            for (int i = size; i > 0; i--) {
+                employees.add(readEmployee(references, in));
+            }
+            return employees;
+        });
+    }
+
+    private static void writeOnboarded(List<EmployeeReport> onboarded, References references, DataOutput out) throws IOException {
+        if (references.write(onboarded, out)) {
+            out.writeInt(onboarded.size());
+            for (EmployeeReport employee : onboarded) {
+                PartialReportCodec.writeEmployee(employee, out);
+            }
+        }
+    }
+
+    private static List<EmployeeReport> readOnboarded(References references, DataInput in) throws IOException {
+        return references.read(in, () -> {
+            var size = in.readInt();
+            var onboarded = new ArrayList<EmployeeReport>(size);
+            for (int i = size; i > 0; i--) {
+                onboarded.add(PartialReportCodec.readEmployee(in));
+            }
+            return onboarded;
+        });
+    }
+
+    private static void writeEvents(List<EventReport<?>> events, References references, DataOutput out) throws IOException {
+        if (references.write(events, out)) {
+            out.writeInt(events.size());
+            for (EventReport<?> event : events) {
+                PartialReportCodec.writeEvent(event, out);
+            }
+        }
+    }
+
+    private static List<EventReport<?>> readEvents(References references, DataInput in) throws IOException {
+        return references.read(in, () -> {
+            var size = in.readInt();
+            var events = new ArrayList<EventReport<?>>(size);
+            for (int i = size; i > 0; i--) {
+                events.add(PartialReportCodec.readEvent(in));
+            }
+            return events;
+        });
+    }
+
+    private static void writeSketch(HyperLogLogCounter counter, References references, DataOutput out) throws IOException {
+        if (references.write(counter, out)) {
+            writeRegisters(counter, out);
+        }
+    }
+
+    private static HyperLogLogCounter readSketch(References references, DataInput in) throws IOException {
+        return references.read(in, () -> HyperLogLogCounter.fromRegisters(readRegisters(in)));
+    }
+
+    private static void writeRegisters(HyperLogLogCounter counter, DataOutput out) throws IOException {
+        var registers = counter.toRegisters();
+        out.writeInt(registers.length);
+        out.write(registers);
+    }
+
+    private static byte[] readRegisters(DataInput in) throws IOException {
+        var registers = new byte[in.readInt()];
+        in.readFully(registers);
+        return registers;
+    }
+
+    private static class LiveEmployee {
+        final String id;
+        final String name;
+        final String surname;
+        final String designation;
+        final AtomicReference<BigDecimal> totalPaid;
+
+        LiveEmployee(EmployeeReport employee) {
+            id = employee.getId();
+            name = employee.getName();
+            surname = employee.getSurname();
+            designation = employee.getDesignation();
+            totalPaid = new AtomicReference<>(employee.getTotalPaid());
+        }
+
+        EmployeeReport toReport() {
+            return EmployeeReport.builder()
+                    .id(id)
+                    .name(name)
+                    .surname(surname)
+                    .designation(designation)
+                    .totalPaid(totalPaid.get()).build();
+        }
+    }
+
+    /**
+     * Onboarded employees are kept in the lists their uploads brought, so retracting an upload removes one list.
+     * Exits are kept one by one, because records of later uploads can exit employees one at a time.
+     */
+    private static class LiveEmployeeMonth {
+        final AtomicInteger sources = new AtomicInteger();
+        final LongAdder totalOnboarded = new LongAdder();
+        final Queue<List<EmployeeReport>> onboarded = new ConcurrentLinkedQueue<>();
+        final LongAdder totalExited = new LongAdder();
+        final Queue<LiveEmployee> exited = new ConcurrentLinkedQueue<>();
+    }
+
+    private static class LiveSalaryMonth {
+        final AtomicInteger sources = new AtomicInteger();
+        final LongAdder totalEmployees = new LongAdder();
+        final AtomicReference<BigDecimal> totalSalary = new AtomicReference<>(BigDecimal.ZERO);
+    }
+
+    /**
+     * Events are kept in the lists their uploads brought, so retracting an upload removes one list.
+     */
+    private static class LiveYear {
+        final Queue<List<EventReport<?>>> events = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Payees are counted exactly in a concurrent map from payee to the number of uploads that paid them.
+     * Once an upload brings an approximate counter, the month switches to a HyperLogLog sketch that is updated
+     * under the lock of the month. The sketch is published before the payees are copied into it, so a payee added
+     * concurrently is either copied or added again by its own upload. A sketch cannot forget a payee, so retracting
+     * an upload rebuilds it from the remaining payees and approximate counters.
+     */
+    private static class LivePaidMonth {
+        final AtomicInteger sources = new AtomicInteger();
+        final AtomicReference<BigDecimal> totalPaid = new AtomicReference<>(BigDecimal.ZERO);
+        final ConcurrentMap<String, Integer> payees = new ConcurrentHashMap<>();
+        final Queue<HyperLogLogCounter> counters = new ConcurrentLinkedQueue<>();
+        final LongAdder uncounted = new LongAdder();
+        volatile HyperLogLogCounter sketch;
+
+        void count(DistinctCounter employees, long totalEmployees) {
+            if (employees == null) {
+                uncounted.add(totalEmployees);
+            } else if (employees instanceof BitmapDistinctCounter bitmap && sketch == null) {
+                bitmap.forEach(id -> payees.merge(id, 1, Integer::sum));
+                if (sketch != null) {
+                    synchronized (this) {
+                        bitmap.forEach(sketch::add);
+                    }
+                }
+            } else {
+                synchronized (this) {
+                    if (sketch == null) {
+                        sketch = new HyperLogLogCounter();
+                        payees.keySet().forEach(sketch::add);
+                    }
+                    if (employees instanceof BitmapDistinctCounter bitmap) {
+                        bitmap.forEach(id -> payees.merge(id, 1, Integer::sum));
+                        bitmap.forEach(sketch::add);
+                    } else {
+                        counters.add((HyperLogLogCounter) employees);
+                        sketch.merge((HyperLogLogCounter) employees);
+                    }
+                }
+            }
+        }
+
+        void uncount(DistinctCounter employees, long totalEmployees) {
+            if (employees == null) {
+                uncounted.add(-totalEmployees);
+                return;
+            }
+            if (employees instanceof BitmapDistinctCounter bitmap) {
+                bitmap.forEach(id -> payees.computeIfPresent(id, (key, uploads) -> uploads == 1 ? null : uploads - 1));
+            } else {
+                counters.remove(employees);
+            }
+            synchronized (this) {
+                if (sketch != null) {
+                    if (counters.isEmpty()) {
+                        sketch = null;
+                    } else {
+                        var rebuilt = new HyperLogLogCounter();
+                        payees.keySet().forEach(rebuilt::add);
+                        counters.forEach(rebuilt::merge);
+                        sketch = rebuilt;
+                    }
+                }
+            }
+        }
+
+        long count() {
+            var sketch = this.sketch;
+            if (sketch == null) {
+                return payees.size() + uncounted.sum();
+            }
+            synchronized (this) {
+                return sketch.count() + uncounted.sum();
+            }
+        }
+    }
+
+    /**
+     * What one upload added to the live report. It is only touched by the commit of the upload, by its retraction
+     * and by retractions of the uploads whose employees it paid or exited.
+     * <p>
+     * An untracked upload cannot be retracted, so it keeps only its payments and exits of employees of other uploads,
+     * which have to move when those are retracted, and is dropped if it has none.
+     */
+    private static class Contribution {
+        final boolean tracked;
+        long totalEmployees;
+        List<LiveEmployee> employees = List.of();
+        final List<LiveEmployee> indexed = new ArrayList<>();
+        final Map<LiveEmployee, BigDecimal> paid = new IdentityHashMap<>();
+        final Map<YearMonth, EmployeeMonthShare> employeeMonths = new HashMap<>();
+        final Map<YearMonth, MonthlySalaryReport> salaryMonths = new HashMap<>();
+        final Map<YearMonth, MonthlyPaidReport> paidMonths = new HashMap<>();
+        final Map<Year, List<EventReport<?>>> years = new HashMap<>();
+
+        Contribution(boolean tracked) {
+            this.tracked = tracked;
+        }
+
+        EmployeeMonthShare employeeMonth(YearMonth key, LiveEmployeeMonth month) {
+            return employeeMonths.computeIfAbsent(key, k -> {
+                month.sources.incrementAndGet();
+                return new EmployeeMonthShare();
+            });
+        }
+    }
+
+    /**
+     * A copy of the state for a snapshot, taken while no commit runs. Employees, months and contributions change with
+     * later commits and are copied, and so are the lists of employees that refer to them. Which of them are shared
+     * stays the same, so the snapshot writes them once like it would the live ones. Events, onboarded employees and
+     * counters of uploads do not change after their commit and are shared with the live state.
+     */
+    private static class SavedState {
+        final EventLog.Position position;
+        final long totalEmployees;
+        final List<List<LiveEmployee>> employees = new ArrayList<>();
+        final List<LiveEmployee> employeesById = new ArrayList<>();
+        final Map<YearMonth, LiveEmployeeMonth> employeeMonths = new LinkedHashMap<>();
+        final Map<YearMonth, LiveSalaryMonth> salaryMonths = new LinkedHashMap<>();
+        final Map<YearMonth, LivePaidMonth> paidMonths = new LinkedHashMap<>();
+        final Map<Year, List<List<EventReport<?>>>> years = new LinkedHashMap<>();
+        final Map<String, Contribution> contributions = new HashMap<>();
+        final List<Contribution> untracked = new ArrayList<>();
+        private final Map<LiveEmployee, LiveEmployee> copiedEmployees = new IdentityHashMap<>();
+        private final Map<List<LiveEmployee>, List<LiveEmployee>> copiedLists = new IdentityHashMap<>();
+
+        SavedState(LiveReportService live, EventLog.Position position) {
+            this.position = position;
+            totalEmployees = live.totalEmployees.sum();
+            live.employees.forEach(added -> employees.add(copy(added)));
+            live.employeesById.values().forEach(employee -> employeesById.add(copy(employee)));
+
+            live.employeeMonths.forEach((key, month) -> {
+                var copy = new LiveEmployeeMonth();
+                copy.sources.set(month.sources.get());
+                copy.totalOnboarded.add(month.totalOnboarded.sum());
+                copy.onboarded.addAll(month.onboarded);
+                copy.totalExited.add(month.totalExited.sum());
+                month.exited.forEach(employee -> copy.exited.add(copy(employee)));
+                employeeMonths.put(key, copy);
+            });
+            live.salaryMonths.forEach((key, month) -> {
+                var copy = new LiveSalaryMonth();
+                copy.sources.set(month.sources.get());
+                copy.totalEmployees.add(month.totalEmployees.sum());
+                copy.totalSalary.set(month.totalSalary.get());
+                salaryMonths.put(key, copy);
+            });
+            live.paidMonths.forEach((key, month) -> {
+                var copy = new LivePaidMonth();
+                copy.sources.set(month.sources.get());
+                copy.totalPaid.set(month.totalPaid.get());
+                copy.payees.putAll(month.payees);
+                copy.counters.addAll(month.counters);
+                copy.uncounted.add(month.uncounted.sum());
+                synchronized (month) {
+                    copy.sketch = month.sketch == null ? null : HyperLogLogCounter.fromRegisters(month.sketch.toRegisters());
+                }
+                paidMonths.put(key, copy);
+            });
+            live.years.forEach((key, year) -> years.put(key, new ArrayList<>(year.events)));
+
+            live.contributions.forEach((source, contribution) -> contributions.put(source, copy(contribution)));
+            var untracked = Collections.<Contribution>newSetFromMap(new IdentityHashMap<>());
+            live.dependents.values().forEach(untracked::addAll);
+            untracked.removeIf(contribution -> contribution.tracked);
+            untracked.forEach(contribution -> this.untracked.add(copy(contribution)));
+        }
+
+        private LiveEmployee copy(LiveEmployee employee) {
+            return copiedEmployees.computeIfAbsent(employee, key -> new LiveEmployee(key.toReport()));
+        }
+
+        private List<LiveEmployee> copy(List<LiveEmployee> employees) {
+            var copy = copiedLists.get(employees);
+            if (copy == null) {
+                copy = new ArrayList<>(employees.size());
+                for (LiveEmployee employee : employees) {
+                    copy.add(copy(employee));
+                }
+                copiedLists.put(employees, copy);
+            }
+            return copy;
+        }
+
+        private Contribution copy(Contribution contribution) {
+            var copy = new Contribution(contribution.tracked);
+            copy.totalEmployees = contribution.totalEmployees;
+            copy.employees = copy(contribution.employees);
+            contribution.indexed.forEach(employee -> copy.indexed.add(copy(employee)));
+            contribution.paid.forEach((employee, paid) -> copy.paid.put(copy(employee), paid));
+            contribution.employeeMonths.forEach((key, share) -> {
+                var shareCopy = new EmployeeMonthShare();
+                shareCopy.totalOnboarded = share.totalOnboarded;
+                shareCopy.totalExited = share.totalExited;
+                shareCopy.onboarded = share.onboarded;
+                share.exited.forEach(employee -> shareCopy.exited.add(copy(employee)));
+                copy.employeeMonths.put(key, shareCopy);
+            });
+            copy.salaryMonths.putAll(contribution.salaryMonths);
+            copy.paidMonths.putAll(contribution.paidMonths);
+            copy.years.putAll(contribution.years);
+            return copy;
+        }
+    }
+
+    /**
+     * Numbers of the shared objects of a snapshot. An object is written after -1 the first time and as its number after.
+     */
+    private static class References {
+        final Map<Object, Integer> written = new IdentityHashMap<>();
+        final List<Object> read = new ArrayList<>();
+
+        /**
+         * @return true if the object is written for the first time and has to follow
+         */
+        boolean write(Object object, DataOutput out) throws IOException {
+            var number = written.putIfAbsent(object, written.size());
+            out.writeInt(number == null ? -1 : number);
+            return number == null;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T read(DataInput in, Definition<T> definition) throws IOException {
+            var number = in.readInt();
+            if (number >= 0) {
+                return (T) read.get(number);
+            }
+            number = read.size();
+            read.add(null);
+            var object = definition.read();
+            read.set(number, object);
+            return object;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Definition<T> {
+        T read() throws IOException;
+    }
+
+    /**
+     * Payments and exits of a dependent upload that were taken away from a retracted employee.
+     */
+    private record Detached(Contribution contribution, String id, BigDecimal paid, Map<YearMonth, Integer> exits) {
+    }
+
+    private static class EmployeeMonthShare {
+        long totalOnboarded;
+        long totalExited;
+        List<EmployeeReport> onboarded = List.of();
+        final List<LiveEmployee> exited = new ArrayList<>();
+    }
+}
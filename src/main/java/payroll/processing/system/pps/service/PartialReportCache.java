@@ -0,0 +1,358 @@
+package payroll.processing.system.pps.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.PartialReport;
+import payroll.processing.system.pps.domain.enumaration.ReportSection;
+import payroll.processing.system.pps.util.LocalMultipartFile;
+import payroll.processing.system.pps.util.PartialReportCodec;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Partial reports of single files, keyed by the SHA-256 of the file content, its name and the requested sections,
+ * so a file uploaded again is not parsed and aggregated again. The name is part of the key because errors name the file.
+ * <p>
+ * The most recently used partial reports are kept on the heap, weighed by their encoded size, which grows with
+ * their employees, months, events and errors rather than with the size of their files. Evicted ones are written
+ * to the disk directory if there is one, which is bounded by the size of its files and survives restarts.
+ * They are written on a thread of the cache, so the workers that computed them are not held up by the disk,
+ * and are still found while they are written.
+ * Partial reports with file errors are not kept. Requests for a file that is being computed wait for that computation.
+ * <p>
+ * Files copied by {@link FileService#copyToTempFiles} were hashed while they were copied and are not read for their key.
+ * <p>
+ * Kept partial reports are shared by the requests that hit them, so they must only be read, as merging does.
+ */
+@Service
+@Slf4j
+public class PartialReportCache {
+    private static final String FILE_SUFFIX = ".partial";
+
+    @Value("${pps.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${pps.cache.heap-max-size}")
+    private DataSize heapMaxSize;
+
+    @Value("${pps.cache.disk-dir}")
+    private String diskDir;
+
+    @Value("${pps.cache.disk-max-size}")
+    private DataSize diskMaxSize;
+
+    private final ConcurrentMap<String, CompletableFuture<PartialReport>> inFlight = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Entry> heap = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private final ConcurrentMap<String, Entry> spilling = new ConcurrentHashMap<>();
+    private final ExecutorService spillExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "pps-cache-spill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long heapWeight;
+    private long diskWeight;
+    private Path directory;
+
+    @PostConstruct
+    public void init() {
+        if (!enabled || diskDir.isBlank()) {
+            return;
+        }
+
+        directory = Path.of(diskDir);
+        try {
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                var existing = files.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                        .sorted(Comparator.comparingLong(path -> path.toFile().lastModified()))
+                        .toList();
+                for (Path path : existing) {
+                    var name = path.getFileName().toString();
+                    addToDisk(name.substring(0, name.length() - FILE_SUFFIX.length()), Files.size(path));
+                }
+            }
+        } catch (IOException e) {
+            log.error("Partial report cache directory {} cannot be used: {}", directory, e.getMessage());
+            directory = null;
+            return;
+        }
+
+        log.info("Partial report cache keeps up to {} on the heap and {} in {}", heapMaxSize, diskMaxSize, directory);
+    }
+
+    /**
+     * Lets the partial reports being written to the disk finish.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        spillExecutor.shutdown();
+        if (!spillExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Partial reports are still written to {}", directory);
+        }
+    }
+
+    /**
+     * Returns the kept partial report of the file, or the running computation of it,
+     * or runs the computation on the executor and keeps its result.
+     */
+    public CompletableFuture<PartialReport> get(MultipartFile file, Set<ReportSection> sections,
+                                                Supplier<PartialReport> computation, Executor executor) {
+        if (!enabled) {
+            return CompletableFuture.supplyAsync(computation, executor);
+        }
+
+        String key;
+        try {
+            key = key(file, sections);
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+            return CompletableFuture.supplyAsync(computation, executor);
+        }
+
+        var cached = lookup(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        var future = new CompletableFuture<PartialReport>();
+        var running = inFlight.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+
+        // the computation may have finished between the lookup and taking its place
+        cached = lookup(key);
+        if (cached != null) {
+            inFlight.remove(key, future);
+            future.complete(cached);
+            return future;
+        }
+
+        CompletableFuture.supplyAsync(computation, executor).whenComplete((partial, e) -> {
+            if (e != null) {
+                inFlight.remove(key, future);
+                future.completeExceptionally(e);
+                return;
+            }
+            if (partial.getFileErrors().isEmpty()) {
+                put(key, partial, weigh(partial));
+            }
+            inFlight.remove(key, future);
+            future.complete(partial);
+        });
+        return future;
+    }
+
+    private PartialReport lookup(String key) {
+        synchronized (heap) {
+            var entry = heap.get(key);
+            if (entry != null) {
+                return entry.partial();
+            }
+        }
+
+        if (directory == null) {
+            return null;
+        }
+        var written = spilling.get(key);
+        if (written != null) {
+            put(key, written.partial(), written.weight());
+            return written.partial();
+        }
+        synchronized (disk) {
+            if (disk.get(key) == null) {
+                return null;
+            }
+        }
+
+        var path = directory.resolve(key + FILE_SUFFIX);
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            var weight = in.readLong();
+            var partial = PartialReportCodec.read(in);
+            put(key, partial, weight);
+            return partial;
+        } catch (IOException e) {
+            log.error("Cached partial report {} cannot be read: {}", path, e.getMessage());
+            removeFromDisk(key);
+            return null;
+        }
+    }
+
+    private void put(String key, PartialReport partial, long weight) {
+        var evicted = new ArrayList<Map.Entry<String, Entry>>();
+        synchronized (heap) {
+            if (weight > heapMaxSize.toBytes()) {
+                evicted.add(Map.entry(key, new Entry(partial, weight)));
+            } else {
+                var previous = heap.put(key, new Entry(partial, weight));
+                heapWeight += weight - (previous == null ? 0 : previous.weight());
+                var eldest = heap.entrySet().iterator();
+                while (heapWeight > heapMaxSize.toBytes()) {
+                    var entry = eldest.next();
+                    heapWeight -= entry.getValue().weight();
+                    evicted.add(Map.entry(entry.getKey(), entry.getValue()));
+                    eldest.remove();
+                }
+            }
+        }
+
+        if (directory != null) {
+            evicted.forEach(entry -> {
+                spilling.put(entry.getKey(), entry.getValue());
+                try {
+                    spillExecutor.execute(() -> {
+                        try {
+                            spill(entry.getKey(), entry.getValue());
+                        } finally {
+                            spilling.remove(entry.getKey(), entry.getValue());
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    spilling.remove(entry.getKey(), entry.getValue());
+                }
+            });
+        }
+    }
+
+    private void spill(String key, Entry entry) {
+        synchronized (disk) {
+            if (disk.containsKey(key)) {
+                return;
+            }
+        }
+
+        var path = directory.resolve(key + FILE_SUFFIX);
+        try {
+            var temp = Files.createTempFile(directory, key, ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeLong(entry.weight());
+                PartialReportCodec.write(entry.partial(), out);
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            addToDisk(key, Files.size(path));
+        } catch (IOException e) {
+            log.error("Partial report cannot be written to {}: {}", path, e.getMessage());
+        }
+    }
+
+    private void addToDisk(String key, long size) {
+        var removed = new ArrayList<String>();
+        synchronized (disk) {
+            var previous = disk.put(key, size);
+            diskWeight += size - (previous == null ? 0 : previous);
+            var eldest = disk.entrySet().iterator();
+            while (diskWeight > diskMaxSize.toBytes()) {
+                var entry = eldest.next();
+                diskWeight -= entry.getValue();
+                removed.add(entry.getKey());
+                eldest.remove();
+            }
+        }
+        removed.forEach(this::delete);
+    }
+
+    private void removeFromDisk(String key) {
+        synchronized (disk) {
+            var size = disk.remove(key);
+            if (size != null) {
+                diskWeight -= size;
+            }
+        }
+        delete(key);
+    }
+
+    private void delete(String key) {
+        try {
+            Files.deleteIfExists(directory.resolve(key + FILE_SUFFIX));
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return the size of the encoded partial report, which is also its size on the disk
+     */
+    static long weigh(PartialReport partial) {
+        var out = new DataOutputStream(OutputStream.nullOutputStream());
+        try {
+            PartialReportCodec.write(partial, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.size();
+    }
+
+    private static String key(MultipartFile file, Set<ReportSection> sections) throws IOException {
+        var digest = sha256();
+        digest.update(contentHash(file));
+        digest.update((byte) 0);
+        digest.update(String.valueOf(file.getOriginalFilename()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        for (ReportSection section : ReportSection.values()) {
+            digest.update((byte) (sections.contains(section) ? 1 : 0));
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static byte[] contentHash(MultipartFile file) throws IOException {
+        if (file instanceof LocalMultipartFile local && local.getFile().getContentHash() != null) {
+            return HexFormat.of().parseHex(local.getFile().getContentHash());
+        }
+
+        var digest = sha256();
+        try (var in = file.getInputStream()) {
+            var buffer = new byte[64 * 1024];
+            for (int read = in.read(buffer); read >= 0; read = in.read(buffer)) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        return digest.digest();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Entry(PartialReport partial, long weight) {
+    }
+}
@@ -2,73 +2,618 @@ package payroll.processing.system.pps.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import payroll.processing.system.pps.domain.Error;
+import payroll.processing.system.pps.domain.FileChunk;
+import payroll.processing.system.pps.domain.LocalFile;
+import payroll.processing.system.pps.domain.PartialReport;
 import payroll.processing.system.pps.domain.PayrollResponse;
 import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.ProcessingMode;
+import payroll.processing.system.pps.domain.enumaration.ReportSection;
+import payroll.processing.system.pps.util.ColumnFilter;
+import payroll.processing.system.pps.util.ErrorCollector;
+import payroll.processing.system.pps.util.ExternalRecordSorter;
+import payroll.processing.system.pps.util.LocalMultipartFile;
+import payroll.processing.system.pps.util.PartitionWorker;
+import payroll.processing.system.pps.util.RecordBatch;
+import payroll.processing.system.pps.util.RingBuffer;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Consumer;
 
+import static payroll.processing.system.pps.domain.enumaration.ErrorCategory.*;
 import static payroll.processing.system.pps.domain.enumaration.EventType.*;
+import static payroll.processing.system.pps.domain.enumaration.ReportSection.*;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class PpsService {
+    private static final int PARTITION_BATCH_SIZE = 1024;
+    private static final int PARTITION_QUEUE_CAPACITY = 16;
+    private static final int ONBOARD_FIELDS = 9;
+    private static final int EVENT_FIELDS = 6;
+
     private final RecordService recordService;
     private final ReportService reportService;
     private final BuilderService builderService;
+    private final ForkJoinPool processingExecutor;
+    private final FileService fileService;
+    private final ExecutionPlanner executionPlanner;
+    private final PartialReportCache partialReportCache;
+
+    @Value("${pps.processing.mode}")
+    private ProcessingMode mode;
+
+    @Value("${pps.processing.chunk-size}")
+    private DataSize chunkSize;
+
+    @Value("${pps.processing.partitions}")
+    private int partitions;
+
+    @Value("${pps.processing.ring-size}")
+    private int ringSize;
+
+    @Value("${pps.processing.sort-run-records}")
+    private int sortRunRecords;
+
+    @Value("${pps.processing.sort-dir}")
+    private String sortDir;
+
+    @Value("${pps.errors.samples-per-category}")
+    private int errorSamples;
+
+    @Value("${pps.errors.max-size}")
+    private DataSize errorMaxSize;
 
     public PayrollResponse processPayroll(MultipartFile[] files) {
-        var report = builderService.buildInitialReport();
-        var recordResponse = recordService.getRecords(files);
-        var records = recordResponse.getRecords();
-        var errors = new ArrayList<String>();
+        return processPayroll(files, EnumSet.allOf(ReportSection.class));
+    }
 
-        records.forEach(record -> {
-            if (record.getType().equals(ONBOARD)) {
-                var aRecord = (Record<LocalDate>) record;
-                reportService.increaseTotalEmployees(report, aRecord);
-                reportService.addOnboardedEmployee(report, aRecord);
-                reportService.addYearlyEvent(report, aRecord);
-            } else if (record.getType().equals(EXIT)) {
-                var aRecord = (Record<LocalDate>) record;
-                reportService.decreaseTotalEmployees(report);
-                reportService.addExitedEmployee(report, aRecord, errors);
-                reportService.addYearlyEvent(report, record);
-            } else if (record.getType().equals(SALARY)) {
-                var aRecord = (Record<BigDecimal>) record;
-                reportService.addSalaryReport(report, aRecord);
-                reportService.addPaidReport(report, aRecord);
-                reportService.addEmployeePaid(report, aRecord, errors);
-                reportService.addYearlyEvent(report, aRecord);
-            } else {
-                var aRecord = (Record<BigDecimal>) record;
-                reportService.addPaidReport(report, aRecord);
-                reportService.addEmployeePaid(report, aRecord, errors);
-                reportService.addYearlyEvent(report, aRecord);
-            }
+    /**
+     * Builds only the given sections of the report, the others are null. Report steps that feed only
+     * the other sections are skipped, and so is decoding the note and, if no section needs the employees,
+     * the name, surname and designation columns.
+     */
+    public PayrollResponse processPayroll(MultipartFile[] files, Set<ReportSection> sections) {
+        PartialReport result;
+        if (mode == ProcessingMode.AUTO) {
+            result = switch (executionPlanner.plan(files)) {
+                case INLINE -> processStreaming(files, false, sections);
+                case PER_FILE -> processInParallel(files, sections);
+                case CHUNK -> processCopiedFiles(files, sections);
+            };
+        } else if (mode == ProcessingMode.PARALLEL && files.length > 1) {
+            result = processInParallel(files, sections);
+        } else if (mode == ProcessingMode.PARTITIONED) {
+            result = processPartitioned(files, sections);
+        } else if (mode == ProcessingMode.PIPELINED) {
+            result = processPipelined(files, sections);
+        } else if (mode == ProcessingMode.CHRONOLOGICAL) {
+            result = processChronological(files, sections);
+        } else if (mode == ProcessingMode.MATERIALIZED) {
+            result = processMaterialized(files, sections);
+        } else if (mode == ProcessingMode.COLUMNAR) {
+            result = processColumnar(files, sections);
+        } else {
+            result = processStreaming(files, false, sections);
+        }
+
+        return buildResponse(result);
+    }
+
+    /**
+     * Aggregates the files into a partial report without building a response. Records of employees
+     * the files do not onboard are deferred, so they can be resolved against the report the partial is added to.
+     * The partial is kept by the caller, so its yearly events are retired from the event budget.
+     */
+    public PartialReport aggregateFiles(MultipartFile[] files) {
+        return aggregateFiles(files, record -> {
+        });
+    }
+
+    /**
+     * Like {@link #aggregateFiles(MultipartFile[])}, every record is passed to the listener before it is aggregated.
+     */
+    public PartialReport aggregateFiles(MultipartFile[] files, Consumer<Record<?>> listener) {
+        var partial = initialPartialReport(true, EnumSet.allOf(ReportSection.class));
+
+        var recordResponse = recordService.streamRecords(files, record -> {
+            listener.accept(record);
+            aggregate(partial, record);
         });
 
-        if (report.getTotalEmployees() < 0) {
+        partial.setRecordErrors(recordResponse.getRecordErrors());
+        partial.setFileErrors(recordResponse.getFileErrors());
+        reportService.retire(partial.getReport());
+        return partial;
+    }
+
+    /**
+     * Aggregates records that were read before, e.g. from the event log, into a partial report like {@link #aggregateFiles}.
+     */
+    public PartialReport aggregateRecords(List<Record<?>> records) {
+        var partial = initialPartialReport(true, EnumSet.allOf(ReportSection.class));
+        records.forEach(record -> aggregate(partial, record));
+        reportService.retire(partial.getReport());
+        return partial;
+    }
+
+    /**
+     * Processes files that are already on the local disk. The files are memory mapped and split into chunks
+     * at line breaks, the chunks are parsed and aggregated in parallel and merged pairwise in file order.
+     */
+    public PayrollResponse processLocalFiles(List<LocalFile> files) {
+        return buildResponse(processChunks(files, new ArrayList<>(), EnumSet.allOf(ReportSection.class)));
+    }
+
+    private PayrollResponse buildResponse(PartialReport result) {
+        var report = result.getReport();
+        reportService.release(report);
+        var errors = result.getReportErrors();
+        var sections = result.getSections();
+
+        if (sections.contains(TOTAL_EMPLOYEES) && report.getTotalEmployees() < 0) {
             errors.add(0, "Some exited employees dont found. " +
                     "Because of that total number of employees is negative. " +
                     "For more information look at other error logs");
         }
 
-        report.getMonthlyPaidReports().forEach(mpr -> mpr.setEmployeeIds(null));
+        report.getMonthlyPaidReports().forEach(mpr -> mpr.setEmployees(null));
+
+        if (!sections.contains(TOTAL_EMPLOYEES)) {
+            report.setTotalEmployees(null);
+        }
+        if (!sections.contains(EMPLOYEE_REPORTS)) {
+            report.setEmployeeReports(null);
+        }
+        if (!sections.contains(MONTHLY_EMPLOYEE_REPORTS)) {
+            report.setMonthlyEmployeeReports(null);
+        }
+        if (!sections.contains(MONTHLY_SALARY_REPORTS)) {
+            report.setMonthlySalaryReports(null);
+        }
+        if (!sections.contains(MONTHLY_PAID_REPORTS)) {
+            report.setMonthlyPaidReports(null);
+        }
+        if (!sections.contains(YEARLY_REPORTS)) {
+            report.setYearlyReports(null);
+        }
 
         return PayrollResponse.builder()
                 .report(report)
                 .error(Error.builder()
                         .reportErrors(errors)
-                        .recordErrors(recordResponse.getRecordErrors())
-                        .fileErrors(recordResponse.getFileErrors())
+                        .recordErrors(result.getRecordErrors())
+                        .fileErrors(result.getFileErrors())
                         .build())
                 .build();
     }
 
-}
\ No newline at end of file
+    private PartialReport processMaterialized(MultipartFile[] files, Set<ReportSection> sections) {
+        var partial = initialPartialReport(false, sections);
+
+        var recordResponse = recordService.getRecords(files);
+        recordResponse.getRecords().forEach(record -> aggregate(partial, record));
+
+        partial.setRecordErrors(recordResponse.getRecordErrors());
+        partial.setFileErrors(recordResponse.getFileErrors());
+        return partial;
+    }
+
+    /**
+     * Like materialized processing, but the lines are decoded straight into a columnar batch and aggregated
+     * from its columns.
+     */
+    private PartialReport processColumnar(MultipartFile[] files, Set<ReportSection> sections) {
+        var partial = initialPartialReport(false, sections);
+
+        var batch = new RecordBatch();
+        var recordResponse = recordService.streamRows(files, columnFilter(sections), batch);
+        aggregate(partial, batch);
+
+        partial.setRecordErrors(recordResponse.getRecordErrors());
+        partial.setFileErrors(recordResponse.getFileErrors());
+        return partial;
+    }
+
+    private PartialReport processStreaming(MultipartFile[] files, boolean deferUnknownEmployees, Set<ReportSection> sections) {
+        var partial = initialPartialReport(deferUnknownEmployees, sections);
+
+        var recordResponse = recordService.streamRecords(files, columnFilter(sections), record -> aggregate(partial, record));
+
+        partial.setRecordErrors(recordResponse.getRecordErrors());
+        partial.setFileErrors(recordResponse.getFileErrors());
+        return partial;
+    }
+
+    /**
+     * Records of all files are aggregated in the order of their event dates and sequence numbers instead of the file order,
+     * so a record that comes before the onboarding of its employee in another file still finds the employee.
+     * Records beyond a run are sorted externally.
+     */
+    private PartialReport processChronological(MultipartFile[] files, Set<ReportSection> sections) {
+        var partial = initialPartialReport(false, sections);
+
+        try (var sorter = new ExternalRecordSorter(sortRunRecords, sortDirectory())) {
+            var recordResponse = recordService.streamRecords(files, columnFilter(sections), sorter);
+            sorter.forEachSorted(record -> aggregate(partial, record));
+
+            partial.setRecordErrors(recordResponse.getRecordErrors());
+            partial.setFileErrors(recordResponse.getFileErrors());
+        }
+        return partial;
+    }
+
+    private PartialReport processChunks(List<LocalFile> files, List<String> fileErrors, Set<ReportSection> sections) {
+        var chunks = fileService.mapFiles(files, chunkSize.toBytes(), fileErrors);
+
+        var result = initialPartialReport(false, sections);
+        result.setFileErrors(fileErrors);
+        if (!chunks.isEmpty()) {
+            merge(result, processingExecutor.invoke(new ChunkTask(chunks, sections)));
+        }
+        return result;
+    }
+
+    /**
+     * Uploads are copied to temporary files first, so they can be memory mapped and parsed in chunks.
+     * Uploads that are local files already, e.g. those of a job, are mapped without another copy.
+     */
+    private PartialReport processCopiedFiles(MultipartFile[] files, Set<ReportSection> sections) {
+        var fileErrors = new ArrayList<String>();
+        if (Arrays.stream(files).allMatch(LocalMultipartFile.class::isInstance)) {
+            var local = Arrays.stream(files).map(file -> ((LocalMultipartFile) file).getFile()).toList();
+            return processChunks(local, fileErrors, sections);
+        }
+
+        var copies = fileService.copyToTempFiles(files, fileErrors);
+        try {
+            return processChunks(copies, fileErrors, sections);
+        } finally {
+            copies.forEach(copy -> {
+                try {
+                    Files.deleteIfExists(copy.getPath());
+                } catch (IOException e) {
+                    log.error(e.getMessage(), e);
+                }
+            });
+        }
+    }
+
+    /**
+     * Every file is read and aggregated into its own partial report on a worker,
+     * then the partial reports are merged in upload order, so the result does not depend on scheduling.
+     * Partial reports of files seen before are taken from the cache instead.
+     */
+    private PartialReport processInParallel(MultipartFile[] files, Set<ReportSection> sections) {
+        var partials = Arrays.stream(files)
+                .map(file -> partialReportCache.get(file, sections,
+                        () -> processStreaming(new MultipartFile[]{file}, true, sections), processingExecutor))
+                .toList();
+
+        var result = initialPartialReport(false, sections);
+        partials.forEach(partial -> merge(result, partial.join()));
+        return result;
+    }
+
+    /**
+     * Lines are read on the calling thread and dispatched in batches by the hash of the employee id,
+     * every partition builds and aggregates its lines into its own partial report, one batch at a time.
+     * All records of an employee land in the same partition in file order, so no record is deferred
+     * and the partial reports are merged in partition order at the end. The totals are the ones of STREAMING,
+     * but the employee reports, the onboarded and exited employees and the yearly events are ordered by partition
+     * and by file order inside a partition, so the records of one employee keep their order.
+     * Errors are grouped by partition instead of following the lines of the files.
+     * Every worker is closed and waited for, even if handing over the last batches fails.
+     */
+    private PartialReport processPartitioned(MultipartFile[] files, Set<ReportSection> sections) {
+        var count = partitions > 0 ? partitions : processingExecutor.getParallelism();
+        var partials = new PartialReport[count];
+        var workers = new ArrayList<PartitionWorker<NumberedLine>>(count);
+        var batches = new ArrayList<List<NumberedLine>>(count);
+        for (int i = 0; i < count; i++) {
+            var partial = initialPartialReport(false, sections);
+            partials[i] = partial;
+            workers.add(new PartitionWorker<>(processingExecutor, PARTITION_QUEUE_CAPACITY, batch -> batch.forEach(
+                    line -> recordService.buildRecord(line.fields(), line.fileName(), line.lineNumber(),
+                            record -> aggregate(partial, record), partial.getRecordErrors()))));
+            batches.add(new ArrayList<>(PARTITION_BATCH_SIZE));
+        }
+
+        List<String> fileErrors;
+        try {
+            fileErrors = fileService.streamFiles(files, columnFilter(sections), (line, fileName, lineNumber) -> {
+                var partition = line.length > 1 ? Math.floorMod(line[1].hashCode(), count) : 0;
+                var batch = batches.get(partition);
+                batch.add(new NumberedLine(line, fileName, lineNumber));
+                if (batch.size() == PARTITION_BATCH_SIZE) {
+                    workers.get(partition).submit(batch);
+                    batches.set(partition, new ArrayList<>(PARTITION_BATCH_SIZE));
+                }
+            });
+        } finally {
+            RuntimeException failure = null;
+            for (int i = 0; i < count; i++) {
+                try {
+                    if (!batches.get(i).isEmpty()) {
+                        workers.get(i).submit(batches.get(i));
+                    }
+                } catch (RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            CompletableFuture.allOf(workers.stream().map(PartitionWorker::close).toArray(CompletableFuture[]::new)).join();
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        var result = initialPartialReport(false, sections);
+        result.getFileErrors().addAll(fileErrors);
+        Arrays.stream(partials).forEach(partial -> merge(result, partial));
+        return result;
+    }
+
+    /**
+     * Reading, record building and aggregation overlap as the stages of a ring buffer. The calling thread reads
+     * lines into the ring, one worker builds their records in place and another one aggregates them,
+     * so every stage keeps the order of the files. When aggregation falls behind the full ring stops the reader.
+     */
+    private PartialReport processPipelined(MultipartFile[] files, Set<ReportSection> sections) {
+        var partial = initialPartialReport(false, sections);
+        var ring = new RingBuffer<PipelineEntry>(ringSize, PipelineEntry::new, 2);
+
+        var building = CompletableFuture.runAsync(() -> ring.consume(0, entry -> {
+            entry.record = null;
+            recordService.buildRecord(entry.line, entry.fileName, entry.lineNumber, record -> entry.record = record, partial.getRecordErrors());
+            entry.line = null;
+        }), processingExecutor);
+        var aggregating = CompletableFuture.runAsync(() -> ring.consume(1, entry -> {
+            if (entry.record != null) {
+                aggregate(partial, entry.record);
+            }
+        }), processingExecutor);
+
+        try {
+            partial.setFileErrors(fileService.streamFiles(files, columnFilter(sections), (line, fileName, lineNumber) -> {
+                var entry = ring.claim();
+                entry.line = line;
+                entry.fileName = fileName;
+                entry.lineNumber = lineNumber;
+                ring.publish();
+            }));
+        } catch (RuntimeException e) {
+            ring.halt(e);
+            throw e;
+        } finally {
+            ring.close();
+        }
+
+        CompletableFuture.allOf(building, aggregating).join();
+        return partial;
+    }
+
+    private record NumberedLine(String[] fields, String fileName, long lineNumber) {
+    }
+
+    private static class PipelineEntry {
+        String[] line;
+        String fileName;
+        long lineNumber;
+        Record<?> record;
+    }
+
+    /**
+     * Parses and aggregates one chunk, or forks the two halves of the chunks and merges their partial reports.
+     */
+    private class ChunkTask extends RecursiveTask<PartialReport> {
+        private final List<FileChunk> chunks;
+        private final Set<ReportSection> sections;
+
+        ChunkTask(List<FileChunk> chunks, Set<ReportSection> sections) {
+            this.chunks = chunks;
+            this.sections = sections;
+        }
+
+        @Override
+        protected PartialReport compute() {
+            if (chunks.size() == 1) {
+                var partial = initialPartialReport(true, sections);
+                var recordResponse = recordService.streamRecords(chunks.get(0), columnFilter(sections), record -> aggregate(partial, record));
+
+                partial.setRecordErrors(recordResponse.getRecordErrors());
+                partial.setFileErrors(recordResponse.getFileErrors());
+                return partial;
+            }
+
+            var half = chunks.size() / 2;
+            var second = new ChunkTask(chunks.subList(half, chunks.size()), sections);
+            second.fork();
+            var result = new ChunkTask(chunks.subList(0, half), sections).compute();
+            merge(result, second.join());
+            return result;
+        }
+    }
+
+    /**
+     * Records deferred by the source are resolved against the employees the target had before the source is added,
+     * so an employee onboarded later in the source is not known to them, like in sequential processing. They are
+     * applied after the source is merged, so deferred exits follow the exits of the source in their month.
+     * If the target is a partial report itself, records it cannot resolve stay deferred for the parts before it.
+     * The source is done then and releases its share of the event budget. A kept partial report of the cache is
+     * bounded by the cache, which weighs its events too.
+     */
+    private void merge(PartialReport target, PartialReport source) {
+        var resolved = new ArrayList<Record<?>>();
+        if (source.getDeferred() != null) {
+            source.getDeferred().forEach(record -> {
+                if (defer(target, record)) {
+                    return;
+                }
+                if (reportService.hasEmployee(target.getReport(), record.getEmployee().getId())) {
+                    resolved.add(record);
+                } else {
+                    resolve(target, record);
+                }
+            });
+        }
+
+        reportService.merge(target.getReport(), source.getReport());
+        reportService.release(source.getReport());
+        resolved.forEach(record -> resolve(target, record));
+        target.getReportErrors().addAll(source.getReportErrors());
+        target.getRecordErrors().addAll(source.getRecordErrors());
+        target.getFileErrors().addAll(source.getFileErrors());
+    }
+
+    private void resolve(PartialReport target, Record<?> record) {
+        if (record.getType().equals(EXIT)) {
+            reportService.addExitedEmployee(target.getReport(), (Record<LocalDate>) record, target.getReportErrors());
+        } else {
+            reportService.addEmployeePaid(target.getReport(), (Record<BigDecimal>) record, target.getReportErrors());
+        }
+    }
+
+    private PartialReport initialPartialReport(boolean deferUnknownEmployees, Set<ReportSection> sections) {
+        return PartialReport.builder()
+                .report(builderService.buildInitialReport())
+                .sections(sections)
+                .deferred(deferUnknownEmployees ? new ArrayList<>() : null)
+                .reportErrors(new ErrorCollector(INCONSISTENT_REPORT, errorSamples, errorMaxSize))
+                .recordErrors(new ErrorCollector(INVALID_RECORD, errorSamples, errorMaxSize))
+                .fileErrors(new ErrorCollector(FILE, errorSamples, errorMaxSize))
+                .build();
+    }
+
+    private void aggregate(PartialReport partial, Record<?> record) {
+        var report = partial.getReport();
+        var errors = partial.getReportErrors();
+        var sections = partial.getSections();
+
+        if (record.getType().equals(ONBOARD)) {
+            var aRecord = (Record<LocalDate>) record;
+            if (tracksEmployees(sections)) {
+                reportService.increaseTotalEmployees(report, aRecord);
+            } else {
+                reportService.increaseTotalEmployees(report);
+            }
+            if (sections.contains(MONTHLY_EMPLOYEE_REPORTS)) {
+                reportService.addOnboardedEmployee(report, aRecord);
+            }
+        } else if (record.getType().equals(EXIT)) {
+            var aRecord = (Record<LocalDate>) record;
+            reportService.decreaseTotalEmployees(report);
+            if (sections.contains(MONTHLY_EMPLOYEE_REPORTS) && !defer(partial, record)) {
+                reportService.addExitedEmployee(report, aRecord, errors);
+            }
+        } else {
+            var aRecord = (Record<BigDecimal>) record;
+            if (record.getType().equals(SALARY) && sections.contains(MONTHLY_SALARY_REPORTS)) {
+                reportService.addSalaryReport(report, aRecord);
+            }
+            if (sections.contains(MONTHLY_PAID_REPORTS)) {
+                reportService.addPaidReport(report, aRecord);
+            }
+            if (tracksEmployees(sections) && !defer(partial, record)) {
+                reportService.addEmployeePaid(report, aRecord, errors);
+            }
+        }
+
+        if (sections.contains(YEARLY_REPORTS)) {
+            reportService.addYearlyEvent(report, record);
+        }
+    }
+
+    /**
+     * Payment rows are aggregated from the columns of the batch. Onboard and exit rows, which are few,
+     * and deferred rows are aggregated as records.
+     */
+    private void aggregate(PartialReport partial, RecordBatch batch) {
+        var report = partial.getReport();
+        var errors = partial.getReportErrors();
+        var sections = partial.getSections();
+
+        for (int row = 0; row < batch.size(); row++) {
+            var type = batch.type(row);
+            if (type == ONBOARD || type == EXIT) {
+                aggregate(partial, batch.get(row));
+                continue;
+            }
+
+            if (type == SALARY && sections.contains(MONTHLY_SALARY_REPORTS)) {
+                reportService.addSalaryReport(report, batch, row);
+            }
+            if (sections.contains(MONTHLY_PAID_REPORTS)) {
+                reportService.addPaidReport(report, batch, row);
+            }
+            if (tracksEmployees(sections)) {
+                if (partial.getDeferred() != null && !reportService.hasEmployee(report, batch.employeeId(row))) {
+                    partial.getDeferred().add(batch.get(row));
+                } else {
+                    reportService.addEmployeePaid(report, batch, row, errors);
+                }
+            }
+            if (sections.contains(YEARLY_REPORTS)) {
+                reportService.addYearlyEvent(report, batch, row);
+            }
+        }
+    }
+
+    private Path sortDirectory() {
+        return sortDir == null || sortDir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "pps", "sort")
+                : Path.of(sortDir);
+    }
+
+    /**
+     * Exited employees of the monthly employee reports carry their total paid, so both sections need the employees.
+     */
+    private static boolean tracksEmployees(Set<ReportSection> sections) {
+        return sections.contains(EMPLOYEE_REPORTS) || sections.contains(MONTHLY_EMPLOYEE_REPORTS);
+    }
+
+    /**
+     * The note, the last field of both line layouts, is never reported. The name, surname and designation
+     * of onboard lines are needed only by the employee reports. Nothing is skipped for the full report,
+     * so its errors show the lines as they are.
+     */
+    private static ColumnFilter columnFilter(Set<ReportSection> sections) {
+        if (sections.containsAll(EnumSet.allOf(ReportSection.class))) {
+            return ColumnFilter.NONE;
+        }
+        var employees = tracksEmployees(sections);
+        return (fieldCount, field) -> (fieldCount == ONBOARD_FIELDS || fieldCount == EVENT_FIELDS) && field == fieldCount - 1
+                || !employees && fieldCount == ONBOARD_FIELDS && field >= 2 && field <= 4;
+    }
+
+    private boolean defer(PartialReport partial, Record<?> record) {
+        if (partial.getDeferred() == null
+                || reportService.hasEmployee(partial.getReport(), record.getEmployee().getId())) {
+            return false;
+        }
+        partial.getDeferred().add(record);
+        return true;
+    }
+
+}
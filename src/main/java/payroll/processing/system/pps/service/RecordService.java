@@ -1,15 +1,27 @@
 package payroll.processing.system.pps.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.FileChunk;
 import payroll.processing.system.pps.domain.Record;
 import payroll.processing.system.pps.domain.RecordResponse;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
 import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.util.ColumnFilter;
+import payroll.processing.system.pps.util.ErrorCollector;
+import payroll.processing.system.pps.util.RateLimitedLog;
+import payroll.processing.system.pps.util.RecordBatch;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
@@ -17,28 +29,50 @@ import java.util.Arrays;
 public class RecordService {
     private final FileService fileService;
     private final BuilderService builderService;
+    private final RateLimitedLog errorLog = new RateLimitedLog(log);
+
+    @Value("${pps.errors.samples-per-category}")
+    private int errorSamples;
+
+    @Value("${pps.errors.max-size}")
+    private DataSize errorMaxSize;
+
+    @Value("${pps.errors.log-rate}")
+    private int errorLogRate;
+
+    @PostConstruct
+    public void init() {
+        errorLog.setRate(errorLogRate);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        errorLog.close();
+    }
+
+    /**
+     * @return an empty error list bounded like the record errors, for errors of the category by default
+     */
+    public ErrorCollector newErrors(ErrorCategory category) {
+        return new ErrorCollector(category, errorSamples, errorMaxSize);
+    }
 
     public RecordResponse getRecords(MultipartFile[] files) {
         var records = new ArrayList<Record<?>>();
-        var errors = new ArrayList<String>();
+        var errors = newErrors(ErrorCategory.INVALID_RECORD);
 
         var fileResponse = fileService.readFile(files);
+        var fileNames = fileResponse.getFileNames();
+        var lineCounts = fileResponse.getLineCounts();
 
+        var file = 0;
+        var lineNumber = 0L;
         for (String [] line : fileResponse.getLines()) {
-            try {
-                line[line.length - 4] = line[line.length - 4].trim();
-                if (EventType.ONBOARD.name().equals(line[line.length - 4])) {
-                    records.add(builderService.buildOnboardRecord(line));
-                } else if (EventType.EXIT.name().equals(line[line.length - 4])) {
-                    records.add(builderService.buildExitRecord(line));
-                } else {
-                    records.add(builderService.buildPaidRecord(line));
-                }
-            } catch (Exception e) {
-                errors.add("There is a error in this line: " + Arrays.deepToString(line));
-                log.error("There is a error in this line: " + Arrays.deepToString(line));
-                log.error(e.getMessage(), e);
+            if (lineCounts != null && lineNumber == lineCounts.get(file)) {
+                file++;
+                lineNumber = 0;
             }
+            buildRecord(line, fileNames == null ? null : fileNames.get(file), ++lineNumber, records::add, errors);
         }
 
         return RecordResponse.builder()
@@ -46,4 +80,118 @@ public class RecordService {
                 .fileErrors(fileResponse.getErrors())
                 .recordErrors(errors).build();
     }
+
+    /**
+     * Builds records while the files are being read and passes each of them to the consumer.
+     * The returned response carries only the errors, records are not collected.
+     */
+    public RecordResponse streamRecords(MultipartFile[] files, Consumer<Record<?>> consumer) {
+        return streamRecords(files, ColumnFilter.NONE, consumer);
+    }
+
+    /**
+     * Like {@link #streamRecords(MultipartFile[], Consumer)}, the fields skipped by the filter are not decoded
+     * and the records built from them carry null instead.
+     */
+    public RecordResponse streamRecords(MultipartFile[] files, ColumnFilter filter, Consumer<Record<?>> consumer) {
+        var errors = newErrors(ErrorCategory.INVALID_RECORD);
+
+        var fileErrors = fileService.streamFiles(files, filter,
+                (line, fileName, lineNumber) -> buildRecord(line, fileName, lineNumber, consumer, errors));
+
+        return RecordResponse.builder()
+                .fileErrors(fileErrors)
+                .recordErrors(errors).build();
+    }
+
+    /**
+     * Like {@link #streamRecords(MultipartFile[], ColumnFilter, Consumer)}, the fields of every line are decoded
+     * straight into a row of the batch, no record is built.
+     */
+    public RecordResponse streamRows(MultipartFile[] files, ColumnFilter filter, RecordBatch batch) {
+        var errors = newErrors(ErrorCategory.INVALID_RECORD);
+
+        var fileErrors = fileService.streamFiles(files, filter,
+                (line, fileName, lineNumber) -> buildRow(line, fileName, lineNumber, batch, errors));
+
+        return RecordResponse.builder()
+                .fileErrors(fileErrors)
+                .recordErrors(errors).build();
+    }
+
+    public RecordResponse streamRecords(FileChunk chunk, Consumer<Record<?>> consumer) {
+        return streamRecords(chunk, ColumnFilter.NONE, consumer);
+    }
+
+    public RecordResponse streamRecords(FileChunk chunk, ColumnFilter filter, Consumer<Record<?>> consumer) {
+        var errors = newErrors(ErrorCategory.INVALID_RECORD);
+
+        var fileErrors = fileService.streamChunk(chunk, filter,
+                (line, fileName, lineNumber) -> buildRecord(line, fileName, lineNumber, consumer, errors));
+
+        return RecordResponse.builder()
+                .fileErrors(fileErrors)
+                .recordErrors(errors).build();
+    }
+
+    /**
+     * Builds the record of a line and passes it to the consumer, or adds a record error.
+     */
+    public void buildRecord(String [] line, Consumer<Record<?>> consumer, List<String> errors) {
+        buildRecord(line, null, 0, consumer, errors);
+    }
+
+    /**
+     * Like {@link #buildRecord(String[], Consumer, List)}, the error names the line number in the file unless it is 0,
+     * and the file unless it is null. Errors are logged through the rate limited log.
+     */
+    public void buildRecord(String [] line, String fileName, long lineNumber, Consumer<Record<?>> consumer, List<String> errors) {
+        Record<?> record;
+        try {
+            line[line.length - 4] = line[line.length - 4].trim();
+            if (EventType.ONBOARD.name().equals(line[line.length - 4])) {
+                record = builderService.buildOnboardRecord(line);
+            } else if (EventType.EXIT.name().equals(line[line.length - 4])) {
+                record = builderService.buildExitRecord(line);
+            } else {
+                record = builderService.buildPaidRecord(line);
+            }
+        } catch (Exception e) {
+            reject(line, fileName, lineNumber, e, errors);
+            return;
+        }
+
+        consumer.accept(record);
+    }
+
+    /**
+     * Like {@link #buildRecord(String[], String, long, Consumer, List)}, the line is added to the batch as a row.
+     */
+    public void buildRow(String [] line, String fileName, long lineNumber, RecordBatch batch, List<String> errors) {
+        try {
+            line[line.length - 4] = line[line.length - 4].trim();
+            if (EventType.ONBOARD.name().equals(line[line.length - 4])) {
+                builderService.addOnboardRow(line, batch);
+            } else if (EventType.EXIT.name().equals(line[line.length - 4])) {
+                builderService.addExitRow(line, batch);
+            } else {
+                builderService.addPaidRow(line, batch);
+            }
+        } catch (Exception e) {
+            reject(line, fileName, lineNumber, e, errors);
+        }
+    }
+
+    private void reject(String[] line, String fileName, long lineNumber, Exception e, List<String> errors) {
+        var category = ErrorCategory.of(e);
+        ErrorCollector.add(errors, category, () -> "There is a error in " + position(fileName, lineNumber) + ": " + Arrays.deepToString(line));
+        errorLog.error(() -> category + " in " + position(fileName, lineNumber), e);
+    }
+
+    private static String position(String fileName, long lineNumber) {
+        if (lineNumber == 0) {
+            return "this line";
+        }
+        return fileName == null ? "line " + lineNumber : "line " + lineNumber + " of " + fileName;
+    }
 }
@@ -1,23 +1,59 @@
 package payroll.processing.system.pps.service;
 
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.DistinctCountMode;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
 import payroll.processing.system.pps.domain.enumaration.EventType;
 import payroll.processing.system.pps.domain.report.*;
+import payroll.processing.system.pps.util.BitmapDistinctCounter;
+import payroll.processing.system.pps.util.DistinctCounter;
+import payroll.processing.system.pps.util.ErrorCollector;
+import payroll.processing.system.pps.util.EventBudget;
+import payroll.processing.system.pps.util.EventTiers;
+import payroll.processing.system.pps.util.HyperLogLogCounter;
+import payroll.processing.system.pps.util.MoneyAccumulator;
+import payroll.processing.system.pps.util.RecordBatch;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Optional;
 
 @Service
+@Slf4j
 public class ReportService {
 
+    @Value("${pps.report.distinct-count.mode}")
+    private DistinctCountMode distinctCountMode;
+
+    @Value("${pps.report.distinct-count.hyperloglog-threshold}")
+    private long hyperLogLogThreshold;
+
+    @Value("${pps.report.money-scale}")
+    private int moneyScale;
+
+    @Value("${pps.report.yearly.heap-max-events}")
+    private long yearlyHeapMaxEvents;
+
+    @Value("${pps.report.yearly.spill-dir}")
+    private String yearlySpillDir;
+
+    private EventBudget eventBudget;
+
     public void increaseTotalEmployees(Report report, Record<LocalDate> record) {
-        var totalEmployees = report.getTotalEmployees() + 1;
-        report.setTotalEmployees(totalEmployees);
+        increaseTotalEmployees(report);
 
         var employee = EmployeeReport.builder()
                 .id(record.getEmployee().getId())
@@ -26,7 +62,15 @@ public class ReportService {
                 .designation(record.getEmployee().getDesignation())
                 .totalPaid(BigDecimal.ZERO).build();
 
-        report.getEmployeeReports().add(employee);
+        index(report).getEmployeeReports().add(report.getEmployeeReports(), employee);
+    }
+
+    /**
+     * Counts the employee without keeping its report, for reports that do not need the employees.
+     */
+    public void increaseTotalEmployees(Report report) {
+        var totalEmployees = report.getTotalEmployees() + 1;
+        report.setTotalEmployees(totalEmployees);
     }
 
     public void decreaseTotalEmployees(Report report) {
@@ -40,11 +84,9 @@ public class ReportService {
                 .name(record.getEmployee().getName())
                 .surname(record.getEmployee().getSurname())
                 .designation(record.getEmployee().getDesignation()).build();
+        var month = YearMonth.from(record.getValue());
 
-        report.getMonthlyEmployeeReports()
-                .stream()
-                .filter(mer -> mer.getMonth().compareTo(YearMonth.from(record.getValue())) == 0)
-                .findAny()
+        Optional.ofNullable(index(report).getMonthlyEmployeeReports().get(report.getMonthlyEmployeeReports(), month))
                 .ifPresentOrElse(
                         mer -> {
                             var totalOnboardedEmployees = mer.getTotalOnboardedEmployees() + 1;
@@ -53,28 +95,25 @@ public class ReportService {
                         },
                         () -> {
                             var mer = MonthlyEmployeeReport.builder()
-                                    .month(YearMonth.from(record.getValue()))
+                                    .month(month)
                                     .totalOnboardedEmployees(1L)
                                     .OnboardedEmployees(new ArrayList<>())
                                     .totalExitedEmployee(0L)
                                     .exitedEmployees(new ArrayList<>()).build();
 
                             mer.getOnboardedEmployees().add(employee);
-                            report.getMonthlyEmployeeReports().add(mer);
+                            index(report).getMonthlyEmployeeReports().add(report.getMonthlyEmployeeReports(), mer);
                         }
                 );
     }
 
     public void addExitedEmployee(Report report, Record<LocalDate> record, List<String> errors) {
-        report.getEmployeeReports()
-                .stream()
-                .filter(ep -> ep.getId().equals(record.getEmployee().getId()))
-                .findAny()
+        var month = YearMonth.from(record.getValue());
+
+        Optional.ofNullable(index(report).getEmployeeReports().get(report.getEmployeeReports(), record.getEmployee().getId()))
                 .ifPresentOrElse(
-                        employee -> report.getMonthlyEmployeeReports()
-                                .stream()
-                                .filter(mer -> mer.getMonth().compareTo(YearMonth.from(record.getValue())) == 0)
-                                .findAny()
+                        employee -> Optional.ofNullable(index(report).getMonthlyEmployeeReports()
+                                        .get(report.getMonthlyEmployeeReports(), month))
                                 .ifPresentOrElse(
                                         mer -> {
                                             var totalExitedEmployees = mer.getTotalExitedEmployee() + 1;
@@ -84,96 +123,91 @@ public class ReportService {
                                         },
                                         () -> {
                                             var mer = MonthlyEmployeeReport.builder()
-                                                    .month(YearMonth.from(record.getValue()))
+                                                    .month(month)
                                                     .totalOnboardedEmployees(0L)
                                                     .OnboardedEmployees(new ArrayList<>())
                                                     .totalExitedEmployee(1L)
                                                     .exitedEmployees(new ArrayList<>()).build();
 
                                             mer.getExitedEmployees().add(employee);
-                                            report.getMonthlyEmployeeReports().add(mer);
+                                            index(report).getMonthlyEmployeeReports().add(report.getMonthlyEmployeeReports(), mer);
                                         }
                                 ),
-                        () -> errors.add("There is no any employee appropriate to this record: " + record +
+                        () -> ErrorCollector.add(errors, ErrorCategory.UNKNOWN_EMPLOYEE, () -> "There is no any employee appropriate to this record: " + record +
                                 " ~ This can cause to wrong report result")
                 );
     }
 
     public void addSalaryReport(Report report, Record<BigDecimal> record) {
-        report.getMonthlySalaryReports()
-                .stream()
-                .filter(msr -> msr.getMonth().compareTo(YearMonth.from(record.getDate())) == 0)
-                .findAny()
-                .ifPresentOrElse(
-                        msr -> {
-                           var totalEmployees = msr.getTotalEmployees() + 1;
-                           msr.setTotalEmployees(totalEmployees);
-
-                           var totalSalary = msr.getTotalSalary().add(record.getValue());
-                           msr.setTotalSalary(totalSalary);
-                        },
-                        () -> {
-                            var msr = MonthlySalaryReport.builder()
-                                    .month(YearMonth.from(record.getDate()))
-                                    .totalSalary(record.getValue())
-                                    .totalEmployees(1L).build();
+        salaryOf(report, YearMonth.from(record.getDate())).add(record.getValue());
+    }
 
-                            report.getMonthlySalaryReports().add(msr);
-                        }
-                );
+    public void addSalaryReport(Report report, RecordBatch batch, int row) {
+        batch.addAmount(row, salaryOf(report, YearMonth.from(batch.date(row))));
     }
 
-    public void addPaidReport(Report report, Record<BigDecimal> record) {
-        report.getMonthlyPaidReports()
-                .stream()
-                .filter(mpr -> mpr.getMonth().compareTo(YearMonth.from(record.getDate())) == 0)
-                .findAny()
-                .ifPresentOrElse(
-                        mpr -> {
-                            var totalPaid = mpr.getTotalPaid().add(record.getValue());
-                            mpr.setTotalPaid(totalPaid);
+    /**
+     * Counts a salary of the month and returns the accumulator its amount goes to.
+     */
+    private MoneyAccumulator salaryOf(Report report, YearMonth month) {
+        var msr = index(report).getMonthlySalaryReports().get(report.getMonthlySalaryReports(), month);
+        if (msr == null) {
+            msr = MonthlySalaryReport.builder()
+                    .month(month)
+                    .totalEmployees(0L).build();
+            index(report).getMonthlySalaryReports().add(report.getMonthlySalaryReports(), msr);
+        }
 
-                            mpr.getEmployeeIds().stream()
-                                    .filter(empId -> empId.equals(record.getEmployee().getId()))
-                                    .findAny()
-                                    .ifPresentOrElse(
-                                            empId -> {
+        var totalEmployees = msr.getTotalEmployees() + 1;
+        msr.setTotalEmployees(totalEmployees);
+        return accumulator(msr);
+    }
 
-                                            },
-                                            () -> {
-                                                var totalEmployees = mpr.getTotalEmployees() + 1;
-                                                mpr.setTotalEmployees(totalEmployees);
+    public void addPaidReport(Report report, Record<BigDecimal> record) {
+        paidOf(report, YearMonth.from(record.getDate()), record.getEmployee().getId()).add(record.getValue());
+    }
 
-                                                mpr.getEmployeeIds().add(record.getEmployee().getId());
-                                            }
+    public void addPaidReport(Report report, RecordBatch batch, int row) {
+        batch.addAmount(row, paidOf(report, YearMonth.from(batch.date(row)), batch.employeeId(row)));
+    }
 
-                                    );
-                        },
-                        () -> {
-                            var mpr = MonthlyPaidReport.builder()
-                                    .month(YearMonth.from(record.getDate()))
-                                    .totalPaid(record.getValue())
-                                    .employeeIds(new ArrayList<>())
-                                    .totalEmployees(1L).build();
+    /**
+     * Counts the payee of the month and returns the accumulator the amount goes to.
+     */
+    private MoneyAccumulator paidOf(Report report, YearMonth month, String employeeId) {
+        var mpr = index(report).getMonthlyPaidReports().get(report.getMonthlyPaidReports(), month);
+        if (mpr == null) {
+            mpr = MonthlyPaidReport.builder()
+                    .month(month)
+                    .totalEmployees(0L).build();
+            index(report).getMonthlyPaidReports().add(report.getMonthlyPaidReports(), mpr);
+        }
 
-                            mpr.getEmployeeIds().add(record.getEmployee().getId());
-                            report.getMonthlyPaidReports().add(mpr);
-                        }
-                );
+        countPaidEmployee(report, mpr, employeeId);
+        return accumulator(mpr);
     }
 
     public void addEmployeePaid(Report report, Record<BigDecimal> record, List<String> errors) {
-        report.getEmployeeReports()
-                .stream()
-                .filter(ep -> ep.getId().equals(record.getEmployee().getId()))
-                .findAny()
-                .ifPresentOrElse(
-                        employee ->  {
-                            var totalPaid = employee.getTotalPaid().add(record.getValue());employee.setTotalPaid(totalPaid);
-                        },
-                        () -> errors.add("There is no any employee appropriate to this record: " + record +
-                                " ~ This can cause to wrong report result")
-                );
+        var employee = index(report).getEmployeeReports().get(report.getEmployeeReports(), record.getEmployee().getId());
+        if (employee == null) {
+            ErrorCollector.add(errors, ErrorCategory.UNKNOWN_EMPLOYEE, () -> "There is no any employee appropriate to this record: " + record +
+                    " ~ This can cause to wrong report result");
+        } else {
+            accumulator(employee).add(record.getValue());
+        }
+    }
+
+    /**
+     * The record of the row is built only for the error.
+     */
+    public void addEmployeePaid(Report report, RecordBatch batch, int row, List<String> errors) {
+        var employee = index(report).getEmployeeReports().get(report.getEmployeeReports(), batch.employeeId(row));
+        if (employee == null) {
+            ErrorCollector.add(errors, ErrorCategory.UNKNOWN_EMPLOYEE, () -> "There is no any employee appropriate to this record: " + batch.get(row) +
+                    " ~ This can cause to wrong report result");
+        } else {
+            batch.addAmount(row, accumulator(employee));
+        }
     }
 
     public void addYearlyEvent(Report report, Record<?> record) {
@@ -184,20 +218,308 @@ public class ReportService {
             year = Year.from(record.getDate());
         }
 
-        report.getYearlyReports()
-                .stream()
-                .filter(yp -> yp.getYear().compareTo(year) == 0)
-                .findAny()
+        addYearlyEvent(report, year, new EventReport<>(record.getType(), record.getEmployee().getId(), record.getValue(), record.getDate()));
+    }
+
+    public void addYearlyEvent(Report report, RecordBatch batch, int row) {
+        var type = batch.type(row);
+        var date = batch.date(row);
+        if (type.equals(EventType.ONBOARD) || type.equals(EventType.EXIT)) {
+            var value = batch.dateValue(row);
+            addYearlyEvent(report, Year.from(value), new EventReport<>(type, batch.employeeId(row), value, date));
+        } else {
+            addYearlyEvent(report, Year.from(date), new EventReport<>(type, batch.employeeId(row), batch.amount(row), date));
+        }
+    }
+
+    private void addYearlyEvent(Report report, Year year, EventReport<?> event) {
+        Optional.ofNullable(index(report).getYearlyReports().get(report.getYearlyReports(), year))
                 .ifPresentOrElse(
-                        yp -> yp.getEvents()
-                                .add(new EventReport<>(record.getType(), record.getEmployee().getId(), record.getValue(), record.getDate())),
+                        yp -> yp.getEvents().add(event),
                         () -> {
-                            var yp = new YearlyReport(year, new ArrayList<>());
-                            yp.getEvents()
-                                    .add(new EventReport<>(record.getType(), record.getEmployee().getId(), record.getValue(), record.getDate()));
-                            report.getYearlyReports().add(yp);
+                            var yp = new YearlyReport(year, tiers(report).newList(year));
+                            yp.getEvents().add(event);
+                            index(report).getYearlyReports().add(report.getYearlyReports(), yp);
                         }
                 );
     }
 
+    public boolean hasEmployee(Report report, String employeeId) {
+        return index(report).getEmployeeReports().get(report.getEmployeeReports(), employeeId) != null;
+    }
+
+    /**
+     * Adds the aggregates of the source report to the target report, as if the records of the source
+     * had been aggregated into the target after its own records. The source is not modified and no
+     * mutable object of it is shared with the target.
+     * <p>
+     * An employee onboarded again in the source keeps being paid on the first report of the target,
+     * and exited employees point to the employee reports of the target, like sequential aggregation does.
+     */
+    public void merge(Report target, Report source) {
+        var totalEmployees = target.getTotalEmployees() + source.getTotalEmployees();
+        target.setTotalEmployees(totalEmployees);
+
+        var employees = new IdentityHashMap<EmployeeReport, EmployeeReport>();
+        source.getEmployeeReports().forEach(employee -> {
+            var existing = index(target).getEmployeeReports().get(target.getEmployeeReports(), employee.getId());
+            var copy = EmployeeReport.builder()
+                    .id(employee.getId())
+                    .name(employee.getName())
+                    .surname(employee.getSurname())
+                    .designation(employee.getDesignation())
+                    .totalPaid(existing == null ? employee.getTotalPaid() : BigDecimal.ZERO).build();
+
+            if (existing != null) {
+                accumulator(existing).add(employee.getTotalPaid());
+            }
+            index(target).getEmployeeReports().add(target.getEmployeeReports(), copy);
+            employees.put(employee, existing == null ? copy : existing);
+        });
+
+        source.getMonthlyEmployeeReports().forEach(sourceMer -> {
+            var exitedEmployees = sourceMer.getExitedEmployees().stream()
+                    .map(employee -> employees.getOrDefault(employee, employee))
+                    .toList();
+
+            Optional.ofNullable(index(target).getMonthlyEmployeeReports()
+                            .get(target.getMonthlyEmployeeReports(), sourceMer.getMonth()))
+                    .ifPresentOrElse(
+                            mer -> {
+                                var totalOnboardedEmployees = mer.getTotalOnboardedEmployees() + sourceMer.getTotalOnboardedEmployees();
+                                mer.setTotalOnboardedEmployees(totalOnboardedEmployees);
+                                sourceMer.getOnboardedEmployees().forEach(employee -> mer.getOnboardedEmployees().add(copy(employee)));
+
+                                var totalExitedEmployees = mer.getTotalExitedEmployee() + sourceMer.getTotalExitedEmployee();
+                                mer.setTotalExitedEmployee(totalExitedEmployees);
+                                mer.getExitedEmployees().addAll(exitedEmployees);
+                            },
+                            () -> {
+                                var mer = MonthlyEmployeeReport.builder()
+                                        .month(sourceMer.getMonth())
+                                        .totalOnboardedEmployees(sourceMer.getTotalOnboardedEmployees())
+                                        .OnboardedEmployees(new ArrayList<>(sourceMer.getOnboardedEmployees().stream().map(ReportService::copy).toList()))
+                                        .totalExitedEmployee(sourceMer.getTotalExitedEmployee())
+                                        .exitedEmployees(new ArrayList<>(exitedEmployees)).build();
+
+                                index(target).getMonthlyEmployeeReports().add(target.getMonthlyEmployeeReports(), mer);
+                            }
+                    );
+        });
+
+        source.getMonthlySalaryReports().forEach(sourceMsr -> Optional.ofNullable(index(target).getMonthlySalaryReports()
+                        .get(target.getMonthlySalaryReports(), sourceMsr.getMonth()))
+                .ifPresentOrElse(
+                        msr -> {
+                            var monthlyTotalEmployees = msr.getTotalEmployees() + sourceMsr.getTotalEmployees();
+                            msr.setTotalEmployees(monthlyTotalEmployees);
+
+                            accumulator(msr).add(sourceMsr.getTotalSalary());
+                        },
+                        () -> {
+                            var msr = MonthlySalaryReport.builder()
+                                    .month(sourceMsr.getMonth())
+                                    .totalSalary(sourceMsr.getTotalSalary())
+                                    .totalEmployees(sourceMsr.getTotalEmployees()).build();
+
+                            index(target).getMonthlySalaryReports().add(target.getMonthlySalaryReports(), msr);
+                        }
+                ));
+
+        source.getMonthlyPaidReports().forEach(sourceMpr -> Optional.ofNullable(index(target).getMonthlyPaidReports()
+                        .get(target.getMonthlyPaidReports(), sourceMpr.getMonth()))
+                .ifPresentOrElse(
+                        mpr -> {
+                            accumulator(mpr).add(sourceMpr.getTotalPaid());
+
+                            mergePaidEmployees(target, mpr, sourceMpr);
+                        },
+                        () -> {
+                            var mpr = MonthlyPaidReport.builder()
+                                    .month(sourceMpr.getMonth())
+                                    .totalPaid(sourceMpr.getTotalPaid())
+                                    .totalEmployees(0L).build();
+
+                            mergePaidEmployees(target, mpr, sourceMpr);
+                            index(target).getMonthlyPaidReports().add(target.getMonthlyPaidReports(), mpr);
+                        }
+                ));
+
+        source.getYearlyReports().forEach(sourceYp -> Optional.ofNullable(index(target).getYearlyReports()
+                        .get(target.getYearlyReports(), sourceYp.getYear()))
+                .ifPresentOrElse(
+                        yp -> sourceYp.getEvents().forEach(event -> yp.getEvents().add(copy(event))),
+                        () -> {
+                            var yp = new YearlyReport(sourceYp.getYear(), tiers(target).newList(sourceYp.getYear()));
+                            sourceYp.getEvents().forEach(event -> yp.getEvents().add(copy(event)));
+                            index(target).getYearlyReports().add(target.getYearlyReports(), yp);
+                        }
+                ));
+    }
+
+    private static EmployeeReport copy(EmployeeReport employee) {
+        return EmployeeReport.builder()
+                .id(employee.getId())
+                .name(employee.getName())
+                .surname(employee.getSurname())
+                .designation(employee.getDesignation())
+                .totalPaid(employee.getTotalPaid()).build();
+    }
+
+    private static EventReport<?> copy(EventReport<?> event) {
+        return new EventReport<>(event.getType(), event.getEmployeeId(), event.getValue(), event.getDate());
+    }
+
+    private void mergePaidEmployees(Report target, MonthlyPaidReport mpr, MonthlyPaidReport source) {
+        DistinctCounter employees = source.getEmployees();
+        if (employees == null) {
+            var totalEmployees = mpr.getTotalEmployees() + source.getTotalEmployees();
+            mpr.setTotalEmployees(totalEmployees);
+        } else if (employees instanceof BitmapDistinctCounter bitmap) {
+            bitmap.forEach(employeeId -> countPaidEmployee(target, mpr, employeeId));
+        } else {
+            var hyperLogLog = mpr.getEmployees() instanceof HyperLogLogCounter counter ? counter : new HyperLogLogCounter();
+            if (mpr.getEmployees() instanceof BitmapDistinctCounter bitmap) {
+                bitmap.forEach(hyperLogLog::add);
+            }
+            mpr.setEmployees(hyperLogLog);
+
+            var before = hyperLogLog.count();
+            if (hyperLogLog.merge((HyperLogLogCounter) employees)) {
+                var totalEmployees = mpr.getTotalEmployees() + hyperLogLog.count() - before;
+                mpr.setTotalEmployees(totalEmployees);
+            }
+        }
+    }
+
+    /**
+     * Distinct payees of a month are counted exactly in a bitmap over the employee dictionary of the report.
+     * In HYPERLOGLOG mode a month switches to an approximate counter once it reaches the threshold.
+     */
+    private void countPaidEmployee(Report report, MonthlyPaidReport mpr, String employeeId) {
+        var employees = mpr.getEmployees();
+        if (employees == null) {
+            employees = new BitmapDistinctCounter(index(report).getEmployeeDictionary());
+            mpr.setEmployees(employees);
+        }
+        if (distinctCountMode == DistinctCountMode.HYPERLOGLOG && employees instanceof BitmapDistinctCounter bitmap
+                && bitmap.count() >= hyperLogLogThreshold) {
+            var hyperLogLog = new HyperLogLogCounter();
+            bitmap.forEach(hyperLogLog::add);
+            employees = hyperLogLog;
+            mpr.setEmployees(employees);
+        }
+
+        var before = employees.count();
+        if (employees.add(employeeId)) {
+            var totalEmployees = mpr.getTotalEmployees() + employees.count() - before;
+            mpr.setTotalEmployees(totalEmployees);
+        }
+    }
+
+    /**
+     * Totals are accumulated in fixed point while a report is aggregated, starting from the total the report has.
+     */
+    private MoneyAccumulator accumulator(EmployeeReport employee) {
+        if (employee.getPaid() == null) {
+            employee.setPaid(accumulator(employee.getTotalPaid()));
+        }
+        return employee.getPaid();
+    }
+
+    private MoneyAccumulator accumulator(MonthlySalaryReport msr) {
+        if (msr.getSalary() == null) {
+            msr.setSalary(accumulator(msr.getTotalSalary()));
+        }
+        return msr.getSalary();
+    }
+
+    private MoneyAccumulator accumulator(MonthlyPaidReport mpr) {
+        if (mpr.getPaid() == null) {
+            mpr.setPaid(accumulator(mpr.getTotalPaid()));
+        }
+        return mpr.getPaid();
+    }
+
+    private MoneyAccumulator accumulator(BigDecimal total) {
+        var accumulator = new MoneyAccumulator(moneyScale);
+        if (total != null) {
+            accumulator.add(total);
+        }
+        return accumulator;
+    }
+
+    /**
+     * Gives the heap share of the yearly events of the report back to the budget, once no event is added to it any more.
+     */
+    public void release(Report report) {
+        if (report.getIndex() != null && report.getIndex().getEventTiers() != null) {
+            report.getIndex().getEventTiers().release();
+        }
+    }
+
+    /**
+     * Like {@link #release}, for a report that is kept and read by other threads: its yearly events are spilled first
+     * if the budget is bounded.
+     */
+    public void retire(Report report) {
+        if (report.getIndex() != null && report.getIndex().getEventTiers() != null) {
+            report.getIndex().getEventTiers().retire();
+        }
+    }
+
+    /**
+     * Lookups go through the index of the report instead of scanning its lists.
+     * It is created on first use, so reports built elsewhere work as well.
+     */
+    private ReportIndex index(Report report) {
+        if (report.getIndex() == null) {
+            report.setIndex(new ReportIndex());
+        }
+        return report.getIndex();
+    }
+
+    /**
+     * Yearly events are kept in tiered lists, so the older years of the reports over the shared budget move to the disk.
+     */
+    private EventTiers tiers(Report report) {
+        if (index(report).getEventTiers() == null) {
+            index(report).setEventTiers(eventBudget().newTiers());
+        }
+        return index(report).getEventTiers();
+    }
+
+    private synchronized EventBudget eventBudget() {
+        if (eventBudget == null) {
+            eventBudget = new EventBudget(yearlyHeapMaxEvents, spillDirectory());
+        }
+        return eventBudget;
+    }
+
+    private Path spillDirectory() {
+        return yearlySpillDir == null || yearlySpillDir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "pps", "yearly")
+                : Path.of(yearlySpillDir);
+    }
+
+    /**
+     * Spills are deleted when their lists are unreachable, the ones left by a previous run or still there
+     * at shutdown are deleted here. The directory belongs to this instance.
+     */
+    @PostConstruct
+    @PreDestroy
+    public void deleteSpills() {
+        var directory = spillDirectory();
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        try (var spills = Files.newDirectoryStream(directory, "events-*.spill")) {
+            for (Path spill : spills) {
+                Files.deleteIfExists(spill);
+            }
+        } catch (IOException e) {
+            log.warn("Spills in {} cannot be deleted: {}", directory, e.toString());
+        }
+    }
+
 }
@@ -0,0 +1,217 @@
+package payroll.processing.system.pps.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import payroll.processing.system.pps.util.ByteBufferInputStream;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Numbered snapshot files of the live report in a local directory.
+ * <p>
+ * A snapshot is its format header, the body written by the live report, the length of the body and its CRC32.
+ * It is written to a temporary file, forced to the disk and renamed, so a crash leaves the previous snapshots as they were.
+ * Loading maps the newest snapshot into memory and falls back to the one before it if it does not pass its check.
+ * The newest {@value #KEPT} snapshots are kept.
+ */
+@Service
+@Slf4j
+public class SnapshotStore {
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".bin";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x50505353;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int TRAILER_BYTES = 12;
+    private static final int KEPT = 2;
+
+    @Value("${pps.snapshot.dir}")
+    private String dir;
+
+    private Path directory;
+    private long next;
+
+    @PostConstruct
+    public synchronized void init() {
+        if (dir == null || dir.isBlank()) {
+            return;
+        }
+
+        try {
+            directory = Path.of(dir);
+            Files.createDirectories(directory);
+            try (var files = Files.list(directory)) {
+                for (Path path : files.filter(path -> path.getFileName().toString().endsWith(TEMP_SUFFIX)).toList()) {
+                    Files.delete(path);
+                }
+            }
+            var snapshots = snapshots();
+            next = snapshots.isEmpty() ? 0 : number(snapshots.get(snapshots.size() - 1)) + 1;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshot directory " + dir + " cannot be opened", e);
+        }
+
+        log.info("Live report snapshots are kept in {}", directory);
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    /**
+     * Saves the body as the newest snapshot and deletes the older ones past the kept number.
+     *
+     * @return the size of the body in bytes
+     */
+    public synchronized long save(Body body) throws IOException {
+        var temp = Files.createTempFile(directory, PREFIX, TEMP_SUFFIX);
+        long size;
+        try {
+            var crc = new CRC32();
+            try (var file = Files.newOutputStream(temp)) {
+                var header = new DataOutputStream(file);
+                header.writeInt(MAGIC);
+                header.writeInt(VERSION);
+
+                var counted = new CountingOutputStream(new CheckedOutputStream(file, crc));
+                var out = new DataOutputStream(new BufferedOutputStream(counted, 64 * 1024));
+                body.write(out);
+                out.flush();
+
+                size = counted.count;
+                header.writeLong(size);
+                header.writeInt((int) crc.getValue());
+            }
+            try (var channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(temp, snapshot(next++), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        var snapshots = snapshots();
+        for (int i = 0; i < snapshots.size() - KEPT; i++) {
+            Files.delete(snapshots.get(i));
+        }
+        return size;
+    }
+
+    /**
+     * Passes the body of the newest snapshot that passes its check to the reader.
+     *
+     * @return false if there is no such snapshot
+     */
+    public synchronized boolean load(Reader reader) {
+        if (directory == null) {
+            return false;
+        }
+
+        List<Path> snapshots;
+        try {
+            snapshots = snapshots();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Snapshots cannot be listed", e);
+        }
+
+        for (int i = snapshots.size() - 1; i >= 0; i--) {
+            var snapshot = snapshots.get(i);
+            try (var channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+                var body = body(snapshot, channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                reader.read(new DataInputStream(new ByteBufferInputStream(body)));
+                return true;
+            } catch (IOException e) {
+                log.error("Snapshot {} cannot be loaded: {}", snapshot, e.getMessage());
+            }
+        }
+        return false;
+    }
+
+    private static ByteBuffer body(Path snapshot, ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES + TRAILER_BYTES || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new IOException("Snapshot " + snapshot + " has an unsupported format");
+        }
+
+        var trailer = buffer.limit() - TRAILER_BYTES;
+        if (buffer.getLong(trailer) != trailer - HEADER_BYTES) {
+            throw new IOException("Snapshot " + snapshot + " is incomplete");
+        }
+        var body = buffer.slice(HEADER_BYTES, trailer - HEADER_BYTES);
+        var crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != buffer.getInt(trailer + Long.BYTES)) {
+            throw new IOException("Snapshot " + snapshot + " is damaged");
+        }
+        return body;
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> {
+                        var name = path.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted((a, b) -> Long.compare(number(a), number(b)))
+                    .toList();
+        }
+    }
+
+    private Path snapshot(long number) {
+        return directory.resolve(PREFIX + String.format("%020d", number) + SUFFIX);
+    }
+
+    private static long number(Path snapshot) {
+        var name = snapshot.getFileName().toString();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    @FunctionalInterface
+    public interface Body {
+        void write(DataOutput out) throws IOException;
+    }
+
+    @FunctionalInterface
+    public interface Reader {
+        void read(DataInput in) throws IOException;
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package payroll.processing.system.pps.util;
+
+import java.util.BitSet;
+import java.util.function.Consumer;
+
+/**
+ * Exact distinct counter: one bit per dictionary code. Counters of the same report share the dictionary,
+ * so a month costs {@code employees / 8} bytes instead of a list of id strings.
+ */
+public class BitmapDistinctCounter implements DistinctCounter {
+    private final EmployeeDictionary dictionary;
+    private final BitSet bits = new BitSet();
+    private long count;
+
+    public BitmapDistinctCounter(EmployeeDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public boolean add(String id) {
+        var code = dictionary.encode(id);
+        if (bits.get(code)) {
+            return false;
+        }
+        bits.set(code);
+        count++;
+        return true;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    public boolean contains(String id) {
+        return bits.get(dictionary.encode(id));
+    }
+
+    public void forEach(Consumer<String> consumer) {
+        for (int code = bits.nextSetBit(0); code >= 0; code = bits.nextSetBit(code + 1)) {
+            consumer.accept(dictionary.decode(code));
+        }
+    }
+}
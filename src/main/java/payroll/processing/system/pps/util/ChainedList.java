@@ -0,0 +1,68 @@
+package payroll.processing.system.pps.util;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only view of several lists one after the other, so they can be written as one list without copying them.
+ * Iteration goes through the iterators of the parts, e.g. the ones of spilled event lists that read from disk.
+ * <p>
+ * The parts are fixed when the view is created, their elements are not copied.
+ */
+public class ChainedList<E> extends AbstractList<E> {
+    private final List<List<? extends E>> parts;
+
+    public ChainedList(List<? extends List<? extends E>> parts) {
+        this.parts = List.copyOf(parts);
+    }
+
+    @Override
+    public int size() {
+        var size = 0;
+        for (List<? extends E> part : parts) {
+            size += part.size();
+        }
+        return size;
+    }
+
+    @Override
+    public E get(int index) {
+        if (index < 0) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        var offset = index;
+        for (List<? extends E> part : parts) {
+            if (offset < part.size()) {
+                return part.get(offset);
+            }
+            offset -= part.size();
+        }
+        throw new IndexOutOfBoundsException(index);
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<>() {
+            private int part;
+            private Iterator<? extends E> current = parts.isEmpty() ? null : parts.get(0).iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (current != null && !current.hasNext()) {
+                    current = ++part < parts.size() ? parts.get(part).iterator() : null;
+                }
+                return current != null;
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+}
@@ -0,0 +1,11 @@
+package payroll.processing.system.pps.util;
+
+/**
+ * Tells a tokenizer which fields of a line it does not have to decode into strings.
+ */
+@FunctionalInterface
+public interface ColumnFilter {
+    ColumnFilter NONE = (fieldCount, field) -> false;
+
+    boolean skip(int fieldCount, int field);
+}
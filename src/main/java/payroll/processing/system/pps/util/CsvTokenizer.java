@@ -0,0 +1,234 @@
+package payroll.processing.system.pps.util;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Reads CSV lines from a reader into a reused char buffer and splits them into fields
+ * without regular expressions or intermediate line strings. Fields are kept as offsets
+ * into the buffer and are trimmed in place, a {@link String} is created only when a field is asked for.
+ * {@link #toArray(ColumnFilter)} asks for every field the filter keeps, so a line handed on as an array saves the line
+ * string and the splitting, not the strings of its fields.
+ * <p>
+ * A field that starts with {@code "} is a standard quoted field: the quotes are removed and
+ * {@code ""} is unescaped. A field that starts with {@code “} runs to the matching {@code ”}
+ * and is kept verbatim, so notes containing commas stay in one field.
+ * Like {@link String#split(String)}, trailing empty fields are dropped.
+ */
+public class CsvTokenizer {
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final char QUOTE = '"';
+    private static final char OPEN_QUOTE = '“';
+    private static final char CLOSE_QUOTE = '”';
+
+    private final Reader reader;
+    private char[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int fieldCount;
+    private long lineNumber;
+
+    public CsvTokenizer(Reader reader) {
+        this(reader, DEFAULT_BUFFER_SIZE);
+    }
+
+    public CsvTokenizer(Reader reader, int bufferSize) {
+        this.reader = reader;
+        this.buffer = new char[bufferSize];
+    }
+
+    /**
+     * Moves to the next line.
+     *
+     * @return false when there are no more lines
+     */
+    public boolean next() throws IOException {
+        int scan = position;
+        while (true) {
+            for (int i = scan; i < limit; i++) {
+                if (buffer[i] == '\n') {
+                    var lineEnd = i > position && buffer[i - 1] == '\r' ? i - 1 : i;
+                    tokenize(position, lineEnd);
+                    position = i + 1;
+                    return true;
+                }
+            }
+
+            if (eof) {
+                if (position == limit) {
+                    return false;
+                }
+                var lineEnd = buffer[limit - 1] == '\r' ? limit - 1 : limit;
+                tokenize(position, lineEnd);
+                position = limit;
+                return true;
+            }
+
+            scan = fill();
+        }
+    }
+
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+    public char[] buffer() {
+        return buffer;
+    }
+
+    public int start(int field) {
+        return starts[field];
+    }
+
+    public int end(int field) {
+        return ends[field];
+    }
+
+    public int length(int field) {
+        return ends[field] - starts[field];
+    }
+
+    public String field(int field) {
+        return new String(buffer, starts[field], ends[field] - starts[field]);
+    }
+
+    public boolean fieldEquals(int field, String value) {
+        var length = ends[field] - starts[field];
+        if (length != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (buffer[starts[field] + i] != value.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public String[] toArray() {
+        return toArray(ColumnFilter.NONE);
+    }
+
+    /**
+     * Skipped fields are left null, no string is created for them.
+     */
+    public String[] toArray(ColumnFilter filter) {
+        var fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            if (!filter.skip(fieldCount, i)) {
+                fields[i] = field(i);
+            }
+        }
+        return fields;
+    }
+
+    /**
+     * Keeps the unread part of the line, compacting or growing the buffer, and reads more characters.
+     *
+     * @return the index from which scanning for a line break has to continue
+     */
+    private int fill() throws IOException {
+        var pending = limit - position;
+        if (position > 0) {
+            System.arraycopy(buffer, position, buffer, 0, pending);
+        } else if (pending == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        position = 0;
+        limit = pending;
+
+        var read = reader.read(buffer, limit, buffer.length - limit);
+        if (read < 0) {
+            eof = true;
+        } else {
+            limit += read;
+        }
+        return pending;
+    }
+
+    private void tokenize(int lineStart, int lineEnd) {
+        lineNumber++;
+        fieldCount = 0;
+        var i = lineStart;
+        var lastQuotedField = -1;
+
+        while (true) {
+            var start = i;
+            while (start < lineEnd && buffer[start] <= ' ') {
+                start++;
+            }
+
+            int end;
+            if (start < lineEnd && (buffer[start] == QUOTE || buffer[start] == OPEN_QUOTE)) {
+                lastQuotedField = fieldCount;
+            }
+            if (start < lineEnd && buffer[start] == QUOTE) {
+                var write = start;
+                var read = start + 1;
+                while (read < lineEnd) {
+                    var c = buffer[read++];
+                    if (c == QUOTE) {
+                        if (read < lineEnd && buffer[read] == QUOTE) {
+                            read++;
+                        } else {
+                            break;
+                        }
+                    }
+                    buffer[write++] = c;
+                }
+                end = write;
+                i = indexOfComma(read, lineEnd);
+            } else {
+                if (start < lineEnd && buffer[start] == OPEN_QUOTE) {
+                    var close = start + 1;
+                    while (close < lineEnd && buffer[close] != CLOSE_QUOTE) {
+                        close++;
+                    }
+                    i = indexOfComma(close, lineEnd);
+                } else {
+                    i = indexOfComma(start, lineEnd);
+                }
+                end = i;
+                while (end > start && buffer[end - 1] <= ' ') {
+                    end--;
+                }
+            }
+
+            addField(start, end);
+            if (i >= lineEnd) {
+                break;
+            }
+            i++;
+        }
+
+        while (fieldCount > 1 && fieldCount - 1 > lastQuotedField && starts[fieldCount - 1] == ends[fieldCount - 1]) {
+            fieldCount--;
+        }
+    }
+
+    private int indexOfComma(int from, int lineEnd) {
+        while (from < lineEnd && buffer[from] != ',') {
+            from++;
+        }
+        return from;
+    }
+
+    private void addField(int start, int end) {
+        if (fieldCount == starts.length) {
+            starts = Arrays.copyOf(starts, fieldCount * 2);
+            ends = Arrays.copyOf(ends, fieldCount * 2);
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        fieldCount++;
+    }
+}
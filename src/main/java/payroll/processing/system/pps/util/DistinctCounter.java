@@ -0,0 +1,14 @@
+package payroll.processing.system.pps.util;
+
+/**
+ * Counts distinct employee ids.
+ */
+public interface DistinctCounter {
+
+    /**
+     * @return true if the count may have changed
+     */
+    boolean add(String id);
+
+    long count();
+}
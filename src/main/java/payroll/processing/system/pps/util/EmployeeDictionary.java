@@ -0,0 +1,7 @@
+package payroll.processing.system.pps.util;
+
+/**
+ * Assigns dense int codes to employee ids in order of first appearance.
+ */
+public class EmployeeDictionary extends StringDictionary {
+}
@@ -0,0 +1,162 @@
+package payroll.processing.system.pps.util;
+
+import org.springframework.util.unit.DataSize;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Errors counted by category, of which only the first samples of every category are kept as messages.
+ * The list holds the kept messages, so it can stand wherever the errors were a plain list of strings.
+ * <p>
+ * A message is built only if it is kept, is cut at {@value #MAX_MESSAGE_LENGTH} characters, and is kept only while
+ * all kept messages fit into the maximum size. The first message of every category is kept regardless, so a collector
+ * with errors is never an empty list. Messages added as strings belong to the default category of the collector.
+ * Collectors added to a collector bring their counts along. A collector is not thread safe.
+ */
+public class ErrorCollector extends AbstractList<String> {
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+    private static final ErrorCategory[] CATEGORIES = ErrorCategory.values();
+
+    private final ErrorCategory defaultCategory;
+    private final int samplesPerCategory;
+    private final long maxChars;
+    private final long[] counts = new long[CATEGORIES.length];
+    private final int[] kept = new int[CATEGORIES.length];
+    private final List<Sample> samples = new ArrayList<>();
+    private long chars;
+
+    public ErrorCollector(ErrorCategory defaultCategory) {
+        this(defaultCategory, 0, null);
+    }
+
+    /**
+     * @param samplesPerCategory 0 keeps every message
+     * @param maxSize null or 0 keeps every message
+     */
+    public ErrorCollector(ErrorCategory defaultCategory, int samplesPerCategory, DataSize maxSize) {
+        this.defaultCategory = defaultCategory;
+        this.samplesPerCategory = samplesPerCategory;
+        this.maxChars = maxSize == null ? 0 : maxSize.toBytes() / Character.BYTES;
+    }
+
+    /**
+     * Adds the error to a collector without building its message unless it is kept, or to a plain list.
+     */
+    public static void add(List<String> errors, ErrorCategory category, Supplier<String> message) {
+        if (errors instanceof ErrorCollector collector) {
+            collector.add(category, message);
+        } else {
+            errors.add(message.get());
+        }
+    }
+
+    /**
+     * Adds the counts of the errors to the map, a plain list counts as errors of the category.
+     */
+    public static void count(List<String> errors, ErrorCategory category, Map<ErrorCategory, Long> counts) {
+        if (errors instanceof ErrorCollector collector) {
+            collector.getCounts().forEach((key, count) -> counts.merge(key, count, Long::sum));
+        } else if (errors != null && !errors.isEmpty()) {
+            counts.merge(category, (long) errors.size(), Long::sum);
+        }
+    }
+
+    public void add(ErrorCategory category, Supplier<String> message) {
+        insert(samples.size(), category, message);
+    }
+
+    @Override
+    public boolean add(String message) {
+        insert(samples.size(), defaultCategory, () -> message);
+        return true;
+    }
+
+    @Override
+    public void add(int index, String message) {
+        insert(index, defaultCategory, () -> message);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends String> errors) {
+        if (!(errors instanceof ErrorCollector other)) {
+            return super.addAll(errors);
+        }
+
+        for (Sample sample : other.samples) {
+            keep(samples.size(), sample.category, sample::message);
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        return !other.isEmpty();
+    }
+
+    @Override
+    public String get(int index) {
+        return samples.get(index).message;
+    }
+
+    @Override
+    public int size() {
+        return samples.size();
+    }
+
+    public ErrorCategory getCategory(int index) {
+        return samples.get(index).category;
+    }
+
+    /**
+     * @return the number of errors of every category that has errors, kept or not
+     */
+    public Map<ErrorCategory, Long> getCounts() {
+        var result = new EnumMap<ErrorCategory, Long>(ErrorCategory.class);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                result.put(CATEGORIES[i], counts[i]);
+            }
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    /**
+     * Sets the count of the category, the count of the kept messages is the least it can be.
+     */
+    public void setCount(ErrorCategory category, long count) {
+        counts[category.ordinal()] = Math.max(count, kept[category.ordinal()]);
+    }
+
+    private void insert(int index, ErrorCategory category, Supplier<String> message) {
+        counts[category.ordinal()]++;
+        keep(index, category, message);
+    }
+
+    private void keep(int index, ErrorCategory category, Supplier<String> message) {
+        var ordinal = category.ordinal();
+        if (samplesPerCategory > 0 && kept[ordinal] >= samplesPerCategory) {
+            return;
+        }
+
+        var text = message.get();
+        if (text.length() > MAX_MESSAGE_LENGTH) {
+            text = text.substring(0, MAX_MESSAGE_LENGTH) + "…";
+        }
+        if (maxChars > 0 && kept[ordinal] > 0 && chars + text.length() > maxChars) {
+            return;
+        }
+
+        samples.add(index, new Sample(category, text));
+        kept[ordinal]++;
+        chars += text.length();
+    }
+
+    private record Sample(ErrorCategory category, String message) {
+    }
+}
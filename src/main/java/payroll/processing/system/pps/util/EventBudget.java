@@ -0,0 +1,79 @@
+package payroll.processing.system.pps.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Heap budget of the yearly events of all the reports built at once. Every report keeps its events in its own
+ * {@link EventTiers}, which counts its share of the budget here. Once all the reports together hold more events on
+ * the heap than the budget, a report that adds an event while it holds more than its fair share, the budget divided
+ * by the reports that hold events, spills its oldest years. Reports only spill their own events, since each of them
+ * is used by one thread at a time. A budget of 0 keeps every event on the heap.
+ * <p>
+ * A report gives its share back when it is done, with {@link EventTiers#release()} or {@link EventTiers#retire()},
+ * so finished reports neither count against the budget nor shrink the share of the others.
+ */
+public class EventBudget {
+    private final long heapMaxEvents;
+    private final Path directory;
+    private final AtomicLong heapEvents = new AtomicLong();
+    private final AtomicInteger reports = new AtomicInteger();
+
+    public EventBudget(long heapMaxEvents, Path directory) {
+        this.heapMaxEvents = heapMaxEvents;
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Spill directory " + directory + " cannot be created", e);
+        }
+    }
+
+    public EventTiers newTiers() {
+        return new EventTiers(this);
+    }
+
+    public long getHeapEvents() {
+        return heapEvents.get();
+    }
+
+    Path getDirectory() {
+        return directory;
+    }
+
+    boolean isBounded() {
+        return heapMaxEvents > 0;
+    }
+
+    void register() {
+        reports.incrementAndGet();
+    }
+
+    /**
+     * @param share the events the report still holds on the heap
+     */
+    void release(long share) {
+        heapEvents.addAndGet(-share);
+        reports.decrementAndGet();
+    }
+
+    void added() {
+        heapEvents.incrementAndGet();
+    }
+
+    void spilled(long events) {
+        heapEvents.addAndGet(-events);
+    }
+
+    /**
+     * @param share the events the report holds on the heap
+     */
+    boolean isOver(long share) {
+        return heapMaxEvents > 0 && heapEvents.get() > heapMaxEvents
+                && share > heapMaxEvents / Math.max(reports.get(), 1);
+    }
+}
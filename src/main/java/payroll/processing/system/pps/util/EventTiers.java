@@ -0,0 +1,88 @@
+package payroll.processing.system.pps.util;
+
+import java.nio.file.Path;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Yearly events of one report, counted against the {@link EventBudget} shared by all reports. The newest year is hot
+ * and stays on the heap, older years are cold: once the budget is exceeded and the report holds more than its share,
+ * the events of its oldest years are spilled to files in the directory of the budget until it is within its share
+ * again. The newest year is spilled last, if it alone is over the share.
+ * <p>
+ * Like the report, it is used by one thread at a time. Once no event is added any more, the tiers are released, or
+ * retired if the report is kept and read by other threads: its lists cannot be spilled by others then, so a bounded
+ * budget spills all of them first instead of leaving events on the heap that it can no longer take back.
+ */
+public class EventTiers {
+    private final EventBudget budget;
+    private final List<TieredEventList> lists = new ArrayList<>();
+    private final AtomicLong heapEvents = new AtomicLong();
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    /**
+     * Tiers with a budget of their own.
+     */
+    public EventTiers(long heapMaxEvents, Path directory) {
+        this(new EventBudget(heapMaxEvents, directory));
+    }
+
+    EventTiers(EventBudget budget) {
+        this.budget = budget;
+        budget.register();
+    }
+
+    public TieredEventList newList(Year year) {
+        var list = new TieredEventList(this, year);
+        lists.add(list);
+        return list;
+    }
+
+    void added() {
+        heapEvents.incrementAndGet();
+        budget.added();
+        if (budget.isOver(heapEvents.get())) {
+            spill();
+        }
+    }
+
+    /**
+     * Gives the share of the tiers back to the budget. Releasing them again does nothing.
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            budget.release(heapEvents.getAndSet(0));
+        }
+    }
+
+    /**
+     * Spills every list if the budget is bounded, then releases the tiers.
+     */
+    public void retire() {
+        if (budget.isBounded() && !released.get()) {
+            for (TieredEventList list : lists) {
+                var spilled = list.spill(budget.getDirectory());
+                heapEvents.addAndGet(-spilled);
+                budget.spilled(spilled);
+            }
+        }
+        release();
+    }
+
+    private void spill() {
+        var coldest = new ArrayList<>(lists);
+        coldest.sort(Comparator.comparing(TieredEventList::getYear));
+        for (TieredEventList list : coldest) {
+            if (!budget.isOver(heapEvents.get())) {
+                return;
+            }
+            var spilled = list.spill(budget.getDirectory());
+            heapEvents.addAndGet(-spilled);
+            budget.spilled(spilled);
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package payroll.processing.system.pps.util;
+
+import payroll.processing.system.pps.domain.Record;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * Sorts records by event date and sequence number with a bounded heap. Records are collected into runs of
+ * at most {@code runRecords}; a full run is sorted and spilled to a temporary file of the directory in the binary form of
+ * {@link PartialReportCodec}. The runs are then merged k-way through a priority queue, at most {@value #FAN_IN}
+ * at a time, so the open files are bounded too. Input that fits into one run is sorted on the heap.
+ * <p>
+ * The sort is stable: records with the same date and sequence number keep their input order.
+ * Closing the sorter deletes the runs.
+ */
+public class ExternalRecordSorter implements Consumer<Record<?>>, AutoCloseable {
+    public static final Comparator<Record<?>> CHRONOLOGICAL = Comparator
+            .comparing((Record<?> record) -> record.getDate(), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(Record::getSequenceNo, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private static final int FAN_IN = 64;
+    private static final int BUFFER_BYTES = 64 * 1024;
+
+    private final int runRecords;
+    private final Path directory;
+    private final List<Record<?>> buffer = new ArrayList<>();
+    private final List<Run> runs = new ArrayList<>();
+    private final List<Path> files = new ArrayList<>();
+
+    public ExternalRecordSorter(int runRecords, Path directory) {
+        this.runRecords = runRecords;
+        this.directory = directory;
+    }
+
+    @Override
+    public void accept(Record<?> record) {
+        buffer.add(record);
+        if (buffer.size() >= runRecords) {
+            spill();
+        }
+    }
+
+    /**
+     * Passes every record accepted so far to the consumer in chronological order.
+     */
+    public void forEachSorted(Consumer<Record<?>> consumer) {
+        if (runs.isEmpty()) {
+            buffer.sort(CHRONOLOGICAL);
+            buffer.forEach(consumer);
+            buffer.clear();
+            return;
+        }
+
+        spill();
+        try {
+            while (runs.size() > FAN_IN) {
+                var merged = new ArrayList<Run>();
+                for (int i = 0; i < runs.size(); i += FAN_IN) {
+                    var group = runs.subList(i, Math.min(i + FAN_IN, runs.size()));
+                    var run = newRun();
+                    try (var out = output(run.path)) {
+                        merge(group, record -> {
+                            write(record, out);
+                            run.count++;
+                        });
+                    }
+                    merged.add(run);
+                    group.forEach(this::delete);
+                }
+                runs.clear();
+                runs.addAll(merged);
+            }
+            merge(runs, consumer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Sorted runs cannot be merged", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        files.forEach(file -> {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                // a temporary file, the system cleans it up eventually
+            }
+        });
+        files.clear();
+        runs.clear();
+        buffer.clear();
+    }
+
+    private void spill() {
+        if (buffer.isEmpty()) {
+            return;
+        }
+
+        buffer.sort(CHRONOLOGICAL);
+        try {
+            var run = newRun();
+            runs.add(run);
+            try (var out = output(run.path)) {
+                for (Record<?> record : buffer) {
+                    PartialReportCodec.writeRecord(record, out);
+                }
+            }
+            run.count = buffer.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Sorted run cannot be spilled", e);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Ties between the heads of the runs go to the earlier run, which holds the earlier input.
+     */
+    private static void merge(List<Run> runs, Consumer<Record<?>> consumer) throws IOException {
+        var heads = new PriorityQueue<Head>(Comparator.<Head, Record<?>>comparing(head -> head.record, CHRONOLOGICAL)
+                .thenComparingInt(head -> head.run));
+        var inputs = new ArrayList<DataInputStream>(runs.size());
+        try {
+            for (int i = 0; i < runs.size(); i++) {
+                var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(runs.get(i).path), BUFFER_BYTES));
+                inputs.add(in);
+                var head = new Head(i, runs.get(i).count, in);
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            }
+
+            while (!heads.isEmpty()) {
+                var head = heads.poll();
+                consumer.accept(head.record);
+                if (head.advance()) {
+                    heads.add(head);
+                }
+            }
+        } finally {
+            for (DataInputStream in : inputs) {
+                in.close();
+            }
+        }
+    }
+
+    private Run newRun() throws IOException {
+        if (files.isEmpty()) {
+            Files.createDirectories(directory);
+        }
+        var path = Files.createTempFile(directory, "pps-run-", ".bin");
+        files.add(path);
+        return new Run(path);
+    }
+
+    private static DataOutputStream output(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BUFFER_BYTES));
+    }
+
+    private static void write(Record<?> record, DataOutputStream out) {
+        try {
+            PartialReportCodec.writeRecord(record, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void delete(Run run) {
+        try {
+            Files.deleteIfExists(run.path);
+            files.remove(run.path);
+        } catch (IOException e) {
+            // deleted on close
+        }
+    }
+
+    private static class Run {
+        final Path path;
+        int count;
+
+        Run(Path path) {
+            this.path = path;
+        }
+    }
+
+    private static class Head {
+        private final int run;
+        private final DataInputStream in;
+        private int remaining;
+        private Record<?> record;
+
+        Head(int run, int count, DataInputStream in) {
+            this.run = run;
+            this.remaining = count;
+            this.in = in;
+        }
+
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            record = PartialReportCodec.readRecord(in);
+            return true;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package payroll.processing.system.pps.util;
+
+import payroll.processing.system.pps.domain.enumaration.EventType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Decodes dates, amounts and event types of record fields without the general purpose parsers.
+ * <p>
+ * Fields are scanned in place between their surrounding whitespace. Dates of the usual M-dd-yyyy shape are
+ * read digit by digit and looked up in a small cache, amounts of up to 18 digits are read into an unscaled long.
+ * Anything else, including every invalid field, goes to the parser used before, so results and exceptions are the same.
+ */
+public class FieldDecoder {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M-dd-yyyy");
+    private static final int DATE_CACHE_SIZE = 4096;
+    private static final int MAX_UNSCALED_DIGITS = 18;
+    private static final EventType[] EVENT_TYPES = new EventType[128];
+
+    static {
+        for (EventType type : EventType.values()) {
+            var first = type.name().charAt(0);
+            if (EVENT_TYPES[first] != null) {
+                throw new IllegalStateException("Event types must start with different letters: " + type + ", " + EVENT_TYPES[first]);
+            }
+            EVENT_TYPES[first] = type;
+        }
+    }
+
+    private final CachedDate[] dates = new CachedDate[DATE_CACHE_SIZE];
+
+    public LocalDate date(String field) {
+        var start = start(field);
+        var end = end(field, start);
+        var monthDigits = end - start - 8;
+        if ((monthDigits != 1 && monthDigits != 2)
+                || field.charAt(start + monthDigits) != '-' || field.charAt(start + monthDigits + 3) != '-') {
+            return LocalDate.parse(field.substring(start, end), FORMATTER);
+        }
+
+        var month = digits(field, start, start + monthDigits);
+        var day = digits(field, start + monthDigits + 1, start + monthDigits + 3);
+        var year = digits(field, start + monthDigits + 4, end);
+        if (month < 1 || month > 12 || day < 1 || day > 31 || year < 1) {
+            return LocalDate.parse(field.substring(start, end), FORMATTER);
+        }
+
+        var key = year * 10_000 + month * 100 + day;
+        var slot = (key ^ (key >>> 12)) & (DATE_CACHE_SIZE - 1);
+        var cached = dates[slot];
+        if (cached != null && cached.key == key) {
+            return cached.date;
+        }
+        if (day > Month.of(month).length(Year.isLeap(year))) {
+            return LocalDate.parse(field.substring(start, end), FORMATTER);
+        }
+
+        var date = LocalDate.of(year, month, day);
+        dates[slot] = new CachedDate(key, date);
+        return date;
+    }
+
+    public BigDecimal amount(String field) {
+        var start = start(field);
+        var end = end(field, start);
+
+        var i = start;
+        var negative = false;
+        if (i < end && (field.charAt(i) == '-' || field.charAt(i) == '+')) {
+            negative = field.charAt(i) == '-';
+            i++;
+        }
+
+        var unscaled = 0L;
+        var digits = 0;
+        var scale = -1;
+        for (; i < end; i++) {
+            var c = field.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > MAX_UNSCALED_DIGITS) {
+                    return new BigDecimal(field.substring(start, end));
+                }
+                unscaled = unscaled * 10 + (c - '0');
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else if (c == '.' && scale < 0) {
+                scale = 0;
+            } else {
+                return new BigDecimal(field.substring(start, end));
+            }
+        }
+        if (digits == 0) {
+            return new BigDecimal(field.substring(start, end));
+        }
+
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * Event types are told apart by their first letter and confirmed by their name.
+     *
+     * @throws IllegalArgumentException like {@link EventType#valueOf(String)}
+     */
+    public EventType eventType(String field) {
+        var first = field.isEmpty() ? 0 : field.charAt(0);
+        var type = first < EVENT_TYPES.length ? EVENT_TYPES[first] : null;
+        if (type == null || !type.name().equals(field)) {
+            return EventType.valueOf(field);
+        }
+        return type;
+    }
+
+    /**
+     * @return the value of the digits, or -1 if there is another character between them
+     */
+    private static int digits(String field, int start, int end) {
+        var value = 0;
+        for (int i = start; i < end; i++) {
+            var c = field.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int start(String field) {
+        var start = 0;
+        while (start < field.length() && field.charAt(start) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int end(String field, int start) {
+        var end = field.length();
+        while (end > start && field.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private record CachedDate(int key, LocalDate date) {
+    }
+}
@@ -0,0 +1,113 @@
+package payroll.processing.system.pps.util;
+
+/**
+ * Approximate distinct counter with 2^14 registers (16 KB, about 0.8% standard error)
+ * whatever the number of ids. The harmonic sum of the registers is kept up to date on every change,
+ * so {@link #count()} does not scan the registers.
+ */
+public class HyperLogLogCounter implements DistinctCounter {
+    private static final int PRECISION = 14;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+    private static final double[] INVERSE_POWERS = new double[65];
+
+    static {
+        for (int i = 0; i < INVERSE_POWERS.length; i++) {
+            INVERSE_POWERS[i] = Math.pow(2, -i);
+        }
+    }
+
+    private final byte[] registers = new byte[REGISTERS];
+    private double inverseSum = REGISTERS;
+    private int zeros = REGISTERS;
+    private long count;
+
+    @Override
+    public boolean add(String id) {
+        var hash = hash(id);
+        var register = (int) (hash >>> (Long.SIZE - PRECISION));
+        var rank = (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+
+        var current = registers[register];
+        if (rank <= current) {
+            return false;
+        }
+        if (current == 0) {
+            zeros--;
+        }
+        inverseSum += INVERSE_POWERS[rank] - INVERSE_POWERS[current];
+        registers[register] = rank;
+        count = estimate();
+        return true;
+    }
+
+    /**
+     * Adds every id counted by the other counter, the result is the same as adding them one by one.
+     *
+     * @return true if the count may have changed
+     */
+    public boolean merge(HyperLogLogCounter other) {
+        var changed = false;
+        for (int register = 0; register < REGISTERS; register++) {
+            var current = registers[register];
+            var rank = other.registers[register];
+            if (rank > current) {
+                if (current == 0) {
+                    zeros--;
+                }
+                inverseSum += INVERSE_POWERS[rank] - INVERSE_POWERS[current];
+                registers[register] = rank;
+                changed = true;
+            }
+        }
+        if (changed) {
+            count = estimate();
+        }
+        return changed;
+    }
+
+    @Override
+    public long count() {
+        return count;
+    }
+
+    /**
+     * @return a copy of the registers, for persisting the counter
+     */
+    public byte[] toRegisters() {
+        return registers.clone();
+    }
+
+    public static HyperLogLogCounter fromRegisters(byte[] registers) {
+        if (registers.length != REGISTERS) {
+            throw new IllegalArgumentException("A counter has " + REGISTERS + " registers, not " + registers.length);
+        }
+        var source = new HyperLogLogCounter();
+        System.arraycopy(registers, 0, source.registers, 0, REGISTERS);
+        var counter = new HyperLogLogCounter();
+        counter.merge(source);
+        return counter;
+    }
+
+    private long estimate() {
+        var estimate = ALPHA * REGISTERS * REGISTERS / inverseSum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private static long hash(String id) {
+        var hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < id.length(); i++) {
+            hash ^= id.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
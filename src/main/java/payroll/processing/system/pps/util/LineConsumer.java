@@ -0,0 +1,10 @@
+package payroll.processing.system.pps.util;
+
+/**
+ * Receives the fields of a line with the name of its file and its number in the file, counted from 1.
+ */
+@FunctionalInterface
+public interface LineConsumer {
+
+    void accept(String[] line, String fileName, long lineNumber);
+}
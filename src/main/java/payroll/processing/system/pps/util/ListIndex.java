@@ -0,0 +1,49 @@
+package payroll.processing.system.pps.util;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Hash index over the elements of a list, so a lookup by key does not scan the list.
+ * <p>
+ * The list stays the owner of the elements. Elements appended to it directly are indexed
+ * lazily on the next call; if the list shrinks or is replaced the index is rebuilt.
+ * When several elements share a key the first one wins, like {@code stream().filter(...).findAny()}.
+ */
+public class ListIndex<K, V> {
+    private final Function<V, K> keyExtractor;
+    private final Map<K, V> map = new HashMap<>();
+    private List<V> list;
+    private int indexed;
+
+    public ListIndex(Function<V, K> keyExtractor) {
+        this.keyExtractor = keyExtractor;
+    }
+
+    public V get(List<V> list, K key) {
+        sync(list);
+        return map.get(key);
+    }
+
+    public void add(List<V> list, V value) {
+        sync(list);
+        list.add(value);
+        map.putIfAbsent(keyExtractor.apply(value), value);
+        indexed++;
+    }
+
+    private void sync(List<V> list) {
+        if (this.list != list || list.size() < indexed) {
+            this.list = list;
+            map.clear();
+            indexed = 0;
+        }
+
+        for (; indexed < list.size(); indexed++) {
+            var value = list.get(indexed);
+            map.putIfAbsent(keyExtractor.apply(value), value);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package payroll.processing.system.pps.util;
+
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.LocalFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An upload that was copied to a local csv file, read from the disk under the name of the upload.
+ */
+public class LocalMultipartFile implements MultipartFile {
+    private final LocalFile file;
+
+    public LocalMultipartFile(LocalFile file) {
+        this.file = file;
+    }
+
+    public LocalFile getFile() {
+        return file;
+    }
+
+    @Override
+    public String getName() {
+        return "files";
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return file.getFileName();
+    }
+
+    @Override
+    public String getContentType() {
+        return "text/csv";
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return getSize() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        try {
+            return Files.size(file.getPath());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(file.getPath());
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(file.getPath());
+    }
+
+    @Override
+    public void transferTo(java.io.File dest) throws IOException {
+        transferTo(dest.toPath());
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.copy(file.getPath(), dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+}
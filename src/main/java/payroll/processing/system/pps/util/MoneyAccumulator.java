@@ -0,0 +1,79 @@
+package payroll.processing.system.pps.util;
+
+import java.math.BigDecimal;
+
+/**
+ * Exact running total of amounts, kept as a long count of units of 10^-scale.
+ * <p>
+ * Adding an amount does not allocate as long as it has at most {@code scale} fraction digits and the total fits a long.
+ * Otherwise the total moves to a {@link BigDecimal} for good. The total is presented with the largest scale
+ * of the added amounts, exactly like a sum of {@link BigDecimal#add(BigDecimal)} calls.
+ */
+public class MoneyAccumulator {
+    private static final int MAX_DIGITS = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_DIGITS + 1];
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final int scale;
+    private long units;
+    private int maxScale = Integer.MIN_VALUE;
+    private BigDecimal decimal;
+
+    public MoneyAccumulator(int scale) {
+        this.scale = scale;
+    }
+
+    public void add(BigDecimal amount) {
+        if (decimal == null && amount.scale() <= scale && amount.precision() <= MAX_DIGITS) {
+            var unscaled = amount.scale() == 0 ? amount.longValue() : amount.movePointRight(amount.scale()).longValue();
+            add(unscaled, amount.scale());
+        } else {
+            addDecimal(amount);
+        }
+    }
+
+    /**
+     * Adds the amount unscaled * 10^-amountScale.
+     */
+    public void add(long unscaled, int amountScale) {
+        var shift = scale - amountScale;
+        if (decimal == null && shift >= 0 && shift <= MAX_DIGITS) {
+            var factor = POWERS_OF_TEN[shift];
+            var product = unscaled * factor;
+            if (Math.multiplyHigh(unscaled, factor) == (product >> 63)) {
+                var sum = units + product;
+                if (((units ^ sum) & (product ^ sum)) >= 0) {
+                    units = sum;
+                    maxScale = Math.max(maxScale, amountScale);
+                    return;
+                }
+            }
+        }
+        addDecimal(BigDecimal.valueOf(unscaled, amountScale));
+    }
+
+    /**
+     * @return the total, or null if nothing was added
+     */
+    public BigDecimal toBigDecimal() {
+        if (maxScale == Integer.MIN_VALUE) {
+            return null;
+        }
+        var total = decimal != null ? decimal : BigDecimal.valueOf(units, scale);
+        return total.setScale(maxScale);
+    }
+
+    private void addDecimal(BigDecimal amount) {
+        if (decimal == null) {
+            decimal = BigDecimal.valueOf(units, scale);
+        }
+        decimal = decimal.add(amount);
+        maxScale = Math.max(maxScale, amount.scale());
+    }
+}
@@ -0,0 +1,429 @@
+package payroll.processing.system.pps.util;
+
+import payroll.processing.system.pps.domain.Employee;
+import payroll.processing.system.pps.domain.PartialReport;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.domain.enumaration.ReportSection;
+import payroll.processing.system.pps.domain.report.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary form of a partial report, so it can be kept outside the heap and merged later like the original.
+ * <p>
+ * Exited employees are written as references to the employee reports they are, because merging maps them
+ * to the employees of the target by identity. Distinct payee counters are written as their ids or registers.
+ * A partial written by another version of the format is rejected with an {@link IOException}.
+ * Records, events, employees and amounts are written the same way wherever they are kept, e.g. in the event log.
+ */
+public final class PartialReportCodec {
+    private static final int VERSION = 2;
+    private static final byte NO_COUNTER = 0;
+    private static final byte BITMAP_COUNTER = 1;
+    private static final byte HYPERLOGLOG_COUNTER = 2;
+    private static final EventType[] TYPES = EventType.values();
+    private static final ReportSection[] SECTIONS = ReportSection.values();
+    private static final ErrorCategory[] ERROR_CATEGORIES = ErrorCategory.values();
+
+    private PartialReportCodec() {
+    }
+
+    public static void write(PartialReport partial, DataOutput out) throws IOException {
+        out.writeInt(VERSION);
+
+        var sections = 0;
+        for (ReportSection section : partial.getSections()) {
+            sections |= 1 << section.ordinal();
+        }
+        out.writeInt(sections);
+
+        var report = partial.getReport();
+        out.writeLong(report.getTotalEmployees());
+
+        var employeeRefs = new IdentityHashMap<EmployeeReport, Integer>();
+        out.writeInt(report.getEmployeeReports().size());
+        for (EmployeeReport employee : report.getEmployeeReports()) {
+            employeeRefs.put(employee, employeeRefs.size());
+            writeEmployee(employee, out);
+        }
+
+        out.writeInt(report.getMonthlyEmployeeReports().size());
+        for (MonthlyEmployeeReport mer : report.getMonthlyEmployeeReports()) {
+            writeMonth(mer.getMonth(), out);
+            out.writeLong(mer.getTotalOnboardedEmployees());
+            out.writeInt(mer.getOnboardedEmployees().size());
+            for (EmployeeReport employee : mer.getOnboardedEmployees()) {
+                writeEmployee(employee, out);
+            }
+            out.writeLong(mer.getTotalExitedEmployee());
+            out.writeInt(mer.getExitedEmployees().size());
+            for (EmployeeReport employee : mer.getExitedEmployees()) {
+                var ref = employeeRefs.get(employee);
+                out.writeInt(ref == null ? -1 : ref);
+                if (ref == null) {
+                    writeEmployee(employee, out);
+                }
+            }
+        }
+
+        out.writeInt(report.getMonthlySalaryReports().size());
+        for (MonthlySalaryReport msr : report.getMonthlySalaryReports()) {
+            writeMonth(msr.getMonth(), out);
+            writeDecimal(msr.getTotalSalary(), out);
+            out.writeLong(msr.getTotalEmployees());
+        }
+
+        out.writeInt(report.getMonthlyPaidReports().size());
+        for (MonthlyPaidReport mpr : report.getMonthlyPaidReports()) {
+            writeMonth(mpr.getMonth(), out);
+            writeDecimal(mpr.getTotalPaid(), out);
+            out.writeLong(mpr.getTotalEmployees());
+            writeCounter(mpr.getEmployees(), out);
+        }
+
+        out.writeInt(report.getYearlyReports().size());
+        for (YearlyReport yp : report.getYearlyReports()) {
+            out.writeInt(yp.getYear().getValue());
+            out.writeInt(yp.getEvents().size());
+            for (EventReport<?> event : yp.getEvents()) {
+                writeEvent(event, out);
+            }
+        }
+
+        var deferred = partial.getDeferred();
+        out.writeInt(deferred == null ? -1 : deferred.size());
+        if (deferred != null) {
+            for (Record<?> record : deferred) {
+                writeRecord(record, out);
+            }
+        }
+
+        writeErrors(partial.getReportErrors(), ErrorCategory.INCONSISTENT_REPORT, out);
+        writeErrors(partial.getRecordErrors(), ErrorCategory.INVALID_RECORD, out);
+        writeErrors(partial.getFileErrors(), ErrorCategory.FILE, out);
+    }
+
+    public static PartialReport read(DataInput in) throws IOException {
+        var version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported partial report version: " + version);
+        }
+
+        var sectionBits = in.readInt();
+        var sections = EnumSet.noneOf(ReportSection.class);
+        for (ReportSection section : SECTIONS) {
+            if ((sectionBits & (1 << section.ordinal())) != 0) {
+                sections.add(section);
+            }
+        }
+
+        var report = Report.builder().totalEmployees(in.readLong()).build();
+
+        var employeesSize = in.readInt();
+        var employees = new ArrayList<EmployeeReport>(employeesSize);
+        for (int i = employeesSize; i > 0; i--) {
+            employees.add(readEmployee(in));
+        }
+        report.setEmployeeReports(employees);
+
+        var monthlyEmployeeReportsSize = in.readInt();
+        var monthlyEmployeeReports = new ArrayList<MonthlyEmployeeReport>(monthlyEmployeeReportsSize);
+        for (int i = monthlyEmployeeReportsSize; i > 0; i--) {
+            var mer = MonthlyEmployeeReport.builder()
+                    .month(readMonth(in))
+                    .totalOnboardedEmployees(in.readLong())
+                    .OnboardedEmployees(new ArrayList<>()).build();
+            for (int j = in.readInt(); j > 0; j--) {
+                mer.getOnboardedEmployees().add(readEmployee(in));
+            }
+            mer.setTotalExitedEmployee(in.readLong());
+            mer.setExitedEmployees(new ArrayList<>());
+            for (int j = in.readInt(); j > 0; j--) {
+                var ref = in.readInt();
+                mer.getExitedEmployees().add(ref < 0 ? readEmployee(in) : employees.get(ref));
+            }
+            monthlyEmployeeReports.add(mer);
+        }
+        report.setMonthlyEmployeeReports(monthlyEmployeeReports);
+
+        var monthlySalaryReportsSize = in.readInt();
+        var monthlySalaryReports = new ArrayList<MonthlySalaryReport>(monthlySalaryReportsSize);
+        for (int i = monthlySalaryReportsSize; i > 0; i--) {
+            monthlySalaryReports.add(MonthlySalaryReport.builder()
+                    .month(readMonth(in))
+                    .totalSalary(readDecimal(in))
+                    .totalEmployees(in.readLong()).build());
+        }
+        report.setMonthlySalaryReports(monthlySalaryReports);
+
+        var dictionary = new EmployeeDictionary();
+        var monthlyPaidReportsSize = in.readInt();
+        var monthlyPaidReports = new ArrayList<MonthlyPaidReport>(monthlyPaidReportsSize);
+        for (int i = monthlyPaidReportsSize; i > 0; i--) {
+            monthlyPaidReports.add(MonthlyPaidReport.builder()
+                    .month(readMonth(in))
+                    .totalPaid(readDecimal(in))
+                    .totalEmployees(in.readLong())
+                    .employees(readCounter(dictionary, in)).build());
+        }
+        report.setMonthlyPaidReports(monthlyPaidReports);
+
+        var yearlyReportsSize = in.readInt();
+        var yearlyReports = new ArrayList<YearlyReport>(yearlyReportsSize);
+        for (int i = yearlyReportsSize; i > 0; i--) {
+            var yp = new YearlyReport(Year.of(in.readInt()), new ArrayList<>());
+            for (int j = in.readInt(); j > 0; j--) {
+                yp.getEvents().add(readEvent(in));
+            }
+            yearlyReports.add(yp);
+        }
+        report.setYearlyReports(yearlyReports);
+
+        List<Record<?>> deferred = null;
+        var deferredSize = in.readInt();
+        if (deferredSize >= 0) {
+            deferred = new ArrayList<>(deferredSize);
+            for (int i = deferredSize; i > 0; i--) {
+                deferred.add(readRecord(in));
+            }
+        }
+
+        return PartialReport.builder()
+                .report(report)
+                .sections(sections)
+                .deferred(deferred)
+                .reportErrors(readErrors(ErrorCategory.INCONSISTENT_REPORT, in))
+                .recordErrors(readErrors(ErrorCategory.INVALID_RECORD, in))
+                .fileErrors(readErrors(ErrorCategory.FILE, in))
+                .build();
+    }
+
+    public static void writeRecord(Record<?> record, DataOutput out) throws IOException {
+        out.writeLong(record.getSequenceNo());
+        var employee = record.getEmployee();
+        writeString(employee.getId(), out);
+        writeString(employee.getName(), out);
+        writeString(employee.getSurname(), out);
+        writeString(employee.getDesignation(), out);
+        out.writeByte(record.getType().ordinal());
+        writeValue(record.getType(), record.getValue(), out);
+        out.writeLong(record.getDate().toEpochDay());
+        writeString(record.getNote(), out);
+    }
+
+    public static Record<?> readRecord(DataInput in) throws IOException {
+        var sequenceNo = in.readLong();
+        var employee = Employee.builder()
+                .id(readString(in))
+                .name(readString(in))
+                .surname(readString(in))
+                .designation(readString(in)).build();
+        var type = TYPES[in.readByte()];
+        return Record.builder()
+                .SequenceNo(sequenceNo)
+                .employee(employee)
+                .type(type)
+                .value(readValue(type, in))
+                .date(LocalDate.ofEpochDay(in.readLong()))
+                .note(readString(in)).build();
+    }
+
+    public static void writeEvent(EventReport<?> event, DataOutput out) throws IOException {
+        out.writeByte(event.getType().ordinal());
+        writeString(event.getEmployeeId(), out);
+        writeValue(event.getType(), event.getValue(), out);
+        out.writeLong(event.getDate().toEpochDay());
+    }
+
+    public static EventReport<?> readEvent(DataInput in) throws IOException {
+        var type = TYPES[in.readByte()];
+        return new EventReport<>(type, readString(in), readValue(type, in), LocalDate.ofEpochDay(in.readLong()));
+    }
+
+    public static void writeEmployee(EmployeeReport employee, DataOutput out) throws IOException {
+        writeString(employee.getId(), out);
+        writeString(employee.getName(), out);
+        writeString(employee.getSurname(), out);
+        writeString(employee.getDesignation(), out);
+        writeDecimal(employee.getTotalPaid(), out);
+    }
+
+    public static EmployeeReport readEmployee(DataInput in) throws IOException {
+        return EmployeeReport.builder()
+                .id(readString(in))
+                .name(readString(in))
+                .surname(readString(in))
+                .designation(readString(in))
+                .totalPaid(readDecimal(in)).build();
+    }
+
+    public static void writeCounter(DistinctCounter counter, DataOutput out) throws IOException {
+        if (counter instanceof BitmapDistinctCounter bitmap) {
+            out.writeByte(BITMAP_COUNTER);
+            var ids = new ArrayList<String>();
+            bitmap.forEach(ids::add);
+            writeStrings(ids, out);
+        } else if (counter instanceof HyperLogLogCounter hyperLogLog) {
+            out.writeByte(HYPERLOGLOG_COUNTER);
+            var registers = hyperLogLog.toRegisters();
+            out.writeInt(registers.length);
+            out.write(registers);
+        } else {
+            out.writeByte(NO_COUNTER);
+        }
+    }
+
+    public static DistinctCounter readCounter(EmployeeDictionary dictionary, DataInput in) throws IOException {
+        var kind = in.readByte();
+        if (kind == BITMAP_COUNTER) {
+            var bitmap = new BitmapDistinctCounter(dictionary);
+            readStrings(in).forEach(bitmap::add);
+            return bitmap;
+        } else if (kind == HYPERLOGLOG_COUNTER) {
+            var registers = new byte[in.readInt()];
+            in.readFully(registers);
+            return HyperLogLogCounter.fromRegisters(registers);
+        }
+        return null;
+    }
+
+    private static void writeValue(EventType type, Object value, DataOutput out) throws IOException {
+        if (type == EventType.ONBOARD || type == EventType.EXIT) {
+            out.writeLong(((LocalDate) value).toEpochDay());
+        } else {
+            writeDecimal((BigDecimal) value, out);
+        }
+    }
+
+    private static Object readValue(EventType type, DataInput in) throws IOException {
+        if (type == EventType.ONBOARD || type == EventType.EXIT) {
+            return LocalDate.ofEpochDay(in.readLong());
+        }
+        return readDecimal(in);
+    }
+
+    public static void writeMonth(YearMonth month, DataOutput out) throws IOException {
+        out.writeInt(month.getYear());
+        out.writeByte(month.getMonthValue());
+    }
+
+    public static YearMonth readMonth(DataInput in) throws IOException {
+        return YearMonth.of(in.readInt(), in.readByte());
+    }
+
+    public static void writeDecimal(BigDecimal value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var unscaled = value.unscaledValue().toByteArray();
+        out.writeInt(unscaled.length);
+        out.write(unscaled);
+        out.writeInt(value.scale());
+    }
+
+    public static BigDecimal readDecimal(DataInput in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        var unscaled = new byte[length];
+        in.readFully(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), in.readInt());
+    }
+
+    private static void writeStrings(List<String> values, DataOutput out) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            writeString(value, out);
+        }
+    }
+
+    private static List<String> readStrings(DataInput in) throws IOException {
+        var size = in.readInt();
+        var values = new ArrayList<String>(size);
+        for (int i = size; i > 0; i--) {
+            values.add(readString(in));
+        }
+        return values;
+    }
+
+    /**
+     * Errors are written as the counts of their categories and the kept messages with their categories,
+     * a plain list as messages of the category.
+     */
+    private static void writeErrors(List<String> errors, ErrorCategory category, DataOutput out) throws IOException {
+        var counts = new EnumMap<ErrorCategory, Long>(ErrorCategory.class);
+        ErrorCollector.count(errors, category, counts);
+        out.writeInt(counts.size());
+        for (Map.Entry<ErrorCategory, Long> count : counts.entrySet()) {
+            out.writeByte(count.getKey().ordinal());
+            out.writeLong(count.getValue());
+        }
+
+        out.writeInt(errors.size());
+        for (int i = 0; i < errors.size(); i++) {
+            out.writeByte((errors instanceof ErrorCollector collector ? collector.getCategory(i) : category).ordinal());
+            writeString(errors.get(i), out);
+        }
+    }
+
+    /**
+     * @return an unbounded collector, its messages were bounded when they were written
+     */
+    private static ErrorCollector readErrors(ErrorCategory category, DataInput in) throws IOException {
+        var counts = new EnumMap<ErrorCategory, Long>(ErrorCategory.class);
+        for (int i = in.readInt(); i > 0; i--) {
+            counts.put(ERROR_CATEGORIES[in.readByte()], in.readLong());
+        }
+
+        var errors = new ErrorCollector(category);
+        for (int i = in.readInt(); i > 0; i--) {
+            var errorCategory = ERROR_CATEGORIES[in.readByte()];
+            var message = readString(in);
+            errors.add(errorCategory, () -> message);
+        }
+        counts.forEach(errors::setCount);
+        return errors;
+    }
+
+    /**
+     * Strings are written as UTF-8 bytes after their length, -1 for null, because notes and errors
+     * can be longer than {@link DataOutput#writeUTF(String)} allows.
+     */
+    public static void writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        var bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(DataInput in) throws IOException {
+        var length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,94 @@
+package payroll.processing.system.pps.util;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Hands the batches of one partition to a handler in submission order and one at a time,
+ * so the handler owns the state of the partition without locks. The batches run on a shared executor
+ * and no thread is held while the partition has nothing to do.
+ * <p>
+ * At most {@code capacity} batches wait, beyond that {@link #submit(List)} blocks the producer.
+ */
+public class PartitionWorker<T> {
+    private final Executor executor;
+    private final Consumer<List<T>> handler;
+    private final Semaphore capacity;
+    private final Queue<List<T>> batches = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+    private volatile boolean closed;
+
+    public PartitionWorker(Executor executor, int capacity, Consumer<List<T>> handler) {
+        this.executor = executor;
+        this.handler = handler;
+        this.capacity = new Semaphore(capacity);
+    }
+
+    public void submit(List<T> batch) {
+        if (done.isCompletedExceptionally()) {
+            done.join();
+        }
+        try {
+            capacity.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for partition capacity", e);
+        }
+
+        pending.incrementAndGet();
+        batches.add(batch);
+        schedule();
+    }
+
+    /**
+     * No more batches are submitted after this call.
+     *
+     * @return completes when every submitted batch is handled, or with the first failure of the handler
+     */
+    public CompletableFuture<Void> close() {
+        closed = true;
+        if (pending.get() == 0) {
+            done.complete(null);
+        }
+        return done;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            List<T> batch;
+            while ((batch = batches.poll()) != null) {
+                if (!done.isDone()) {
+                    try {
+                        handler.accept(batch);
+                    } catch (Throwable e) {
+                        done.completeExceptionally(e);
+                    }
+                }
+                capacity.release();
+                if (pending.decrementAndGet() == 0 && closed) {
+                    done.complete(null);
+                }
+            }
+        } finally {
+            scheduled.set(false);
+            if (!batches.isEmpty()) {
+                schedule();
+            }
+        }
+    }
+}
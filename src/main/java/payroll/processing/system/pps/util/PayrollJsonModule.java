@@ -0,0 +1,94 @@
+package payroll.processing.system.pps.util;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+
+/**
+ * Serializers of the value types of the reports, written straight to the generator without reflection
+ * or formatters. They produce the ISO text the default Java time serializers write when dates are not timestamps.
+ */
+public class PayrollJsonModule extends SimpleModule {
+
+    public PayrollJsonModule() {
+        super("PayrollJsonModule");
+        addSerializer(YearMonth.class, new StdSerializer<>(YearMonth.class) {
+            @Override
+            public void serialize(YearMonth value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                writeYearMonth(generator, value);
+            }
+        });
+        addSerializer(Year.class, new StdSerializer<>(Year.class) {
+            @Override
+            public void serialize(Year value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                writeYear(generator, value);
+            }
+        });
+        addSerializer(LocalDate.class, new StdSerializer<>(LocalDate.class) {
+            @Override
+            public void serialize(LocalDate value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                writeLocalDate(generator, value);
+            }
+        });
+        addSerializer(BigDecimal.class, new StdSerializer<>(BigDecimal.class) {
+            @Override
+            public void serialize(BigDecimal value, JsonGenerator generator, SerializerProvider provider) throws IOException {
+                generator.writeNumber(value);
+            }
+        });
+    }
+
+    public static void writeYearMonth(JsonGenerator generator, YearMonth value) throws IOException {
+        if (!isFourDigits(value.getYear())) {
+            generator.writeString(value.toString());
+            return;
+        }
+        var chars = new char[7];
+        digits(chars, 0, value.getYear(), 4);
+        chars[4] = '-';
+        digits(chars, 5, value.getMonthValue(), 2);
+        generator.writeString(chars, 0, chars.length);
+    }
+
+    public static void writeYear(JsonGenerator generator, Year value) throws IOException {
+        if (!isFourDigits(value.getValue())) {
+            generator.writeString(value.toString());
+            return;
+        }
+        var chars = new char[4];
+        digits(chars, 0, value.getValue(), 4);
+        generator.writeString(chars, 0, chars.length);
+    }
+
+    public static void writeLocalDate(JsonGenerator generator, LocalDate value) throws IOException {
+        if (!isFourDigits(value.getYear())) {
+            generator.writeString(value.toString());
+            return;
+        }
+        var chars = new char[10];
+        digits(chars, 0, value.getYear(), 4);
+        chars[4] = '-';
+        digits(chars, 5, value.getMonthValue(), 2);
+        chars[7] = '-';
+        digits(chars, 8, value.getDayOfMonth(), 2);
+        generator.writeString(chars, 0, chars.length);
+    }
+
+    private static boolean isFourDigits(int year) {
+        return year >= 0 && year <= 9999;
+    }
+
+    private static void digits(char[] chars, int offset, int value, int length) {
+        for (int i = offset + length - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
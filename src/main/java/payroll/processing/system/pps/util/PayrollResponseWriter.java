@@ -0,0 +1,240 @@
+package payroll.processing.system.pps.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import payroll.processing.system.pps.domain.Error;
+import payroll.processing.system.pps.domain.PayrollResponse;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
+import payroll.processing.system.pps.domain.report.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link PayrollResponse} field by field with a streaming generator, in the shape the object mapper
+ * gives the beans: declared order, null fields left out. Nothing is buffered beyond the generator,
+ * so the encoded response never exists as a whole on the heap. The report itself is complete before it is
+ * written, since its totals depend on every record.
+ * <p>
+ * Binary encodings such as Smile or CBOR use the same walk with the generator of their factory.
+ * The first media type is the default one.
+ */
+public class PayrollResponseWriter {
+    public static final String SMILE_VALUE = "application/x-jackson-smile";
+    public static final String CBOR_VALUE = "application/cbor";
+
+    private final Map<MediaType, JsonFactory> factories;
+    private final MediaType defaultMediaType;
+
+    public PayrollResponseWriter(JsonFactory factory) {
+        this(Map.of(MediaType.APPLICATION_JSON, factory));
+    }
+
+    public PayrollResponseWriter(Map<MediaType, JsonFactory> factories) {
+        this.factories = new LinkedHashMap<>(factories);
+        this.defaultMediaType = factories.keySet().iterator().next();
+    }
+
+    /**
+     * Accepted types are tried by quality and, at equal quality, the more specific type first, like Spring's
+     * negotiation does, so {@code application/*, application/cbor} picks CBOR.
+     *
+     * @return the supported media type the accept header prefers, the default one without a header,
+     * or null if none of them is acceptable
+     */
+    public MediaType negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return defaultMediaType;
+        }
+
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            return null;
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+
+        for (MediaType mediaType : accepted) {
+            if (mediaType.getQualityValue() <= 0) {
+                continue;
+            }
+            for (MediaType supported : factories.keySet()) {
+                if (mediaType.includes(supported)) {
+                    return supported;
+                }
+            }
+        }
+        return null;
+    }
+
+    public void write(PayrollResponse response, OutputStream out) throws IOException {
+        write(response, defaultMediaType, out);
+    }
+
+    public void write(PayrollResponse response, MediaType mediaType, OutputStream out) throws IOException {
+        var factory = factories.get(mediaType);
+        if (factory == null) {
+            throw new IllegalArgumentException("Unsupported media type: " + mediaType);
+        }
+
+        try (var generator = factory.createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+            generator.writeStartObject();
+            if (response.getReport() != null) {
+                generator.writeFieldName("report");
+                writeReport(generator, response.getReport());
+            }
+            if (response.getError() != null) {
+                generator.writeFieldName("error");
+                writeError(generator, response.getError());
+            }
+            generator.writeEndObject();
+        }
+    }
+
+    private void writeReport(JsonGenerator generator, Report report) throws IOException {
+        generator.writeStartObject();
+        writeNumber(generator, "totalEmployees", report.getTotalEmployees());
+        writeList(generator, "employeeReports", report.getEmployeeReports(), this::writeEmployee);
+        writeList(generator, "monthlyEmployeeReports", report.getMonthlyEmployeeReports(), (gen, mer) -> {
+            gen.writeStartObject();
+            if (mer.getMonth() != null) {
+                gen.writeFieldName("month");
+                PayrollJsonModule.writeYearMonth(gen, mer.getMonth());
+            }
+            writeNumber(gen, "totalOnboardedEmployees", mer.getTotalOnboardedEmployees());
+            writeNumber(gen, "totalExitedEmployee", mer.getTotalExitedEmployee());
+            writeList(gen, "exitedEmployees", mer.getExitedEmployees(), this::writeEmployee);
+            writeList(gen, "onboardedEmployees", mer.getOnboardedEmployees(), this::writeEmployee);
+            gen.writeEndObject();
+        });
+        writeList(generator, "monthlySalaryReports", report.getMonthlySalaryReports(), (gen, msr) -> {
+            gen.writeStartObject();
+            if (msr.getMonth() != null) {
+                gen.writeFieldName("month");
+                PayrollJsonModule.writeYearMonth(gen, msr.getMonth());
+            }
+            writeNumber(gen, "totalSalary", msr.getTotalSalary());
+            writeNumber(gen, "totalEmployees", msr.getTotalEmployees());
+            gen.writeEndObject();
+        });
+        writeList(generator, "monthlyPaidReports", report.getMonthlyPaidReports(), (gen, mpr) -> {
+            gen.writeStartObject();
+            if (mpr.getMonth() != null) {
+                gen.writeFieldName("month");
+                PayrollJsonModule.writeYearMonth(gen, mpr.getMonth());
+            }
+            writeNumber(gen, "totalPaid", mpr.getTotalPaid());
+            writeNumber(gen, "totalEmployees", mpr.getTotalEmployees());
+            gen.writeEndObject();
+        });
+        writeList(generator, "yearlyReports", report.getYearlyReports(), (gen, yp) -> {
+            gen.writeStartObject();
+            if (yp.getYear() != null) {
+                gen.writeFieldName("year");
+                PayrollJsonModule.writeYear(gen, yp.getYear());
+            }
+            writeList(gen, "events", yp.getEvents(), this::writeEvent);
+            gen.writeEndObject();
+        });
+        generator.writeEndObject();
+    }
+
+    private void writeEmployee(JsonGenerator generator, EmployeeReport employee) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, "id", employee.getId());
+        writeString(generator, "name", employee.getName());
+        writeString(generator, "surname", employee.getSurname());
+        writeString(generator, "designation", employee.getDesignation());
+        writeNumber(generator, "totalPaid", employee.getTotalPaid());
+        generator.writeEndObject();
+    }
+
+    private void writeEvent(JsonGenerator generator, EventReport<?> event) throws IOException {
+        generator.writeStartObject();
+        writeString(generator, "type", event.getType() == null ? null : event.getType().name());
+        writeString(generator, "employeeId", event.getEmployeeId());
+        if (event.getValue() != null) {
+            generator.writeFieldName("value");
+            writeValue(generator, event.getValue());
+        }
+        if (event.getDate() != null) {
+            generator.writeFieldName("date");
+            PayrollJsonModule.writeLocalDate(generator, event.getDate());
+        }
+        generator.writeEndObject();
+    }
+
+    private void writeValue(JsonGenerator generator, Object value) throws IOException {
+        if (value instanceof LocalDate date) {
+            PayrollJsonModule.writeLocalDate(generator, date);
+        } else if (value instanceof BigDecimal number) {
+            generator.writeNumber(number);
+        } else if (generator.getCodec() != null) {
+            generator.writeObject(value);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+    private void writeError(JsonGenerator generator, Error error) throws IOException {
+        generator.writeStartObject();
+        writeList(generator, "fileErrors", error.getFileErrors(), JsonGenerator::writeString);
+        writeList(generator, "recordErrors", error.getRecordErrors(), JsonGenerator::writeString);
+        writeList(generator, "reportErrors", error.getReportErrors(), JsonGenerator::writeString);
+        var counts = error.getErrorCounts();
+        if (counts != null) {
+            generator.writeObjectFieldStart("errorCounts");
+            for (Map.Entry<ErrorCategory, Long> count : counts.entrySet()) {
+                generator.writeNumberField(count.getKey().name(), count.getValue());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+    }
+
+    private <T> void writeList(JsonGenerator generator, String name, List<T> values, ElementWriter<T> elementWriter) throws IOException {
+        if (values == null) {
+            return;
+        }
+        generator.writeArrayFieldStart(name);
+        for (T value : values) {
+            elementWriter.write(generator, value);
+        }
+        generator.writeEndArray();
+    }
+
+    private void writeString(JsonGenerator generator, String name, String value) throws IOException {
+        if (value != null) {
+            generator.writeStringField(name, value);
+        }
+    }
+
+    private void writeNumber(JsonGenerator generator, String name, Long value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(name, value);
+        }
+    }
+
+    private void writeNumber(JsonGenerator generator, String name, BigDecimal value) throws IOException {
+        if (value != null) {
+            generator.writeNumberField(name, value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ElementWriter<T> {
+        void write(JsonGenerator generator, T value) throws IOException;
+    }
+}
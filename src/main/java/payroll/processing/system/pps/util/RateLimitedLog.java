@@ -0,0 +1,154 @@
+package payroll.processing.system.pps.util;
+
+import org.slf4j.Logger;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Logs errors on a background thread, at most {@code rate} of them per second, so a file full of bad lines
+ * is not slowed down by its log. Errors past the rate are counted without building their message, errors
+ * offered while the queue is full are dropped and counted too, and the count of a second is logged once, by a drain
+ * scheduled for the start of the next second. Stack traces are logged at debug level only.
+ * <p>
+ * The background thread belongs to a single-thread executor: a drain logs what is queued and returns, the thread
+ * goes back to the pool when there is nothing left to log, and it is stopped by {@link #close()}.
+ */
+public class RateLimitedLog implements AutoCloseable {
+    private static final int QUEUE_CAPACITY = 1024;
+    private static final long IDLE_MILLIS = 1000;
+
+    private final Logger log;
+    private final ScheduledExecutorService executor;
+    private final LongSupplier clock;
+    private final BlockingQueue<Entry> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong droppedSecond = new AtomicLong();
+    private final AtomicLong second = new AtomicLong();
+    private final AtomicInteger admitted = new AtomicInteger();
+    private volatile int rate;
+
+    public RateLimitedLog(Logger log) {
+        this(log, newExecutor(), System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock the current time in milliseconds
+     */
+    RateLimitedLog(Logger log, ScheduledExecutorService executor, LongSupplier clock) {
+        this.log = log;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    /**
+     * @param rate errors logged per second, 0 logs all of them
+     */
+    public void setRate(int rate) {
+        this.rate = rate;
+    }
+
+    /**
+     * @param message built only if the error is within the rate
+     */
+    public void error(Supplier<String> message, Throwable cause) {
+        if (!admit() || !queue.offer(new Entry(message.get(), cause))) {
+            droppedSecond.set(clock.getAsLong() / 1000);
+            dropped.incrementAndGet();
+        }
+        if (running.compareAndSet(false, true)) {
+            schedule(0);
+        }
+    }
+
+    /**
+     * Stops the background thread. Errors still queued are logged as a count of errors that were not logged.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        var suppressed = dropped.getAndSet(0) + queue.size();
+        queue.clear();
+        if (suppressed > 0) {
+            log.warn("{} more errors were not logged", suppressed);
+        }
+    }
+
+    private boolean admit() {
+        var limit = rate;
+        if (limit <= 0) {
+            return true;
+        }
+        var now = clock.getAsLong() / 1000;
+        var current = second.get();
+        if (now != current && second.compareAndSet(current, now)) {
+            admitted.set(0);
+        }
+        return admitted.incrementAndGet() <= limit;
+    }
+
+    private void schedule(long delayMillis) {
+        try {
+            if (delayMillis == 0) {
+                executor.execute(this::drain);
+            } else {
+                executor.schedule(this::drain, delayMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Logs the queued errors, and the count of the errors dropped in a second that is over. A count of the current
+     * second waits for a drain at the start of the next one.
+     */
+    private void drain() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            if (entry.cause == null) {
+                log.error(entry.message);
+            } else {
+                log.error("{}: {}", entry.message, entry.cause.toString());
+                log.debug(entry.cause.getMessage(), entry.cause);
+            }
+        }
+
+        var now = clock.getAsLong();
+        if (now / 1000 > droppedSecond.get()) {
+            var suppressed = dropped.getAndSet(0);
+            if (suppressed > 0) {
+                log.warn("{} more errors were not logged", suppressed);
+            }
+        }
+
+        running.set(false);
+        if ((!queue.isEmpty() || dropped.get() > 0) && running.compareAndSet(false, true)) {
+            schedule(queue.isEmpty() ? 1000 - now % 1000 : 0);
+        }
+    }
+
+    private static ScheduledExecutorService newExecutor() {
+        var executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            var thread = new Thread(runnable, "pps-error-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setKeepAliveTime(IDLE_MILLIS, TimeUnit.MILLISECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private record Entry(String message, Throwable cause) {
+    }
+}
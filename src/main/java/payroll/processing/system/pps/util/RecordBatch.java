@@ -0,0 +1,196 @@
+package payroll.processing.system.pps.util;
+
+import payroll.processing.system.pps.domain.Employee;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records stored column by column in primitive arrays instead of one object graph per record.
+ * <p>
+ * Employee ids, names, surnames and designations are dictionary encoded, so a repeated string is kept once
+ * and a row holds its int code, or -1 for null. The value column holds the epoch day of onboard and exit dates
+ * and the unscaled amount of payments, whose scale is kept in a byte. Amounts that do not fit are kept aside.
+ * Dates are epoch days.
+ */
+public class RecordBatch {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int NONE = -1;
+    private static final EventType[] TYPES = EventType.values();
+
+    private final StringDictionary ids = new StringDictionary();
+    private final StringDictionary names = new StringDictionary();
+    private final StringDictionary designations = new StringDictionary();
+    private final Map<Integer, BigDecimal> largeAmounts = new HashMap<>();
+
+    private long[] sequenceNos = new long[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] employees = new int[INITIAL_CAPACITY];
+    private int[] employeeNames = new int[INITIAL_CAPACITY];
+    private int[] employeeSurnames = new int[INITIAL_CAPACITY];
+    private int[] employeeDesignations = new int[INITIAL_CAPACITY];
+    private long[] values = new long[INITIAL_CAPACITY];
+    private byte[] scales = new byte[INITIAL_CAPACITY];
+    private int[] days = new int[INITIAL_CAPACITY];
+    private String[] notes = new String[INITIAL_CAPACITY];
+    private int size;
+
+    public void add(Record<?> record) {
+        var employee = record.getEmployee();
+        if (record.getValue() instanceof LocalDate value) {
+            var row = add(record.getSequenceNo(), record.getType(), employee.getId(), record.getDate(), record.getNote());
+            employeeNames[row] = encode(names, employee.getName());
+            employeeSurnames[row] = encode(names, employee.getSurname());
+            employeeDesignations[row] = encode(designations, employee.getDesignation());
+            values[row] = value.toEpochDay();
+        } else {
+            addPayment(record.getSequenceNo(), employee.getId(), record.getType(), (BigDecimal) record.getValue(),
+                    record.getDate(), record.getNote());
+        }
+    }
+
+    /**
+     * Adds the fields of an onboard line as a row, without building its record.
+     */
+    public void addOnboard(long sequenceNo, String employeeId, String name, String surname, String designation,
+                           LocalDate onboardDate, LocalDate date, String note) {
+        var row = add(sequenceNo, EventType.ONBOARD, employeeId, date, note);
+        employeeNames[row] = encode(names, name);
+        employeeSurnames[row] = encode(names, surname);
+        employeeDesignations[row] = encode(designations, designation);
+        values[row] = onboardDate.toEpochDay();
+    }
+
+    /**
+     * Adds the fields of an exit line as a row, without building its record.
+     */
+    public void addExit(long sequenceNo, String employeeId, LocalDate exitDate, LocalDate date, String note) {
+        var row = add(sequenceNo, EventType.EXIT, employeeId, date, note);
+        values[row] = exitDate.toEpochDay();
+    }
+
+    /**
+     * Adds the fields of a payment line as a row, without building its record.
+     */
+    public void addPayment(long sequenceNo, String employeeId, EventType type, BigDecimal amount, LocalDate date, String note) {
+        var row = add(sequenceNo, type, employeeId, date, note);
+        if (amount.unscaledValue().bitLength() < Long.SIZE && amount.scale() == (byte) amount.scale()) {
+            values[row] = amount.unscaledValue().longValue();
+            scales[row] = (byte) amount.scale();
+        } else {
+            largeAmounts.put(row, amount);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public EventType type(int row) {
+        return TYPES[types[row]];
+    }
+
+    public long sequenceNo(int row) {
+        return sequenceNos[row];
+    }
+
+    public String employeeId(int row) {
+        return ids.decode(employees[row]);
+    }
+
+    public LocalDate date(int row) {
+        return LocalDate.ofEpochDay(days[row]);
+    }
+
+    /**
+     * @return the value of an onboard or exit row
+     */
+    public LocalDate dateValue(int row) {
+        return LocalDate.ofEpochDay(values[row]);
+    }
+
+    /**
+     * @return the value of a payment row
+     */
+    public BigDecimal amount(int row) {
+        var large = largeAmounts.isEmpty() ? null : largeAmounts.get(row);
+        return large != null ? large : BigDecimal.valueOf(values[row], scales[row]);
+    }
+
+    /**
+     * Adds the amount of a payment row without building it.
+     */
+    public void addAmount(int row, MoneyAccumulator accumulator) {
+        var large = largeAmounts.isEmpty() ? null : largeAmounts.get(row);
+        if (large != null) {
+            accumulator.add(large);
+        } else {
+            accumulator.add(values[row], scales[row]);
+        }
+    }
+
+    /**
+     * Builds the record of a row, for the few rows that are needed as records.
+     */
+    public Record<?> get(int row) {
+        var type = type(row);
+        return Record.builder()
+                .SequenceNo(sequenceNos[row])
+                .employee(Employee.builder()
+                        .id(employeeId(row))
+                        .name(decode(names, employeeNames[row]))
+                        .surname(decode(names, employeeSurnames[row]))
+                        .designation(decode(designations, employeeDesignations[row])).build())
+                .type(type)
+                .value(type == EventType.ONBOARD || type == EventType.EXIT ? dateValue(row) : amount(row))
+                .date(date(row))
+                .note(notes[row]).build();
+    }
+
+    /**
+     * Adds a row with the columns every line has, the employee names are empty.
+     */
+    private int add(long sequenceNo, EventType type, String employeeId, LocalDate date, String note) {
+        if (size == types.length) {
+            grow();
+        }
+
+        var row = size++;
+        sequenceNos[row] = sequenceNo;
+        types[row] = (byte) type.ordinal();
+        employees[row] = ids.encode(employeeId);
+        employeeNames[row] = NONE;
+        employeeSurnames[row] = NONE;
+        employeeDesignations[row] = NONE;
+        days[row] = (int) date.toEpochDay();
+        notes[row] = note;
+        return row;
+    }
+
+    private void grow() {
+        var capacity = types.length * 2;
+        sequenceNos = Arrays.copyOf(sequenceNos, capacity);
+        types = Arrays.copyOf(types, capacity);
+        employees = Arrays.copyOf(employees, capacity);
+        employeeNames = Arrays.copyOf(employeeNames, capacity);
+        employeeSurnames = Arrays.copyOf(employeeSurnames, capacity);
+        employeeDesignations = Arrays.copyOf(employeeDesignations, capacity);
+        values = Arrays.copyOf(values, capacity);
+        scales = Arrays.copyOf(scales, capacity);
+        days = Arrays.copyOf(days, capacity);
+        notes = Arrays.copyOf(notes, capacity);
+    }
+
+    private static int encode(StringDictionary dictionary, String value) {
+        return value == null ? NONE : dictionary.encode(value);
+    }
+
+    private static String decode(StringDictionary dictionary, int code) {
+        return code == NONE ? null : dictionary.decode(code);
+    }
+}
@@ -0,0 +1,160 @@
+package payroll.processing.system.pps.util;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded ring of preallocated entries passed through a fixed chain of stages, in the style of the LMAX Disruptor.
+ * <p>
+ * One producer claims, fills and publishes entries. Every stage handles the entries in sequence once the stage
+ * before it released them, and the producer reuses an entry only after the last stage released it.
+ * A full ring blocks the producer and an empty one blocks the stages. Waiting spins briefly and then parks
+ * as a managed blocker, so stages running on a {@link ForkJoinPool} do not starve each other.
+ */
+public class RingBuffer<E> {
+    private static final int SPINS = 200;
+    private static final long PARK_NANOS = 50_000;
+
+    private final Object[] entries;
+    private final int mask;
+    private final AtomicLong published = new AtomicLong(-1);
+    private final AtomicLong[] cursors;
+    private long claimed = -1;
+    private long cachedReleased = -1;
+    private volatile boolean closed;
+    private volatile int finishedStages;
+    private volatile Throwable failure;
+
+    public RingBuffer(int capacity, Supplier<E> factory, int stages) {
+        var size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        entries = new Object[size];
+        for (int i = 0; i < size; i++) {
+            entries[i] = factory.get();
+        }
+        mask = size - 1;
+        cursors = new AtomicLong[stages];
+        for (int i = 0; i < stages; i++) {
+            cursors[i] = new AtomicLong(-1);
+        }
+    }
+
+    public int capacity() {
+        return entries.length;
+    }
+
+    /**
+     * Returns the next entry to fill, waits while the last stage still holds it. Only the producer calls this.
+     */
+    @SuppressWarnings("unchecked")
+    public E claim() {
+        var wrap = claimed + 1 - entries.length;
+        if (wrap > cachedReleased) {
+            var last = cursors[cursors.length - 1];
+            await(() -> wrap <= last.get());
+            cachedReleased = last.get();
+        }
+        claimed++;
+        return (E) entries[(int) (claimed & mask)];
+    }
+
+    /**
+     * Hands the claimed entry to the first stage.
+     */
+    public void publish() {
+        published.lazySet(claimed);
+    }
+
+    /**
+     * The producer publishes nothing after this call, the stages return once they handled everything.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Stops the producer and every stage, they throw an {@link IllegalStateException} caused by the failure.
+     */
+    public void halt(Throwable failure) {
+        this.failure = failure;
+    }
+
+    /**
+     * Runs a stage on the calling thread until the ring is closed and drained. Every stage is run by one thread.
+     * Entries are handled in batches of everything available, the stage releases a batch when it is done with it.
+     */
+    @SuppressWarnings("unchecked")
+    public void consume(int stage, Consumer<E> handler) {
+        var gate = stage == 0 ? published : cursors[stage - 1];
+        var cursor = cursors[stage];
+        var next = cursor.get() + 1;
+
+        try {
+            while (true) {
+                var gateClosed = stage == 0 ? closed : finishedStages >= stage;
+                var available = gate.get();
+                if (available < next) {
+                    if (gateClosed) {
+                        break;
+                    }
+                    var sequence = next;
+                    await(() -> gate.get() >= sequence || (stage == 0 ? closed : finishedStages >= stage));
+                    continue;
+                }
+
+                for (var sequence = next; sequence <= available; sequence++) {
+                    handler.accept((E) entries[(int) (sequence & mask)]);
+                }
+                cursor.lazySet(available);
+                next = available + 1;
+            }
+        } catch (RuntimeException | Error e) {
+            if (failure == null) {
+                halt(e);
+            }
+            throw e;
+        }
+        finishedStages = stage + 1;
+    }
+
+    private void await(BooleanSupplier ready) {
+        for (int spins = 0; spins < SPINS; spins++) {
+            checkFailure();
+            if (ready.getAsBoolean()) {
+                return;
+            }
+            Thread.onSpinWait();
+        }
+
+        try {
+            ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                @Override
+                public boolean block() {
+                    while (!isReleasable()) {
+                        LockSupport.parkNanos(PARK_NANOS);
+                    }
+                    return true;
+                }
+
+                @Override
+                public boolean isReleasable() {
+                    return failure != null || ready.getAsBoolean();
+                }
+            });
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the ring buffer", e);
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        var failure = this.failure;
+        if (failure != null) {
+            throw new IllegalStateException("Ring buffer halted", failure);
+        }
+    }
+}
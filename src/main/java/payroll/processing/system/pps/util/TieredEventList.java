@@ -0,0 +1,254 @@
+package payroll.processing.system.pps.util;
+
+import payroll.processing.system.pps.domain.report.EventReport;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Year;
+import java.util.AbstractSequentialList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Events of one year, appended on the heap and spilled to a file of the {@link EventTiers} of the report when
+ * the report is over its budget. The spilled events come first and are read from memory mapped spills while
+ * the list is iterated, so a response streams a cold year without loading it.
+ * <p>
+ * The list only grows at its end, must not be modified while it is iterated, and its iterators only go forward.
+ * Access by index to a spilled event starts at the checkpoint kept for every {@value #CHECKPOINT_EVENTS} spilled
+ * events, so it reads fewer than that many events before it. A list that is not modified any more can be read by several
+ * threads at once. The file is deleted when the list is unreachable.
+ */
+public class TieredEventList extends AbstractSequentialList<EventReport<?>> {
+    private static final Cleaner CLEANER = Cleaner.create();
+    private static final int CHECKPOINT_EVENTS = 64;
+
+    private final EventTiers tiers;
+    private final Year year;
+    private final List<EventReport<?>> heap = new ArrayList<>();
+    private final List<Spill> spills = new ArrayList<>();
+    private int spilled;
+    private long[] checkpoints = new long[16];
+    private Path file;
+    private long fileSize;
+
+    TieredEventList(EventTiers tiers, Year year) {
+        this.tiers = tiers;
+        this.year = year;
+    }
+
+    public Year getYear() {
+        return year;
+    }
+
+    @Override
+    public int size() {
+        return spilled + heap.size();
+    }
+
+    @Override
+    public boolean add(EventReport<?> event) {
+        heap.add(event);
+        tiers.added();
+        return true;
+    }
+
+    @Override
+    public EventReport<?> get(int index) {
+        if (index >= spilled && index < size()) {
+            return heap.get(index - spilled);
+        }
+        return super.get(index);
+    }
+
+    @Override
+    public ListIterator<EventReport<?>> listIterator(int index) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return new Iterator(index);
+    }
+
+    /**
+     * Appends the events on the heap to the file as one spill.
+     *
+     * @return the number of spilled events
+     */
+    int spill(Path directory) {
+        if (heap.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            if (file == null) {
+                file = Files.createTempFile(directory, "events-" + year + "-", ".spill");
+                CLEANER.register(this, new Deleter(file));
+            }
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file, StandardOpenOption.APPEND), 64 * 1024))) {
+                var ordinal = spilled;
+                for (EventReport<?> event : heap) {
+                    if (ordinal % CHECKPOINT_EVENTS == 0) {
+                        checkpoint(ordinal / CHECKPOINT_EVENTS, fileSize + out.size());
+                    }
+                    PartialReportCodec.writeEvent(event, out);
+                    ordinal++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Events of " + year + " cannot be spilled", e);
+        }
+
+        var count = heap.size();
+        var size = file.toFile().length();
+        spills.add(new Spill(spilled, fileSize, size - fileSize, count));
+        fileSize = size;
+        spilled += count;
+        heap.clear();
+        return count;
+    }
+
+    private void checkpoint(int checkpoint, long offset) {
+        if (checkpoint == checkpoints.length) {
+            checkpoints = Arrays.copyOf(checkpoints, checkpoints.length * 2);
+        }
+        checkpoints[checkpoint] = offset;
+    }
+
+    /**
+     * Events {@code first} to {@code first + count} of the list, at {@code offset} of the file.
+     */
+    private record Spill(int first, long offset, long length, int count) {
+
+        long end() {
+            return offset + length;
+        }
+    }
+
+    private record Deleter(Path file) implements Runnable {
+
+        @Override
+        public void run() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+                // a temporary file, the system cleans it up eventually
+            }
+        }
+    }
+
+    /**
+     * Reads the spills one after the other, then the events on the heap. An iterator that starts within a spill
+     * maps it from the checkpoint before its first event.
+     */
+    private class Iterator implements ListIterator<EventReport<?>> {
+        private int index;
+        private int spill;
+        private int remaining;
+        private DataInputStream in;
+
+        Iterator(int start) {
+            if (start >= spilled) {
+                index = start;
+                spill = spills.size();
+                return;
+            }
+
+            while (spills.get(spill).first() + spills.get(spill).count() <= start) {
+                spill++;
+            }
+            var current = spills.get(spill++);
+            var checkpoint = start / CHECKPOINT_EVENTS * CHECKPOINT_EVENTS;
+            var first = Math.max(checkpoint, current.first());
+            var offset = first == checkpoint ? checkpoints[checkpoint / CHECKPOINT_EVENTS] : current.offset();
+            in = map(offset, current.end() - offset);
+            remaining = current.first() + current.count() - first;
+            index = first;
+            while (index < start) {
+                next();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return index < size();
+        }
+
+        @Override
+        public EventReport<?> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (index >= spilled) {
+                return heap.get(index++ - spilled);
+            }
+
+            try {
+                while (remaining == 0) {
+                    var next = spills.get(spill++);
+                    in = map(next.offset(), next.length());
+                    remaining = next.count();
+                }
+                remaining--;
+                index++;
+                return PartialReportCodec.readEvent(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Spilled events of " + year + " cannot be read", e);
+            }
+        }
+
+        private DataInputStream map(long offset, long length) {
+            try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                return new DataInputStream(new ByteBufferInputStream(
+                        channel.map(FileChannel.MapMode.READ_ONLY, offset, length)));
+            } catch (IOException e) {
+                throw new UncheckedIOException("Spilled events of " + year + " cannot be read", e);
+            }
+        }
+
+        @Override
+        public int nextIndex() {
+            return index;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return false;
+        }
+
+        @Override
+        public EventReport<?> previous() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int previousIndex() {
+            return index - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void set(EventReport<?> event) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void add(EventReport<?> event) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
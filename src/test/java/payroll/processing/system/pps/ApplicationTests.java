@@ -1,13 +1,28 @@
 package payroll.processing.system.pps;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import static org.assertj.core.api.Assertions.*;
 
 @SpringBootTest
 class ApplicationTests {
 
+	@Autowired
+	ApplicationContext context;
+
 	@Test
 	void contextLoads() {
 	}
 
+	@Test
+	void applicationTaskExecutor_Should_Exist_Next_To_The_Processing_Pools() {
+		assertThat(context.getBean(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME))
+				.isInstanceOf(AsyncTaskExecutor.class);
+	}
+
 }
@@ -0,0 +1,124 @@
+package payroll.processing.system.pps.controller;
+
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import payroll.processing.system.pps.domain.enumaration.ProcessingMode;
+import payroll.processing.system.pps.service.AdmissionService;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AdmissionFilterTest {
+    private AdmissionService admissionService;
+    private AdmissionFilter admissionFilter;
+
+    @BeforeEach
+    public void setUp() {
+        admissionService = new AdmissionService();
+        ReflectionTestUtils.setField(admissionService, "budget", "100KB");
+        ReflectionTestUtils.setField(admissionService, "heapPerUploadByte", 10);
+        ReflectionTestUtils.setField(admissionService, "streamingHeapPerUploadByte", 2);
+        ReflectionTestUtils.setField(admissionService, "mode", ProcessingMode.MATERIALIZED);
+        ReflectionTestUtils.setField(admissionService, "maxWait", Duration.ofSeconds(10));
+        admissionService.init();
+
+        admissionFilter = new AdmissionFilter(admissionService);
+        ReflectionTestUtils.setField(admissionFilter, "maxWait", Duration.ofSeconds(10));
+        ReflectionTestUtils.setField(admissionFilter, "retryAfter", Duration.ofSeconds(30));
+    }
+
+    @Test
+    public void test_doFilter_Should_Keep_Reservation_Until_Streamed_Response_Completes() throws Exception {
+        var request = upload(6 * 1024);
+        var chain = new MockFilterChain() {
+            @Override
+            public void doFilter(ServletRequest request, ServletResponse response) {
+                assertThat(request.getAttribute(AdmissionFilter.RESERVATION)).isNotNull();
+                request.startAsync();
+            }
+        };
+
+        admissionFilter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(admissionService.getAdmissions().getReservedBytes()).isEqualTo(60 * 1024);
+        ((MockAsyncContext) request.getAsyncContext()).complete();
+        assertThat(admissionService.getAdmissions().getReservedBytes()).isZero();
+    }
+
+    @Test
+    public void test_doFilter_Should_Wait_Without_Thread_And_Dispatch_When_Admitted() throws Exception {
+        var held = admissionService.reserve(-1).join().orElseThrow();
+        var request = upload(10);
+        var chain = new MockFilterChain();
+
+        admissionFilter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(request.isAsyncStarted()).isTrue();
+        assertThat(chain.getRequest()).isNull();
+        assertThat(admissionService.getAdmissions().getQueuedUploads()).isEqualTo(1);
+
+        admissionService.release(held);
+        var async = (MockAsyncContext) request.getAsyncContext();
+
+        assertThat(async.getDispatchedPath()).isNotNull();
+        assertThat(request.getAttribute(AdmissionFilter.RESERVATION)).isNotNull();
+        async.complete();
+        assertThat(admissionService.getAdmissions().getReservedBytes()).isZero();
+    }
+
+    @Test
+    public void test_doFilter_Should_Reject_With_Retry_After_When_Wait_Is_Over() throws Exception {
+        ReflectionTestUtils.setField(admissionService, "maxWait", Duration.ofMillis(50));
+        var held = admissionService.reserve(-1).join().orElseThrow();
+        var request = upload(10);
+        var response = new MockHttpServletResponse();
+
+        admissionFilter.doFilter(request, response, new MockFilterChain());
+        var completed = new CountDownLatch(1);
+        request.getAsyncContext().addListener(new AsyncListener() {
+            @Override
+            public void onComplete(AsyncEvent event) {
+                completed.countDown();
+            }
+
+            @Override
+            public void onTimeout(AsyncEvent event) {
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+
+        assertThat(completed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("30");
+        assertThat(admissionService.getAdmissions().getQueuedUploads()).isZero();
+        admissionService.release(held);
+    }
+
+    private static MockHttpServletRequest upload(int size) {
+        var request = new MockHttpServletRequest("POST", "/pps/api/v1/reports");
+        request.setContextPath("/pps");
+        request.setAsyncSupported(true);
+        request.setContent(new byte[size]);
+        return request;
+    }
+}
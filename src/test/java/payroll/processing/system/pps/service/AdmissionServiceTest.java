@@ -0,0 +1,73 @@
+package payroll.processing.system.pps.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import payroll.processing.system.pps.domain.enumaration.ProcessingMode;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class AdmissionServiceTest {
+    private AdmissionService admissionService;
+
+    @BeforeEach
+    public void setUp() {
+        admissionService = new AdmissionService();
+        ReflectionTestUtils.setField(admissionService, "budget", "100KB");
+        ReflectionTestUtils.setField(admissionService, "heapPerUploadByte", 10);
+        ReflectionTestUtils.setField(admissionService, "streamingHeapPerUploadByte", 2);
+        ReflectionTestUtils.setField(admissionService, "mode", ProcessingMode.MATERIALIZED);
+        ReflectionTestUtils.setField(admissionService, "maxWait", Duration.ofMillis(50));
+        admissionService.init();
+    }
+
+    @Test
+    public void test_reserve_Should_Reject_Uploads_Over_The_Budget_Until_Reservations_Are_Released() {
+        var first = admissionService.reserve(6 * 1024).join().orElseThrow();
+
+        assertThat(first.getReservedBytes()).isEqualTo(60 * 1024);
+        assertThat(admissionService.reserve(6 * 1024).join()).isEmpty();
+
+        admissionService.release(first);
+        var second = admissionService.reserve(6 * 1024).join();
+
+        assertThat(second).isPresent();
+        var admissions = admissionService.getAdmissions();
+        assertThat(admissions.getReservedBytes()).isEqualTo(60 * 1024);
+        assertThat(admissions.getReservations()).hasSize(1);
+        assertThat(admissions.getQueuedUploads()).isZero();
+    }
+
+    @Test
+    public void test_reserve_Should_Estimate_Less_Heap_For_Streaming_Modes() {
+        ReflectionTestUtils.setField(admissionService, "mode", ProcessingMode.STREAMING);
+
+        var reservation = admissionService.reserve(6 * 1024).join().orElseThrow();
+
+        assertThat(reservation.getReservedBytes()).isEqualTo(12 * 1024);
+    }
+
+    @Test
+    public void test_reserve_Should_Reserve_Whole_Budget_For_Uploads_Larger_Than_It() {
+        var large = admissionService.reserve(1024 * 1024).join().orElseThrow();
+
+        assertThat(large.getReservedBytes()).isEqualTo(100 * 1024);
+
+        ReflectionTestUtils.setField(admissionService, "maxWait", Duration.ofSeconds(10));
+        var waiting = admissionService.reserve(10);
+
+        assertThat(waiting).isNotDone();
+        assertThat(admissionService.getAdmissions().getQueuedUploads()).isEqualTo(1);
+
+        admissionService.release(large);
+
+        assertThat(waiting).isCompleted();
+        var small = waiting.join();
+        assertThat(small).isPresent();
+        assertThat(admissionService.getAdmissions().getQueuedUploads()).isZero();
+        admissionService.release(small.get());
+        assertThat(admissionService.getAdmissions().getReservedBytes()).isZero();
+    }
+}
@@ -0,0 +1,252 @@
+package payroll.processing.system.pps.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import payroll.processing.system.pps.domain.Employee;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class EventLogTest {
+    @TempDir
+    Path directory;
+
+    private EventLog eventLog;
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        eventLog.close();
+    }
+
+    @Test
+    public void test_replay_Should_Return_Appended_Records_In_Order() {
+        eventLog = eventLog(DataSize.ofMegabytes(1));
+        var first = List.of(onboard(1, "emp101"), salary(2, "emp101", "3000.50"));
+        var second = List.<Record<?>>of(salary(3, "emp101", "100"));
+
+        eventLog.append("first", block(first));
+        eventLog.append("second", block(second));
+        var entries = replay(eventLog);
+
+        assertThat(entries).extracting(EventLog.Entry::source).containsExactly("first", "second");
+        assertThat(entries.get(0).records()).isEqualTo(first);
+        assertThat(entries.get(1).records()).isEqualTo(second);
+    }
+
+    @Test
+    public void test_init_Should_Cut_Torn_Tail_And_Keep_Appending() throws IOException {
+        eventLog = eventLog(DataSize.ofMegabytes(1));
+        eventLog.append("first", block(List.of(onboard(1, "emp101"))));
+        eventLog.close();
+        var segment = segments().get(0);
+        Files.write(segment, new byte[] {0, 0, 1, 0, 42, 42}, StandardOpenOption.APPEND);
+
+        eventLog = eventLog(DataSize.ofMegabytes(1));
+        eventLog.append("second", block(List.of(onboard(2, "emp102"))));
+
+        assertThat(replay(eventLog)).extracting(EventLog.Entry::source).containsExactly("first", "second");
+    }
+
+    @Test
+    public void test_init_Should_Skip_Damaged_Block_In_The_Middle_And_Keep_The_Blocks_After_It() throws IOException {
+        eventLog = eventLog(DataSize.ofMegabytes(1));
+        eventLog.append("first", block(List.of(onboard(1, "emp101"))));
+        eventLog.append("second", block(List.of(onboard(2, "emp102"))));
+        eventLog.append("third", block(List.of(onboard(3, "emp103"))));
+        eventLog.close();
+        damageBlock(segments().get(0), 1);
+
+        eventLog = eventLog(DataSize.ofMegabytes(1));
+        eventLog.append("fourth", block(List.of(onboard(4, "emp104"))));
+
+        assertThat(replay(eventLog)).extracting(EventLog.Entry::source).containsExactly("first", "third", "fourth");
+    }
+
+    @Test
+    public void test_init_Should_Fail_When_Damaged_Block_Precedes_Torn_Tail() throws IOException {
+        eventLog = eventLog(DataSize.ofMegabytes(1));
+        eventLog.append("first", block(List.of(onboard(1, "emp101"))));
+        eventLog.append("second", block(List.of(onboard(2, "emp102"))));
+        eventLog.close();
+        var segment = segments().get(0);
+        damageBlock(segment, 0);
+        Files.write(segment, new byte[] {0, 0, 1, 0, 42, 42}, StandardOpenOption.APPEND);
+        var size = Files.size(segment);
+
+        assertThatThrownBy(() -> eventLog(DataSize.ofMegabytes(1))).isInstanceOf(IllegalStateException.class);
+        assertThat(Files.size(segment)).isEqualTo(size);
+    }
+
+    @Test
+    public void test_maintain_Should_Compact_Closed_Segments_And_Delete_Expired_Ones() throws IOException {
+        eventLog = eventLog(DataSize.ofBytes(100));
+        for (int i = 0; i < 6; i++) {
+            eventLog.append("upload" + i, block(List.of(onboard(i, "emp" + i))));
+        }
+        assertThat(segments()).hasSize(6);
+
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofMegabytes(1));
+        eventLog.maintain();
+
+        assertThat(segments()).hasSize(2);
+        assertThat(replay(eventLog)).extracting(EventLog.Entry::source)
+                .containsExactly("upload0", "upload1", "upload2", "upload3", "upload4", "upload5");
+
+        ReflectionTestUtils.setField(eventLog, "retention", Duration.ofDays(1));
+        var expired = segments().get(0);
+        Files.setLastModifiedTime(expired, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        eventLog.maintain();
+
+        assertThat(expired).doesNotExist();
+        assertThat(replay(eventLog)).extracting(EventLog.Entry::source).contains("upload5").doesNotContain("upload0");
+    }
+
+    @Test
+    public void test_maintain_Should_Not_Delete_Expired_Segments_Of_A_Checkpoint() throws IOException {
+        eventLog = eventLog(DataSize.ofBytes(100));
+        eventLog.append("first", block(List.of(onboard(1, "emp101"))));
+        var position = eventLog.checkpoint();
+        eventLog.append("second", block(List.of(onboard(2, "emp102"))));
+        eventLog.append("third", block(List.of(onboard(3, "emp103"))));
+        for (Path segment : segments()) {
+            Files.setLastModifiedTime(segment, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+        }
+
+        ReflectionTestUtils.setField(eventLog, "retention", Duration.ofDays(1));
+        eventLog.maintain();
+
+        var replayed = new ArrayList<String>();
+        eventLog.replay(position, entry -> replayed.add(entry.source()));
+        assertThat(replayed).containsExactly("second", "third");
+    }
+
+    @Test
+    public void test_maintain_Should_Drop_Superseded_Blocks() throws IOException {
+        eventLog = eventLog(DataSize.ofBytes(100));
+        eventLog.append("a", block(List.of(onboard(1, "emp101"))));
+        eventLog.append(null, block(List.of(onboard(5, "emp105"))));
+        eventLog.append("b", block(List.of(onboard(2, "emp102"))));
+        eventLog.append("a", block(List.of(onboard(3, "emp103"))));
+        eventLog.retract("b");
+        eventLog.append(null, block(List.of(onboard(6, "emp106"))));
+        eventLog.append("c", block(List.of(onboard(4, "emp104"))));
+
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofMegabytes(1));
+        eventLog.maintain();
+        var entries = replay(eventLog);
+
+        assertThat(entries).extracting(EventLog.Entry::source).containsExactly(null, "a", "b", null, "c");
+        assertThat(entries.get(0).records()).extracting(Record::getSequenceNo).containsExactly(5L);
+        assertThat(entries.get(1).records()).extracting(Record::getSequenceNo).containsExactly(3L);
+        assertThat(entries.get(2).isRetraction()).isTrue();
+    }
+
+    @Test
+    public void test_maintain_Should_Keep_Superseded_Blocks_That_Kept_Blocks_Resolved_Against() throws IOException {
+        eventLog = eventLog(DataSize.ofBytes(100));
+        eventLog.append("a", block(List.of(onboard(1, "emp101"))));
+        eventLog.append("b", block(List.of(onboard(2, "emp102"))));
+        eventLog.append("c", block(List.of(salary(3, "emp101", "3000"))));
+        eventLog.append("a", block(List.of(onboard(4, "emp101"))));
+        eventLog.append("b", block(List.of(onboard(5, "emp102"))));
+        eventLog.append(null, block(List.of(onboard(6, "emp106"))));
+
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofMegabytes(1));
+        eventLog.maintain();
+
+        assertThat(replay(eventLog)).extracting(entry -> entry.records().get(0).getSequenceNo())
+                .containsExactly(1L, 3L, 4L, 5L, 6L);
+    }
+
+    @Test
+    public void test_replay_Should_Fail_When_Segment_Of_Position_Is_Released() {
+        eventLog = eventLog(DataSize.ofBytes(100));
+        eventLog.append("first", block(List.of(onboard(1, "emp101"))));
+        var position = eventLog.checkpoint();
+        eventLog.append("second", block(List.of(onboard(2, "emp102"))));
+        eventLog.append("third", block(List.of(onboard(3, "emp103"))));
+        eventLog.release(eventLog.checkpoint());
+
+        assertThatThrownBy(() -> eventLog.replay(position, entry -> {
+        })).isInstanceOf(IllegalStateException.class);
+    }
+
+    private EventLog eventLog(DataSize segmentSize) {
+        var eventLog = new EventLog();
+        ReflectionTestUtils.setField(eventLog, "dir", directory.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentSize", segmentSize);
+        ReflectionTestUtils.setField(eventLog, "retention", Duration.ZERO);
+        eventLog.init();
+        return eventLog;
+    }
+
+    private List<Path> segments() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    /**
+     * Flips a payload byte of the block with the index, counted from 0.
+     */
+    private static void damageBlock(Path segment, int index) throws IOException {
+        var bytes = Files.readAllBytes(segment);
+        var buffer = ByteBuffer.wrap(bytes);
+        var start = 8;
+        for (int i = 0; i < index; i++) {
+            start += 8 + buffer.getInt(start);
+        }
+        bytes[start + 8] ^= 0x7F;
+        Files.write(segment, bytes);
+    }
+
+    private static List<EventLog.Entry> replay(EventLog eventLog) {
+        var entries = new ArrayList<EventLog.Entry>();
+        eventLog.replay(entries::add);
+        return entries;
+    }
+
+    private static EventLog.Block block(List<Record<?>> records) {
+        var block = new EventLog.Block();
+        records.forEach(block::add);
+        return block;
+    }
+
+    private static Record<?> onboard(long sequenceNo, String id) {
+        return Record.builder()
+                .SequenceNo(sequenceNo)
+                .employee(Employee.builder().id(id).name("Bill").surname("Gates").designation("Architect").build())
+                .type(EventType.ONBOARD)
+                .value(LocalDate.of(2022, 10, 1))
+                .date(LocalDate.of(2022, 9, 20))
+                .note("“Joined.”")
+                .build();
+    }
+
+    private static Record<?> salary(long sequenceNo, String id, String amount) {
+        return Record.builder()
+                .SequenceNo(sequenceNo)
+                .employee(Employee.builder().id(id).build())
+                .type(EventType.SALARY)
+                .value(new BigDecimal(amount))
+                .date(LocalDate.of(2022, 10, 10))
+                .build();
+    }
+}
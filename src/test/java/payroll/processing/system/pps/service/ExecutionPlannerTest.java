@@ -0,0 +1,76 @@
+package payroll.processing.system.pps.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.enumaration.ExecutionPlan;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ExecutionPlannerTest {
+    private static final String CONTENT_TYPE = "text/csv";
+
+    private ForkJoinPool executor;
+    private ExecutionPlanner executionPlanner;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new ForkJoinPool(4);
+        var builder = new BuilderService();
+        executionPlanner = new ExecutionPlanner(new RecordService(new FileService(), builder), new ReportService(), builder, executor);
+        ReflectionTestUtils.setField(executionPlanner, "inlineMaxSize", "1KB");
+        ReflectionTestUtils.setField(executionPlanner, "chunkMinSize", "4KB");
+        executionPlanner.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void test_plan_Should_Run_Small_Uploads_Inline() {
+        assertThat(executionPlanner.plan(files(100, 200))).isEqualTo(ExecutionPlan.INLINE);
+        assertThat(executionPlanner.plan(files(2000))).isEqualTo(ExecutionPlan.INLINE);
+    }
+
+    @Test
+    public void test_plan_Should_Run_Files_In_Parallel() {
+        assertThat(executionPlanner.plan(files(600, 600))).isEqualTo(ExecutionPlan.PER_FILE);
+        assertThat(executionPlanner.plan(files(5000, 5000, 5000, 5000))).isEqualTo(ExecutionPlan.PER_FILE);
+    }
+
+    @Test
+    public void test_plan_Should_Chunk_A_Few_Large_Files() {
+        assertThat(executionPlanner.plan(files(5000))).isEqualTo(ExecutionPlan.CHUNK);
+        assertThat(executionPlanner.plan(files(100, 5000))).isEqualTo(ExecutionPlan.CHUNK);
+    }
+
+    @Test
+    public void test_plan_Should_Calibrate_Blank_Thresholds_Once() {
+        var builder = new BuilderService();
+        executionPlanner = new ExecutionPlanner(new RecordService(new FileService(), builder), new ReportService(), builder, executor);
+        ReflectionTestUtils.setField(executionPlanner, "inlineMaxSize", "");
+        ReflectionTestUtils.setField(executionPlanner, "chunkMinSize", "4KB");
+        executionPlanner.init();
+        assertThat((long) ReflectionTestUtils.getField(executionPlanner, "inlineMaxBytes")).isZero();
+
+        executionPlanner.plan(files(100));
+
+        assertThat((long) ReflectionTestUtils.getField(executionPlanner, "inlineMaxBytes")).isPositive();
+        assertThat((long) ReflectionTestUtils.getField(executionPlanner, "chunkMinBytes")).isEqualTo(4096L);
+    }
+
+    private MultipartFile[] files(int... sizes) {
+        var files = new MultipartFile[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            files[i] = new MockMultipartFile("files", "file" + i + ".csv", CONTENT_TYPE, new byte[sizes[i]]);
+        }
+        return files;
+    }
+}
@@ -3,16 +3,24 @@ package payroll.processing.system.pps.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import static org.assertj.core.api.Assertions.*;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.FileChunk;
+import payroll.processing.system.pps.domain.LocalFile;
+import payroll.processing.system.pps.util.ColumnFilter;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
 
 @ExtendWith(MockitoExtension.class)
 public class FileServiceTest {
@@ -55,6 +63,20 @@ public class FileServiceTest {
         assertThat(response.getLines().get(0).length).isEqualTo(9);
         assertThat(response.getLines().get(3).length).isEqualTo(6);
         assertThat(response.getErrors().size()).isEqualTo(0);
+        assertThat(response.getFileNames()).containsExactly(ORIGINAL_FILE_NAME);
+        assertThat(response.getLineCounts()).containsExactly(4L);
+    }
+
+    @Test
+    public void test_StreamFiles_Should_Number_Lines_In_Every_File() {
+        var positions = new ArrayList<String>();
+
+        var errors = fileService.streamFiles(new MultipartFile[] {file, file}, ColumnFilter.NONE,
+                (line, fileName, lineNumber) -> positions.add(fileName + ":" + lineNumber));
+
+        assertThat(positions).containsExactly("event.csv:1", "event.csv:2", "event.csv:3", "event.csv:4",
+                "event.csv:1", "event.csv:2", "event.csv:3", "event.csv:4");
+        assertThat(errors).isEmpty();
     }
 
     @Test
@@ -74,4 +96,53 @@ public class FileServiceTest {
         assertThat(response.getErrors().size()).isEqualTo(1);
     }
 
+    @Test
+    public void test_StreamFiles_Should_Pass_4_lines_To_Consumer() {
+        var lines = new ArrayList<String []>();
+
+        var errors = fileService.streamFiles(files, lines::add);
+
+        assertThat(lines.size()).isEqualTo(4);
+        assertThat(lines.get(0).length).isEqualTo(9);
+        assertThat(lines.get(3).length).isEqualTo(6);
+        assertThat(errors.size()).isEqualTo(0);
+    }
+
+    @Test
+    public void test_mapFiles_Should_Split_At_Line_Breaks_And_Stream_4_lines(@TempDir Path directory) throws IOException {
+        var copy = Files.copy(PATH, directory.resolve(FILE_NAME));
+        var errors = new ArrayList<String>();
+        var lines = new ArrayList<String []>();
+
+        var chunks = fileService.mapFiles(List.of(LocalFile.of(copy), LocalFile.of(WRONG_PATH)), 150, errors);
+        chunks.forEach(chunk -> errors.addAll(fileService.streamChunk(chunk, lines::add)));
+
+        assertThat(chunks.size()).isEqualTo(2);
+        assertThat(chunks.get(0).getBuffer().get(chunks.get(0).getBuffer().limit() - 1)).isEqualTo((byte) '\n');
+        assertThat(lines.size()).isEqualTo(4);
+        assertThat(lines.get(0).length).isEqualTo(9);
+        assertThat(lines.get(3).length).isEqualTo(6);
+        assertThat(errors.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_copyToTempFiles_Should_Keep_Original_Names_For_Chunks() throws Exception {
+        var errors = new ArrayList<String>();
+
+        var copies = fileService.copyToTempFiles(files, errors);
+        try {
+            var chunks = fileService.mapFiles(copies, 150, errors);
+
+            assertThat(copies).extracting(LocalFile::getFileName).containsExactly(ORIGINAL_FILE_NAME);
+            assertThat(copies.get(0).getContentHash())
+                    .isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(files[0].getBytes())));
+            assertThat(chunks).extracting(FileChunk::getFileName).containsOnly(ORIGINAL_FILE_NAME);
+            assertThat(errors).isEmpty();
+        } finally {
+            for (LocalFile copy : copies) {
+                Files.deleteIfExists(copy.getPath());
+            }
+        }
+    }
+
 }
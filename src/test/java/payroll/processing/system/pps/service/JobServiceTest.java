@@ -0,0 +1,165 @@
+package payroll.processing.system.pps.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.Error;
+import payroll.processing.system.pps.domain.PayrollResponse;
+import payroll.processing.system.pps.domain.enumaration.JobStatus;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class JobServiceTest {
+    private static final String CONTENT_TYPE = "text/csv";
+    private static final String FILE = "1, emp101, Bill, Gates, Software Engineer, ONBOARD, 10-01-2022, 10-01-2022, “Joined.”\n";
+
+    @Mock
+    PpsService ppsService;
+
+    private FileService fileService;
+    private ThreadPoolExecutor jobExecutor;
+    private JobService jobService;
+
+    @BeforeEach
+    public void setUp() {
+        jobExecutor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        fileService = spy(new FileService());
+        jobService = new JobService(ppsService, fileService, jobExecutor);
+        ReflectionTestUtils.setField(jobService, "ttl", Duration.ofMinutes(15));
+        jobService.init();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jobExecutor.shutdownNow();
+    }
+
+    @Test
+    public void test_submit_Should_Process_Copied_Files_Asynchronously() {
+        var copied = new ArrayList<String>();
+        var response = response();
+        when(ppsService.processPayroll(any(MultipartFile[].class))).thenAnswer(invocation -> {
+            MultipartFile[] uploads = invocation.getArgument(0);
+            for (MultipartFile upload : uploads) {
+                copied.add(upload.getOriginalFilename() + ": " + new String(upload.getBytes(), StandardCharsets.UTF_8));
+            }
+            return response;
+        });
+
+        var job = jobService.submit(new MultipartFile[] {csv(FILE), new MockMultipartFile("files", "event.jpeg", "image/jpeg", new byte[0])});
+
+        assertThat(job.getResult().join()).isSameAs(response);
+        assertThat(jobService.getJob(job.getId())).contains(job);
+        assertThat(job.getStatus()).isEqualTo(JobStatus.SUCCEEDED);
+        assertThat(copied).containsExactly("file.csv: " + FILE);
+        assertThat(response.getError().getFileErrors()).hasSize(1);
+    }
+
+    @Test
+    public void test_submit_Should_Record_Failure() {
+        when(ppsService.processPayroll(any(MultipartFile[].class))).thenThrow(new IllegalStateException("broken"));
+
+        var job = jobService.submit(new MultipartFile[] {csv(FILE)});
+
+        assertThatThrownBy(() -> job.getResult().join()).hasCauseInstanceOf(IllegalStateException.class);
+        assertThat(job.getStatus()).isEqualTo(JobStatus.FAILED);
+        assertThat(job.getFailure()).isEqualTo("broken");
+    }
+
+    @Test
+    public void test_submit_Should_Reject_Jobs_When_Queue_Is_Full() throws Exception {
+        var release = new CountDownLatch(1);
+        when(ppsService.processPayroll(any(MultipartFile[].class))).thenAnswer(invocation -> {
+            release.await();
+            return response();
+        });
+
+        var running = jobService.submit(new MultipartFile[] {csv(FILE)});
+        var queued = jobService.submit(new MultipartFile[] {csv(FILE)});
+
+        assertThatThrownBy(() -> jobService.submit(new MultipartFile[] {csv(FILE)}))
+                .isInstanceOf(RejectedExecutionException.class);
+        verify(fileService, times(2)).copyToTempFiles(any(), any());
+        release.countDown();
+        running.getResult().join();
+        queued.getResult().join();
+    }
+
+    @Test
+    public void test_onFinished_Should_Run_Listeners_Until_They_Are_Removed() throws Exception {
+        var release = new CountDownLatch(1);
+        when(ppsService.processPayroll(any(MultipartFile[].class))).thenAnswer(invocation -> {
+            release.await();
+            return response();
+        });
+        var notified = new CopyOnWriteArrayList<String>();
+        var done = new CountDownLatch(2);
+
+        var job = jobService.submit(new MultipartFile[] {csv(FILE)});
+        jobService.onFinished(job, () -> {
+            notified.add("waiting");
+            done.countDown();
+        });
+        var remove = jobService.onFinished(job, () -> notified.add("timed out"));
+        remove.run();
+        release.countDown();
+        job.getResult().join();
+        jobService.onFinished(job, () -> {
+            notified.add("finished");
+            done.countDown();
+        });
+
+        assertThat(done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(notified).containsExactlyInAnyOrder("waiting", "finished");
+        assertThat(job.getListeners()).isEmpty();
+    }
+
+    @Test
+    public void test_evictExpiredJobs_Should_Remove_Jobs_Finished_Before_Ttl() {
+        when(ppsService.processPayroll(any(MultipartFile[].class))).thenAnswer(invocation -> response());
+
+        var expired = jobService.submit(new MultipartFile[] {csv(FILE)});
+        var recent = jobService.submit(new MultipartFile[] {csv(FILE)});
+        expired.getResult().join();
+        recent.getResult().join();
+        expired.setFinishedAt(Instant.now().minus(Duration.ofHours(1)));
+
+        jobService.evictExpiredJobs();
+
+        assertThat(jobService.getJob(expired.getId())).isEmpty();
+        assertThat(jobService.getJob(recent.getId())).contains(recent);
+    }
+
+    private PayrollResponse response() {
+        return PayrollResponse.builder()
+                .error(Error.builder()
+                        .reportErrors(new ArrayList<>())
+                        .recordErrors(new ArrayList<>())
+                        .fileErrors(new ArrayList<>())
+                        .build())
+                .build();
+    }
+
+    private MultipartFile csv(String content) {
+        return new MockMultipartFile("files", "file.csv", CONTENT_TYPE, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,327 @@
+package payroll.processing.system.pps.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartFile;
+import payroll.processing.system.pps.domain.enumaration.ProcessingMode;
+import payroll.processing.system.pps.domain.report.MonthlyEmployeeReport;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class LiveReportServiceTest {
+    private static final String CONTENT_TYPE = "text/csv";
+    private static final String FIRST_FILE = "1, emp101, Bill, Gates, Software Engineer, ONBOARD, 10-01-2022, 10-01-2022, “Joined.”\n" +
+            "2, emp102, Steve, Jobs, Architect, ONBOARD, 10-02-2022, 10-02-2022, “Joined.”\n" +
+            "3, emp101, SALARY, 3000, 10-10-2022, “Oct Salary of Bill.”\n";
+    private static final String SECOND_FILE = "4, emp102, SALARY, 4000, 10-10-2022, “Oct Salary of Steve.”\n" +
+            "5, emp101, EXIT, 10-20-2022, 10-20-2022, “Bill left.”\n" +
+            "6, emp101, Bill, Gates, Software Engineer, ONBOARD, 10-25-2022, 10-25-2022, “Joined again.”\n" +
+            "7, emp101, BONUS, 500.50, 10-26-2022, “Bonus.”\n" +
+            "8, emp103, SALARY, 1000, 10-27-2022, “Unknown.”\n";
+    private static final String THIRD_FILE = "9, emp103, Tim, Cook, Manager, ONBOARD, 11-01-2022, 11-01-2022, “Joined.”\n" +
+            "10, emp103, SALARY, 2000, 11-10-2022, “Nov Salary of Tim.”\n" +
+            "11, emp101, SALARY, 1000, 11-10-2022, “Nov Salary of Bill.”\n" +
+            "12, emp102, EXIT, 11-20-2022, 11-20-2022, “Steve left.”\n";
+    private static final String CORRECTED_THIRD_FILE = "9, emp103, Tim, Cook, Manager, ONBOARD, 11-01-2022, 11-01-2022, “Joined.”\n" +
+            "10, emp103, SALARY, 2500, 11-10-2022, “Nov Salary of Tim.”\n";
+
+    private ForkJoinPool executor;
+    private PpsService ppsService;
+    private LiveReportService liveReportService;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new ForkJoinPool(2);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        ppsService = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        ReflectionTestUtils.setField(ppsService, "mode", ProcessingMode.STREAMING);
+        liveReportService = new LiveReportService(ppsService, builder, new EventLog(), new SnapshotStore());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void test_addFiles_Should_Accumulate_Uploads_Like_Sequential_Processing() throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        var first = liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)});
+        var second = liveReportService.addFiles(new MultipartFile[] {csv("second.csv", SECOND_FILE)});
+        var sequential = ppsService.processPayroll(new MultipartFile[] {csv("first.csv", FIRST_FILE), csv("second.csv", SECOND_FILE)});
+
+        assertThat(first.getReport()).isNull();
+        assertThat(first.getError().getReportErrors()).isEmpty();
+        assertThat(second.getError().getReportErrors()).hasSize(1);
+        assertThat(mapper.writeValueAsString(liveReportService.getReport().getReport()))
+                .isEqualTo(mapper.writeValueAsString(sequential.getReport()));
+    }
+
+    @Test
+    public void test_snapshot_Should_Stay_Consistent_While_Uploads_Commit() {
+        var done = new AtomicBoolean();
+        var snapshots = new ArrayList<Long>();
+        var reader = CompletableFuture.runAsync(() -> {
+            while (!done.get()) {
+                var report = liveReportService.snapshot();
+                var onboarded = report.getMonthlyEmployeeReports().stream()
+                        .mapToLong(MonthlyEmployeeReport::getTotalOnboardedEmployees).sum();
+
+                assertThat((long) report.getEmployeeReports().size()).isEqualTo(report.getTotalEmployees());
+                assertThat(onboarded).isEqualTo(report.getTotalEmployees());
+                assertThat(report.getMonthlySalaryReports().stream().mapToLong(msr -> msr.getTotalEmployees()).sum())
+                        .isEqualTo(report.getTotalEmployees());
+                snapshots.add(report.getTotalEmployees());
+            }
+        });
+
+        IntStream.range(0, 200).parallel().forEach(i -> liveReportService.addFiles(new MultipartFile[] {csv("file.csv",
+                i + ", emp" + i + ", Bill, Gates, Software Engineer, ONBOARD, 10-01-2022, 10-01-2022, “Joined.”\n" +
+                i + ", emp" + i + ", SALARY, 3000, 11-10-2022, “Salary.”\n")}));
+        done.set(true);
+        reader.join();
+
+        var report = liveReportService.snapshot();
+        assertThat(report.getTotalEmployees()).isEqualTo(200L);
+        assertThat(report.getMonthlyPaidReports().get(0).getTotalEmployees()).isEqualTo(200L);
+        assertThat(snapshots).isSorted();
+    }
+
+    @Test
+    public void test_retract_Should_Subtract_Upload_Of_Source() throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)}, "first");
+        var before = mapper.writeValueAsString(liveReportService.getReport().getReport());
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+
+        assertThat(liveReportService.retract("third")).isTrue();
+        assertThat(liveReportService.retract("third")).isFalse();
+        assertThat(mapper.writeValueAsString(liveReportService.getReport().getReport())).isEqualTo(before);
+    }
+
+    @Test
+    public void test_addFiles_Should_Replace_Previous_Upload_Of_Same_Source() throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+        var corrected = new LiveReportService(ppsService, new BuilderService(), new EventLog(), new SnapshotStore());
+
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)});
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", CORRECTED_THIRD_FILE)}, "third");
+        corrected.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)});
+        corrected.addFiles(new MultipartFile[] {csv("third.csv", CORRECTED_THIRD_FILE)});
+
+        assertThat(mapper.writeValueAsString(liveReportService.getReport().getReport()))
+                .isEqualTo(mapper.writeValueAsString(corrected.getReport().getReport()));
+    }
+
+    @Test
+    public void test_addFiles_Should_Keep_Payments_And_Exits_Of_Other_Sources_When_Source_Is_Replaced() {
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)}, "first");
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE.replace("Architect", "Chief Architect"))}, "first");
+
+        var report = liveReportService.getReport().getReport();
+        assertThat(report.getEmployeeReports())
+                .filteredOn(employee -> employee.getId().equals("emp101"))
+                .singleElement()
+                .satisfies(employee -> assertThat(employee.getTotalPaid()).isEqualByComparingTo("4000"));
+        assertThat(report.getMonthlyEmployeeReports())
+                .filteredOn(month -> month.getMonth().getMonthValue() == 11)
+                .singleElement()
+                .satisfies(month -> {
+                    assertThat(month.getTotalExitedEmployee()).isEqualTo(1);
+                    assertThat(month.getExitedEmployees()).singleElement()
+                            .satisfies(employee -> assertThat(employee.getDesignation()).isEqualTo("Chief Architect"));
+                });
+
+        assertThat(liveReportService.retract("first")).isTrue();
+
+        report = liveReportService.getReport().getReport();
+        assertThat(report.getEmployeeReports()).extracting("id").containsExactly("emp103");
+        assertThat(report.getMonthlyEmployeeReports())
+                .filteredOn(month -> month.getMonth().getMonthValue() == 11)
+                .singleElement()
+                .satisfies(month -> {
+                    assertThat(month.getTotalExitedEmployee()).isZero();
+                    assertThat(month.getExitedEmployees()).isEmpty();
+                });
+    }
+
+    @Test
+    public void test_replay_Should_Restore_Live_Report_From_Event_Log(@TempDir Path directory) throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+        var builder = new BuilderService();
+        var eventLog = eventLog(directory);
+        liveReportService = new LiveReportService(ppsService, builder, eventLog, new SnapshotStore());
+
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)});
+        liveReportService.addFiles(new MultipartFile[] {csv("second.csv", SECOND_FILE)});
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+        liveReportService.retract("third");
+        var report = mapper.writeValueAsString(liveReportService.getReport().getReport());
+        eventLog.close();
+
+        var restarted = new LiveReportService(ppsService, builder, eventLog(directory), new SnapshotStore());
+        restarted.restore();
+
+        assertThat(mapper.writeValueAsString(restarted.getReport().getReport())).isEqualTo(report);
+    }
+
+    @Test
+    public void test_restore_Should_Rebind_Records_Of_Other_Sources_When_Replaced_Source_Is_Compacted(@TempDir Path directory) throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+        var builder = new BuilderService();
+        var eventLog = eventLog(directory);
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofBytes(100));
+        liveReportService = new LiveReportService(ppsService, builder, eventLog, new SnapshotStore());
+
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)}, "first");
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE.replace("Architect", "Chief Architect"))}, "first");
+        liveReportService.addFiles(new MultipartFile[] {csv("fourth.csv", CORRECTED_THIRD_FILE)}, "fourth");
+        var report = mapper.writeValueAsString(liveReportService.getReport().getReport());
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofMegabytes(1));
+        eventLog.maintain();
+        eventLog.close();
+
+        var restarted = new LiveReportService(ppsService, builder, eventLog(directory), new SnapshotStore());
+        restarted.restore();
+
+        assertThat(mapper.writeValueAsString(restarted.getReport().getReport())).isEqualTo(report);
+    }
+
+    @Test
+    public void test_restore_Should_Load_Snapshot_And_Replay_Event_Log_After_It(@TempDir Path directory) throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+        var builder = new BuilderService();
+        var eventLog = eventLog(directory.resolve("log"));
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofBytes(100));
+        liveReportService = new LiveReportService(ppsService, builder, eventLog, snapshotStore(directory.resolve("snapshots")));
+
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)}, "first");
+        liveReportService.saveSnapshot();
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+        liveReportService.saveSnapshot();
+        liveReportService.addFiles(new MultipartFile[] {csv("second.csv", SECOND_FILE)});
+        liveReportService.saveSnapshot();
+        liveReportService.addFiles(new MultipartFile[] {csv("fourth.csv", CORRECTED_THIRD_FILE)}, "fourth");
+        var report = mapper.writeValueAsString(liveReportService.getReport().getReport());
+        eventLog.close();
+
+        var restartedLog = eventLog(directory.resolve("log"));
+        var restarted = new LiveReportService(ppsService, builder, restartedLog, snapshotStore(directory.resolve("snapshots")));
+        restarted.restore();
+        var replayed = new ArrayList<String>();
+        restartedLog.replay(entry -> replayed.add(entry.source()));
+
+        assertThat(mapper.writeValueAsString(restarted.getReport().getReport())).isEqualTo(report);
+        assertThat(replayed).doesNotContain("first");
+
+        var expected = new LiveReportService(ppsService, builder, new EventLog(), new SnapshotStore());
+        expected.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)}, "first");
+        expected.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+        expected.addFiles(new MultipartFile[] {csv("second.csv", SECOND_FILE)});
+        expected.addFiles(new MultipartFile[] {csv("fourth.csv", CORRECTED_THIRD_FILE)}, "fourth");
+        expected.retract("third");
+        assertThat(restarted.retract("third")).isTrue();
+        assertThat(mapper.writeValueAsString(restarted.getReport().getReport()))
+                .isEqualTo(mapper.writeValueAsString(expected.getReport().getReport()));
+        restartedLog.close();
+    }
+
+    @Test
+    public void test_saveSnapshot_Should_Write_The_State_It_Copied_While_Commits_Go_On(@TempDir Path directory) throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+        var builder = new BuilderService();
+        var snapshotStore = new SnapshotStore() {
+            @Override
+            public synchronized long save(Body body) throws IOException {
+                liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+                return super.save(body);
+            }
+        };
+        ReflectionTestUtils.setField(snapshotStore, "dir", directory.toString());
+        snapshotStore.init();
+        liveReportService = new LiveReportService(ppsService, builder, new EventLog(), snapshotStore);
+
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)}, "first");
+        var report = mapper.writeValueAsString(liveReportService.getReport().getReport());
+        liveReportService.saveSnapshot();
+
+        assertThat(mapper.writeValueAsString(liveReportService.getReport().getReport())).isNotEqualTo(report);
+        var restarted = new LiveReportService(ppsService, builder, new EventLog(), snapshotStore(directory));
+        restarted.restore();
+        assertThat(mapper.writeValueAsString(restarted.getReport().getReport())).isEqualTo(report);
+    }
+
+    @Test
+    public void test_restore_Should_Fall_Back_To_Older_Snapshot_With_Event_Log_After_It(@TempDir Path directory) throws Exception {
+        var mapper = new ObjectMapper().findAndRegisterModules();
+        var builder = new BuilderService();
+        var eventLog = eventLog(directory.resolve("log"));
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofBytes(100));
+        liveReportService = new LiveReportService(ppsService, builder, eventLog, snapshotStore(directory.resolve("snapshots")));
+
+        liveReportService.addFiles(new MultipartFile[] {csv("first.csv", FIRST_FILE)}, "first");
+        liveReportService.saveSnapshot();
+        liveReportService.addFiles(new MultipartFile[] {csv("second.csv", SECOND_FILE)}, "second");
+        liveReportService.saveSnapshot();
+        liveReportService.addFiles(new MultipartFile[] {csv("third.csv", THIRD_FILE)}, "third");
+        var report = mapper.writeValueAsString(liveReportService.getReport().getReport());
+        eventLog.close();
+
+        try (var files = Files.list(directory.resolve("snapshots"))) {
+            var newest = files.sorted().reduce((first, second) -> second).orElseThrow();
+            var bytes = Files.readAllBytes(newest);
+            bytes[bytes.length / 2] ^= 0x7f;
+            Files.write(newest, bytes);
+        }
+
+        var restartedLog = eventLog(directory.resolve("log"));
+        var restarted = new LiveReportService(ppsService, builder, restartedLog, snapshotStore(directory.resolve("snapshots")));
+        restarted.restore();
+
+        assertThat(mapper.writeValueAsString(restarted.getReport().getReport())).isEqualTo(report);
+        restartedLog.close();
+    }
+
+    private EventLog eventLog(Path directory) {
+        var eventLog = new EventLog();
+        ReflectionTestUtils.setField(eventLog, "dir", directory.toString());
+        ReflectionTestUtils.setField(eventLog, "segmentSize", DataSize.ofMegabytes(1));
+        ReflectionTestUtils.setField(eventLog, "retention", Duration.ZERO);
+        eventLog.init();
+        return eventLog;
+    }
+
+    private SnapshotStore snapshotStore(Path directory) {
+        var snapshotStore = new SnapshotStore();
+        ReflectionTestUtils.setField(snapshotStore, "dir", directory.toString());
+        snapshotStore.init();
+        return snapshotStore;
+    }
+
+    private MultipartFile csv(String name, String content) {
+        return new MockMultipartFile("files", name, CONTENT_TYPE, content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,185 @@
+package payroll.processing.system.pps.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
+import payroll.processing.system.pps.domain.LocalFile;
+import payroll.processing.system.pps.domain.PartialReport;
+import payroll.processing.system.pps.domain.enumaration.ReportSection;
+import payroll.processing.system.pps.util.LocalMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PartialReportCacheTest {
+    private static final Set<ReportSection> SECTIONS = EnumSet.allOf(ReportSection.class);
+
+    private PartialReportCache cache;
+    private AtomicInteger computations;
+
+    @BeforeEach
+    public void setUp() {
+        cache = new PartialReportCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "heapMaxSize", DataSize.ofBytes(PartialReportCache.weigh(partial(List.of())) * 5 / 2));
+        ReflectionTestUtils.setField(cache, "diskDir", "");
+        ReflectionTestUtils.setField(cache, "diskMaxSize", DataSize.ofBytes(0));
+        cache.init();
+        computations = new AtomicInteger();
+    }
+
+    @Test
+    public void test_get_Should_Compute_Once_For_Concurrent_Requests_Of_Same_File() throws Exception {
+        var release = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(2);
+
+        try {
+            var first = cache.get(file("a.csv", "12345"), SECTIONS, () -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return partial(List.of());
+            }, executor);
+            var second = cache.get(file("a.csv", "12345"), SECTIONS, this::compute, executor);
+            release.countDown();
+
+            assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get(5, TimeUnit.SECONDS));
+            assertThat(computations.get()).isZero();
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    public void test_get_Should_Key_By_Content_Name_And_Sections() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+
+        try {
+            var partial = cache.get(file("a.csv", "12345"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+
+            assertThat(cache.get(file("a.csv", "12345"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS)).isSameAs(partial);
+            cache.get(file("a.csv", "12346"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            cache.get(file("b.csv", "12345"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            cache.get(file("a.csv", "12345"), EnumSet.of(ReportSection.TOTAL_EMPLOYEES), this::compute, executor).get(5, TimeUnit.SECONDS);
+            assertThat(computations.get()).isEqualTo(4);
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    public void test_get_Should_Evict_Least_Recently_Used_Partial_Reports_Over_Heap_Size() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+
+        try {
+            cache.get(file("a.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            cache.get(file("b.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            cache.get(file("a.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            cache.get(file("c.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            assertThat(computations.get()).isEqualTo(3);
+
+            cache.get(file("a.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            assertThat(computations.get()).isEqualTo(3);
+            cache.get(file("b.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            assertThat(computations.get()).isEqualTo(4);
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    public void test_get_Should_Not_Keep_Partial_Reports_With_File_Errors() throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+
+        try {
+            for (int i = 0; i < 2; i++) {
+                cache.get(file("a.csv", "12345"), SECTIONS, () -> {
+                    computations.incrementAndGet();
+                    return partial(List.of("a.csv is not readable"));
+                }, executor).get(5, TimeUnit.SECONDS);
+            }
+            assertThat(computations.get()).isEqualTo(2);
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    public void test_get_Should_Find_Partial_Reports_Evicted_To_Disk(@TempDir Path directory) throws Exception {
+        ReflectionTestUtils.setField(cache, "heapMaxSize", DataSize.ofBytes(PartialReportCache.weigh(partial(List.of()))));
+        ReflectionTestUtils.setField(cache, "diskDir", directory.toString());
+        ReflectionTestUtils.setField(cache, "diskMaxSize", DataSize.ofMegabytes(1));
+        cache.init();
+        var executor = Executors.newSingleThreadExecutor();
+
+        try {
+            cache.get(file("a.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            cache.get(file("b.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            cache.shutdown();
+
+            assertThat(directory.toFile().list()).hasSize(1);
+            cache.get(file("a.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+            assertThat(computations.get()).isEqualTo(2);
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    @Test
+    public void test_get_Should_Key_Copied_Files_By_Hash_Of_The_Copy_Without_Reading_Them(@TempDir Path directory) throws Exception {
+        var executor = Executors.newSingleThreadExecutor();
+        var hash = HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest("1234".getBytes(StandardCharsets.UTF_8)));
+
+        try {
+            var copied = new LocalMultipartFile(new LocalFile("a.csv", directory.resolve("deleted.csv"), hash));
+            var partial = cache.get(copied, SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS);
+
+            assertThat(cache.get(file("a.csv", "1234"), SECTIONS, this::compute, executor).get(5, TimeUnit.SECONDS)).isSameAs(partial);
+            assertThat(computations.get()).isEqualTo(1);
+        } finally {
+            shutdown(executor);
+        }
+    }
+
+    private PartialReport compute() {
+        computations.incrementAndGet();
+        return partial(List.of());
+    }
+
+    private static PartialReport partial(List<String> fileErrors) {
+        return PartialReport.builder()
+                .report(new BuilderService().buildInitialReport())
+                .sections(SECTIONS)
+                .reportErrors(new ArrayList<>())
+                .recordErrors(new ArrayList<>())
+                .fileErrors(new ArrayList<>(fileErrors))
+                .build();
+    }
+
+    private static MockMultipartFile file(String name, String content) {
+        return new MockMultipartFile("files", name, "text/csv", content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void shutdown(ExecutorService executor) throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(5, TimeUnit.SECONDS);
+    }
+}
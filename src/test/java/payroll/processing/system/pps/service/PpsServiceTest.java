@@ -1,19 +1,33 @@
 package payroll.processing.system.pps.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.unit.DataSize;
 import org.springframework.web.multipart.MultipartFile;
 import payroll.processing.system.pps.domain.Employee;
 import payroll.processing.system.pps.domain.FileResponse;
+import payroll.processing.system.pps.domain.LocalFile;
 import payroll.processing.system.pps.domain.Record;
 import payroll.processing.system.pps.domain.RecordResponse;
 import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.domain.enumaration.ExecutionPlan;
+import payroll.processing.system.pps.domain.enumaration.ProcessingMode;
+import payroll.processing.system.pps.domain.enumaration.ReportSection;
+import payroll.processing.system.pps.domain.report.EmployeeReport;
+import payroll.processing.system.pps.domain.report.EventReport;
+import payroll.processing.system.pps.domain.report.MonthlyEmployeeReport;
+import payroll.processing.system.pps.domain.report.MonthlyPaidReport;
+import payroll.processing.system.pps.domain.report.MonthlySalaryReport;
 import payroll.processing.system.pps.domain.report.Report;
+import payroll.processing.system.pps.util.ColumnFilter;
 
 import java.io.IOException;
 import java.math.BigDecimal;
@@ -22,7 +36,13 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -101,6 +121,8 @@ public class PpsServiceTest {
 
         recordResponse = new RecordResponse(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
         recordResponse.getRecords().add(record);
+
+        ReflectionTestUtils.setField(ppsService, "mode", ProcessingMode.MATERIALIZED);
     }
 
     @Test
@@ -114,7 +136,7 @@ public class PpsServiceTest {
         var response = ppsService.processPayroll(files);
 
         response.getReport().getMonthlyPaidReports().forEach(monthlyPaidReport -> {
-            assertThat(monthlyPaidReport.getEmployeeIds()).isNull();
+            assertThat(monthlyPaidReport.getEmployees()).isNull();
         });
 
         verify(builderService, times(1)).buildInitialReport();
@@ -124,6 +146,7 @@ public class PpsServiceTest {
         verify(reportService, times(1)).increaseTotalEmployees(initialReport, (Record<LocalDate>) record);
         verify(reportService, times(1)).addOnboardedEmployee(initialReport, (Record<LocalDate>) record);
         verify(reportService, times(1)).addYearlyEvent(initialReport, record);
+        verify(reportService, times(1)).release(initialReport);
         verifyNoMoreInteractions(reportService);
     }
 
@@ -139,7 +162,7 @@ public class PpsServiceTest {
         var response = ppsService.processPayroll(files);
 
         response.getReport().getMonthlyPaidReports().forEach(monthlyPaidReport -> {
-            assertThat(monthlyPaidReport.getEmployeeIds()).isNull();
+            assertThat(monthlyPaidReport.getEmployees()).isNull();
         });
 
         verify(builderService, times(1)).buildInitialReport();
@@ -149,6 +172,7 @@ public class PpsServiceTest {
         verify(reportService, times(1)).decreaseTotalEmployees(initialReport);
         verify(reportService, times(1)).addExitedEmployee(eq(initialReport), eq((Record<LocalDate>) record), anyList());
         verify(reportService, times(1)).addYearlyEvent(initialReport, record);
+        verify(reportService, times(1)).release(initialReport);
         verifyNoMoreInteractions(reportService);
     }
 
@@ -166,7 +190,7 @@ public class PpsServiceTest {
         var response = ppsService.processPayroll(files);
 
         response.getReport().getMonthlyPaidReports().forEach(monthlyPaidReport -> {
-            assertThat(monthlyPaidReport.getEmployeeIds()).isNull();
+            assertThat(monthlyPaidReport.getEmployees()).isNull();
         });
 
         verify(builderService, times(1)).buildInitialReport();
@@ -177,6 +201,7 @@ public class PpsServiceTest {
         verify(reportService, times(1)).addPaidReport(initialReport, (Record<BigDecimal>) record);
         verify(reportService, times(1)).addEmployeePaid(eq(initialReport), eq((Record<BigDecimal>) record), anyList());
         verify(reportService, times(1)).addYearlyEvent(initialReport, record);
+        verify(reportService, times(1)).release(initialReport);
         verifyNoMoreInteractions(reportService);
     }
 
@@ -193,7 +218,7 @@ public class PpsServiceTest {
         var response = ppsService.processPayroll(files);
 
         response.getReport().getMonthlyPaidReports().forEach(monthlyPaidReport -> {
-            assertThat(monthlyPaidReport.getEmployeeIds()).isNull();
+            assertThat(monthlyPaidReport.getEmployees()).isNull();
         });
 
         verify(builderService, times(1)).buildInitialReport();
@@ -203,6 +228,7 @@ public class PpsServiceTest {
         verify(reportService, times(1)).addPaidReport(initialReport, (Record<BigDecimal>) record);
         verify(reportService, times(1)).addEmployeePaid(eq(initialReport), eq((Record<BigDecimal>) record), anyList());
         verify(reportService, times(1)).addYearlyEvent(initialReport, record);
+        verify(reportService, times(1)).release(initialReport);
         verifyNoMoreInteractions(reportService);
     }
 
@@ -220,7 +246,7 @@ public class PpsServiceTest {
         var response = ppsService.processPayroll(files);
 
         response.getReport().getMonthlyPaidReports().forEach(monthlyPaidReport -> {
-            assertThat(monthlyPaidReport.getEmployeeIds()).isNull();
+            assertThat(monthlyPaidReport.getEmployees()).isNull();
         });
 
         assertThat(response.getError().getReportErrors().size()).isEqualTo(1);
@@ -232,6 +258,388 @@ public class PpsServiceTest {
         verify(reportService, times(1)).addPaidReport(initialReport, (Record<BigDecimal>) record);
         verify(reportService, times(1)).addEmployeePaid(eq(initialReport), eq((Record<BigDecimal>) record), anyList());
         verify(reportService, times(1)).addYearlyEvent(initialReport, record);
+        verify(reportService, times(1)).release(initialReport);
+        verifyNoMoreInteractions(reportService);
+    }
+
+    @Test
+    public void test_processPayroll_Should_Stream_Records_Into_Report() {
+        ReflectionTestUtils.setField(ppsService, "mode", ProcessingMode.STREAMING);
+
+        when(builderService.buildInitialReport()).thenReturn(initialReport);
+        when(recordService.streamRecords(eq(files), eq(ColumnFilter.NONE), any())).thenAnswer(invocation -> {
+            Consumer<Record<?>> consumer = invocation.getArgument(2);
+            consumer.accept(record);
+            return new RecordResponse(null, new ArrayList<>(), new ArrayList<>());
+        });
+        doNothing().when(reportService).increaseTotalEmployees(initialReport, (Record<LocalDate>) record);
+        doNothing().when(reportService).addOnboardedEmployee(initialReport, (Record<LocalDate>) record);
+        doNothing().when(reportService).addYearlyEvent(initialReport, record);
+
+        var response = ppsService.processPayroll(files);
+
+        assertThat(response.getReport()).isSameAs(initialReport);
+        assertThat(response.getError().getRecordErrors().size()).isEqualTo(0);
+
+        verify(builderService, times(1)).buildInitialReport();
+        verifyNoMoreInteractions(builderService);
+        verify(recordService, times(1)).streamRecords(eq(files), eq(ColumnFilter.NONE), any());
+        verifyNoMoreInteractions(recordService);
+        verify(reportService, times(1)).increaseTotalEmployees(initialReport, (Record<LocalDate>) record);
+        verify(reportService, times(1)).addOnboardedEmployee(initialReport, (Record<LocalDate>) record);
+        verify(reportService, times(1)).addYearlyEvent(initialReport, record);
+        verify(reportService, times(1)).release(initialReport);
         verifyNoMoreInteractions(reportService);
     }
+
+    private static final String FIRST_FILE = "1, emp101, Bill, Gates, Software Engineer, ONBOARD, 10-01-2022, 10-01-2022, “Joined.”\n" +
+            "2, emp102, Steve, Jobs, Architect, ONBOARD, 10-02-2022, 10-02-2022, “Joined.”\n" +
+            "3, emp101, SALARY, 3000, 10-10-2022, “Oct Salary of Bill.”\n";
+    private static final String SECOND_FILE = "4, emp102, SALARY, 4000, 10-10-2022, “Oct Salary of Steve.”\n" +
+            "5, emp101, EXIT, 10-20-2022, 10-20-2022, “Bill left.”\n" +
+            "6, emp101, Bill, Gates, Software Engineer, ONBOARD, 10-25-2022, 10-25-2022, “Joined again.”\n" +
+            "7, emp101, BONUS, 500.50, 10-26-2022, “Bonus.”\n" +
+            "8, emp103, SALARY, 1000, 10-27-2022, “Unknown.”\n";
+
+    @Test
+    public void test_processPayroll_Should_Merge_Parallel_Files_Like_Sequential_Processing() throws Exception {
+        var first = FIRST_FILE;
+        var second = SECOND_FILE;
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, first.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, second.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "event.jpeg", "image/jpeg", new byte[0])
+        };
+        var executor = new ForkJoinPool(2);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var service = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var sequential = service.processPayroll(uploads);
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.PARALLEL);
+            var parallel = service.processPayroll(uploads);
+
+            assertThat(mapper.writeValueAsString(parallel)).isEqualTo(mapper.writeValueAsString(sequential));
+            assertThat(parallel.getReport().getEmployeeReports().get(0).getTotalPaid()).isEqualTo(new BigDecimal("3500.50"));
+            assertThat(parallel.getReport().getMonthlyEmployeeReports().get(0).getTotalExitedEmployee()).isEqualTo(1L);
+            assertThat(parallel.getReport().getMonthlyPaidReports().get(0).getTotalEmployees()).isEqualTo(3L);
+            assertThat(parallel.getError().getReportErrors().size()).isEqualTo(1);
+            assertThat(parallel.getError().getFileErrors().size()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processPayroll_Should_Merge_Many_Parallel_Files_Like_Sequential_Processing() throws Exception {
+        var third = "9, emp103, Tim, Cook, Manager, ONBOARD, 11-01-2022, 11-01-2022, “Joined.”\n" +
+                "10, emp102, EXIT, 11-05-2022, 11-05-2022, “Steve left.”\n" +
+                "11, emp101, SALARY, 1000, 11-10-2022, “Nov Salary of Bill.”\n" +
+                "12, emp103, SALARY, 2000, 11-10-2022, “Nov Salary of Tim.”\n";
+        var fourth = "13, emp103, EXIT, 11-20-2022, 11-20-2022, “Tim left.”\n" +
+                "14, emp101, BONUS, 100, 11-21-2022, “Bonus.”\n" +
+                "15, emp104, SALARY, 500, 11-22-2022, “Unknown.”\n" +
+                "16, emp104, Sundar, Pichai, Engineer, ONBOARD, 11-23-2022, 11-23-2022, “Joined.”\n" +
+                "17, emp101, EXIT, 11-30-2022, 11-30-2022, “Bill left.”\n";
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, FIRST_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, SECOND_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "third.csv", CONTENT_TYPE, third.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "fourth.csv", CONTENT_TYPE, fourth.getBytes(StandardCharsets.UTF_8))
+        };
+        var executor = new ForkJoinPool(4);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var service = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var sequential = mapper.writeValueAsString(service.processPayroll(uploads));
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.PARALLEL);
+
+            assertThat(mapper.writeValueAsString(service.processPayroll(uploads))).isEqualTo(sequential);
+            assertThat(mapper.writeValueAsString(service.processPayroll(uploads))).isEqualTo(sequential);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processPayroll_Should_Merge_Cached_Partial_Reports_Like_Sequential_Processing(@TempDir Path directory) throws Exception {
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, FIRST_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, SECOND_FILE.getBytes(StandardCharsets.UTF_8))
+        };
+        var executor = new ForkJoinPool(2);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var recordService = spy(new RecordService(fileService, builder));
+        var cache = new PartialReportCache();
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "heapMaxSize", DataSize.ofBytes(1));
+        ReflectionTestUtils.setField(cache, "diskDir", directory.toString());
+        ReflectionTestUtils.setField(cache, "diskMaxSize", DataSize.ofMegabytes(1));
+        cache.init();
+        var service = new PpsService(recordService, new ReportService(), builder, executor, fileService, null, cache);
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var sequential = mapper.writeValueAsString(service.processPayroll(uploads));
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.PARALLEL);
+            var computed = mapper.writeValueAsString(service.processPayroll(uploads));
+            clearInvocations(recordService);
+            var cached = mapper.writeValueAsString(service.processPayroll(uploads));
+
+            assertThat(computed).isEqualTo(sequential);
+            assertThat(cached).isEqualTo(sequential);
+            verify(recordService, never()).streamRecords(any(MultipartFile[].class), any(), any());
+            cache.shutdown();
+            assertThat(Files.list(directory).filter(path -> path.toString().endsWith(".partial")).count()).isEqualTo(2);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processLocalFiles_Should_Merge_Chunks_Like_Sequential_Processing(@TempDir Path directory) throws Exception {
+        var first = Files.writeString(directory.resolve("first.csv"), FIRST_FILE, StandardCharsets.UTF_8);
+        var second = Files.writeString(directory.resolve("second.csv"), SECOND_FILE, StandardCharsets.UTF_8);
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, FIRST_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, SECOND_FILE.getBytes(StandardCharsets.UTF_8))
+        };
+        var executor = new ForkJoinPool(4);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var service = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            ReflectionTestUtils.setField(service, "chunkSize", DataSize.ofBytes(100));
+            var sequential = service.processPayroll(uploads);
+            var local = service.processLocalFiles(
+                    List.of(LocalFile.of(first), LocalFile.of(directory.resolve("missing.csv")), LocalFile.of(second)));
+
+            assertThat(local.getError().getFileErrors().size()).isEqualTo(1);
+            local.getError().setFileErrors(new ArrayList<>());
+            assertThat(mapper.writeValueAsString(local)).isEqualTo(mapper.writeValueAsString(sequential));
+            assertThat(local.getError().getReportErrors().size()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processPayroll_Should_Partition_Employees_Like_Sequential_Processing() throws Exception {
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, FIRST_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, SECOND_FILE.getBytes(StandardCharsets.UTF_8))
+        };
+        var executor = new ForkJoinPool(4);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var service = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var sequential = service.processPayroll(uploads);
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.PARTITIONED);
+            ReflectionTestUtils.setField(service, "partitions", 1);
+            var single = service.processPayroll(uploads);
+            ReflectionTestUtils.setField(service, "partitions", 3);
+            var partitioned = service.processPayroll(uploads);
+
+            assertThat(mapper.writeValueAsString(single)).isEqualTo(mapper.writeValueAsString(sequential));
+
+            var expected = sequential.getReport();
+            var actual = partitioned.getReport();
+            assertThat(actual.getTotalEmployees()).isEqualTo(expected.getTotalEmployees());
+            assertThat(actual.getEmployeeReports().stream()
+                    .collect(Collectors.toMap(EmployeeReport::getId, EmployeeReport::getTotalPaid, BigDecimal::add)))
+                    .isEqualTo(expected.getEmployeeReports().stream()
+                            .collect(Collectors.toMap(EmployeeReport::getId, EmployeeReport::getTotalPaid, BigDecimal::add)));
+            assertThat(actual.getMonthlySalaryReports().stream()
+                    .collect(Collectors.toMap(MonthlySalaryReport::getMonth, MonthlySalaryReport::getTotalSalary)))
+                    .isEqualTo(expected.getMonthlySalaryReports().stream()
+                            .collect(Collectors.toMap(MonthlySalaryReport::getMonth, MonthlySalaryReport::getTotalSalary)));
+            assertThat(actual.getMonthlyPaidReports().stream()
+                    .collect(Collectors.toMap(MonthlyPaidReport::getMonth, MonthlyPaidReport::getTotalEmployees)))
+                    .isEqualTo(expected.getMonthlyPaidReports().stream()
+                            .collect(Collectors.toMap(MonthlyPaidReport::getMonth, MonthlyPaidReport::getTotalEmployees)));
+            assertThat(actual.getMonthlyEmployeeReports().stream()
+                    .collect(Collectors.toMap(MonthlyEmployeeReport::getMonth, MonthlyEmployeeReport::getTotalExitedEmployee)))
+                    .isEqualTo(expected.getMonthlyEmployeeReports().stream()
+                            .collect(Collectors.toMap(MonthlyEmployeeReport::getMonth, MonthlyEmployeeReport::getTotalExitedEmployee)));
+            assertThat(partitioned.getError().getReportErrors()).containsExactlyInAnyOrderElementsOf(sequential.getError().getReportErrors());
+
+            // lists are ordered by partition, the records of one employee keep their order
+            assertThat(actual.getEmployeeReports()).containsExactlyInAnyOrderElementsOf(expected.getEmployeeReports());
+            assertThat(actual.getYearlyReports()).hasSameSizeAs(expected.getYearlyReports());
+            for (int i = 0; i < expected.getYearlyReports().size(); i++) {
+                assertThat(actual.getYearlyReports().get(i).getEvents().stream().collect(Collectors.groupingBy(EventReport::getEmployeeId)))
+                        .isEqualTo(expected.getYearlyReports().get(i).getEvents().stream().collect(Collectors.groupingBy(EventReport::getEmployeeId)));
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processPayroll_Should_Pipeline_Stages_Like_Sequential_Processing() throws Exception {
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, FIRST_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, SECOND_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "event.jpeg", "image/jpeg", new byte[0])
+        };
+        var executor = new ForkJoinPool(1);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var service = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var sequential = service.processPayroll(uploads);
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.PIPELINED);
+            ReflectionTestUtils.setField(service, "ringSize", 2);
+            var pipelined = service.processPayroll(uploads);
+
+            assertThat(mapper.writeValueAsString(pipelined)).isEqualTo(mapper.writeValueAsString(sequential));
+            assertThat(pipelined.getError().getFileErrors().size()).isEqualTo(1);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processPayroll_Should_Aggregate_Records_Of_All_Files_In_Chronological_Order() throws Exception {
+        var salaries = new MockMultipartFile(FILE_NAME, "salaries.csv", CONTENT_TYPE,
+                ("3, emp201, SALARY, 3000, 10-10-2022, “Oct Salary of Ada.”\n" +
+                        "4, emp201, EXIT, 10-20-2022, 10-20-2022, “Ada left.”\n").getBytes(StandardCharsets.UTF_8));
+        var onboards = new MockMultipartFile(FILE_NAME, "onboards.csv", CONTENT_TYPE,
+                ("1, emp201, Ada, Lovelace, Analyst, ONBOARD, 10-01-2022, 10-01-2022, “Joined.”\n" +
+                        "2, emp202, Alan, Turing, Architect, ONBOARD, 10-02-2022, 10-02-2022, “Joined.”\n").getBytes(StandardCharsets.UTF_8));
+        var executor = new ForkJoinPool(1);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var service = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var inFileOrder = service.processPayroll(new MultipartFile[] {salaries, onboards});
+            var inDateOrder = service.processPayroll(new MultipartFile[] {onboards, salaries});
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.CHRONOLOGICAL);
+            ReflectionTestUtils.setField(service, "sortRunRecords", 1);
+            var chronological = service.processPayroll(new MultipartFile[] {salaries, onboards});
+
+            assertThat(inFileOrder.getError().getReportErrors()).isNotEmpty();
+            assertThat(chronological.getError().getReportErrors()).isEmpty();
+            assertThat(mapper.writeValueAsString(chronological)).isEqualTo(mapper.writeValueAsString(inDateOrder));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processPayroll_Should_Aggregate_Columnar_Batch_Like_Sequential_Processing() throws Exception {
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, FIRST_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, SECOND_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "event.jpeg", "image/jpeg", new byte[0])
+        };
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var reportService = new ReportService();
+        ReflectionTestUtils.setField(reportService, "moneyScale", 2);
+        var service = new PpsService(new RecordService(fileService, builder), reportService, builder, null, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+        var sequential = service.processPayroll(uploads);
+        ReflectionTestUtils.setField(service, "mode", ProcessingMode.COLUMNAR);
+        var columnar = service.processPayroll(uploads);
+
+        assertThat(mapper.writeValueAsString(columnar)).isEqualTo(mapper.writeValueAsString(sequential));
+        assertThat(columnar.getError().getReportErrors().size()).isEqualTo(1);
+        assertThat(columnar.getError().getFileErrors().size()).isEqualTo(1);
+    }
+
+    @Test
+    public void test_processPayroll_Should_Chunk_Planned_Uploads_Like_Sequential_Processing() throws Exception {
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, (FIRST_FILE + SECOND_FILE).getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "event.jpeg", "image/jpeg", new byte[0])
+        };
+        var executor = new ForkJoinPool(4);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var recordService = new RecordService(fileService, builder);
+        var planner = new ExecutionPlanner(recordService, new ReportService(), builder, executor);
+        ReflectionTestUtils.setField(planner, "inlineMaxSize", "0B");
+        ReflectionTestUtils.setField(planner, "chunkMinSize", "0B");
+        planner.init();
+        var service = new PpsService(recordService, new ReportService(), builder, executor, fileService, planner, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var sequential = service.processPayroll(uploads);
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.AUTO);
+            ReflectionTestUtils.setField(service, "chunkSize", DataSize.ofBytes(100));
+            var chunked = service.processPayroll(uploads);
+
+            assertThat(planner.plan(uploads)).isEqualTo(ExecutionPlan.CHUNK);
+            assertThat(mapper.writeValueAsString(chunked)).isEqualTo(mapper.writeValueAsString(sequential));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_processPayroll_Should_Build_Only_Requested_Sections_Like_Full_Report() throws Exception {
+        var uploads = new MultipartFile[] {
+                new MockMultipartFile(FILE_NAME, "first.csv", CONTENT_TYPE, FIRST_FILE.getBytes(StandardCharsets.UTF_8)),
+                new MockMultipartFile(FILE_NAME, "second.csv", CONTENT_TYPE, SECOND_FILE.getBytes(StandardCharsets.UTF_8))
+        };
+        var executor = new ForkJoinPool(2);
+        var builder = new BuilderService();
+        var fileService = new FileService();
+        var service = new PpsService(new RecordService(fileService, builder), new ReportService(), builder, executor, fileService, null, new PartialReportCache());
+        var mapper = new ObjectMapper().findAndRegisterModules();
+
+        try {
+            ReflectionTestUtils.setField(service, "mode", ProcessingMode.STREAMING);
+            var full = mapper.valueToTree(service.processPayroll(uploads).getReport());
+
+            for (var mode : List.of(ProcessingMode.STREAMING, ProcessingMode.PARALLEL, ProcessingMode.PARTITIONED)) {
+                ReflectionTestUtils.setField(service, "mode", mode);
+                ReflectionTestUtils.setField(service, "partitions", 1);
+                for (var sections : List.of(EnumSet.of(ReportSection.TOTAL_EMPLOYEES, ReportSection.MONTHLY_SALARY_REPORTS),
+                        EnumSet.of(ReportSection.MONTHLY_PAID_REPORTS, ReportSection.YEARLY_REPORTS),
+                        EnumSet.of(ReportSection.EMPLOYEE_REPORTS),
+                        EnumSet.of(ReportSection.MONTHLY_EMPLOYEE_REPORTS))) {
+                    var projected = service.processPayroll(uploads, sections);
+                    var report = mapper.valueToTree(projected.getReport());
+
+                    assertThat(report.size()).isEqualTo(sections.size());
+                    sections.forEach(section ->
+                            assertThat(report.get(section.getField())).isEqualTo(full.get(section.getField())));
+                }
+            }
+
+            var totals = service.processPayroll(uploads, EnumSet.of(ReportSection.TOTAL_EMPLOYEES));
+            assertThat(totals.getReport().getTotalEmployees()).isEqualTo(2L);
+            assertThat(totals.getError().getReportErrors()).isEmpty();
+        } finally {
+            executor.shutdown();
+        }
+    }
 }
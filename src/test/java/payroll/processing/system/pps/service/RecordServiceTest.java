@@ -7,11 +7,16 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 import payroll.processing.system.pps.domain.Employee;
 import payroll.processing.system.pps.domain.FileResponse;
 import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
 import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.util.ColumnFilter;
+import payroll.processing.system.pps.util.ErrorCollector;
+import payroll.processing.system.pps.util.LineConsumer;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -19,9 +24,11 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
@@ -146,4 +153,66 @@ public class RecordServiceTest {
         verify(builderService, times(2)).buildPaidRecord(any());
         verifyNoMoreInteractions(builderService);
     }
+
+    @Test
+    public void test_streamRecords_Should_Pass_4_Records_To_Consumer_And_Return_1_Error() {
+        String[] LINE_6 = new String[] {"1", "Steve"};
+        var records = new ArrayList<Record<?>>();
+
+        //when
+        doAnswer(invocation -> {
+            LineConsumer consumer = invocation.getArgument(2);
+            consumer.accept(LINE_6, "first.csv", 1);
+            for (int i = 1; i < LINES.size(); i++) {
+                consumer.accept(LINES.get(i), "first.csv", i + 1);
+            }
+            return new ArrayList<String>();
+        }).when(fileService).streamFiles(eq(files), eq(ColumnFilter.NONE), any(LineConsumer.class));
+        doReturn(ONBOARD_RECORD).when(builderService).buildOnboardRecord(any());
+        doReturn(ONBOARD_RECORD).when(builderService).buildExitRecord(any());
+        doReturn(ONBOARD_RECORD).when(builderService).buildPaidRecord(any());
+
+        var response = recordService.streamRecords(files, records::add);
+
+        assertThat(records.size()).isEqualTo(4);
+        assertThat(response.getRecords()).isNull();
+        assertThat(response.getFileErrors().size()).isEqualTo(0);
+        assertThat(response.getRecordErrors().size()).isEqualTo(1);
+
+        verify(fileService, times(1)).streamFiles(eq(files), eq(ColumnFilter.NONE), any(LineConsumer.class));
+        verifyNoMoreInteractions(fileService);
+        verify(builderService, times(1)).buildOnboardRecord(any());
+        verify(builderService, times(1)).buildExitRecord(LINE_4);
+        verify(builderService, times(2)).buildPaidRecord(any());
+        verifyNoMoreInteractions(builderService);
+    }
+
+    @Test
+    public void test_streamRecords_Should_Count_Errors_By_Category_And_Keep_First_Ones_With_Line_Numbers() {
+        String[] LINE_6 = new String[] {"1", "Steve"};
+        ReflectionTestUtils.setField(recordService, "errorSamples", 1);
+
+        //when
+        doAnswer(invocation -> {
+            LineConsumer consumer = invocation.getArgument(2);
+            consumer.accept(LINE_6, "first.csv", 1);
+            consumer.accept(LINE_6.clone(), "first.csv", 2);
+            for (int i = 0; i < LINES.size(); i++) {
+                consumer.accept(LINES.get(i), "second.csv", i + 1);
+            }
+            return new ArrayList<String>();
+        }).when(fileService).streamFiles(eq(files), eq(ColumnFilter.NONE), any(LineConsumer.class));
+        doReturn(ONBOARD_RECORD).when(builderService).buildOnboardRecord(any());
+        doThrow(new DateTimeParseException("Wrong date", "12-10-2022", 0)).when(builderService).buildExitRecord(any());
+        doReturn(ONBOARD_RECORD).when(builderService).buildPaidRecord(any());
+
+        var response = recordService.streamRecords(files, record -> {
+        });
+
+        assertThat(response.getRecordErrors()).containsExactly(
+                "There is a error in line 1 of first.csv: [1, Steve]",
+                "There is a error in line " + (LINES.indexOf(LINE_4) + 1) + " of second.csv: " + Arrays.deepToString(LINE_4));
+        assertThat(((ErrorCollector) response.getRecordErrors()).getCounts())
+                .containsExactly(entry(ErrorCategory.MALFORMED_LINE, 2L), entry(ErrorCategory.INVALID_DATE, 1L));
+    }
 }
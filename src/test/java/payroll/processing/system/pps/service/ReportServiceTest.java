@@ -3,14 +3,23 @@ package payroll.processing.system.pps.service;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 import payroll.processing.system.pps.domain.Employee;
 import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.DistinctCountMode;
 import payroll.processing.system.pps.domain.enumaration.EventType;
 import payroll.processing.system.pps.domain.report.*;
+import payroll.processing.system.pps.util.BitmapDistinctCounter;
+import payroll.processing.system.pps.util.EmployeeDictionary;
+import payroll.processing.system.pps.util.HyperLogLogCounter;
+import payroll.processing.system.pps.util.RecordBatch;
 
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.Year;
 import java.time.YearMonth;
@@ -218,6 +227,33 @@ public class ReportServiceTest {
         assertThat(report.getMonthlySalaryReports().get(0).getTotalEmployees()).isEqualTo(1L);
     }
 
+    @Test
+    public void test_addSalaryReport_Should_Sum_Amounts_Exactly_With_Money_Scale() {
+        ReflectionTestUtils.setField(reportService, "moneyScale", 2);
+        var batch = new RecordBatch();
+        for (String amount : new String[]{"1000.50", "999.5", "0.01"}) {
+            reportService.addSalaryReport(report, salary(new BigDecimal(amount)));
+        }
+        batch.addPayment(4, EMP_ID, EventType.SALARY, new BigDecimal("0.24"), LocalDate.parse(EVENT_DATE, FORMATTER), null);
+        reportService.addSalaryReport(report, batch, 0);
+
+        assertThat(report.getMonthlySalaryReports().get(0).getTotalSalary().toString()).isEqualTo("2000.25");
+
+        reportService.addSalaryReport(report, salary(new BigDecimal("0.125")));
+
+        assertThat(report.getMonthlySalaryReports().get(0).getTotalSalary().toString()).isEqualTo("2000.375");
+    }
+
+    private static Record<BigDecimal> salary(BigDecimal amount) {
+        return Record.<BigDecimal>builder()
+                .SequenceNo(Long.parseLong(SEQUENCE_1))
+                .employee(Employee.builder().id(EMP_ID).build())
+                .type(EventType.SALARY)
+                .value(amount)
+                .date(LocalDate.parse(EVENT_DATE, FORMATTER))
+                .note(NOTE).build();
+    }
+
     @Test
     public void test_addSalaryReport_Should_Increase_Salary_Reports() {
         record = Record.builder()
@@ -265,7 +301,7 @@ public class ReportServiceTest {
         assertThat(report.getMonthlyPaidReports().size()).isEqualTo(1);
         assertThat(report.getMonthlyPaidReports().get(0).getTotalPaid()).isEqualTo(BigDecimal.valueOf(100));
         assertThat(report.getMonthlyPaidReports().get(0).getTotalEmployees()).isEqualTo(1L);
-        assertThat(report.getMonthlyPaidReports().get(0).getEmployeeIds().get(0)).isEqualTo(EMP_ID);
+        assertThat(((BitmapDistinctCounter) report.getMonthlyPaidReports().get(0).getEmployees()).contains(EMP_ID)).isTrue();
     }
 
     @Test
@@ -285,8 +321,7 @@ public class ReportServiceTest {
         var mpr = MonthlyPaidReport.builder()
                 .month(YearMonth.from(LocalDate.parse(EVENT_DATE, FORMATTER)))
                 .totalPaid(BigDecimal.valueOf(1200))
-                .totalEmployees(3L)
-                .employeeIds(new ArrayList<>()).build();
+                .totalEmployees(3L).build();
 
         report.getMonthlyPaidReports().add(mpr);
 
@@ -295,7 +330,7 @@ public class ReportServiceTest {
         assertThat(report.getMonthlyPaidReports().size()).isEqualTo(1);
         assertThat(report.getMonthlyPaidReports().get(0).getTotalPaid()).isEqualTo(BigDecimal.valueOf(1300));
         assertThat(report.getMonthlyPaidReports().get(0).getTotalEmployees()).isEqualTo(4L);
-        assertThat(report.getMonthlyPaidReports().get(0).getEmployeeIds().get(0)).isEqualTo(EMP_ID);
+        assertThat(((BitmapDistinctCounter) report.getMonthlyPaidReports().get(0).getEmployees()).contains(EMP_ID)).isTrue();
     }
 
     @Test
@@ -316,9 +351,9 @@ public class ReportServiceTest {
                 .month(YearMonth.from(LocalDate.parse(EVENT_DATE, FORMATTER)))
                 .totalPaid(BigDecimal.valueOf(1200))
                 .totalEmployees(3L)
-                .employeeIds(new ArrayList<>()).build();
+                .employees(new BitmapDistinctCounter(new EmployeeDictionary())).build();
 
-        mpr.getEmployeeIds().add(EMP_ID);
+        mpr.getEmployees().add(EMP_ID);
 
         report.getMonthlyPaidReports().add(mpr);
 
@@ -327,7 +362,7 @@ public class ReportServiceTest {
         assertThat(report.getMonthlyPaidReports().size()).isEqualTo(1);
         assertThat(report.getMonthlyPaidReports().get(0).getTotalPaid()).isEqualTo(BigDecimal.valueOf(1300));
         assertThat(report.getMonthlyPaidReports().get(0).getTotalEmployees()).isEqualTo(3L);
-        assertThat(report.getMonthlyPaidReports().get(0).getEmployeeIds().get(0)).isEqualTo(EMP_ID);
+        assertThat(report.getMonthlyPaidReports().get(0).getEmployees().count()).isEqualTo(1L);
     }
 
     @Test
@@ -492,4 +527,166 @@ public class ReportServiceTest {
         assertThat(report.getYearlyReports().get(0).getEvents().get(0).getEmployeeId()).isEqualTo(EMP_ID_2);
         assertThat(report.getYearlyReports().get(0).getEvents().get(1).getEmployeeId()).isEqualTo(EMP_ID);
     }
+
+    @Test
+    public void test_addYearlyEvent_Should_Spill_Older_Years_Over_Heap_Budget(@TempDir Path directory) throws Exception {
+        ReflectionTestUtils.setField(reportService, "yearlyHeapMaxEvents", 2L);
+        ReflectionTestUtils.setField(reportService, "yearlySpillDir", directory.toString());
+
+        for (int year = 2020; year <= 2022; year++) {
+            ((Record<LocalDate>) record).setValue(LocalDate.of(year, 1, 1));
+            reportService.addYearlyEvent(report, record);
+            reportService.addYearlyEvent(report, record);
+        }
+
+        try (var files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(2);
+        }
+        assertThat(report.getYearlyReports()).extracting(YearlyReport::getYear)
+                .containsExactly(Year.of(2020), Year.of(2021), Year.of(2022));
+        assertThat(report.getYearlyReports()).allSatisfy(yp -> assertThat(yp.getEvents())
+                .hasSize(2)
+                .allSatisfy(event -> assertThat(event.getValue()).isEqualTo(LocalDate.of(yp.getYear().getValue(), 1, 1))));
+    }
+
+    @Test
+    public void test_addEmployeePaid_Should_Find_Employee_Added_To_List_After_Index_Was_Built() {
+        reportService.increaseTotalEmployees(report, (Record<LocalDate>) record);
+
+        var employee = EmployeeReport.builder()
+                .id(EMP_ID_2)
+                .name(NAME_2)
+                .surname(SURNAME_2)
+                .designation(DESIGNATION_2)
+                .totalPaid(BigDecimal.valueOf(250)).build();
+
+        report.getEmployeeReports().add(employee);
+
+        record = Record.builder()
+                .SequenceNo(Long.parseLong(SEQUENCE_2))
+                .employee(Employee.builder().id(EMP_ID_2).build())
+                .type(EventType.SALARY)
+                .value(BigDecimal.valueOf(100))
+                .date(LocalDate.parse(EVENT_DATE, FORMATTER))
+                .note(NOTE).build();
+
+        reportService.addEmployeePaid(report, (Record<BigDecimal>) record, errors);
+
+        assertThat(errors.size()).isEqualTo(0);
+        assertThat(report.getEmployeeReports().get(1).getTotalPaid()).isEqualTo(BigDecimal.valueOf(350));
+    }
+
+    @Test
+    public void test_Aggregation_Should_Scale_To_200k_Employees() {
+        var employees = 200_000;
+        var date = LocalDate.parse(EVENT_DATE, FORMATTER);
+
+        for (int i = 0; i < employees; i++) {
+            var onboard = Record.<LocalDate>builder()
+                    .employee(Employee.builder().id("emp" + i).build())
+                    .type(EventType.ONBOARD)
+                    .value(date.plusDays(i % 60))
+                    .date(date).build();
+            reportService.increaseTotalEmployees(report, onboard);
+            reportService.addOnboardedEmployee(report, onboard);
+        }
+        for (int i = 0; i < employees; i++) {
+            var salary = Record.<BigDecimal>builder()
+                    .employee(Employee.builder().id("emp" + i).build())
+                    .type(EventType.SALARY)
+                    .value(BigDecimal.TEN)
+                    .date(date).build();
+            reportService.addSalaryReport(report, salary);
+            reportService.addEmployeePaid(report, salary, errors);
+        }
+
+        assertThat(errors.size()).isEqualTo(0);
+        assertThat(report.getTotalEmployees()).isEqualTo(employees);
+        assertThat(report.getMonthlyEmployeeReports().size()).isEqualTo(3);
+        assertThat(report.getMonthlySalaryReports().get(0).getTotalEmployees()).isEqualTo(employees);
+        assertThat(report.getEmployeeReports().get(employees - 1).getTotalPaid()).isEqualTo(BigDecimal.TEN);
+    }
+
+    @Test
+    public void test_addPaidReport_Should_Switch_To_HyperLogLog_Above_Threshold() {
+        ReflectionTestUtils.setField(reportService, "distinctCountMode", DistinctCountMode.HYPERLOGLOG);
+        ReflectionTestUtils.setField(reportService, "hyperLogLogThreshold", 1000L);
+        var employees = 50_000;
+        var date = LocalDate.parse(EVENT_DATE, FORMATTER);
+
+        for (int i = 0; i < employees; i++) {
+            for (int payment = 0; payment < 2; payment++) {
+                var salary = Record.<BigDecimal>builder()
+                        .employee(Employee.builder().id("emp" + i).build())
+                        .type(EventType.SALARY)
+                        .value(BigDecimal.ONE)
+                        .date(date).build();
+                reportService.addPaidReport(report, salary);
+            }
+        }
+
+        var mpr = report.getMonthlyPaidReports().get(0);
+        assertThat(mpr.getEmployees()).isInstanceOf(HyperLogLogCounter.class);
+        assertThat(mpr.getTotalPaid()).isEqualTo(BigDecimal.valueOf(2L * employees));
+        assertThat(mpr.getTotalEmployees()).isCloseTo(employees, withinPercentage(3));
+    }
+
+    @Test
+    public void test_merge_Should_Add_Source_Aggregates_Without_Sharing_Them() {
+        var source = Report.builder()
+                .totalEmployees(0L)
+                .employeeReports(new ArrayList<>())
+                .monthlyEmployeeReports(new ArrayList<>())
+                .monthlyPaidReports(new ArrayList<>())
+                .monthlySalaryReports(new ArrayList<>())
+                .yearlyReports(new ArrayList<>())
+                .build();
+        var salary = Record.<BigDecimal>builder()
+                .employee(Employee.builder().id(EMP_ID).build())
+                .type(EventType.SALARY)
+                .value(BigDecimal.valueOf(100))
+                .date(LocalDate.parse(EVENT_DATE, FORMATTER)).build();
+        var exit = Record.<LocalDate>builder()
+                .employee(Employee.builder().id(EMP_ID).build())
+                .type(EventType.EXIT)
+                .value(LocalDate.parse(EVENT_DATE, FORMATTER))
+                .date(LocalDate.parse(EVENT_DATE, FORMATTER)).build();
+
+        reportService.increaseTotalEmployees(report, (Record<LocalDate>) record);
+        reportService.addPaidReport(report, salary);
+        reportService.addEmployeePaid(report, salary, errors);
+
+        reportService.increaseTotalEmployees(source, (Record<LocalDate>) record);
+        reportService.addOnboardedEmployee(source, (Record<LocalDate>) record);
+        reportService.addSalaryReport(source, salary);
+        reportService.addPaidReport(source, salary);
+        reportService.addEmployeePaid(source, salary, errors);
+        reportService.decreaseTotalEmployees(source);
+        reportService.addExitedEmployee(source, exit, errors);
+        reportService.addYearlyEvent(source, salary);
+
+        reportService.merge(report, source);
+
+        assertThat(report.getTotalEmployees()).isEqualTo(1L);
+        assertThat(report.getEmployeeReports().size()).isEqualTo(2);
+        assertThat(report.getEmployeeReports().get(0).getTotalPaid()).isEqualTo(BigDecimal.valueOf(200));
+        assertThat(report.getEmployeeReports().get(1).getTotalPaid()).isEqualTo(BigDecimal.ZERO);
+        assertThat(report.getMonthlyEmployeeReports().get(1).getExitedEmployees().get(0))
+                .isSameAs(report.getEmployeeReports().get(0));
+        assertThat(report.getMonthlySalaryReports().get(0).getTotalSalary()).isEqualTo(BigDecimal.valueOf(100));
+        assertThat(report.getMonthlyPaidReports().get(0).getTotalPaid()).isEqualTo(BigDecimal.valueOf(200));
+        assertThat(report.getMonthlyPaidReports().get(0).getTotalEmployees()).isEqualTo(1L);
+        assertThat(report.getYearlyReports().get(0).getEvents().size()).isEqualTo(1);
+        assertThat(report.getYearlyReports().get(0)).isNotSameAs(source.getYearlyReports().get(0));
+        assertThat(report.getYearlyReports().get(0).getEvents().get(0))
+                .isEqualTo(source.getYearlyReports().get(0).getEvents().get(0))
+                .isNotSameAs(source.getYearlyReports().get(0).getEvents().get(0));
+        var onboarded = report.getMonthlyEmployeeReports().stream()
+                .flatMap(mer -> mer.getOnboardedEmployees().stream())
+                .toList();
+        assertThat(onboarded).singleElement()
+                .isEqualTo(source.getMonthlyEmployeeReports().get(0).getOnboardedEmployees().get(0))
+                .isNotSameAs(source.getMonthlyEmployeeReports().get(0).getOnboardedEmployees().get(0));
+        assertThat(source.getEmployeeReports().get(0).getTotalPaid()).isEqualTo(BigDecimal.valueOf(100));
+    }
 }
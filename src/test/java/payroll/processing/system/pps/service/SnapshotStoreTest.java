@@ -0,0 +1,69 @@
+package payroll.processing.system.pps.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class SnapshotStoreTest {
+    @TempDir
+    Path directory;
+
+    private SnapshotStore snapshotStore;
+
+    @BeforeEach
+    public void setUp() {
+        snapshotStore = new SnapshotStore();
+        ReflectionTestUtils.setField(snapshotStore, "dir", directory.toString());
+        snapshotStore.init();
+    }
+
+    @Test
+    public void test_load_Should_Read_Newest_Snapshot_And_Keep_Two() throws IOException {
+        for (String body : List.of("first", "second", "third")) {
+            snapshotStore.save(out -> out.writeUTF(body));
+        }
+
+        assertThat(load()).isEqualTo("third");
+        assertThat(snapshots()).hasSize(2);
+    }
+
+    @Test
+    public void test_load_Should_Fall_Back_To_Previous_Snapshot_If_Newest_Is_Damaged() throws IOException {
+        snapshotStore.save(out -> out.writeUTF("first"));
+        snapshotStore.save(out -> out.writeUTF("second"));
+        var newest = snapshots().get(1);
+        try (var channel = Files.newByteChannel(newest, StandardOpenOption.WRITE)) {
+            channel.position(10).write(ByteBuffer.wrap(new byte[] {'X'}));
+        }
+
+        assertThat(load()).isEqualTo("first");
+    }
+
+    @Test
+    public void test_load_Should_Return_False_Without_Snapshots() {
+        assertThat(snapshotStore.load(in -> fail("nothing to read"))).isFalse();
+    }
+
+    private String load() {
+        var body = new AtomicReference<String>();
+        assertThat(snapshotStore.load(in -> body.set(in.readUTF()))).isTrue();
+        return body.get();
+    }
+
+    private List<Path> snapshots() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".bin")).sorted().toList();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+/**
+ * Compares rows/sec of {@link CsvTokenizer} with the former {@code readLine().split(",")} path.
+ * Not part of the regular build, run it with {@code mvn test -Dtest=CsvTokenizerBenchmark}.
+ */
+public class CsvTokenizerBenchmark {
+    private static final int ROWS = 500_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void benchmark() throws IOException {
+        var content = content();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            var start = System.nanoTime();
+            var splitFields = split(content);
+            var splitNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var tokenizerFields = tokenize(content);
+            var tokenizerNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: split %,.0f rows/sec (%d fields), tokenizer %,.0f rows/sec (%d fields)%n",
+                    round, ROWS * 1e9 / splitNanos, splitFields, ROWS * 1e9 / tokenizerNanos, tokenizerFields);
+        }
+    }
+
+    private long split(String content) throws IOException {
+        var fields = 0L;
+        var reader = new BufferedReader(new StringReader(content));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            var parts = line.split(",");
+            for (String part : parts) {
+                fields += part.trim().length() > 0 ? 1 : 0;
+            }
+        }
+        return fields;
+    }
+
+    private long tokenize(String content) throws IOException {
+        var fields = 0L;
+        var tokenizer = new CsvTokenizer(new StringReader(content));
+        while (tokenizer.next()) {
+            for (int i = 0; i < tokenizer.fieldCount(); i++) {
+                fields += tokenizer.length(i) > 0 ? 1 : 0;
+            }
+        }
+        return fields;
+    }
+
+    private String content() {
+        var builder = new StringBuilder();
+        for (int i = 0; i < ROWS; i++) {
+            if (i % 4 == 0) {
+                builder.append(i).append(", emp").append(i).append(", Bill, Gates, Software Engineer, ONBOARD, ")
+                        .append("1-11-2022, 10-10-2022, “Bill Gates is going to join DataOrb on 1st November as a SE.”\n");
+            } else {
+                builder.append(i).append(", emp").append(i - i % 4).append(", SALARY, 3000, 10-10-2022, “Oct Salary.”\n");
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,88 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class CsvTokenizerTest {
+    private static final String ONBOARD_LINE = "1, emp101, Bill, Gates, Software Engineer, ONBOARD, 1-11-2022, 10-10-2022, " +
+            "“Bill Gates is going to join DataOrb on 1st November as a SE.”";
+    private static final String SALARY_LINE = "4, emp102, SALARY, 3000, 10-10-2022, “Oct Salary of Steve, paid in full.”";
+
+    private List<String[]> tokenize(String content, int bufferSize) throws IOException {
+        var lines = new ArrayList<String[]>();
+        var tokenizer = new CsvTokenizer(new StringReader(content), bufferSize);
+        while (tokenizer.next()) {
+            lines.add(tokenizer.toArray());
+        }
+        return lines;
+    }
+
+    @Test
+    public void test_next_Should_Trim_Fields_And_Keep_Curly_Quoted_Note_As_One_Field() throws IOException {
+        var lines = tokenize(ONBOARD_LINE + "\n" + SALARY_LINE + "\n", 1024);
+
+        assertThat(lines.size()).isEqualTo(2);
+        assertThat(lines.get(0)).containsExactly("1", "emp101", "Bill", "Gates", "Software Engineer", "ONBOARD",
+                "1-11-2022", "10-10-2022", "“Bill Gates is going to join DataOrb on 1st November as a SE.”");
+        assertThat(lines.get(1).length).isEqualTo(6);
+        assertThat(lines.get(1)[5]).isEqualTo("“Oct Salary of Steve, paid in full.”");
+    }
+
+    @Test
+    public void test_toArray_Should_Leave_Skipped_Fields_Null() throws IOException {
+        var tokenizer = new CsvTokenizer(new StringReader(ONBOARD_LINE + "\n" + SALARY_LINE + "\n"));
+        ColumnFilter filter = (fieldCount, field) -> field == fieldCount - 1 || fieldCount == 9 && field == 2;
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(tokenizer.toArray(filter)).containsExactly("1", "emp101", null, "Gates", "Software Engineer", "ONBOARD",
+                "1-11-2022", "10-10-2022", null);
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(tokenizer.toArray(filter)[5]).isNull();
+        assertThat(tokenizer.toArray(filter)[2]).isEqualTo("SALARY");
+    }
+
+    @Test
+    public void test_next_Should_Unescape_Standard_Quoted_Field() throws IOException {
+        var lines = tokenize("5, emp101, BONUS, 1000, 12-09-2022, \"Bonus, \"\"Q4\"\"\"", 1024);
+
+        assertThat(lines.get(0).length).isEqualTo(6);
+        assertThat(lines.get(0)[5]).isEqualTo("Bonus, \"Q4\"");
+    }
+
+    @Test
+    public void test_next_Should_Handle_CRLF_Missing_Final_Break_And_Small_Buffer() throws IOException {
+        var lines = tokenize(SALARY_LINE + "\r\n" + ONBOARD_LINE, 8);
+
+        assertThat(lines.size()).isEqualTo(2);
+        assertThat(lines.get(0)[5]).isEqualTo("“Oct Salary of Steve, paid in full.”");
+        assertThat(lines.get(1).length).isEqualTo(9);
+        assertThat(lines.get(1)[8]).endsWith("as a SE.”");
+    }
+
+    @Test
+    public void test_next_Should_Drop_Trailing_Empty_Fields_Like_Split() throws IOException {
+        var lines = tokenize("1, emp101,, ,\n\n", 1024);
+
+        assertThat(lines.size()).isEqualTo(2);
+        assertThat(lines.get(0)).containsExactly("1", "emp101");
+        assertThat(lines.get(1)).containsExactly("");
+    }
+
+    @Test
+    public void test_fieldEquals_Should_Compare_Without_Creating_Strings() throws IOException {
+        var tokenizer = new CsvTokenizer(new StringReader(SALARY_LINE));
+
+        assertThat(tokenizer.next()).isTrue();
+        assertThat(tokenizer.lineNumber()).isEqualTo(1L);
+        assertThat(tokenizer.fieldEquals(2, "SALARY")).isTrue();
+        assertThat(tokenizer.fieldEquals(2, "BONUS")).isFalse();
+        assertThat(tokenizer.length(3)).isEqualTo(4);
+        assertThat(tokenizer.next()).isFalse();
+    }
+}
@@ -0,0 +1,48 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class DistinctCounterTest {
+
+    @Test
+    public void test_BitmapDistinctCounter_Should_Count_Exactly_With_Shared_Dictionary() {
+        var dictionary = new EmployeeDictionary();
+        var october = new BitmapDistinctCounter(dictionary);
+        var november = new BitmapDistinctCounter(dictionary);
+
+        assertThat(october.add("emp101")).isTrue();
+        assertThat(october.add("emp102")).isTrue();
+        assertThat(october.add("emp101")).isFalse();
+        assertThat(november.add("emp102")).isTrue();
+
+        var ids = new ArrayList<String>();
+        october.forEach(ids::add);
+
+        assertThat(october.count()).isEqualTo(2L);
+        assertThat(november.count()).isEqualTo(1L);
+        assertThat(november.contains("emp101")).isFalse();
+        assertThat(ids).containsExactly("emp101", "emp102");
+        assertThat(dictionary.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_HyperLogLogCounter_Should_Estimate_Within_Three_Percent() {
+        var counter = new HyperLogLogCounter();
+
+        for (int i = 0; i < 10; i++) {
+            counter.add("emp" + i);
+        }
+        assertThat(counter.count()).isEqualTo(10L);
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < 1_000_000; i++) {
+                counter.add("emp" + i);
+            }
+        }
+        assertThat(counter.count()).isCloseTo(1_000_000L, withinPercentage(3));
+    }
+}
@@ -0,0 +1,67 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+import payroll.processing.system.pps.domain.enumaration.ErrorCategory;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ErrorCollectorTest {
+
+    @Test
+    public void test_add_Should_Count_Every_Error_And_Build_Only_Kept_Messages() {
+        var errors = new ErrorCollector(ErrorCategory.INVALID_RECORD, 2, null);
+        var built = new AtomicInteger();
+
+        for (int i = 1; i <= 5; i++) {
+            var line = i;
+            errors.add(ErrorCategory.INVALID_DATE, () -> {
+                built.incrementAndGet();
+                return "line " + line;
+            });
+        }
+        errors.add("wrong");
+
+        assertThat(errors).containsExactly("line 1", "line 2", "wrong");
+        assertThat(built).hasValue(2);
+        assertThat(errors.getCounts()).containsExactly(
+                entry(ErrorCategory.INVALID_DATE, 5L), entry(ErrorCategory.INVALID_RECORD, 1L));
+    }
+
+    @Test
+    public void test_add_Should_Keep_Messages_Within_Max_Size_But_First_Of_Every_Category() {
+        var errors = new ErrorCollector(ErrorCategory.INVALID_RECORD, 0, DataSize.ofBytes(40));
+        var message = "x".repeat(15);
+
+        errors.add(ErrorCategory.INVALID_DATE, () -> message);
+        errors.add(ErrorCategory.INVALID_DATE, () -> message);
+        errors.add(ErrorCategory.INVALID_DATE, () -> message);
+        errors.add(ErrorCategory.UNKNOWN_EMPLOYEE, () -> message);
+        errors.add(ErrorCategory.INVALID_DATE, () -> "y".repeat(2000));
+
+        assertThat(errors).hasSize(2);
+        assertThat(errors.getCategory(1)).isEqualTo(ErrorCategory.UNKNOWN_EMPLOYEE);
+        assertThat(errors.getCounts()).containsEntry(ErrorCategory.INVALID_DATE, 4L);
+    }
+
+    @Test
+    public void test_addAll_Should_Merge_Counts_Of_Collectors_And_Bound_Their_Messages() {
+        var target = new ErrorCollector(ErrorCategory.INCONSISTENT_REPORT, 2, null);
+        var source = new ErrorCollector(ErrorCategory.INCONSISTENT_REPORT, 2, null);
+        target.add(ErrorCategory.UNKNOWN_EMPLOYEE, () -> "first");
+        for (int i = 0; i < 3; i++) {
+            source.add(ErrorCategory.UNKNOWN_EMPLOYEE, () -> "second");
+        }
+
+        target.addAll(source);
+        target.addAll(List.of("plain"));
+        target.add(0, "summary");
+
+        assertThat(target).containsExactly("summary", "first", "second", "plain");
+        assertThat(target.getCounts()).containsExactly(
+                entry(ErrorCategory.UNKNOWN_EMPLOYEE, 4L), entry(ErrorCategory.INCONSISTENT_REPORT, 2L));
+    }
+}
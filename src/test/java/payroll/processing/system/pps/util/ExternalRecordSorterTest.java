@@ -0,0 +1,84 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import payroll.processing.system.pps.domain.Employee;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ExternalRecordSorterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void test_forEachSorted_Should_Sort_On_Heap_When_Input_Fits_One_Run() {
+        var records = List.of(salary(2, LocalDate.of(2022, 10, 10), "1"), salary(1, LocalDate.of(2022, 10, 10), "2"),
+                salary(3, LocalDate.of(2022, 9, 10), "3"));
+
+        assertThat(sort(records, 10)).extracting(Record::getSequenceNo).containsExactly(3L, 1L, 2L);
+    }
+
+    @Test
+    public void test_forEachSorted_Should_Merge_Spilled_Runs_And_Keep_Input_Order_Of_Ties() {
+        var random = new Random(42);
+        var records = new ArrayList<Record<?>>();
+        for (int i = 0; i < 1000; i++) {
+            records.add(salary(random.nextInt(20), LocalDate.of(2022, 1, 1).plusDays(random.nextInt(30)), String.valueOf(i)));
+        }
+
+        var expected = new ArrayList<>(records);
+        expected.sort(ExternalRecordSorter.CHRONOLOGICAL);
+
+        assertThat(sort(records, 7)).isEqualTo(expected);
+        assertThat(sort(records, 100)).isEqualTo(expected);
+    }
+
+    @Test
+    public void test_close_Should_Delete_Runs_Spilled_To_Directory() throws IOException {
+        var runs = directory.resolve("runs");
+        try (var sorter = new ExternalRecordSorter(2, runs)) {
+            for (int i = 0; i < 5; i++) {
+                sorter.accept(salary(i, LocalDate.of(2022, 1, 1), String.valueOf(i)));
+            }
+            try (var files = Files.list(runs)) {
+                assertThat(files.toList()).hasSize(2);
+            }
+        }
+
+        try (var files = Files.list(runs)) {
+            assertThat(files.toList()).isEmpty();
+        }
+    }
+
+    private List<Record<?>> sort(List<Record<?>> records, int runRecords) {
+        var sorted = new ArrayList<Record<?>>();
+        try (var sorter = new ExternalRecordSorter(runRecords, directory)) {
+            records.forEach(sorter);
+            sorter.forEachSorted(sorted::add);
+        }
+        return sorted;
+    }
+
+    private static Record<?> salary(long sequenceNo, LocalDate date, String amount) {
+        return Record.builder()
+                .SequenceNo(sequenceNo)
+                .employee(Employee.builder().id("emp101").build())
+                .type(EventType.SALARY)
+                .value(new BigDecimal(amount))
+                .date(date)
+                .note("Salary")
+                .build();
+    }
+}
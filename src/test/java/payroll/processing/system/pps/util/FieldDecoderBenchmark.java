@@ -0,0 +1,53 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Compares fields/sec of {@link FieldDecoder} with {@code LocalDate.parse}, {@code new BigDecimal} and {@code EventType.valueOf}.
+ * Not part of the regular build, run it with {@code mvn test -Dtest=FieldDecoderBenchmark}.
+ */
+public class FieldDecoderBenchmark {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M-dd-yyyy");
+    private static final int ROWS = 1_000_000;
+    private static final int ROUNDS = 5;
+    private static final String[] TYPES = {"SALARY", "BONUS", "REIMBURSEMENT", "SALARY"};
+
+    @Test
+    public void benchmark() {
+        var dates = new String[ROWS];
+        var amounts = new String[ROWS];
+        for (int i = 0; i < ROWS; i++) {
+            dates[i] = (1 + i % 12) + "-" + String.format("%02d", 1 + i % 28) + "-" + (2000 + i % 24);
+            amounts[i] = (1000 + i % 5000) + "." + (i % 100);
+        }
+        var decoder = new FieldDecoder();
+
+        for (int round = 0; round < ROUNDS; round++) {
+            var start = System.nanoTime();
+            var parsed = 0L;
+            for (int i = 0; i < ROWS; i++) {
+                parsed += LocalDate.parse(dates[i].trim(), FORMATTER).getDayOfMonth();
+                parsed += new BigDecimal(amounts[i].trim()).scale();
+                parsed += EventType.valueOf(TYPES[i & 3]).ordinal();
+            }
+            var parserNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            var decoded = 0L;
+            for (int i = 0; i < ROWS; i++) {
+                decoded += decoder.date(dates[i]).getDayOfMonth();
+                decoded += decoder.amount(amounts[i]).scale();
+                decoded += decoder.eventType(TYPES[i & 3]).ordinal();
+            }
+            var decoderNanos = System.nanoTime() - start;
+
+            System.out.printf("round %d: parsers %,.0f rows/sec (%d), decoder %,.0f rows/sec (%d)%n",
+                    round, ROWS * 1e9 / parserNanos, parsed, ROWS * 1e9 / decoderNanos, decoded);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class FieldDecoderTest {
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("M-dd-yyyy");
+
+    private final FieldDecoder decoder = new FieldDecoder();
+
+    @Test
+    public void test_date_Should_Decode_Like_The_Formatter() {
+        var fields = List.of("1-11-2022", "10-10-2022", " 12-31-1999 ", "01-05-2022", "2-29-2024", "2-30-2022",
+                "2-29-2023", "010-01-2022", "1-1-2022", "13-01-2022", "0-10-2022", "1-00-2022", "1-32-2022",
+                "1-11-0000", "1-11-22", "1/11/2022", "a-11-2022", "1-11-20222", "", " ");
+
+        for (int round = 0; round < 2; round++) {
+            fields.forEach(field -> {
+                LocalDate expected;
+                try {
+                    expected = LocalDate.parse(field.trim(), FORMATTER);
+                } catch (RuntimeException e) {
+                    assertThatThrownBy(() -> decoder.date(field)).isInstanceOf(e.getClass());
+                    return;
+                }
+                assertThat(decoder.date(field)).as(field).isEqualTo(expected);
+            });
+        }
+    }
+
+    @Test
+    public void test_amount_Should_Decode_Like_BigDecimal() {
+        var fields = List.of("3000", " 3000.50 ", "0.001", "-12.5", "+7", "-0", ".5", "5.", "007.10",
+                "999999999999999999", "1234567890123456789.5", "1E+3", "1e2", "", "-", ".", "1.2.3", "12a", "1 000");
+
+        fields.forEach(field -> {
+            BigDecimal expected;
+            try {
+                expected = new BigDecimal(field.trim());
+            } catch (RuntimeException e) {
+                assertThatThrownBy(() -> decoder.amount(field)).isInstanceOf(e.getClass());
+                return;
+            }
+            var actual = decoder.amount(field);
+            assertThat(actual).as(field).isEqualTo(expected);
+            assertThat(actual.toString()).as(field).isEqualTo(expected.toString());
+        });
+    }
+
+    @Test
+    public void test_eventType_Should_Decode_Like_ValueOf() {
+        for (EventType type : EventType.values()) {
+            assertThat(decoder.eventType(type.name())).isEqualTo(type);
+        }
+        assertThatThrownBy(() -> decoder.eventType("SALARIES")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> decoder.eventType("salary")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> decoder.eventType("")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> decoder.eventType("ÉXIT")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,48 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class ListIndexTest {
+
+    @Test
+    public void test_get_Should_Index_Elements_Appended_Directly_To_The_List() {
+        var index = new ListIndex<Integer, String>(String::length);
+        var list = new ArrayList<String>();
+
+        index.add(list, "a");
+        list.add("bb");
+
+        assertThat(index.get(list, 1)).isEqualTo("a");
+        assertThat(index.get(list, 2)).isEqualTo("bb");
+        assertThat(index.get(list, 3)).isNull();
+        assertThat(list).containsExactly("a", "bb");
+    }
+
+    @Test
+    public void test_get_Should_Return_First_Element_For_Duplicate_Keys() {
+        var index = new ListIndex<Integer, String>(String::length);
+        var list = new ArrayList<String>();
+
+        index.add(list, "a");
+        index.add(list, "b");
+
+        assertThat(index.get(list, 1)).isEqualTo("a");
+        assertThat(list.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void test_get_Should_Rebuild_When_List_Shrinks_Or_Is_Replaced() {
+        var index = new ListIndex<Integer, String>(String::length);
+        var list = new ArrayList<>(List.of("a", "bb"));
+
+        assertThat(index.get(list, 2)).isEqualTo("bb");
+        list.remove(1);
+        assertThat(index.get(list, 2)).isNull();
+        assertThat(index.get(new ArrayList<>(List.of("ccc")), 1)).isNull();
+    }
+}
@@ -0,0 +1,54 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class MoneyAccumulatorTest {
+
+    @Test
+    public void test_add_Should_Sum_Like_BigDecimal() {
+        var random = new Random(17);
+        for (int round = 0; round < 200; round++) {
+            var accumulator = new MoneyAccumulator(2);
+            var expected = (BigDecimal) null;
+            for (int i = 0; i < 50; i++) {
+                var amount = BigDecimal.valueOf(random.nextInt(2_000_000) - 1_000_000, random.nextInt(5) - 2);
+                accumulator.add(amount);
+                expected = expected == null ? amount : expected.add(amount);
+            }
+            assertThat(accumulator.toBigDecimal().toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    public void test_add_Should_Keep_Scale_Of_Amounts_Like_BigDecimal() {
+        var amounts = List.of("0", "3000", "500.50", "1E+3", "0.125", "-3500.5");
+        var accumulator = new MoneyAccumulator(2);
+        var expected = BigDecimal.ZERO;
+        assertThat(accumulator.toBigDecimal()).isNull();
+
+        for (String amount : amounts) {
+            accumulator.add(new BigDecimal(amount));
+            expected = expected.add(new BigDecimal(amount));
+            assertThat(accumulator.toBigDecimal().toString()).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    public void test_add_Should_Fall_Back_To_BigDecimal_On_Overflow() {
+        var accumulator = new MoneyAccumulator(2);
+        accumulator.add(Long.MAX_VALUE / 2, 2);
+        accumulator.add(Long.MAX_VALUE / 2, 2);
+        accumulator.add(Long.MAX_VALUE / 2, 2);
+        accumulator.add(new BigDecimal("123456789012345678901234567890"));
+
+        var half = BigDecimal.valueOf(Long.MAX_VALUE / 2, 2);
+        assertThat(accumulator.toBigDecimal())
+                .isEqualTo(half.add(half).add(half).add(new BigDecimal("123456789012345678901234567890")));
+    }
+}
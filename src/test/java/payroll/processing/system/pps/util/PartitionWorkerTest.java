@@ -0,0 +1,55 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PartitionWorkerTest {
+
+    @Test
+    public void test_submit_Should_Handle_Batches_In_Order() {
+        var executor = new ForkJoinPool(4);
+        var handled = new ArrayList<Integer>();
+        var worker = new PartitionWorker<Integer>(executor, 2, handled::addAll);
+
+        try {
+            IntStream.range(0, 1000).forEach(i -> worker.submit(List.of(i * 2, i * 2 + 1)));
+            worker.close().join();
+
+            assertThat(handled).containsExactlyElementsOf(IntStream.range(0, 2000).boxed().toList());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_close_Should_Complete_With_The_Failure_Of_The_Handler() {
+        var executor = new ForkJoinPool(1);
+        var worker = new PartitionWorker<Integer>(executor, 4, batch -> {
+            throw new IllegalArgumentException("bad batch");
+        });
+
+        try {
+            worker.submit(List.of(1));
+
+            assertThatThrownBy(() -> worker.close().join())
+                    .isInstanceOf(CompletionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_close_Should_Complete_Without_Batches() {
+        var worker = new PartitionWorker<Integer>(Runnable::run, 1, batch -> {});
+
+        assertThat(worker.close()).isCompleted();
+    }
+}
@@ -0,0 +1,98 @@
+package payroll.processing.system.pps.util;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import payroll.processing.system.pps.domain.Error;
+import payroll.processing.system.pps.domain.PayrollResponse;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.domain.report.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares payload size, encode and decode time of JSON, Smile and CBOR for a report of many employees and events.
+ * Not part of the regular build, run it with {@code mvn test -Dtest=PayrollEncodingBenchmark}.
+ */
+public class PayrollEncodingBenchmark {
+    private static final int EMPLOYEES = 100_000;
+    private static final int EVENTS_PER_EMPLOYEE = 12;
+    private static final int ROUNDS = 5;
+
+    @Test
+    public void benchmark() throws IOException {
+        var writer = PayrollResponseWriterTest.writer();
+        var response = response();
+        var decoders = List.<ObjectMapper>of(
+                Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build(),
+                new SmileMapper(),
+                new CBORMapper());
+        var formats = List.of(MediaType.APPLICATION_JSON,
+                MediaType.parseMediaType(PayrollResponseWriter.SMILE_VALUE),
+                MediaType.parseMediaType(PayrollResponseWriter.CBOR_VALUE));
+
+        for (int round = 0; round < ROUNDS; round++) {
+            for (int i = 0; i < formats.size(); i++) {
+                var out = new ByteArrayOutputStream();
+                var start = System.nanoTime();
+                writer.write(response, formats.get(i), out);
+                var encodeNanos = System.nanoTime() - start;
+
+                var bytes = out.toByteArray();
+                start = System.nanoTime();
+                decoders.get(i).readTree(bytes);
+                var decodeNanos = System.nanoTime() - start;
+
+                System.out.printf("round %d: %-28s %,12d bytes, encode %,6d ms, decode %,6d ms%n",
+                        round, formats.get(i), bytes.length, encodeNanos / 1_000_000, decodeNanos / 1_000_000);
+            }
+        }
+    }
+
+    private PayrollResponse response() {
+        var employees = new ArrayList<EmployeeReport>();
+        var events = new ArrayList<EventReport<?>>();
+        for (int i = 0; i < EMPLOYEES; i++) {
+            employees.add(EmployeeReport.builder().id("emp" + i).name("Name" + i).surname("Surname" + i)
+                    .designation("Software Engineer").totalPaid(new BigDecimal(i % 5000 + ".50")).build());
+            events.add(new EventReport<>(EventType.ONBOARD, "emp" + i, LocalDate.of(2022, 1, 1 + i % 28), LocalDate.of(2021, 12, 1)));
+            for (int month = 1; month < EVENTS_PER_EMPLOYEE; month++) {
+                events.add(new EventReport<>(EventType.SALARY, "emp" + i, new BigDecimal("3000.00"), LocalDate.of(2022, month, 10)));
+            }
+        }
+
+        var monthlySalaryReports = new ArrayList<MonthlySalaryReport>();
+        var monthlyPaidReports = new ArrayList<MonthlyPaidReport>();
+        for (int month = 1; month <= 12; month++) {
+            monthlySalaryReports.add(MonthlySalaryReport.builder().month(YearMonth.of(2022, month))
+                    .totalSalary(new BigDecimal("300000000.00")).totalEmployees((long) EMPLOYEES).build());
+            monthlyPaidReports.add(MonthlyPaidReport.builder().month(YearMonth.of(2022, month))
+                    .totalPaid(new BigDecimal("300000000.00")).totalEmployees((long) EMPLOYEES).build());
+        }
+
+        return PayrollResponse.builder()
+                .report(Report.builder()
+                        .totalEmployees((long) EMPLOYEES)
+                        .employeeReports(employees)
+                        .monthlyEmployeeReports(List.of(MonthlyEmployeeReport.builder().month(YearMonth.of(2022, 1))
+                                .totalOnboardedEmployees((long) EMPLOYEES).OnboardedEmployees(employees)
+                                .totalExitedEmployee(0L).exitedEmployees(List.of()).build()))
+                        .monthlySalaryReports(monthlySalaryReports)
+                        .monthlyPaidReports(monthlyPaidReports)
+                        .yearlyReports(List.of(new YearlyReport(Year.of(2022), events)))
+                        .build())
+                .error(Error.builder().fileErrors(List.of()).recordErrors(List.of()).reportErrors(List.of()).build())
+                .build();
+    }
+}
@@ -0,0 +1,149 @@
+package payroll.processing.system.pps.util;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import payroll.processing.system.pps.domain.Error;
+import payroll.processing.system.pps.domain.PayrollResponse;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.domain.report.*;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.Year;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class PayrollResponseWriterTest {
+    private static final MediaType SMILE = MediaType.parseMediaType(PayrollResponseWriter.SMILE_VALUE);
+    private static final MediaType CBOR = MediaType.parseMediaType(PayrollResponseWriter.CBOR_VALUE);
+
+    @Test
+    public void test_write_Should_Match_Object_Mapper_Output() throws Exception {
+        var mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        var customized = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .modulesToInstall(new PayrollJsonModule())
+                .build();
+        var response = response();
+        var out = new ByteArrayOutputStream();
+
+        new PayrollResponseWriter(customized.getFactory()).write(response, out);
+
+        var expected = mapper.writeValueAsString(response);
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(expected);
+        assertThat(customized.writeValueAsString(response)).isEqualTo(expected);
+    }
+
+    @Test
+    public void test_write_Should_Leave_Out_Null_Fields() throws Exception {
+        var out = new ByteArrayOutputStream();
+
+        new PayrollResponseWriter(Jackson2ObjectMapperBuilder.json().build().getFactory())
+                .write(PayrollResponse.builder().error(Error.builder().fileErrors(List.of("Wrong file")).build()).build(), out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo("{\"error\":{\"fileErrors\":[\"Wrong file\"],\"errorCounts\":{\"FILE\":1}}}");
+    }
+
+    @Test
+    public void test_negotiate_Should_Prefer_Accepted_Encoding() {
+        var writer = writer();
+
+        assertThat(writer.negotiate(null)).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(writer.negotiate("*/*")).isEqualTo(MediaType.APPLICATION_JSON);
+        assertThat(writer.negotiate("application/cbor")).isEqualTo(CBOR);
+        assertThat(writer.negotiate("application/json;q=0.5, application/x-jackson-smile")).isEqualTo(SMILE);
+        assertThat(writer.negotiate("application/*, application/cbor")).isEqualTo(CBOR);
+        assertThat(writer.negotiate("*/*;q=0.8, application/x-jackson-smile;q=0.8, application/xml")).isEqualTo(SMILE);
+        assertThat(writer.negotiate("application/xml")).isNull();
+    }
+
+    @Test
+    public void test_write_Should_Encode_Binary_Formats_Repeatably() throws Exception {
+        var writer = writer();
+        var mapper = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        var response = response();
+        var expected = mapper.readTree(mapper.writeValueAsString(response));
+
+        for (var format : List.of(SMILE, CBOR)) {
+            var first = new ByteArrayOutputStream();
+            var second = new ByteArrayOutputStream();
+            writer.write(response, format, first);
+            writer.write(response, format, second);
+
+            var decoder = format.equals(SMILE) ? new SmileMapper() : new CBORMapper();
+            var decoded = decoder.readTree(first.toByteArray());
+            assertThat(first.toByteArray()).isEqualTo(second.toByteArray());
+            assertThat(decoded.path("report").path("employeeReports").get(0).path("totalPaid").decimalValue())
+                    .isEqualByComparingTo(new BigDecimal("3500.50"));
+            assertThat(decoded.path("report").path("yearlyReports").get(0).path("events").get(0).path("date").asText())
+                    .isEqualTo("2021-12-20");
+            assertThat(decoded.path("error")).isEqualTo(expected.path("error"));
+            assertThat(first.size()).isLessThan(mapper.writeValueAsBytes(response).length);
+        }
+    }
+
+    static PayrollResponseWriter writer() {
+        var factories = new LinkedHashMap<MediaType, JsonFactory>();
+        factories.put(MediaType.APPLICATION_JSON, Jackson2ObjectMapperBuilder.json().build().getFactory());
+        factories.put(SMILE, new SmileMapper().getFactory());
+        factories.put(CBOR, new CBORMapper().getFactory());
+        return new PayrollResponseWriter(factories);
+    }
+
+    static PayrollResponse response() {
+        var bill = EmployeeReport.builder().id("emp101").name("Bill").surname("Gates").designation("Software Engineer")
+                .totalPaid(new BigDecimal("3500.50")).build();
+        var steve = EmployeeReport.builder().id("emp102").name("Steve").surname("Jobs").designation("Architect").build();
+
+        var counter = new BitmapDistinctCounter(new EmployeeDictionary());
+        counter.add("emp101");
+        var events = new ArrayList<EventReport<?>>();
+        events.add(new EventReport<>(EventType.ONBOARD, "emp101", LocalDate.of(2022, 1, 5), LocalDate.of(2021, 12, 20)));
+        events.add(new EventReport<>(EventType.SALARY, "emp101", new BigDecimal("1E+3"), LocalDate.of(2022, 10, 10)));
+
+        var report = Report.builder()
+                .totalEmployees(2L)
+                .employeeReports(List.of(bill, steve))
+                .monthlyEmployeeReports(List.of(MonthlyEmployeeReport.builder()
+                        .month(YearMonth.of(2022, 1))
+                        .totalOnboardedEmployees(1L)
+                        .OnboardedEmployees(List.of(steve))
+                        .totalExitedEmployee(1L)
+                        .exitedEmployees(List.of(bill)).build()))
+                .monthlySalaryReports(List.of(MonthlySalaryReport.builder()
+                        .month(YearMonth.of(2022, 10))
+                        .totalSalary(new BigDecimal("3000"))
+                        .totalEmployees(1L).build()))
+                .monthlyPaidReports(List.of(MonthlyPaidReport.builder()
+                        .month(YearMonth.of(2022, 10))
+                        .totalPaid(new BigDecimal("3500.50"))
+                        .totalEmployees(1L)
+                        .employees(counter).build()))
+                .yearlyReports(List.of(new YearlyReport(Year.of(2022), events), new YearlyReport(Year.of(12022), List.of())))
+                .build();
+
+        return PayrollResponse.builder()
+                .report(report)
+                .error(Error.builder()
+                        .fileErrors(List.of("Wrong media type: image/jpeg, file: event.jpeg"))
+                        .recordErrors(List.of())
+                        .reportErrors(List.of("There is no \"employee\" for “emp103”"))
+                        .build())
+                .build();
+    }
+}
@@ -0,0 +1,60 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.slf4j.Logger;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+public class RateLimitedLogTest {
+
+    @Test
+    public void test_error_Should_Log_At_Most_Rate_Errors_Per_Second_And_Count_The_Others() {
+        var logger = mock(Logger.class);
+        var executor = mock(ScheduledExecutorService.class);
+        var clock = new AtomicLong(10_250);
+        var built = new AtomicInteger();
+        try (var errorLog = new RateLimitedLog(logger, executor, clock::get)) {
+            errorLog.setRate(2);
+
+            for (int i = 0; i < 10; i++) {
+                var line = i;
+                errorLog.error(() -> "line " + line + " of " + built.incrementAndGet(), new NumberFormatException("wrong"));
+            }
+            var drain = ArgumentCaptor.forClass(Runnable.class);
+            verify(executor).execute(drain.capture());
+            drain.getValue().run();
+
+            verify(logger, times(2)).error(anyString(), anyString(), anyString());
+            verify(logger, never()).warn(anyString(), anyLong());
+
+            var next = ArgumentCaptor.forClass(Runnable.class);
+            verify(executor).schedule(next.capture(), eq(750L), eq(TimeUnit.MILLISECONDS));
+            clock.addAndGet(750);
+            next.getValue().run();
+
+            verify(logger).warn("{} more errors were not logged", 8L);
+            verify(logger, never()).error(anyString(), any(Throwable.class));
+            verifyNoMoreInteractions(executor);
+            assertThat(built.get()).isEqualTo(2);
+        }
+    }
+
+    @Test
+    public void test_close_Should_Stop_Logging() {
+        var logger = mock(Logger.class);
+        var errorLog = new RateLimitedLog(logger);
+
+        errorLog.close();
+        errorLog.error(() -> "line 1", null);
+
+        verify(logger, after(200).never()).error(anyString());
+    }
+}
@@ -0,0 +1,85 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+import payroll.processing.system.pps.domain.Employee;
+import payroll.processing.system.pps.domain.Record;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RecordBatchTest {
+    private static final Record<?> ONBOARD_RECORD = Record.builder()
+            .SequenceNo(1L)
+            .employee(Employee.builder().id("emp101").name("Bill").surname("Gates").designation("Software Engineer").build())
+            .type(EventType.ONBOARD)
+            .value(LocalDate.of(2022, 11, 1))
+            .date(LocalDate.of(2022, 10, 10))
+            .note("“Joined.”").build();
+
+    private static Record<?> payment(long sequenceNo, EventType type, BigDecimal amount) {
+        return Record.builder()
+                .SequenceNo(sequenceNo)
+                .employee(Employee.builder().id("emp" + (100 + sequenceNo % 7)).build())
+                .type(type)
+                .value(amount)
+                .date(LocalDate.of(2022, 10, 1).plusDays(sequenceNo % 60))
+                .note(null).build();
+    }
+
+    @Test
+    public void test_get_Should_Return_Equal_Records_After_Growing() {
+        var batch = new RecordBatch();
+        var records = new ArrayList<Record<?>>();
+        records.add(ONBOARD_RECORD);
+        for (long i = 2; i < 3000; i++) {
+            records.add(payment(i, i % 3 == 0 ? EventType.BONUS : EventType.SALARY, BigDecimal.valueOf(i * 101, 2)));
+        }
+        records.forEach(batch::add);
+
+        assertThat(batch.size()).isEqualTo(records.size());
+        for (int row = 0; row < batch.size(); row++) {
+            assertThat(batch.get(row)).isEqualTo(records.get(row));
+        }
+        assertThat(batch.dateValue(0)).isEqualTo(LocalDate.of(2022, 11, 1));
+        assertThat(batch.amount(1).toString()).isEqualTo("2.02");
+        assertThat(batch.employeeId(1)).isEqualTo("emp102");
+    }
+
+    @Test
+    public void test_amount_Should_Keep_Amounts_That_Do_Not_Fit_A_Long() {
+        var batch = new RecordBatch();
+        var large = new BigDecimal("123456789012345678901234567890.12");
+        var scaled = new BigDecimal("1E+3");
+        batch.add(payment(1, EventType.SALARY, large));
+        batch.add(payment(2, EventType.REIMBURSEMENT, scaled));
+
+        assertThat(batch.amount(0)).isEqualTo(large);
+        assertThat(batch.amount(1).toString()).isEqualTo("1E+3");
+        assertThat(batch.get(1).getEmployee().getName()).isNull();
+    }
+
+    @Test
+    public void test_addOnboard_Should_Store_Rows_Equal_To_Added_Records() {
+        var batch = new RecordBatch();
+        var exit = Record.builder()
+                .SequenceNo(2L)
+                .employee(Employee.builder().id("emp101").build())
+                .type(EventType.EXIT)
+                .value(LocalDate.of(2022, 12, 31))
+                .date(LocalDate.of(2022, 12, 1))
+                .note(null).build();
+
+        batch.addOnboard(1, "emp101", "Bill", "Gates", "Software Engineer",
+                LocalDate.of(2022, 11, 1), LocalDate.of(2022, 10, 10), "“Joined.”");
+        batch.addExit(2, "emp101", LocalDate.of(2022, 12, 31), LocalDate.of(2022, 12, 1), null);
+        batch.addPayment(3, "emp103", EventType.SALARY, BigDecimal.valueOf(303, 2), LocalDate.of(2022, 10, 4), null);
+
+        assertThat(batch.get(0)).isEqualTo(ONBOARD_RECORD);
+        assertThat(batch.get(1)).isEqualTo(exit);
+        assertThat(batch.get(2)).isEqualTo(payment(3, EventType.SALARY, BigDecimal.valueOf(303, 2)));
+    }
+}
@@ -0,0 +1,60 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class RingBufferTest {
+
+    @Test
+    public void test_consume_Should_Pass_Entries_Through_Stages_In_Order() {
+        var executor = new ForkJoinPool(1);
+        var ring = new RingBuffer<int[]>(4, () -> new int[1], 2);
+        var handled = new ArrayList<Integer>();
+
+        try {
+            var doubling = CompletableFuture.runAsync(() -> ring.consume(0, entry -> entry[0] *= 2), executor);
+            var collecting = CompletableFuture.runAsync(() -> ring.consume(1, entry -> handled.add(entry[0])), executor);
+
+            IntStream.range(0, 10_000).forEach(i -> {
+                ring.claim()[0] = i;
+                ring.publish();
+            });
+            ring.close();
+            CompletableFuture.allOf(doubling, collecting).join();
+
+            assertThat(ring.capacity()).isEqualTo(4);
+            assertThat(handled).containsExactlyElementsOf(IntStream.range(0, 10_000).map(i -> i * 2).boxed().toList());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test_claim_Should_Stop_Producer_When_A_Stage_Fails() {
+        var executor = new ForkJoinPool(1);
+        var ring = new RingBuffer<int[]>(2, () -> new int[1], 1);
+
+        try {
+            var failing = CompletableFuture.runAsync(() -> ring.consume(0, entry -> {
+                throw new IllegalArgumentException("bad entry");
+            }), executor);
+
+            assertThatThrownBy(() -> IntStream.range(0, 100).forEach(i -> {
+                ring.claim()[0] = i;
+                ring.publish();
+            })).isInstanceOf(IllegalStateException.class).hasCauseInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(failing::join)
+                    .isInstanceOf(CompletionException.class)
+                    .hasCauseInstanceOf(IllegalArgumentException.class);
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package payroll.processing.system.pps.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import payroll.processing.system.pps.domain.enumaration.EventType;
+import payroll.processing.system.pps.domain.report.EventReport;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+
+public class TieredEventListTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    public void test_add_Should_Spill_Oldest_Years_Over_Budget_And_Keep_Order() throws IOException {
+        var tiers = new EventTiers(4, directory);
+        var cold = tiers.newList(Year.of(2021));
+        var hot = tiers.newList(Year.of(2022));
+        var expectedCold = new ArrayList<EventReport<?>>();
+        var expectedHot = new ArrayList<EventReport<?>>();
+
+        for (int i = 0; i < 5; i++) {
+            expectedCold.add(salary("emp" + i, LocalDate.of(2021, 5, 1)));
+            cold.add(expectedCold.get(i));
+        }
+        for (int i = 0; i < 3; i++) {
+            expectedHot.add(onboard("emp" + i, LocalDate.of(2022, 1, 1)));
+            hot.add(expectedHot.get(i));
+        }
+
+        assertThat(spills()).hasSize(1);
+        assertThat(cold).hasSize(5).isEqualTo(expectedCold);
+        assertThat(cold.get(4)).isEqualTo(expectedCold.get(4));
+        assertThat(hot).isEqualTo(expectedHot);
+    }
+
+    @Test
+    public void test_add_Should_Spill_Newest_Year_Last_When_It_Alone_Is_Over_Budget() throws IOException {
+        var tiers = new EventTiers(2, directory);
+        var events = tiers.newList(Year.of(2022));
+        var expected = new ArrayList<EventReport<?>>();
+
+        for (int i = 0; i < 7; i++) {
+            expected.add(salary("emp" + i, LocalDate.of(2022, 3, i + 1)));
+            events.add(expected.get(i));
+        }
+
+        assertThat(spills()).hasSize(1);
+        assertThat(events).isEqualTo(expected);
+        assertThat(events.listIterator(5).next()).isEqualTo(expected.get(5));
+    }
+
+    @Test
+    public void test_add_Should_Keep_Every_Event_On_Heap_Without_Budget() throws IOException {
+        var tiers = new EventTiers(0, directory);
+        var events = tiers.newList(Year.of(2022));
+
+        for (int i = 0; i < 100; i++) {
+            events.add(salary("emp" + i, LocalDate.of(2022, 3, 1)));
+        }
+
+        assertThat(spills()).isEmpty();
+        assertThat(events).hasSize(100);
+    }
+
+    @Test
+    public void test_add_Should_Share_One_Budget_Between_Reports() throws IOException {
+        var budget = new EventBudget(6, directory);
+        var first = budget.newTiers().newList(Year.of(2022));
+        var second = budget.newTiers().newList(Year.of(2022));
+
+        for (int i = 0; i < 4; i++) {
+            first.add(salary("emp" + i, LocalDate.of(2022, 3, 1)));
+        }
+        assertThat(spills()).isEmpty();
+
+        for (int i = 0; i < 4; i++) {
+            second.add(salary("emp" + i, LocalDate.of(2022, 4, 1)));
+        }
+
+        assertThat(spills()).hasSize(1);
+        assertThat(budget.getHeapEvents()).isLessThanOrEqualTo(6);
+        assertThat(first).hasSize(4);
+        assertThat(second).hasSize(4);
+    }
+
+    @Test
+    public void test_release_Should_Give_The_Share_Back_And_Retire_Should_Spill_Kept_Events() throws IOException {
+        var budget = new EventBudget(6, directory);
+        var finished = budget.newTiers();
+        var kept = budget.newTiers();
+        var finishedEvents = finished.newList(Year.of(2022));
+        var keptEvents = kept.newList(Year.of(2022));
+        for (int i = 0; i < 3; i++) {
+            finishedEvents.add(salary("emp" + i, LocalDate.of(2022, 3, 1)));
+            keptEvents.add(salary("emp" + i, LocalDate.of(2022, 4, 1)));
+        }
+
+        finished.release();
+        finished.release();
+        kept.retire();
+
+        assertThat(budget.getHeapEvents()).isZero();
+        assertThat(spills()).hasSize(1);
+        assertThat(keptEvents).hasSize(3).extracting(EventReport::getDate).containsOnly(LocalDate.of(2022, 4, 1));
+
+        var next = budget.newTiers().newList(Year.of(2022));
+        for (int i = 0; i < 6; i++) {
+            next.add(salary("emp" + i, LocalDate.of(2022, 5, 1)));
+        }
+        assertThat(spills()).hasSize(1);
+    }
+
+    @Test
+    public void test_get_Should_Read_Spilled_Event_From_Its_Checkpoint() {
+        var tiers = new EventTiers(50, directory);
+        var events = tiers.newList(Year.of(2022));
+        var expected = new ArrayList<EventReport<?>>();
+
+        for (int i = 0; i < 500; i++) {
+            expected.add(salary("emp" + i, LocalDate.of(2022, 1, 1).plusDays(i % 365)));
+            events.add(expected.get(i));
+        }
+
+        for (int i : new int[]{0, 50, 63, 64, 65, 127, 300, 459, 499}) {
+            assertThat(events.get(i)).isEqualTo(expected.get(i));
+        }
+        assertThat(events.listIterator(130).next()).isEqualTo(expected.get(130));
+    }
+
+    @Test
+    public void test_chainedList_Should_Read_Spilled_Events_Without_Copying_Them() {
+        var tiers = new EventTiers(2, directory);
+        var spilled = tiers.newList(Year.of(2022));
+        var expected = new ArrayList<EventReport<?>>();
+        for (int i = 0; i < 5; i++) {
+            expected.add(salary("emp" + i, LocalDate.of(2022, 3, 1)));
+            spilled.add(expected.get(i));
+        }
+        var onHeap = List.<EventReport<?>>of(onboard("emp9", LocalDate.of(2022, 6, 1)));
+        expected.addAll(onHeap);
+
+        var chained = new ChainedList<EventReport<?>>(List.of(spilled, List.of(), onHeap));
+
+        assertThat(chained).hasSize(6).isEqualTo(expected);
+        assertThat(chained.get(5)).isEqualTo(onHeap.get(0));
+    }
+
+    private List<Path> spills() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static EventReport<?> salary(String employeeId, LocalDate date) {
+        return new EventReport<>(EventType.SALARY, employeeId, new BigDecimal("1000.50"), date);
+    }
+
+    private static EventReport<?> onboard(String employeeId, LocalDate date) {
+        return new EventReport<>(EventType.ONBOARD, employeeId, date, date.minusDays(10));
+    }
+}